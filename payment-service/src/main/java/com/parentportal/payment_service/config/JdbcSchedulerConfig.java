@@ -0,0 +1,23 @@
+package com.parentportal.payment_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Scheduler for the blocking JDBC/JPA part of the reactive payment-creation path.
+ * Request threads are handed back to Tomcat while a payment waits on the user and student services;
+ * only the transaction itself blocks, here, on at most one thread per primary connection. Work beyond
+ * the queue capacity is rejected (503) instead of piling up behind the pool.
+ */
+@Configuration
+public class JdbcSchedulerConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(@Value("${payment.reactive.jdbc-threads:${spring.datasource.hikari.maximum-pool-size:10}}") int threads,
+                                   @Value("${payment.reactive.jdbc-queue-capacity:10000}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(threads, queueCapacity, "jdbc");
+    }
+}
@@ -0,0 +1,23 @@
+package com.parentportal.payment_service.config;
+
+import com.parentportal.commons.datasource.ReplicaRouting;
+import com.parentportal.commons.datasource.TimedDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+/**
+ * The shared {@link ReplicaRouting}, probing the replica's lag every payment.datasource.replica.lag-check-interval-ms.
+ */
+public class PaymentReplicaRouting extends ReplicaRouting {
+
+    public PaymentReplicaRouting(TimedDataSource primary, TimedDataSource replica, Duration maxLag, String lagProbe) {
+        super(primary, replica, maxLag, lagProbe);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${payment.datasource.replica.lag-check-interval-ms:2000}")
+    public void probeLag() {
+        super.probeLag();
+    }
+}
@@ -0,0 +1,36 @@
+package com.parentportal.payment_service.controller;
+
+import com.parentportal.commons.datasource.DataSourceStatsDto;
+import com.parentportal.commons.datasource.ReplicaRouting;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/payments/metrics")
+public class DataSourceMetricsController {
+
+    private final ObjectProvider<ReplicaRouting> replicaRouting;
+
+    public DataSourceMetricsController(ObjectProvider<ReplicaRouting> replicaRouting) {
+        this.replicaRouting = replicaRouting;
+    }
+
+    /**
+     * Reports where read-only transactions are routed, the replica's lag, and connection latencies per pool.
+     * @return Routing and pool statistics since startup; without a configured replica only replicaConfigured=false.
+     */
+    @GetMapping("/datasource")
+    public ResponseEntity<DataSourceStatsDto> getDataSourceStats() {
+        ReplicaRouting routing = replicaRouting.getIfAvailable();
+        DataSourceStatsDto stats = routing == null
+                ? new DataSourceStatsDto(false, false, null, 0, 0, 0, List.of())
+                : routing.stats();
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+}
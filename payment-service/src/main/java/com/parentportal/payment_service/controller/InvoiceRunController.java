@@ -0,0 +1,76 @@
+package com.parentportal.payment_service.controller;
+
+import com.parentportal.payment_service.dto.InvoiceRunCreateDto;
+import com.parentportal.payment_service.dto.InvoiceRunDto;
+import com.parentportal.payment_service.service.InvoiceRunService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/payments/invoice-runs")
+public class InvoiceRunController {
+
+    private final InvoiceRunService invoiceRunService;
+
+    public InvoiceRunController(InvoiceRunService invoiceRunService) {
+        this.invoiceRunService = invoiceRunService;
+    }
+
+    /**
+     * Starts a bulk invoice run (Admin only): one PENDING payment of the given amount for every student
+     * with a parent. The run continues in the background; poll it for progress.
+     * @param adminUserId The ID of the admin user starting the run.
+     * @param invoiceRunCreateDto DTO containing the amount and description of the invoices.
+     * @return The new run as a DTO with HTTP status 202 (Accepted), 404 (Not Found) for an unknown user,
+     *         403 (Forbidden) if the user is not an ADMIN, or 503 (Service Unavailable) while the service is saturated.
+     */
+    @PostMapping("/{adminUserId}")
+    public Mono<ResponseEntity<InvoiceRunDto>> startRun(@PathVariable Long adminUserId,
+                                                        @Valid @RequestBody InvoiceRunCreateDto invoiceRunCreateDto) {
+        return runResponse(invoiceRunService.startRun(adminUserId, invoiceRunCreateDto));
+    }
+
+    /**
+     * Resumes a FAILED invoice run from its checkpoint (Admin only).
+     * @param adminUserId The ID of the admin user.
+     * @param id The ID of the run.
+     * @return The run as a DTO with HTTP status 202 (Accepted), 404 (Not Found) for an unknown user or run,
+     *         403 (Forbidden) if the user is not an ADMIN, or 409 (Conflict) if the run has not failed.
+     */
+    @PostMapping("/{adminUserId}/{id}/resume")
+    public Mono<ResponseEntity<InvoiceRunDto>> resumeRun(@PathVariable Long adminUserId, @PathVariable Long id) {
+        return runResponse(invoiceRunService.resumeRun(adminUserId, id))
+                .onErrorResume(IllegalStateException.class, e -> Mono.just(new ResponseEntity<InvoiceRunDto>(HttpStatus.CONFLICT)));
+    }
+
+    /**
+     * Retrieves the progress of an invoice run.
+     * @param id The ID of the run.
+     * @return The run with its status, checkpoint, counts and throughput (invoices per second),
+     *         or HTTP status 404 (Not Found).
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<InvoiceRunDto> getRun(@PathVariable Long id) {
+        try {
+            InvoiceRunDto run = invoiceRunService.getRun(id);
+            return new ResponseEntity<>(run, HttpStatus.OK);
+        } catch (NoSuchElementException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    private static Mono<ResponseEntity<InvoiceRunDto>> runResponse(Mono<InvoiceRunDto> run) {
+        return run
+                .map(started -> new ResponseEntity<>(started, HttpStatus.ACCEPTED))
+                .onErrorResume(NoSuchElementException.class, e -> Mono.just(new ResponseEntity<InvoiceRunDto>(HttpStatus.NOT_FOUND)))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(new ResponseEntity<InvoiceRunDto>(HttpStatus.FORBIDDEN)))
+                .onErrorResume(RejectedExecutionException.class,
+                        e -> Mono.just(new ResponseEntity<InvoiceRunDto>(HttpStatus.SERVICE_UNAVAILABLE)));
+    }
+}
@@ -1,21 +1,37 @@
 package com.parentportal.payment_service.controller;
 
+import com.parentportal.payment_service.dto.BalanceDto;
 import com.parentportal.payment_service.dto.PaymentCreateDto;
 import com.parentportal.payment_service.dto.PaymentDto;
+import com.parentportal.payment_service.dto.PaymentExportFormat;
+import com.parentportal.payment_service.dto.PaymentFilterDto;
+import com.parentportal.payment_service.dto.PaymentPageDto;
 import com.parentportal.payment_service.dto.PaymentUpdateStatusDto;
 import com.parentportal.payment_service.service.PaymentService;
 import jakarta.validation.Valid;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
 import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/payments")
 public class PaymentController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     private final PaymentService paymentService;
 
     public PaymentController(PaymentService paymentService) {
@@ -23,26 +39,32 @@ public class PaymentController {
     }
 
     /**
-     * Initiates a new payment. This will validate student and parent IDs
+     * Initiates a new payment. This will validate student and parent IDs (cached for a while)
      * before creating a payment record with PENDING status.
+     * Retries sent with the same Idempotency-Key return the payment created by the first request.
      * @param paymentCreateDto DTO containing payment creation details.
-     * @return The created payment as a DTO with HTTP status 201 (Created).
+     * @param idempotencyKey Optional client-chosen key (at most 255 characters), unique per parent and payment.
+     * @return The created payment as a DTO with HTTP status 201 (Created), 404 (Not Found) for an unknown parent
+     *         or student, 400 (Bad Request) if the student is not the parent's or the key was already used for
+     *         a different payment, 409 (Conflict) if the first request is still running, or 503 (Service
+     *         Unavailable) while the service is saturated.
      */
     @PostMapping
-    public ResponseEntity<PaymentDto> createPayment(@Valid @RequestBody PaymentCreateDto paymentCreateDto) {
-        try {
-            PaymentDto createdPayment = paymentService.createPayment(paymentCreateDto);
-            return new ResponseEntity<>(createdPayment, HttpStatus.CREATED);
-        } catch (NoSuchElementException e) {
-            // This could be due to parent or student not found
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (IllegalArgumentException e) {
-            // For other validation errors, e.g., invalid amount
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        } catch (RuntimeException e) {
-            // Catching generic runtime exceptions from WebClient calls
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public Mono<ResponseEntity<PaymentDto>> createPayment(@Valid @RequestBody PaymentCreateDto paymentCreateDto,
+                                                          @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return paymentService.createPayment(paymentCreateDto, idempotencyKey)
+                .map(createdPayment -> new ResponseEntity<>(createdPayment, HttpStatus.CREATED))
+                // This could be due to parent or student not found
+                .onErrorResume(NoSuchElementException.class, e -> Mono.just(new ResponseEntity<PaymentDto>(HttpStatus.NOT_FOUND)))
+                // For other validation errors, e.g., a student of another parent or a reused Idempotency-Key
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(new ResponseEntity<PaymentDto>(HttpStatus.BAD_REQUEST)))
+                // The first request with this Idempotency-Key has not finished yet
+                .onErrorResume(IllegalStateException.class, e -> Mono.just(new ResponseEntity<PaymentDto>(HttpStatus.CONFLICT)))
+                // Too many payments already waiting for a database connection
+                .onErrorResume(RejectedExecutionException.class,
+                        e -> Mono.just(new ResponseEntity<PaymentDto>(HttpStatus.SERVICE_UNAVAILABLE)))
+                // Catching generic runtime exceptions from WebClient calls
+                .onErrorResume(RuntimeException.class, e -> Mono.just(new ResponseEntity<PaymentDto>(HttpStatus.INTERNAL_SERVER_ERROR)));
     }
 
     /**
@@ -70,6 +92,62 @@ public class PaymentController {
         return new ResponseEntity<>(payments, HttpStatus.OK);
     }
 
+    /**
+     * Retrieves one page of payments, newest first, optionally filtered. Use instead of the unbounded
+     * listings for anything but small result sets.
+     * @param filter Optional filters: parentUserId, studentId, status, from / to (ISO date-time, to exclusive)
+     *               and minAmount / maxAmount.
+     * @param after The nextCursor of the previous page (omit for the first page).
+     * @param size The maximum number of payments to return (at most 500).
+     * @return A page of payments and the cursor for the next page, or HTTP status 400 (Bad Request) for an
+     *         invalid size or cursor.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<PaymentPageDto> getPaymentsPage(PaymentFilterDto filter,
+                                                          @RequestParam(required = false) String after,
+                                                          @RequestParam(defaultValue = "50") int size) {
+        try {
+            PaymentPageDto page = paymentService.getPaymentsPage(filter, after, size);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Exports payments, newest first, streamed from a database cursor as they are read. Accessible only by ADMINs.
+     * @param adminUserId The ID of the admin (bursar) exporting.
+     * @param filter Optional filters, as for the paged listing.
+     * @param format csv for CSV with a header row, or ndjson for one payment as JSON per line.
+     * @return The streamed export, HTTP status 400 (Bad Request) for an unknown format,
+     *         403 (Forbidden) if the user is not an ADMIN, or 404 (Not Found) if the user does not exist.
+     */
+    @GetMapping("/{adminUserId}/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(@PathVariable Long adminUserId,
+                                                                PaymentFilterDto filter,
+                                                                @RequestParam(defaultValue = "csv") String format) {
+        PaymentExportFormat exportFormat;
+        try {
+            exportFormat = PaymentExportFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            paymentService.verifyExporter(adminUserId);
+        } catch (NoSuchElementException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        boolean csv = exportFormat == PaymentExportFormat.CSV;
+        StreamingResponseBody body = outputStream -> paymentService.exportPayments(filter, exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(csv ? TEXT_CSV : APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(csv ? "payments.csv" : "payments.ndjson").build().toString())
+                .body(body);
+    }
+
     /**
      * Retrieves payment records associated with a specific parent user ID.
      * @param parentUserId The ID of the parent user.
@@ -92,11 +170,34 @@ public class PaymentController {
         return new ResponseEntity<>(payments, HttpStatus.OK);
     }
 
+    /**
+     * Retrieves a parent's running payment totals, including the amount due, from the balance ledger.
+     * @param parentUserId The ID of the parent user.
+     * @return Totals and counts per payment status; all zero if the parent has no payments.
+     */
+    @GetMapping("/byParent/{parentUserId}/balance")
+    public ResponseEntity<BalanceDto> getParentBalance(@PathVariable Long parentUserId) {
+        BalanceDto balance = paymentService.getParentBalance(parentUserId);
+        return new ResponseEntity<>(balance, HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves a student's running payment totals, including the amount due, from the balance ledger.
+     * @param studentId The ID of the student.
+     * @return Totals and counts per payment status; all zero if the student has no payments.
+     */
+    @GetMapping("/byStudent/{studentId}/balance")
+    public ResponseEntity<BalanceDto> getStudentBalance(@PathVariable Long studentId) {
+        BalanceDto balance = paymentService.getStudentBalance(studentId);
+        return new ResponseEntity<>(balance, HttpStatus.OK);
+    }
+
     /**
      * Updates the status of an existing payment.
      * @param id The ID of the payment to update.
      * @param updateStatusDto DTO containing the new status and optional transaction ID.
-     * @return The updated payment as a DTO if found, or HTTP status 404 (Not Found).
+     * @return The updated payment as a DTO if found, HTTP status 404 (Not Found), or 409 (Conflict) if the
+     *         transaction ID already belongs to another payment.
      */
     @PatchMapping("/{id}/status") // Using PATCH for partial update (status only)
     public ResponseEntity<PaymentDto> updatePaymentStatus(@PathVariable Long id, @Valid @RequestBody PaymentUpdateStatusDto updateStatusDto) {
@@ -105,6 +206,8 @@ public class PaymentController {
             return new ResponseEntity<>(updatedPayment, HttpStatus.OK);
         } catch (NoSuchElementException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
         }
     }
 
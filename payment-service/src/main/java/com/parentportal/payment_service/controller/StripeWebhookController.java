@@ -0,0 +1,47 @@
+package com.parentportal.payment_service.controller;
+
+import com.parentportal.payment_service.service.StripeWebhookService;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/payments/webhooks")
+public class StripeWebhookController {
+
+    private final StripeWebhookService stripeWebhookService;
+
+    public StripeWebhookController(StripeWebhookService stripeWebhookService) {
+        this.stripeWebhookService = stripeWebhookService;
+    }
+
+    /**
+     * Receives Stripe webhook events. The signature is verified and the event stored; the payment
+     * status changes are applied asynchronously, so Stripe gets its acknowledgement right away.
+     * @param payload The raw event JSON, exactly as sent by Stripe.
+     * @param signature The Stripe-Signature header.
+     * @return HTTP status 200 (OK) once stored (or ignored, for event types that do not move a payment),
+     *         400 (Bad Request) if the signature does not verify, or 503 (Service Unavailable) if the
+     *         event could not be stored or no webhook secret is configured, so Stripe retries later.
+     */
+    @PostMapping("/stripe")
+    public ResponseEntity<HttpStatus> receiveStripeEvent(@RequestBody String payload,
+                                                         @RequestHeader(value = "Stripe-Signature", required = false) String signature) {
+        if (signature == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            stripeWebhookService.receive(payload, signature);
+            return new ResponseEntity<>(HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException | DataAccessException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.parentportal.payment_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceDto {
+    private Long id; // Parent user ID or student ID
+    private BigDecimal amountDue; // Total of PENDING payments
+    private long pendingCount;
+    private BigDecimal paidAmount; // Total of SUCCESS payments
+    private long paidCount;
+    private BigDecimal failedAmount;
+    private long failedCount;
+    private BigDecimal refundedAmount;
+    private long refundedCount;
+    private LocalDateTime updatedAt; // Last change; null if there have been no payments
+}
@@ -0,0 +1,18 @@
+package com.parentportal.payment_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// This DTO mirrors the CursorPageDto from the Student Performance Service
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDto<T> {
+
+    private List<T> content;
+    private Long nextCursor; // Pass as "after" to fetch the next page; null when there are no more rows
+    private boolean hasMore;
+}
@@ -0,0 +1,27 @@
+package com.parentportal.payment_service.dto;
+
+import com.parentportal.payment_service.entity.InvoiceRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceRunDto {
+    private Long id;
+    private String description;
+    private BigDecimal amount;
+    private InvoiceRunStatus status;
+    private Long lastStudentId; // Students up to this ID have been processed
+    private int createdCount; // Invoices (PENDING payments) created so far
+    private int skippedCount; // Students without a parent
+    private double invoicesPerSecond; // Average since the run started
+    private String error; // Why the run FAILED, if it did
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,28 @@
+package com.parentportal.payment_service.dto;
+
+import com.parentportal.payment_service.entity.PaymentEventType;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Payload of the payment-events topic; recipientId, message and relatedEntityId follow NotificationCreateDto
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentEventDto {
+
+    private String eventId; // Stable across redeliveries, for consumer-side deduplication
+    private PaymentEventType type;
+    private Long paymentId;
+    private Long studentId;
+    private Long recipientId; // Parent user who made the payment
+    private BigDecimal amount;
+    private PaymentStatus status;
+    private String message;
+    private String relatedEntityId; // The payment's transaction ID
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,7 @@
+package com.parentportal.payment_service.dto;
+
+// Payment export formats: CSV with a header row, or newline-delimited JSON with one PaymentDto per line
+public enum PaymentExportFormat {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,26 @@
+package com.parentportal.payment_service.dto;
+
+import com.parentportal.payment_service.entity.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Optional filters for payment listings and exports, bound from query parameters; unset fields match everything
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentFilterDto {
+    private Long parentUserId;
+    private Long studentId;
+    private PaymentStatus status;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from; // Inclusive
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to; // Exclusive
+    private BigDecimal minAmount; // Inclusive
+    private BigDecimal maxAmount; // Inclusive
+}
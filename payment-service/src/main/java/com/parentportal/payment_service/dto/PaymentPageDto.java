@@ -0,0 +1,17 @@
+package com.parentportal.payment_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentPageDto {
+
+    private List<PaymentDto> content; // Newest first
+    private String nextCursor; // Pass as "after" to fetch the next page; null when there are no more rows
+    private boolean hasMore;
+}
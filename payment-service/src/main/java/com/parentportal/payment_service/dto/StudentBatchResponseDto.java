@@ -0,0 +1,17 @@
+package com.parentportal.payment_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+// This DTO mirrors the Student Performance Service's StudentBatchResponseDto
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentBatchResponseDto {
+
+    private List<StudentRefDto> students;
+    private List<Long> missingIds;
+}
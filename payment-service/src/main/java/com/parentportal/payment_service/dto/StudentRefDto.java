@@ -0,0 +1,17 @@
+package com.parentportal.payment_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+// This DTO mirrors the Student Performance Service's StudentRefDto, the slim view returned by POST /api/students/batch
+// It's used to check that a student exists and whose child it is
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentRefDto {
+
+    private Long id;
+    private String studentId;
+    private Long parentUserId;
+}
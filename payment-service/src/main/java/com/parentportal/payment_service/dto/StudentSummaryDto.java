@@ -4,12 +4,12 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
-// This DTO mirrors a simplified StudentDto from the Student Performance Service
-// It's used to receive student data when calling the Student Performance Service
+// This DTO mirrors the fields of the Student Performance Service's StudentSummaryDto that invoicing needs
+// It's used to page through the student roster
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class StudentDto {
+public class StudentSummaryDto {
 
     private Long id;
     private String studentId;
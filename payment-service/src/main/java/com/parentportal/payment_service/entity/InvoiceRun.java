@@ -0,0 +1,59 @@
+package com.parentportal.payment_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// A bulk invoice run over the student roster; progress columns are written by InvoiceRunner through JDBC
+@Entity
+@Table(name = "invoice_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String description; // Description of every invoice, e.g. "Term 1 fees 2025"
+
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal amount; // Amount of every invoice
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private InvoiceRunStatus status;
+
+    @Column(name = "last_student_id")
+    private Long lastStudentId; // Checkpoint: students up to this ID are done; null before the first chunk
+
+    @Column(name = "created_count", nullable = false)
+    private int createdCount;
+
+    @Column(name = "skipped_count", nullable = false)
+    private int skippedCount; // Students without a parent
+
+    @Column(length = 64)
+    private String owner; // Instance holding the lease, null when none does
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(length = 512)
+    private String error;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
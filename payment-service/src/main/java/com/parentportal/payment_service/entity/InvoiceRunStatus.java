@@ -0,0 +1,7 @@
+package com.parentportal.payment_service.entity;
+
+public enum InvoiceRunStatus {
+    RUNNING,   // Being worked on, or waiting for an instance to pick it up again
+    COMPLETED, // Every student of the roster was invoiced or skipped
+    FAILED     // Stopped on an error; can be resumed from its checkpoint
+}
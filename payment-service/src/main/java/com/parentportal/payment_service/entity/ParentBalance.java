@@ -0,0 +1,49 @@
+package com.parentportal.payment_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Payment totals by status for one parent; written by BalanceLedger through JDBC, read here by primary key
+@Entity
+@Table(name = "parent_balances")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParentBalance {
+
+    @Id
+    @Column(name = "parent_user_id")
+    private Long parentUserId;
+
+    @Column(name = "pending_amount", nullable = false, precision = 38, scale = 2)
+    private BigDecimal pendingAmount; // Amount due
+
+    @Column(name = "pending_count", nullable = false)
+    private long pendingCount;
+
+    @Column(name = "success_amount", nullable = false, precision = 38, scale = 2)
+    private BigDecimal successAmount;
+
+    @Column(name = "success_count", nullable = false)
+    private long successCount;
+
+    @Column(name = "failed_amount", nullable = false, precision = 38, scale = 2)
+    private BigDecimal failedAmount;
+
+    @Column(name = "failed_count", nullable = false)
+    private long failedCount;
+
+    @Column(name = "refunded_amount", nullable = false, precision = 38, scale = 2)
+    private BigDecimal refundedAmount;
+
+    @Column(name = "refunded_count", nullable = false)
+    private long refundedCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
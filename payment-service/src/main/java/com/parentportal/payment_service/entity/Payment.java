@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Payment {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
     private Long studentId; // ID of the student the payment is for (from Student Performance Service)
     private Long parentUserId; // ID of the parent making the payment (from User Management Service)
@@ -27,4 +28,5 @@ public class Payment {
 
     private String transactionId; // Unique ID from payment gateway
     private String description; // e.g., "School Fees - Q1 2024"
+    private String idempotencyKey; // Client's Idempotency-Key, unique per parent; null if none was sent
 }
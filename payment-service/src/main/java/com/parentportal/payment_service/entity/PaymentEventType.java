@@ -0,0 +1,7 @@
+package com.parentportal.payment_service.entity;
+
+// Payment lifecycle events on the payment-events topic
+public enum PaymentEventType {
+    PAYMENT_INITIATED,
+    PAYMENT_STATUS_UPDATED
+}
@@ -19,6 +19,7 @@ public interface PaymentMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "paymentDate", ignore = true) // Date will be set by service
     @Mapping(target = "transactionId", ignore = true) // Transaction ID will be generated/set by service
+    @Mapping(target = "idempotencyKey", ignore = true) // Taken from the request header by the service
     Payment paymentCreateDtoToPayment(PaymentCreateDto paymentCreateDto);
 
     List<PaymentDto> paymentListToPaymentDtoList(List<Payment> payments);
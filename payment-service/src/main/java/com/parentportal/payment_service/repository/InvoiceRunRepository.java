@@ -0,0 +1,9 @@
+package com.parentportal.payment_service.repository;
+
+import com.parentportal.payment_service.entity.InvoiceRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InvoiceRunRepository extends JpaRepository<InvoiceRun, Long> {
+}
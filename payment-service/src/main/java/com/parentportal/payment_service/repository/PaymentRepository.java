@@ -1,9 +1,14 @@
 package com.parentportal.payment_service.repository;
 
 import com.parentportal.payment_service.entity.Payment;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +18,13 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Payment> findByParentUserId(Long parentUserId);
     List<Payment> findByStudentId(Long studentId);
     Optional<Payment> findByTransactionId(String transactionId);
+    // Locked: the balance ledger is adjusted from the status read here
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Payment> findByTransactionIdIn(Collection<String> transactionIds);
+    Optional<Payment> findByParentUserIdAndIdempotencyKey(Long parentUserId, String idempotencyKey);
+
+    // Locked: the balance ledger is adjusted from the status and amount read here
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Payment p where p.id = :id")
+    Optional<Payment> findByIdForUpdate(@Param("id") Long id);
 }
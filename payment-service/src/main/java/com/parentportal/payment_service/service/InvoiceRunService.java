@@ -0,0 +1,12 @@
+package com.parentportal.payment_service.service;
+
+import com.parentportal.payment_service.dto.InvoiceRunCreateDto;
+import com.parentportal.payment_service.dto.InvoiceRunDto;
+import reactor.core.publisher.Mono;
+
+public interface InvoiceRunService {
+
+    Mono<InvoiceRunDto> startRun(Long adminUserId, InvoiceRunCreateDto invoiceRunCreateDto);
+    Mono<InvoiceRunDto> resumeRun(Long adminUserId, Long id);
+    InvoiceRunDto getRun(Long id);
+}
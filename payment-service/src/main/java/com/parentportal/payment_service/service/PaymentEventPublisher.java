@@ -0,0 +1,9 @@
+package com.parentportal.payment_service.service;
+
+import com.parentportal.commons.outbox.OutboxPublisher;
+
+/**
+ * Sends relayed outbox events to the message broker, keyed by payment ID.
+ */
+public interface PaymentEventPublisher extends OutboxPublisher {
+}
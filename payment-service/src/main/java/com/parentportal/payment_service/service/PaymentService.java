@@ -1,18 +1,31 @@
 package com.parentportal.payment_service.service;
 
+import com.parentportal.payment_service.dto.BalanceDto;
 import com.parentportal.payment_service.dto.PaymentCreateDto;
 import com.parentportal.payment_service.dto.PaymentDto;
+import com.parentportal.payment_service.dto.PaymentExportFormat;
+import com.parentportal.payment_service.dto.PaymentFilterDto;
+import com.parentportal.payment_service.dto.PaymentPageDto;
 import com.parentportal.payment_service.dto.PaymentUpdateStatusDto;
 
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface PaymentService {
 
-    PaymentDto createPayment(PaymentCreateDto paymentCreateDto);
+    Mono<PaymentDto> createPayment(PaymentCreateDto paymentCreateDto, String idempotencyKey);
     PaymentDto getPaymentById(Long id);
     List<PaymentDto> getAllPayments();
     List<PaymentDto> getPaymentsByParentUserId(Long parentUserId);
     List<PaymentDto> getPaymentsByStudentId(Long studentId);
+    BalanceDto getParentBalance(Long parentUserId);
+    BalanceDto getStudentBalance(Long studentId);
+    PaymentPageDto getPaymentsPage(PaymentFilterDto filter, String after, int size);
+    void verifyExporter(Long adminUserId);
+    void exportPayments(PaymentFilterDto filter, PaymentExportFormat format, OutputStream output) throws IOException;
     PaymentDto updatePaymentStatus(Long id, PaymentUpdateStatusDto updateStatusDto);
     void deletePayment(Long id);
 }
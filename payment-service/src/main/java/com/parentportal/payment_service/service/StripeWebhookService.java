@@ -0,0 +1,13 @@
+package com.parentportal.payment_service.service;
+
+public interface StripeWebhookService {
+
+    /**
+     * Verifies a Stripe webhook delivery and durably stores the payment status change it carries, if any.
+     * Throws IllegalArgumentException if the signature does not verify, IllegalStateException if no
+     * webhook secret is configured, and DataAccessException if the event could not be stored.
+     * @param payload The raw request body, exactly as signed by Stripe.
+     * @param signatureHeader The Stripe-Signature header.
+     */
+    void receive(String payload, String signatureHeader);
+}
@@ -0,0 +1,154 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.entity.Payment;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the per-parent and per-student payment totals (parent_balances, student_balances) in step with
+ * the payments table. Must be called inside the transaction that changes the payments, so the totals
+ * move exactly when the change is committed; {@link BalanceVerifier} checks them against the raw rows.
+ * Changes are folded into one delta per ledger row and applied as relative upserts in one JDBC batch per
+ * table, in key order, so concurrent writers lock ledger rows in the same order.
+ */
+@Component
+@RequiredArgsConstructor
+public class BalanceLedger {
+
+    // The statuses are captured when the change is made: a batch may move the same payment more than once
+    public record StatusChange(Payment payment, PaymentStatus from, PaymentStatus to) {
+    }
+
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+
+    private static final String PARENT_UPSERT_SQL = upsertSql("parent_balances", "parent_user_id");
+    private static final String STUDENT_UPSERT_SQL = upsertSql("student_balances", "student_id");
+
+    // Net change of one ledger row, per status
+    private static final class Delta {
+        private final BigDecimal[] amounts = new BigDecimal[STATUSES.length];
+        private final long[] counts = new long[STATUSES.length];
+
+        private Delta() {
+            Arrays.fill(amounts, BigDecimal.ZERO);
+        }
+
+        private void add(PaymentStatus status, BigDecimal amount, int sign) {
+            int i = status.ordinal();
+            if (amount != null) {
+                amounts[i] = sign > 0 ? amounts[i].add(amount) : amounts[i].subtract(amount);
+            }
+            counts[i] += sign;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void added(Payment payment) {
+        added(List.of(payment));
+    }
+
+    public void added(List<Payment> payments) {
+        Map<Long, Delta> parents = new TreeMap<>();
+        Map<Long, Delta> students = new TreeMap<>();
+        payments.forEach(payment -> record(parents, students, payment, payment.getStatus(), 1));
+        apply(parents, students);
+    }
+
+    public void statusChanged(Payment payment, PaymentStatus previous) {
+        statusesChanged(List.of(new StatusChange(payment, previous, payment.getStatus())));
+    }
+
+    public void statusesChanged(List<StatusChange> changes) {
+        Map<Long, Delta> parents = new TreeMap<>();
+        Map<Long, Delta> students = new TreeMap<>();
+        for (StatusChange change : changes) {
+            if (change.from() != change.to()) {
+                record(parents, students, change.payment(), change.from(), -1);
+                record(parents, students, change.payment(), change.to(), 1);
+            }
+        }
+        apply(parents, students);
+    }
+
+    public void removed(Payment payment) {
+        Map<Long, Delta> parents = new TreeMap<>();
+        Map<Long, Delta> students = new TreeMap<>();
+        record(parents, students, payment, payment.getStatus(), -1);
+        apply(parents, students);
+    }
+
+    private void record(Map<Long, Delta> parents, Map<Long, Delta> students, Payment payment, PaymentStatus status, int sign) {
+        // Rows without a status are in no total; rows without a parent or student only in the other ledger
+        if (status == null) {
+            return;
+        }
+        if (payment.getParentUserId() != null) {
+            parents.computeIfAbsent(payment.getParentUserId(), id -> new Delta()).add(status, payment.getAmount(), sign);
+        }
+        if (payment.getStudentId() != null) {
+            students.computeIfAbsent(payment.getStudentId(), id -> new Delta()).add(status, payment.getAmount(), sign);
+        }
+    }
+
+    private void apply(Map<Long, Delta> parents, Map<Long, Delta> students) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        upsert(PARENT_UPSERT_SQL, parents, now);
+        upsert(STUDENT_UPSERT_SQL, students, now);
+    }
+
+    private void upsert(String sql, Map<Long, Delta> deltas, Timestamp now) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Delta>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, row) -> setRow(ps, row.getKey(), row.getValue(), now));
+    }
+
+    private static void setRow(PreparedStatement ps, Long key, Delta delta, Timestamp now) throws SQLException {
+        int index = 1;
+        ps.setLong(index++, key);
+        for (int i = 0; i < STATUSES.length; i++) {
+            ps.setBigDecimal(index++, delta.amounts[i]);
+            ps.setLong(index++, delta.counts[i]);
+        }
+        ps.setTimestamp(index, now);
+    }
+
+    static String amountColumn(PaymentStatus status) {
+        return status.name().toLowerCase(Locale.ROOT) + "_amount";
+    }
+
+    static String countColumn(PaymentStatus status) {
+        return status.name().toLowerCase(Locale.ROOT) + "_count";
+    }
+
+    // INSERT of the delta for a new row, otherwise added to the current totals
+    private static String upsertSql(String table, String keyColumn) {
+        List<String> columns = new ArrayList<>();
+        for (PaymentStatus status : STATUSES) {
+            columns.add(amountColumn(status));
+            columns.add(countColumn(status));
+        }
+        return "INSERT INTO " + table + " (" + keyColumn + ", " + String.join(", ", columns) + ", updated_at) VALUES ("
+                + "?, ".repeat(columns.size() + 1) + "?) ON DUPLICATE KEY UPDATE "
+                + columns.stream().map(column -> column + " = " + column + " + VALUES(" + column + ")")
+                        .collect(Collectors.joining(", "))
+                + ", updated_at = VALUES(updated_at)";
+    }
+}
@@ -0,0 +1,158 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.entity.PaymentStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Nightly check of the balance ledgers against the payments table. Totals are recomputed from the raw rows
+ * with one grouped query per ledger and compared with the stored ones in the same REPEATABLE READ snapshot,
+ * so payments changing meanwhile do not show up as drift. Drifted rows are logged; with repair enabled they
+ * are recomputed and overwritten, each in its own transaction that first locks the payments it sums.
+ */
+@Slf4j
+@Component
+public class BalanceVerifier {
+
+    private record Ledger(String table, String keyColumn) {
+    }
+
+    private static final Ledger PARENTS = new Ledger("parent_balances", "parent_user_id");
+    private static final Ledger STUDENTS = new Ledger("student_balances", "student_id");
+    private static final int FETCH_SIZE = 1000;
+    // Drifted keys listed in the log per ledger; the count covers all of them
+    private static final int MAX_LOGGED = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean repair;
+    private final int maxRepairs;
+
+    public BalanceVerifier(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${payment.balance-verifier.repair:false}") boolean repair,
+                           @Value("${payment.balance-verifier.max-repairs:1000}") int maxRepairs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.transactionTemplate = transactionTemplate;
+        this.repair = repair;
+        this.maxRepairs = maxRepairs;
+    }
+
+    @Scheduled(cron = "${payment.balance-verifier.cron:0 45 2 * * *}")
+    public void verifyAll() {
+        verify(PARENTS);
+        verify(STUDENTS);
+    }
+
+    private void verify(Ledger ledger) {
+        List<Long> drifted = new ArrayList<>();
+        int[] total = {0};
+        snapshotTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(driftSql(ledger));
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            total[0]++;
+            if (drifted.size() < Math.max(MAX_LOGGED, repair ? maxRepairs : 0)) {
+                drifted.add(rs.getLong(1));
+            }
+        }));
+        if (total[0] == 0) {
+            log.info("Balance ledger {} matches the payments table", ledger.table());
+            return;
+        }
+        log.warn("Balance ledger {} has drifted for {} keys, e.g. {}", ledger.table(), total[0],
+                drifted.subList(0, Math.min(MAX_LOGGED, drifted.size())));
+        if (repair) {
+            List<Long> toRepair = drifted.subList(0, Math.min(maxRepairs, drifted.size()));
+            toRepair.forEach(key -> repair(ledger, key));
+            log.info("Recomputed {} of {} drifted rows of {}", toRepair.size(), total[0], ledger.table());
+        }
+    }
+
+    // Keys whose stored totals differ from the payments, including missing rows and rows without payments
+    private static String driftSql(Ledger ledger) {
+        String key = ledger.keyColumn();
+        String matches = columns().stream()
+                .map(column -> "b." + column + " = t." + column)
+                .collect(Collectors.joining(" AND "));
+        String nonZero = columns().stream()
+                .map(column -> "b." + column + " <> 0")
+                .collect(Collectors.joining(" OR "));
+        return "SELECT t.k FROM (SELECT " + key + " AS k, " + sumColumns() + " FROM payments "
+                + "WHERE " + key + " IS NOT NULL AND status IS NOT NULL GROUP BY " + key + ") t "
+                + "LEFT JOIN " + ledger.table() + " b ON b." + key + " = t.k "
+                + "WHERE b." + key + " IS NULL OR NOT (" + matches + ") "
+                + "UNION ALL "
+                + "SELECT b." + key + " FROM " + ledger.table() + " b "
+                + "WHERE (" + nonZero + ") AND NOT EXISTS (SELECT 1 FROM payments p WHERE p." + key + " = b." + key
+                + " AND p.status IS NOT NULL)";
+    }
+
+    private void repair(Ledger ledger, Long key) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Locks the key's payments (and the index gap for new ones) so the sums stay valid until commit
+            jdbcTemplate.queryForList("SELECT id FROM payments WHERE " + ledger.keyColumn() + " = ? FOR UPDATE",
+                    Long.class, key);
+            List<Object> values = jdbcTemplate.queryForObject(
+                    "SELECT " + sumColumns() + " FROM payments WHERE " + ledger.keyColumn() + " = ? AND status IS NOT NULL",
+                    (rs, rowNum) -> {
+                        List<Object> row = new ArrayList<>();
+                        for (PaymentStatus paymentStatus : PaymentStatus.values()) {
+                            BigDecimal amount = rs.getBigDecimal(BalanceLedger.amountColumn(paymentStatus));
+                            row.add(amount == null ? BigDecimal.ZERO : amount);
+                            row.add(rs.getLong(BalanceLedger.countColumn(paymentStatus)));
+                        }
+                        return row;
+                    }, key);
+            List<Object> args = new ArrayList<>();
+            args.add(key);
+            args.addAll(values);
+            args.add(Timestamp.valueOf(LocalDateTime.now()));
+            jdbcTemplate.update("INSERT INTO " + ledger.table() + " (" + ledger.keyColumn() + ", "
+                    + String.join(", ", columns()) + ", updated_at) VALUES (" + "?, ".repeat(columns().size() + 1) + "?) "
+                    + "ON DUPLICATE KEY UPDATE "
+                    + columns().stream().map(column -> column + " = VALUES(" + column + ")").collect(Collectors.joining(", "))
+                    + ", updated_at = VALUES(updated_at)", args.toArray());
+        });
+    }
+
+    private static List<String> columns() {
+        List<String> columns = new ArrayList<>();
+        for (PaymentStatus status : PaymentStatus.values()) {
+            columns.add(BalanceLedger.amountColumn(status));
+            columns.add(BalanceLedger.countColumn(status));
+        }
+        return columns;
+    }
+
+    private static String sumColumns() {
+        List<String> sums = new ArrayList<>();
+        for (PaymentStatus status : PaymentStatus.values()) {
+            sums.add("COALESCE(SUM(CASE WHEN status = '" + status.name() + "' THEN amount END), 0) AS "
+                    + BalanceLedger.amountColumn(status));
+            sums.add("COALESCE(SUM(status = '" + status.name() + "'), 0) AS " + BalanceLedger.countColumn(status));
+        }
+        return String.join(", ", sums);
+    }
+}
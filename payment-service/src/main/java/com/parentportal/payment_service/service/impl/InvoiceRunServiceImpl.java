@@ -0,0 +1,88 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.commons.datasource.ReadConsistency;
+import com.parentportal.payment_service.dto.InvoiceRunCreateDto;
+import com.parentportal.payment_service.dto.InvoiceRunDto;
+import com.parentportal.payment_service.entity.InvoiceRun;
+import com.parentportal.payment_service.entity.InvoiceRunStatus;
+import com.parentportal.payment_service.repository.InvoiceRunRepository;
+import com.parentportal.payment_service.service.InvoiceRunService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.LocalDateTime;
+import java.util.NoSuchElementException;
+
+@Service
+public class InvoiceRunServiceImpl implements InvoiceRunService {
+
+    private final InvoiceRunRepository invoiceRunRepository;
+    private final InvoiceRunner invoiceRunner;
+    private final PaymentPartyValidator paymentPartyValidator;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler jdbcScheduler;
+
+    public InvoiceRunServiceImpl(InvoiceRunRepository invoiceRunRepository,
+                                 InvoiceRunner invoiceRunner,
+                                 PaymentPartyValidator paymentPartyValidator,
+                                 TransactionTemplate transactionTemplate,
+                                 Scheduler jdbcScheduler) {
+        this.invoiceRunRepository = invoiceRunRepository;
+        this.invoiceRunner = invoiceRunner;
+        this.paymentPartyValidator = paymentPartyValidator;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcScheduler = jdbcScheduler;
+    }
+
+    @Override
+    public Mono<InvoiceRunDto> startRun(Long adminUserId, InvoiceRunCreateDto invoiceRunCreateDto) {
+        return paymentPartyValidator.verifyAdmin(adminUserId)
+                .then(Mono.fromCallable(() -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    InvoiceRun run = new InvoiceRun();
+                    run.setDescription(invoiceRunCreateDto.getDescription());
+                    run.setAmount(invoiceRunCreateDto.getAmount());
+                    run.setStatus(InvoiceRunStatus.RUNNING);
+                    run.setStartedAt(now);
+                    run.setUpdatedAt(now);
+                    return transactionTemplate.execute(status -> invoiceRunRepository.save(run));
+                }).subscribeOn(jdbcScheduler))
+                .doOnNext(run -> invoiceRunner.submit(run.getId()))
+                .map(InvoiceRunServiceImpl::toDto);
+    }
+
+    @Override
+    public Mono<InvoiceRunDto> resumeRun(Long adminUserId, Long id) {
+        return paymentPartyValidator.verifyAdmin(adminUserId)
+                .then(Mono.fromCallable(() -> transactionTemplate.execute(status -> {
+                    InvoiceRun run = invoiceRunRepository.findById(id)
+                            .orElseThrow(() -> new NoSuchElementException("Invoice run not found with ID: " + id));
+                    if (run.getStatus() != InvoiceRunStatus.FAILED) {
+                        throw new IllegalStateException("Invoice run " + id + " is " + run.getStatus() + ", only FAILED runs can be resumed");
+                    }
+                    // Continues from the checkpoint; the counters keep what earlier attempts created
+                    run.setStatus(InvoiceRunStatus.RUNNING);
+                    run.setError(null);
+                    run.setUpdatedAt(LocalDateTime.now());
+                    return invoiceRunRepository.save(run);
+                })).subscribeOn(jdbcScheduler))
+                .doOnNext(run -> invoiceRunner.submit(run.getId()))
+                .map(InvoiceRunServiceImpl::toDto);
+    }
+
+    @Override
+    public InvoiceRunDto getRun(Long id) {
+        // From the primary: progress is written every chunk, a lagging replica would show it late
+        InvoiceRun run = ReadConsistency.fromPrimary(() -> invoiceRunRepository.findById(id))
+                .orElseThrow(() -> new NoSuchElementException("Invoice run not found with ID: " + id));
+        return toDto(run);
+    }
+
+    private static InvoiceRunDto toDto(InvoiceRun run) {
+        return new InvoiceRunDto(run.getId(), run.getDescription(), run.getAmount(), run.getStatus(),
+                run.getLastStudentId(), run.getCreatedCount(), run.getSkippedCount(), InvoiceRunner.throughput(run),
+                run.getError(), run.getStartedAt(), run.getUpdatedAt(), run.getFinishedAt());
+    }
+}
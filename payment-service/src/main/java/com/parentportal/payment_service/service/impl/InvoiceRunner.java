@@ -0,0 +1,293 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.dto.CursorPageDto;
+import com.parentportal.payment_service.dto.StudentSummaryDto;
+import com.parentportal.payment_service.entity.InvoiceRun;
+import com.parentportal.payment_service.entity.Payment;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import com.parentportal.payment_service.repository.InvoiceRunRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.util.retry.Retry;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Works through invoice runs in the background. A run pages through the student roster of the Student
+ * Performance Service by ID, fetching the next page while the current one is written, and turns each page
+ * into one chunk: a single transaction that advances the run's checkpoint, inserts a PENDING payment per
+ * student with a parent through one JDBC batch (IDs from payments_seq), adds them to the balance ledgers
+ * and appends their PAYMENT_INITIATED outbox events. A crash loses at most the chunk in flight; the run resumes after the last committed one.
+ * <p>
+ * An instance works on a run only while it holds the run's lease (owner, renewed by every chunk). Runs
+ * whose lease is free or stale are picked up at startup and by a periodic check, so a run left behind by
+ * a crashed instance continues elsewhere. Each invoice also carries the Idempotency-Key
+ * invoice-{runId}-{studentId}, so the unique index rules out a student being invoiced twice by one run.
+ */
+@Slf4j
+@Component
+public class InvoiceRunner {
+
+    private static final String INSERT_PAYMENT_SQL =
+            "INSERT INTO payments (id, student_id, parent_user_id, amount, payment_date, status, transaction_id, description, idempotency_key) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final ParameterizedTypeReference<CursorPageDto<StudentSummaryDto>> STUDENT_PAGE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final InvoiceRunRepository invoiceRunRepository;
+    private final PaymentEventOutbox paymentEventOutbox;
+    private final BalanceLedger balanceLedger;
+    private final SequenceIds sequenceIds;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WebClient webClient;
+    private final String studentPerformanceServiceUrl;
+    private final int pageSize;
+    private final Duration pageTimeout;
+    private final Duration leaseTimeout;
+    private final String owner = UUID.randomUUID().toString();
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    public InvoiceRunner(InvoiceRunRepository invoiceRunRepository,
+                         PaymentEventOutbox paymentEventOutbox,
+                         BalanceLedger balanceLedger,
+                         SequenceIds sequenceIds,
+                         JdbcTemplate jdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         WebClient.Builder webClientBuilder,
+                         @Value("${student-performance-service.url}") String studentPerformanceServiceUrl,
+                         @Value("${payment.invoice-run.workers:2}") int workers,
+                         @Value("${payment.invoice-run.page-size:500}") int pageSize,
+                         @Value("${payment.invoice-run.page-timeout:PT30S}") Duration pageTimeout,
+                         @Value("${payment.invoice-run.lease-timeout:PT2M}") Duration leaseTimeout) {
+        this.invoiceRunRepository = invoiceRunRepository;
+        this.paymentEventOutbox = paymentEventOutbox;
+        this.balanceLedger = balanceLedger;
+        this.sequenceIds = sequenceIds;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.webClient = webClientBuilder.build();
+        this.studentPerformanceServiceUrl = studentPerformanceServiceUrl;
+        this.pageSize = pageSize;
+        this.pageTimeout = pageTimeout;
+        this.leaseTimeout = leaseTimeout;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "invoice-run-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts working on a RUNNING run in the background, unless this instance already is or another
+     * instance holds its lease.
+     */
+    public void submit(Long runId) {
+        if (running && active.add(runId)) {
+            workers.execute(() -> {
+                try {
+                    run(runId);
+                } finally {
+                    active.remove(runId);
+                }
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeAfterStartup() {
+        resumeUnowned();
+    }
+
+    // Picks up runs left behind by an instance that stopped or crashed
+    @Scheduled(fixedDelayString = "${payment.invoice-run.lease-check-interval-ms:60000}")
+    public void resumeUnowned() {
+        List<Long> runIds = jdbcTemplate.queryForList(
+                "SELECT id FROM invoice_runs WHERE status = 'RUNNING' AND (owner IS NULL OR heartbeat_at < ?)",
+                Long.class, Timestamp.valueOf(LocalDateTime.now().minus(leaseTimeout)));
+        runIds.forEach(this::submit);
+    }
+
+    // Runs stop after their current chunk and give their lease back, so another instance can take over at once
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    private void run(Long runId) {
+        if (!claim(runId)) {
+            return;
+        }
+        InvoiceRun run = invoiceRunRepository.findById(runId).orElse(null);
+        if (run == null) {
+            return;
+        }
+        log.info("Invoice run {} starting after student {}", runId, run.getLastStudentId());
+        Long checkpoint = run.getLastStudentId();
+        try {
+            CompletableFuture<CursorPageDto<StudentSummaryDto>> next = fetchPage(checkpoint);
+            while (true) {
+                CursorPageDto<StudentSummaryDto> page = next.get();
+                // Fetched while this page is being written
+                if (page.isHasMore()) {
+                    next = fetchPage(page.getNextCursor());
+                }
+                if (!writeChunk(run, checkpoint, page.getContent())) {
+                    log.warn("Invoice run {} lost its lease after student {}", runId, checkpoint);
+                    return;
+                }
+                if (!page.getContent().isEmpty()) {
+                    checkpoint = page.getContent().get(page.getContent().size() - 1).getId();
+                }
+                if (!page.isHasMore()) {
+                    finish(runId);
+                    log.info("Invoice run {} completed", runId);
+                    return;
+                }
+                if (!running) {
+                    release(runId);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(runId);
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            log.error("Invoice run {} failed after student {}", runId, checkpoint, cause);
+            fail(runId, cause);
+        }
+    }
+
+    private CompletableFuture<CursorPageDto<StudentSummaryDto>> fetchPage(Long after) {
+        return webClient.get()
+                .uri(UriComponentsBuilder.fromUriString("lb://" + studentPerformanceServiceUrl + "/api/students/summary/page")
+                        .queryParam("size", pageSize)
+                        .queryParamIfPresent("after", Optional.ofNullable(after))
+                        .build()
+                        .toUri())
+                .retrieve()
+                .bodyToMono(STUDENT_PAGE)
+                .timeout(pageTimeout)
+                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
+                .toFuture();
+    }
+
+    private boolean claim(Long runId) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update(
+                "UPDATE invoice_runs SET owner = ?, heartbeat_at = ? "
+                        + "WHERE id = ? AND status = 'RUNNING' AND (owner IS NULL OR heartbeat_at < ?)",
+                owner, Timestamp.valueOf(now), runId, Timestamp.valueOf(now.minus(leaseTimeout))) == 1;
+    }
+
+    /**
+     * Writes one page of the roster and moves the checkpoint past it, all or nothing.
+     * @return false if this instance no longer holds the run's lease; nothing was written then.
+     */
+    private boolean writeChunk(InvoiceRun run, Long checkpoint, List<StudentSummaryDto> students) {
+        List<StudentSummaryDto> billable = students.stream()
+                .filter(student -> student.getParentUserId() != null)
+                .toList();
+        Long nextCheckpoint = students.isEmpty() ? checkpoint : students.get(students.size() - 1).getId();
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTimestamp = Timestamp.valueOf(now);
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            // First, so the row lock and the checkpoint match keep a worker that lost its lease from
+            // writing the same students again
+            int advanced = jdbcTemplate.update(
+                    "UPDATE invoice_runs SET last_student_id = ?, created_count = created_count + ?, "
+                            + "skipped_count = skipped_count + ?, heartbeat_at = ?, updated_at = ? "
+                            + "WHERE id = ? AND owner = ? AND status = 'RUNNING' AND last_student_id <=> ?",
+                    nextCheckpoint, billable.size(), students.size() - billable.size(), nowTimestamp, nowTimestamp,
+                    run.getId(), owner, checkpoint);
+            if (advanced == 0) {
+                return false;
+            }
+            if (billable.isEmpty()) {
+                return true;
+            }
+            long[] ids = sequenceIds.next(SequenceIds.PAYMENTS, billable.size());
+            List<Payment> invoices = new ArrayList<>(billable.size());
+            for (int i = 0; i < billable.size(); i++) {
+                StudentSummaryDto student = billable.get(i);
+                invoices.add(new Payment(ids[i], student.getId(), student.getParentUserId(), run.getAmount(), now,
+                        PaymentStatus.PENDING, UUID.randomUUID().toString(), run.getDescription(),
+                        "invoice-" + run.getId() + "-" + student.getId()));
+            }
+            jdbcTemplate.batchUpdate(INSERT_PAYMENT_SQL, invoices, invoices.size(), (ps, payment) -> {
+                ps.setLong(1, payment.getId());
+                ps.setLong(2, payment.getStudentId());
+                ps.setLong(3, payment.getParentUserId());
+                ps.setBigDecimal(4, payment.getAmount());
+                ps.setTimestamp(5, nowTimestamp);
+                ps.setString(6, payment.getStatus().name());
+                ps.setString(7, payment.getTransactionId());
+                ps.setString(8, payment.getDescription());
+                ps.setString(9, payment.getIdempotencyKey());
+            });
+            balanceLedger.added(invoices);
+            paymentEventOutbox.paymentsInitiated(invoices);
+            return true;
+        }));
+    }
+
+    private void finish(Long runId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("UPDATE invoice_runs SET status = 'COMPLETED', owner = NULL, finished_at = ?, updated_at = ? "
+                + "WHERE id = ? AND owner = ?", now, now, runId, owner);
+    }
+
+    private void fail(Long runId, Throwable cause) {
+        String error = String.valueOf(cause.getMessage());
+        jdbcTemplate.update("UPDATE invoice_runs SET status = 'FAILED', owner = NULL, error = ?, updated_at = ? "
+                        + "WHERE id = ? AND owner = ?",
+                error.length() > 512 ? error.substring(0, 512) : error, Timestamp.valueOf(LocalDateTime.now()), runId, owner);
+    }
+
+    private void release(Long runId) {
+        jdbcTemplate.update("UPDATE invoice_runs SET owner = NULL WHERE id = ? AND owner = ?", runId, owner);
+    }
+
+    /**
+     * Average invoices per second of a run from its start until it finished or last made progress.
+     */
+    static double throughput(InvoiceRun run) {
+        LocalDateTime end = run.getFinishedAt() != null ? run.getFinishedAt() : run.getUpdatedAt();
+        double seconds = Duration.between(run.getStartedAt(), end).toMillis() / 1000.0;
+        return seconds > 0 ? run.getCreatedCount() / seconds : 0;
+    }
+}
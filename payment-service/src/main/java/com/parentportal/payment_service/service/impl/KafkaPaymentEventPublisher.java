@@ -0,0 +1,33 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.service.PaymentEventPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@ConditionalOnProperty(name = "payment.outbox.broker", havingValue = "kafka", matchIfMissing = true)
+public class KafkaPaymentEventPublisher implements PaymentEventPublisher {
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String topic;
+
+    public KafkaPaymentEventPublisher(KafkaTemplate<String, String> kafkaTemplate,
+                                      @Value("${payment.outbox.topic:payment-events}") String topic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+    }
+
+    @Override
+    public CompletableFuture<?> publish(String key, String payload) {
+        try {
+            return kafkaTemplate.send(topic, key, payload);
+        } catch (RuntimeException e) {
+            // send() throws instead of returning a failed future when metadata cannot be fetched in time
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
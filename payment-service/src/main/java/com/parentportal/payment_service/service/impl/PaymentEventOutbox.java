@@ -0,0 +1,79 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parentportal.payment_service.dto.PaymentEventDto;
+import com.parentportal.payment_service.entity.Payment;
+import com.parentportal.payment_service.entity.PaymentEventType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes PAYMENT_INITIATED and PAYMENT_STATUS_UPDATED events to the outbox table.
+ * Must be called inside the transaction that stores the payment, so an event exists exactly when its
+ * change was committed; {@link PaymentEventRelay} forwards them to the broker afterwards.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentEventOutbox {
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO outbox_events (event_type, payment_id, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public void paymentInitiated(Payment payment) {
+        paymentsInitiated(List.of(payment));
+    }
+
+    public void paymentsInitiated(List<Payment> payments) {
+        append(payments.stream()
+                .map(payment -> newEvent(PaymentEventType.PAYMENT_INITIATED, payment,
+                        String.format("Payment of %s for student %d initiated (Transaction ID: %s).",
+                                payment.getAmount(), payment.getStudentId(), payment.getTransactionId())))
+                .toList());
+    }
+
+    public void statusUpdated(Payment payment) {
+        String message = String.format("Payment for student %d (Transaction ID: %s) is %s.",
+                payment.getStudentId(), payment.getTransactionId(), payment.getStatus().getDisplayName());
+        append(List.of(newEvent(PaymentEventType.PAYMENT_STATUS_UPDATED, payment, message)));
+    }
+
+    /**
+     * Appends events in a single JDBC batch.
+     */
+    public void append(List<PaymentEventDto> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getType().name());
+            ps.setLong(2, event.getPaymentId());
+            ps.setString(3, serialize(event));
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    public PaymentEventDto newEvent(PaymentEventType type, Payment payment, String message) {
+        return new PaymentEventDto(UUID.randomUUID().toString(), type, payment.getId(), payment.getStudentId(),
+                payment.getParentUserId(), payment.getAmount(), payment.getStatus(), message,
+                payment.getTransactionId(), LocalDateTime.now());
+    }
+
+    private String serialize(PaymentEventDto event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize event " + event.getEventId(), e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.commons.outbox.OutboxRelay;
+import com.parentportal.payment_service.service.PaymentEventPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+/**
+ * Relays the PAYMENT_INITIATED and PAYMENT_STATUS_UPDATED events of {@link PaymentEventOutbox} to the broker,
+ * keyed by payment so each payment's events stay in order.
+ */
+@Component
+public class PaymentEventRelay extends OutboxRelay {
+
+    public PaymentEventRelay(JdbcTemplate jdbcTemplate,
+                             PaymentEventPublisher publisher,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${payment.outbox.batch-size:200}") int batchSize,
+                             @Value("${payment.outbox.send-timeout:PT10S}") Duration sendTimeout,
+                             @Value("${payment.outbox.lease-timeout:PT1M}") Duration leaseTimeout) {
+        super(jdbcTemplate, publisher, transactionManager, "payment_id", batchSize, sendTimeout, leaseTimeout);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${payment.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        super.drain();
+    }
+}
@@ -0,0 +1,84 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.parentportal.payment_service.dto.PaymentCreateDto;
+import com.parentportal.payment_service.dto.PaymentDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of payment creations sent with an Idempotency-Key, per parent, so a retried or
+ * double-submitted request gets the original payment back without validating or inserting again.
+ * The first request for a key runs the creation; duplicates arriving while it is in flight wait for its
+ * result. Successes are kept until the TTL expires or the store is full, failures are forgotten so the
+ * client can retry. Beyond this process the payments.idempotency_key column is the durable fallback.
+ */
+@Component
+public class PaymentIdempotency {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private record Attempt(PaymentCreateDto request, CompletableFuture<PaymentDto> result) {
+    }
+
+    private final Cache<String, Attempt> attempts;
+    private final Duration waitTimeout;
+
+    public PaymentIdempotency(@Value("${payment.idempotency.max-size:100000}") long maxSize,
+                              @Value("${payment.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${payment.idempotency.wait-timeout:PT30S}") Duration waitTimeout) {
+        this.attempts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * Runs create once per parent and key, returning the first result to every later call with the same key.
+     * Errors with IllegalArgumentException if the key was already used for a different request, and
+     * IllegalStateException if the first request is still running after the wait timeout.
+     */
+    public Mono<PaymentDto> createOnce(String idempotencyKey, PaymentCreateDto request, Supplier<Mono<PaymentDto>> create) {
+        return Mono.defer(() -> {
+            String key = request.getParentUserId() + ":" + idempotencyKey;
+            Attempt attempt = new Attempt(request, new CompletableFuture<>());
+            Attempt first = attempts.asMap().putIfAbsent(key, attempt);
+            if (first != null) {
+                if (!samePayment(first.request(), request)) {
+                    return Mono.error(new IllegalArgumentException("Idempotency-Key " + idempotencyKey + " was already used for a different payment"));
+                }
+                // Waiters fail the same way the first request did; a waiter giving up leaves the first one running
+                return Mono.fromFuture(first.result(), true)
+                        .timeout(waitTimeout, Mono.error(() ->
+                                new IllegalStateException("A payment with this Idempotency-Key is still being processed")));
+            }
+            return create.get()
+                    .doOnNext(payment -> attempt.result().complete(payment))
+                    .doOnError(e -> forget(key, attempt, e))
+                    .doOnCancel(() -> forget(key, attempt,
+                            new IllegalStateException("The first request with this Idempotency-Key was cancelled")));
+        });
+    }
+
+    // Compared like a stored payment replayed by the service: the amount by value, so 12.5 matches 12.50
+    private static boolean samePayment(PaymentCreateDto first, PaymentCreateDto request) {
+        return Objects.equals(first.getStudentId(), request.getStudentId())
+                && first.getAmount() != null && request.getAmount() != null
+                && first.getAmount().compareTo(request.getAmount()) == 0
+                && Objects.equals(first.getDescription(), request.getDescription());
+    }
+
+    // Failed or abandoned attempts are not remembered, so the client can retry with the same key
+    private void forget(String key, Attempt attempt, Throwable cause) {
+        attempts.asMap().remove(key, attempt);
+        attempt.result().completeExceptionally(cause);
+    }
+}
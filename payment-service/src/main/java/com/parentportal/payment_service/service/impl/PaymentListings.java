@@ -0,0 +1,145 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.dto.PaymentDto;
+import com.parentportal.payment_service.dto.PaymentFilterDto;
+import com.parentportal.payment_service.dto.PaymentPageDto;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Filtered payment listings straight from the payments table, newest first by (payment_date, id).
+ * Pages use that pair as a keyset cursor, so a page costs an index range scan however deep it is;
+ * exports read the whole selection through one streaming result set. Neither holds more than a page
+ * (or the driver's fetch buffer) in memory. Callers provide the (read-only) transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentListings {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Rows the driver buffers at a time while streaming an export
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String SELECT_SQL = "SELECT id, student_id, parent_user_id, amount, payment_date, status, "
+            + "transaction_id, description FROM payments";
+    private static final String ORDER_SQL = " ORDER BY payment_date DESC, id DESC";
+
+    private static final RowMapper<PaymentDto> PAYMENT_ROW = (rs, rowNum) -> {
+        String status = rs.getString("status");
+        Timestamp paymentDate = rs.getTimestamp("payment_date");
+        return new PaymentDto(rs.getLong("id"), rs.getObject("student_id", Long.class),
+                rs.getObject("parent_user_id", Long.class), rs.getBigDecimal("amount"),
+                paymentDate == null ? null : paymentDate.toLocalDateTime(),
+                status == null ? null : PaymentStatus.valueOf(status), rs.getString("transaction_id"),
+                rs.getString("description"));
+    };
+
+    private record Where(StringBuilder sql, List<Object> args) {
+        void and(String condition, Object... values) {
+            sql.append(sql.isEmpty() ? " WHERE " : " AND ").append(condition);
+            args.addAll(List.of(values));
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param after The nextCursor of the previous page, or null for the first page.
+     * @throws IllegalArgumentException for a size outside 1..MAX_PAGE_SIZE or a malformed cursor.
+     */
+    public PaymentPageDto page(PaymentFilterDto filter, String after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Where where = where(filter);
+        if (after != null) {
+            Cursor cursor = Cursor.decode(after);
+            Timestamp paymentDate = Timestamp.valueOf(cursor.paymentDate());
+            where.and("(payment_date < ? OR (payment_date = ? AND id < ?))", paymentDate, paymentDate, cursor.id());
+        }
+        where.args().add(size + 1); // One extra row tells whether another page exists without a count query
+        List<PaymentDto> rows = jdbcTemplate.query(SELECT_SQL + where.sql() + ORDER_SQL + " LIMIT ?",
+                PAYMENT_ROW, where.args().toArray());
+        boolean hasMore = rows.size() > size;
+        List<PaymentDto> content = hasMore ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = hasMore ? new Cursor(content.get(size - 1).getPaymentDate(), content.get(size - 1).getId()).encode() : null;
+        return new PaymentPageDto(content, nextCursor, hasMore);
+    }
+
+    /**
+     * Hands every matching payment to the consumer, in listing order, while the result set is being read.
+     */
+    public void stream(PaymentFilterDto filter, Consumer<PaymentDto> consumer) {
+        Where where = where(filter);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_SQL + where.sql() + ORDER_SQL);
+            ps.setFetchSize(FETCH_SIZE);
+            new ArgumentPreparedStatementSetter(where.args().toArray()).setValues(ps);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(PAYMENT_ROW.mapRow(rs, 0)));
+    }
+
+    private Where where(PaymentFilterDto filter) {
+        Where where = new Where(new StringBuilder(), new ArrayList<>());
+        // Every payment is created with a date; legacy rows without one cannot be placed in the keyset order
+        where.and("payment_date IS NOT NULL");
+        if (filter.getParentUserId() != null) {
+            where.and("parent_user_id = ?", filter.getParentUserId());
+        }
+        if (filter.getStudentId() != null) {
+            where.and("student_id = ?", filter.getStudentId());
+        }
+        if (filter.getStatus() != null) {
+            where.and("status = ?", filter.getStatus().name());
+        }
+        if (filter.getFrom() != null) {
+            where.and("payment_date >= ?", Timestamp.valueOf(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            where.and("payment_date < ?", Timestamp.valueOf(filter.getTo()));
+        }
+        if (filter.getMinAmount() != null) {
+            where.and("amount >= ?", filter.getMinAmount());
+        }
+        if (filter.getMaxAmount() != null) {
+            where.and("amount <= ?", filter.getMaxAmount());
+        }
+        return where;
+    }
+
+    // Opaque to clients: URL-safe Base64 of "<payment date>|<id>" of the last row of a page
+    private record Cursor(LocalDateTime paymentDate, long id) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((paymentDate + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf('|');
+                return new Cursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                        Long.parseLong(decoded.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+        }
+    }
+}
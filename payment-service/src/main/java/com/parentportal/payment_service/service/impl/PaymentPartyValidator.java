@@ -0,0 +1,124 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.parentportal.payment_service.dto.StudentBatchResponseDto;
+import com.parentportal.payment_service.dto.StudentRefDto;
+import com.parentportal.payment_service.dto.UserDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Checks that a payment's parent exists, is a PARENT and is the parent of the student, with a local cache
+ * in front of the User Management and Student Performance services. The two lookups run concurrently and
+ * each (parent, student) pair is checked through a cached Mono, so concurrent payments for the same pair
+ * share one pair of remote calls. Valid pairs are kept for the TTL, invalid ones (unknown user or student,
+ * wrong role, student of another parent) for the shorter negative TTL, and transient failures (5xx,
+ * timeouts) are never cached. Students are looked up through the slim batch endpoint, which returns only
+ * the ID and parent instead of the full record with results and attendance.
+ */
+@Component
+public class PaymentPartyValidator {
+
+    private static final String PARENT_ROLE = "PARENT";
+    private static final String ADMIN_ROLE = "ADMIN";
+
+    private record Party(Long parentUserId, Long studentId) {
+    }
+
+    private final WebClient webClient;
+    private final String userManagementServiceUrl;
+    private final String studentPerformanceServiceUrl;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final Cache<Party, Mono<Void>> parties;
+
+    public PaymentPartyValidator(WebClient.Builder webClientBuilder,
+                                 @Value("${user-management-service.url}") String userManagementServiceUrl,
+                                 @Value("${student-performance-service.url}") String studentPerformanceServiceUrl,
+                                 @Value("${payment.validation-cache.max-size:50000}") long maxSize,
+                                 @Value("${payment.validation-cache.ttl:PT10M}") Duration ttl,
+                                 @Value("${payment.validation-cache.negative-ttl:PT30S}") Duration negativeTtl) {
+        this.webClient = webClientBuilder.build();
+        this.userManagementServiceUrl = userManagementServiceUrl;
+        this.studentPerformanceServiceUrl = studentPerformanceServiceUrl;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.parties = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Completes empty if the parent may pay for the student.
+     * Errors with NoSuchElementException for an unknown parent or student, and IllegalArgumentException
+     * if the user is not a PARENT or the student belongs to another parent.
+     */
+    public Mono<Void> verify(Long parentUserId, Long studentId) {
+        return parties.get(new Party(parentUserId, studentId), this::check);
+    }
+
+    /**
+     * Completes with the user if it exists and is an ADMIN; not cached, for rare admin-only operations.
+     * Errors with NoSuchElementException for an unknown user and IllegalArgumentException for another role.
+     */
+    public Mono<UserDto> verifyAdmin(Long adminUserId) {
+        return fetchUser(adminUserId)
+                .filter(user -> ADMIN_ROLE.equals(user.getRole()))
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("User with ID " + adminUserId + " is not an ADMIN.")));
+    }
+
+    private Mono<Void> check(Party party) {
+        return Mono.zip(fetchUser(party.parentUserId()), fetchStudent(party.studentId()))
+                .flatMap(found -> {
+                    if (!PARENT_ROLE.equals(found.getT1().getRole())) {
+                        return Mono.error(new IllegalArgumentException("User with ID " + party.parentUserId() + " is not a PARENT."));
+                    }
+                    if (!Objects.equals(found.getT2().getParentUserId(), party.parentUserId())) {
+                        return Mono.error(new IllegalArgumentException("Student " + party.studentId()
+                                + " does not belong to parent " + party.parentUserId() + "."));
+                    }
+                    return Mono.<Void>empty();
+                })
+                .cache(value -> ttl,
+                        error -> error instanceof NoSuchElementException || error instanceof IllegalArgumentException
+                                ? negativeTtl : Duration.ZERO,
+                        () -> ttl);
+    }
+
+    private Mono<UserDto> fetchUser(Long userId) {
+        return webClient.get()
+                .uri("lb://" + userManagementServiceUrl + "/api/users/{id}", userId)
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
+                        Mono.error(new NoSuchElementException("User not found or invalid ID: " + userId)))
+                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
+                        Mono.error(new RuntimeException("User service error during user validation: " + clientResponse.statusCode())))
+                .bodyToMono(UserDto.class);
+    }
+
+    private Mono<StudentRefDto> fetchStudent(Long studentId) {
+        return webClient.post()
+                .uri("lb://" + studentPerformanceServiceUrl + "/api/students/batch")
+                .bodyValue(Map.of("ids", List.of(studentId)))
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
+                        Mono.error(new NoSuchElementException("Student not found or invalid ID: " + studentId)))
+                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
+                        Mono.error(new RuntimeException("Student service error during student validation: " + clientResponse.statusCode())))
+                .bodyToMono(StudentBatchResponseDto.class)
+                .flatMapIterable(StudentBatchResponseDto::getStudents)
+                .next()
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException("Student not found or invalid ID: " + studentId)));
+    }
+}
@@ -1,93 +1,149 @@
 package com.parentportal.payment_service.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parentportal.commons.datasource.ReadConsistency;
 import com.parentportal.payment_service.dto.*;
 import com.parentportal.payment_service.entity.Payment;
 import com.parentportal.payment_service.entity.PaymentStatus;
 import com.parentportal.payment_service.mapper.PaymentMapper;
+import com.parentportal.payment_service.repository.ParentBalanceRepository;
 import com.parentportal.payment_service.repository.PaymentRepository;
+import com.parentportal.payment_service.repository.StudentBalanceRepository;
 import com.parentportal.payment_service.service.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.HttpStatusCode;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID; // For generating transaction IDs
 
 @Service
 public class PaymentServiceImpl implements PaymentService {
 
+    private static final String CSV_HEADER = "id,studentId,parentUserId,amount,paymentDate,status,transactionId,description\n";
+
     private final PaymentRepository paymentRepository;
     private final PaymentMapper paymentMapper;
-    private final WebClient webClient;
-
-    @Value("${user-management-service.url}")
-    private String userManagementServiceUrl;
-
-    @Value("${student-performance-service.url}")
-    private String studentPerformanceServiceUrl;
+    private final PaymentIdempotency paymentIdempotency;
+    private final PaymentEventOutbox paymentEventOutbox;
+    private final PaymentPartyValidator paymentPartyValidator;
+    private final PaymentListings paymentListings;
+    private final BalanceLedger balanceLedger;
+    private final ParentBalanceRepository parentBalanceRepository;
+    private final StudentBalanceRepository studentBalanceRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler jdbcScheduler;
 
     @Autowired
     public PaymentServiceImpl(PaymentRepository paymentRepository,
                               PaymentMapper paymentMapper,
-                              WebClient.Builder webClientBuilder) {
+                              PaymentIdempotency paymentIdempotency,
+                              PaymentEventOutbox paymentEventOutbox,
+                              PaymentPartyValidator paymentPartyValidator,
+                              PaymentListings paymentListings,
+                              BalanceLedger balanceLedger,
+                              ParentBalanceRepository parentBalanceRepository,
+                              StudentBalanceRepository studentBalanceRepository,
+                              ObjectMapper objectMapper,
+                              TransactionTemplate transactionTemplate,
+                              Scheduler jdbcScheduler) {
         this.paymentRepository = paymentRepository;
         this.paymentMapper = paymentMapper;
-        this.webClient = webClientBuilder.build();
+        this.paymentIdempotency = paymentIdempotency;
+        this.paymentEventOutbox = paymentEventOutbox;
+        this.paymentPartyValidator = paymentPartyValidator;
+        this.paymentListings = paymentListings;
+        this.balanceLedger = balanceLedger;
+        this.parentBalanceRepository = parentBalanceRepository;
+        this.studentBalanceRepository = studentBalanceRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcScheduler = jdbcScheduler;
     }
 
     @Override
-    @Transactional
-    public PaymentDto createPayment(PaymentCreateDto paymentCreateDto) {
-        // Step 1: Validate parentUserId with User Management Service
-        Mono<UserDto> parentUserMono = webClient.get()
-                .uri("lb://" + userManagementServiceUrl + "/api/users/{id}", paymentCreateDto.getParentUserId())
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
-                        Mono.error(new NoSuchElementException("Parent user not found or invalid ID: " + paymentCreateDto.getParentUserId())))
-                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
-                        Mono.error(new RuntimeException("User service error during parent validation: " + clientResponse.statusCode())))
-                .bodyToMono(UserDto.class);
-
-        // Step 2: Validate studentId with Student Performance Service
-        Mono<StudentDto> studentMono = webClient.get()
-                .uri("lb://" + studentPerformanceServiceUrl + "/api/students/{id}", paymentCreateDto.getStudentId())
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
-                        Mono.error(new NoSuchElementException("Student not found or invalid ID: " + paymentCreateDto.getStudentId())))
-                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
-                        Mono.error(new RuntimeException("Student service error during student validation: " + clientResponse.statusCode())))
-                .bodyToMono(StudentDto.class);
-
-        // Combine both Mono and block until both validations are complete
-        // In a fully reactive scenario, you would chain these without blocking
-        Mono.zip(parentUserMono, studentMono)
-                .block(); // Blocks until both calls complete
-
-        // If we reach here, both parent and student IDs are valid.
+    public Mono<PaymentDto> createPayment(PaymentCreateDto paymentCreateDto, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return create(paymentCreateDto, null);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > PaymentIdempotency.MAX_KEY_LENGTH) {
+            return Mono.error(new IllegalArgumentException("Idempotency-Key must be 1 to " + PaymentIdempotency.MAX_KEY_LENGTH + " characters"));
+        }
+        return paymentIdempotency.createOnce(idempotencyKey, paymentCreateDto,
+                () -> create(paymentCreateDto, idempotencyKey));
+    }
+
+    // The parent and student checks are cached and non-blocking; in the common case the only remaining
+    // cost is the insert, which runs on the JDBC scheduler without a request thread waiting on it
+    private Mono<PaymentDto> create(PaymentCreateDto paymentCreateDto, String idempotencyKey) {
+        return paymentPartyValidator.verify(paymentCreateDto.getParentUserId(), paymentCreateDto.getStudentId())
+                .then(Mono.fromCallable(() -> insert(paymentCreateDto, idempotencyKey)).subscribeOn(jdbcScheduler));
+    }
+
+    private PaymentDto insert(PaymentCreateDto paymentCreateDto, String idempotencyKey) {
         Payment payment = paymentMapper.paymentCreateDtoToPayment(paymentCreateDto);
         payment.setPaymentDate(LocalDateTime.now());
         payment.setStatus(PaymentStatus.PENDING); // Initial status
         payment.setTransactionId(UUID.randomUUID().toString()); // Simulate a gateway transaction ID
+        payment.setIdempotencyKey(idempotencyKey);
 
-        Payment savedPayment = paymentRepository.save(payment);
+        Payment savedPayment;
+        try {
+            savedPayment = transactionTemplate.execute(status -> {
+                Payment saved = paymentRepository.save(payment);
+                balanceLedger.added(saved);
+                // Relayed to payment-events after commit, so the broker adds no latency here
+                paymentEventOutbox.paymentInitiated(saved);
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // A payment is already stored under the key (an earlier request, another instance): that one is
+            // the original. Relying on the unique index keeps the first request down to a single insert.
+            if (idempotencyKey == null) {
+                throw e;
+            }
+            Payment stored = storedPayment(paymentCreateDto.getParentUserId(), idempotencyKey).orElseThrow(() -> e);
+            return replayed(stored, paymentCreateDto, idempotencyKey);
+        }
 
         // In a real application, you would integrate with a payment gateway here.
         // Upon successful payment gateway interaction, you would update the status to SUCCESS.
         // For now, we'll simulate it as PENDING and then allow update via another endpoint.
 
-        // Optionally, publish a Kafka event for payment initiation
-        // kafkaTemplate.send("payment-events", "payment-initiated", paymentMapper.paymentToPaymentDto(savedPayment));
-
         return paymentMapper.paymentToPaymentDto(savedPayment);
     }
 
+    private Optional<Payment> storedPayment(Long parentUserId, String idempotencyKey) {
+        // From the primary: a replica may not have the payment another instance just stored
+        return ReadConsistency.fromPrimary(() ->
+                paymentRepository.findByParentUserIdAndIdempotencyKey(parentUserId, idempotencyKey));
+    }
+
+    private PaymentDto replayed(Payment stored, PaymentCreateDto request, String idempotencyKey) {
+        if (!Objects.equals(stored.getStudentId(), request.getStudentId())
+                || stored.getAmount() == null || request.getAmount() == null
+                || stored.getAmount().compareTo(request.getAmount()) != 0
+                || !Objects.equals(stored.getDescription(), request.getDescription())) {
+            throw new IllegalArgumentException("Idempotency-Key " + idempotencyKey + " was already used for a different payment");
+        }
+        return paymentMapper.paymentToPaymentDto(stored);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public PaymentDto getPaymentById(Long id) {
@@ -117,19 +173,114 @@ public class PaymentServiceImpl implements PaymentService {
         return paymentMapper.paymentListToPaymentDtoList(payments);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public BalanceDto getParentBalance(Long parentUserId) {
+        return parentBalanceRepository.findById(parentUserId)
+                .map(balance -> new BalanceDto(balance.getParentUserId(), balance.getPendingAmount(), balance.getPendingCount(),
+                        balance.getSuccessAmount(), balance.getSuccessCount(), balance.getFailedAmount(), balance.getFailedCount(),
+                        balance.getRefundedAmount(), balance.getRefundedCount(), balance.getUpdatedAt()))
+                .orElseGet(() -> emptyBalance(parentUserId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BalanceDto getStudentBalance(Long studentId) {
+        return studentBalanceRepository.findById(studentId)
+                .map(balance -> new BalanceDto(balance.getStudentId(), balance.getPendingAmount(), balance.getPendingCount(),
+                        balance.getSuccessAmount(), balance.getSuccessCount(), balance.getFailedAmount(), balance.getFailedCount(),
+                        balance.getRefundedAmount(), balance.getRefundedCount(), balance.getUpdatedAt()))
+                .orElseGet(() -> emptyBalance(studentId));
+    }
+
+    // No ledger row: no payments recorded yet, so nothing is due
+    private BalanceDto emptyBalance(Long id) {
+        return new BalanceDto(id, BigDecimal.ZERO, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO, 0, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaymentPageDto getPaymentsPage(PaymentFilterDto filter, String after, int size) {
+        return paymentListings.page(filter, after, size);
+    }
+
+    @Override
+    public void verifyExporter(Long adminUserId) {
+        paymentPartyValidator.verifyAdmin(adminUserId).block();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportPayments(PaymentFilterDto filter, PaymentExportFormat format, OutputStream output) throws IOException {
+        if (format == PaymentExportFormat.CSV) {
+            output.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            paymentListings.stream(filter, payment -> {
+                try {
+                    output.write(format == PaymentExportFormat.CSV ? csvRow(payment) : ndjsonLine(payment));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // The client went away; stop reading rather than stream the rest of the ledger into nothing
+            throw e.getCause();
+        }
+        output.flush();
+    }
+
+    private byte[] csvRow(PaymentDto payment) {
+        return (payment.getId() + ","
+                + text(payment.getStudentId()) + ","
+                + text(payment.getParentUserId()) + ","
+                + (payment.getAmount() == null ? "" : payment.getAmount().toPlainString()) + ","
+                + text(payment.getPaymentDate()) + ","
+                + text(payment.getStatus()) + ","
+                + csv(payment.getTransactionId()) + ","
+                + csv(payment.getDescription()) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] ndjsonLine(PaymentDto payment) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(payment);
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private String text(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
     @Override
     @Transactional
     public PaymentDto updatePaymentStatus(Long id, PaymentUpdateStatusDto updateStatusDto) {
-        Payment existingPayment = paymentRepository.findById(id)
+        Payment existingPayment = paymentRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new NoSuchElementException("Payment not found with ID: " + id));
+        PaymentStatus previousStatus = existingPayment.getStatus();
         existingPayment.setStatus(updateStatusDto.getStatus());
         if (updateStatusDto.getTransactionId() != null && !updateStatusDto.getTransactionId().isEmpty()) {
             existingPayment.setTransactionId(updateStatusDto.getTransactionId());
         }
-        Payment updatedPayment = paymentRepository.save(existingPayment);
-
-        // Optionally, publish a Kafka event for payment status update
-        // kafkaTemplate.send("payment-events", "payment-status-updated", paymentMapper.paymentToPaymentDto(updatedPayment));
+        Payment updatedPayment;
+        try {
+            updatedPayment = paymentRepository.saveAndFlush(existingPayment);
+        } catch (DataIntegrityViolationException e) {
+            // transaction_id is unique: the gateway ID already belongs to another payment
+            throw new IllegalStateException("Transaction ID " + updateStatusDto.getTransactionId() + " is already used by another payment");
+        }
+        balanceLedger.statusChanged(updatedPayment, previousStatus);
+        paymentEventOutbox.statusUpdated(updatedPayment);
 
         return paymentMapper.paymentToPaymentDto(updatedPayment);
     }
@@ -137,9 +288,9 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     @Transactional
     public void deletePayment(Long id) {
-        if (!paymentRepository.existsById(id)) {
-            throw new NoSuchElementException("Payment not found with ID: " + id);
-        }
-        paymentRepository.deleteById(id);
+        Payment payment = paymentRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new NoSuchElementException("Payment not found with ID: " + id));
+        paymentRepository.delete(payment);
+        balanceLedger.removed(payment);
     }
 }
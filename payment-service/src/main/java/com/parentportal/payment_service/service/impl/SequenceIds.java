@@ -0,0 +1,39 @@
+package com.parentportal.payment_service.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out IDs for rows inserted through JDBC batches from the same pooled sequences Hibernate uses.
+ * Like Hibernate's pooled-lo optimizer, each NEXTVAL reserves that value and the ALLOCATION_SIZE - 1 after it,
+ * so a batch of rows costs one sequence call per ALLOCATION_SIZE rows and never collides with entity inserts.
+ */
+@Component
+@RequiredArgsConstructor
+public class SequenceIds {
+
+    /**
+     * Must match allocationSize on Payment and INCREMENT BY on payments_seq (V2).
+     */
+    public static final int ALLOCATION_SIZE = 50;
+
+    public static final String PAYMENTS = "payments_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return count fresh IDs from the given sequence, in ascending order.
+     */
+    public long[] next(String sequence, int count) {
+        long[] ids = new long[count];
+        int i = 0;
+        while (i < count) {
+            Long low = jdbcTemplate.queryForObject("SELECT NEXTVAL(" + sequence + ")", Long.class);
+            for (int offset = 0; offset < ALLOCATION_SIZE && i < count; offset++) {
+                ids[i++] = low + offset;
+            }
+        }
+        return ids;
+    }
+}
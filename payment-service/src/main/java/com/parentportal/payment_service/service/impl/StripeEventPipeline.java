@@ -0,0 +1,209 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.entity.Payment;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import com.parentportal.payment_service.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies verified Stripe webhook events to payments off the request path, through a durable inbox.
+ * The webhook endpoint stores each event as a PENDING row of stripe_webhook_events before Stripe gets its
+ * acknowledgement, so an acknowledged event survives a crash or redeploy; a redelivered event finds its row
+ * and is ignored. A scheduled worker claims pending rows in batches with FOR UPDATE SKIP LOCKED, so several
+ * instances drain the inbox without taking the same events. Each batch is one transaction that loads the
+ * affected payments by transaction ID with one query (locked, as the balance ledger is adjusted from their
+ * status), applies the status transitions with a PAYMENT_STATUS_UPDATED outbox event per change and one
+ * batched ledger update, and marks the rows APPLIED. If a batch fails, its events are retried one by one, so
+ * one bad event does not hold back the others; an event that keeps failing is retried with backoff and marked
+ * FAILED after max-attempts, and kept for inspection (setting it back to PENDING replays it).
+ * Transitions that do not fit the payment's current status (late or out-of-order events) are ignored.
+ */
+@Slf4j
+@Component
+public class StripeEventPipeline {
+
+    public record StatusEvent(String eventId, String type, String transactionId, PaymentStatus status) {
+    }
+
+    private static final String INSERT_PENDING_SQL = "INSERT IGNORE INTO stripe_webhook_events "
+            + "(event_id, event_type, transaction_id, target_status, state, attempts, received_at) "
+            + "VALUES (?, ?, ?, ?, 'PENDING', 0, ?)";
+    private static final String CLAIM_SQL = "SELECT event_id, event_type, transaction_id, target_status "
+            + "FROM stripe_webhook_events WHERE state = 'PENDING' AND (next_attempt_at IS NULL OR next_attempt_at <= ?) "
+            + "ORDER BY received_at, event_id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String CLAIM_ONE_SQL = "SELECT event_id, event_type, transaction_id, target_status "
+            + "FROM stripe_webhook_events WHERE event_id = ? AND state = 'PENDING' FOR UPDATE SKIP LOCKED";
+
+    private static final RowMapper<StatusEvent> EVENT_ROW = (rs, rowNum) -> new StatusEvent(rs.getString("event_id"),
+            rs.getString("event_type"), rs.getString("transaction_id"), PaymentStatus.valueOf(rs.getString("target_status")));
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentEventOutbox paymentEventOutbox;
+    private final BalanceLedger balanceLedger;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration retention;
+
+    public StripeEventPipeline(PaymentRepository paymentRepository,
+                               PaymentEventOutbox paymentEventOutbox,
+                               BalanceLedger balanceLedger,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${payment.stripe-webhook.batch-size:200}") int batchSize,
+                               @Value("${payment.stripe-webhook.max-attempts:5}") int maxAttempts,
+                               @Value("${payment.stripe-webhook.retry-backoff:PT30S}") Duration retryBackoff,
+                               @Value("${payment.stripe-webhook.dedupe-retention:P7D}") Duration retention) {
+        this.paymentRepository = paymentRepository;
+        this.paymentEventOutbox = paymentEventOutbox;
+        this.balanceLedger = balanceLedger;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.retention = retention;
+    }
+
+    /**
+     * Stores the event in the inbox; it is applied by the worker shortly after.
+     * An event already stored (a Stripe redelivery) is ignored. Throws DataAccessException if the event
+     * could not be stored, in which case it must not be acknowledged to Stripe.
+     */
+    public void accept(StatusEvent event) {
+        jdbcTemplate.update(INSERT_PENDING_SQL, event.eventId(), event.type(), event.transactionId(),
+                event.status().name(), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${payment.stripe-webhook.poll-interval-ms:500}")
+    public void drain() {
+        // Keep going while full batches go through; back off to the poll interval otherwise
+        while (applyBatch()) {
+            // next batch
+        }
+    }
+
+    /**
+     * Claims and applies the oldest pending events.
+     * @return true if a full batch was claimed, meaning more events are likely waiting.
+     */
+    public boolean applyBatch() {
+        List<StatusEvent> claimed = new ArrayList<>();
+        try {
+            Integer applied = transactionTemplate.execute(status -> {
+                claimed.addAll(jdbcTemplate.query(CLAIM_SQL, EVENT_ROW,
+                        Timestamp.valueOf(LocalDateTime.now()), batchSize));
+                return claimed.isEmpty() ? 0 : apply(claimed);
+            });
+            log.debug("Applied {} payment status transitions from {} Stripe events", applied, claimed.size());
+        } catch (RuntimeException e) {
+            // The batch was rolled back and its rows unlocked; one event at a time finds the one(s) at fault
+            log.warn("Batch of {} Stripe events failed, applying them one by one: {}", claimed.size(), describe(e));
+            claimed.forEach(this::applySingly);
+        }
+        return claimed.size() == batchSize;
+    }
+
+    private void applySingly(StatusEvent event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Skipped if another instance has claimed it meanwhile
+                List<StatusEvent> claimed = jdbcTemplate.query(CLAIM_ONE_SQL, EVENT_ROW, event.eventId());
+                if (!claimed.isEmpty()) {
+                    apply(claimed);
+                }
+            });
+        } catch (RuntimeException e) {
+            recordFailure(event, describe(e));
+        }
+    }
+
+    private void recordFailure(StatusEvent event, String error) {
+        Timestamp retryAt = Timestamp.valueOf(LocalDateTime.now().plus(retryBackoff));
+        // Assignments apply left to right, so the state test sees the incremented attempt count
+        int updated = jdbcTemplate.update("UPDATE stripe_webhook_events SET attempts = attempts + 1, last_error = ?, "
+                        + "next_attempt_at = ?, state = IF(attempts >= ?, 'FAILED', 'PENDING') "
+                        + "WHERE event_id = ? AND state = 'PENDING'",
+                error.length() > 1000 ? error.substring(0, 1000) : error, retryAt, maxAttempts, event.eventId());
+        if (updated > 0) {
+            log.error("Stripe event {} ({} for {}) failed: {}", event.eventId(), event.type(), event.transactionId(), error);
+        }
+    }
+
+    private int apply(List<StatusEvent> events) {
+        Set<String> transactionIds = new HashSet<>();
+        events.forEach(event -> transactionIds.add(event.transactionId()));
+        Map<String, List<Payment>> payments = new HashMap<>();
+        for (Payment payment : paymentRepository.findByTransactionIdIn(transactionIds)) {
+            payments.computeIfAbsent(payment.getTransactionId(), id -> new ArrayList<>()).add(payment);
+        }
+        List<BalanceLedger.StatusChange> changes = new ArrayList<>();
+        for (StatusEvent event : events) {
+            List<Payment> matching = payments.getOrDefault(event.transactionId(), Collections.emptyList());
+            if (matching.isEmpty()) {
+                log.debug("Stripe event {} refers to unknown transaction {}", event.eventId(), event.transactionId());
+            }
+            for (Payment payment : matching) {
+                if (canMove(payment.getStatus(), event.status())) {
+                    changes.add(new BalanceLedger.StatusChange(payment, payment.getStatus(), event.status()));
+                    // Flushed with the other updates of the batch at commit
+                    payment.setStatus(event.status());
+                    paymentEventOutbox.statusUpdated(payment);
+                }
+            }
+        }
+        balanceLedger.statusesChanged(changes);
+        List<String> eventIds = events.stream().map(StatusEvent::eventId).toList();
+        jdbcTemplate.update("UPDATE stripe_webhook_events SET state = 'APPLIED', last_error = NULL WHERE event_id IN ("
+                + placeholders(eventIds.size()) + ")", eventIds.toArray());
+        return changes.size();
+    }
+
+    static boolean canMove(PaymentStatus from, PaymentStatus to) {
+        return switch (to) {
+            case SUCCESS -> from == PaymentStatus.PENDING || from == PaymentStatus.FAILED;
+            case FAILED -> from == PaymentStatus.PENDING;
+            case REFUNDED -> from == PaymentStatus.SUCCESS;
+            case PENDING -> false;
+        };
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static String describe(RuntimeException e) {
+        return e instanceof DataAccessException dae ? dae.getMostSpecificCause().getMessage() : e.toString();
+    }
+
+    // Stripe stops redelivering an event after three days, so older applied IDs are no longer needed for dedupe;
+    // pending and failed events are kept until they are applied
+    @Scheduled(cron = "${payment.stripe-webhook.cleanup-cron:0 15 3 * * *}")
+    public void forgetOldEvents() {
+        int removed = jdbcTemplate.update("DELETE FROM stripe_webhook_events WHERE state = 'APPLIED' AND received_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+        if (removed > 0) {
+            log.info("Removed {} processed Stripe event IDs older than {}", removed, retention);
+        }
+    }
+}
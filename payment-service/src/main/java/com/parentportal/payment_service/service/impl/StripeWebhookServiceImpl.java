@@ -0,0 +1,77 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import com.parentportal.payment_service.service.StripeWebhookService;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.net.Webhook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * Verifies Stripe webhook deliveries and stores the ones that move a payment in the {@link StripeEventPipeline} inbox.
+ * Payments are matched on their transaction ID, which holds the Stripe PaymentIntent ID.
+ * Event types that do not change a payment's status are acknowledged and dropped.
+ */
+@Service
+public class StripeWebhookServiceImpl implements StripeWebhookService {
+
+    // Event type -> status it moves the payment to
+    private static final Map<String, PaymentStatus> TRANSITIONS = Map.of(
+            "payment_intent.succeeded", PaymentStatus.SUCCESS,
+            "payment_intent.payment_failed", PaymentStatus.FAILED,
+            "payment_intent.canceled", PaymentStatus.FAILED,
+            "charge.refunded", PaymentStatus.REFUNDED);
+
+    private final StripeEventPipeline stripeEventPipeline;
+    private final ObjectMapper objectMapper;
+    private final String webhookSecret;
+
+    public StripeWebhookServiceImpl(StripeEventPipeline stripeEventPipeline,
+                                    ObjectMapper objectMapper,
+                                    @Value("${stripe.webhook.secret:}") String webhookSecret) {
+        this.stripeEventPipeline = stripeEventPipeline;
+        this.objectMapper = objectMapper;
+        this.webhookSecret = webhookSecret;
+    }
+
+    @Override
+    public void receive(String payload, String signatureHeader) {
+        if (webhookSecret.isBlank()) {
+            throw new IllegalStateException("Stripe webhook secret is not configured");
+        }
+        Event event;
+        try {
+            event = Webhook.constructEvent(payload, signatureHeader, webhookSecret);
+        } catch (SignatureVerificationException e) {
+            throw new IllegalArgumentException("Invalid Stripe signature: " + e.getMessage());
+        }
+        PaymentStatus status = TRANSITIONS.get(event.getType());
+        if (status == null) {
+            return;
+        }
+        String transactionId = paymentIntentId(payload, event.getType());
+        if (transactionId == null) {
+            return;
+        }
+        stripeEventPipeline.accept(
+                new StripeEventPipeline.StatusEvent(event.getId(), event.getType(), transactionId, status));
+    }
+
+    // Read from the raw payload rather than the typed object, which Stripe leaves empty on API version mismatches
+    private String paymentIntentId(String payload, String type) {
+        try {
+            JsonNode object = objectMapper.readTree(payload).path("data").path("object");
+            JsonNode id = type.startsWith("charge.") ? object.path("payment_intent") : object.path("id");
+            return id.isTextual() ? id.asText() : null;
+        } catch (JsonProcessingException e) {
+            // Already parsed once by constructEvent, so this does not happen for verified payloads
+            throw new IllegalArgumentException("Malformed Stripe event payload");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package db.migration;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds the indexes behind the keyset payment listings and makes gateway transaction IDs unique.
+ * Status updates could set any transaction ID by hand, so existing payments may share one. Those are never
+ * rewritten here: the migration stops before changing anything and lists them, so they can be resolved
+ * against the gateway's records before it runs again.
+ */
+public class V7__add_payment_listing_indexes extends BaseJavaMigration {
+
+    static final int MAX_REPORTED_DUPLICATES = 100;
+    static final String FIND_DUPLICATES_SQL = "SELECT transaction_id, GROUP_CONCAT(id ORDER BY id) AS payment_ids "
+            + "FROM payments WHERE transaction_id IS NOT NULL GROUP BY transaction_id HAVING COUNT(*) > 1 "
+            + "ORDER BY transaction_id";
+    static final List<String> STATEMENTS = List.of(
+            // Keyset listings order by (payment_date, id), newest first. InnoDB secondary indexes end with the
+            // primary key, so each of these serves its filter and the order without a filesort.
+            "CREATE INDEX IF NOT EXISTS idx_payments_parent_date ON payments (parent_user_id, payment_date)",
+            "CREATE INDEX IF NOT EXISTS idx_payments_student_date ON payments (student_id, payment_date)",
+            "CREATE INDEX IF NOT EXISTS idx_payments_payment_date ON payments (payment_date)",
+            // A gateway transaction ID identifies one payment; replaces the plain index from V5
+            "CREATE UNIQUE INDEX IF NOT EXISTS uk_payments_transaction_id ON payments (transaction_id)",
+            "DROP INDEX IF EXISTS idx_payments_transaction_id ON payments");
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            List<String> duplicates = new ArrayList<>();
+            int duplicateCount = 0;
+            try (ResultSet rs = statement.executeQuery(FIND_DUPLICATES_SQL)) {
+                while (rs.next()) {
+                    duplicateCount++;
+                    if (duplicates.size() < MAX_REPORTED_DUPLICATES) {
+                        duplicates.add(rs.getString("transaction_id") + " (payments " + rs.getString("payment_ids") + ")");
+                    }
+                }
+            }
+            if (duplicateCount > 0) {
+                throw new FlywayException(duplicateCount + " transaction IDs are shared by several payments and must be "
+                        + "resolved before the unique index on payments.transaction_id can be built; nothing was changed. "
+                        + (duplicateCount > duplicates.size() ? "First " + duplicates.size() + ": " : "")
+                        + String.join(", ", duplicates));
+            }
+            for (String sql : STATEMENTS) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- The outbox relay leases a batch by stamping its rows instead of keeping them locked while it sends.
+-- The index serves the relay's per-payment oldest-event check.
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS claimed_by VARCHAR(64) NULL;
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS claimed_at DATETIME(6) NULL;
+CREATE INDEX IF NOT EXISTS idx_outbox_events_payment ON outbox_events (payment_id, id);
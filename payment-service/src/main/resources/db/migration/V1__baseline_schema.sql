@@ -0,0 +1,12 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update).
+-- IF NOT EXISTS lets existing databases adopt this baseline unchanged.
+CREATE TABLE IF NOT EXISTS payments (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    student_id BIGINT,
+    parent_user_id BIGINT,
+    amount DECIMAL(38, 2),
+    payment_date DATETIME(6),
+    status VARCHAR(16),
+    transaction_id VARCHAR(255),
+    description VARCHAR(255)
+);
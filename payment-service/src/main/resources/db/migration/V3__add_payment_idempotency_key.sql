@@ -0,0 +1,4 @@
+-- Idempotency-Key of the request that created the payment, unique per parent.
+-- Payments created without a key keep NULL, which the unique index does not constrain.
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS idempotency_key VARCHAR(255);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_payments_parent_idempotency_key ON payments (parent_user_id, idempotency_key);
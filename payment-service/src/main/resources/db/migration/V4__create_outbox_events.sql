@@ -0,0 +1,8 @@
+-- Transactional outbox for payment-events, drained in id order by OutboxRelay
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    payment_id BIGINT NOT NULL,
+    payload TEXT NOT NULL,
+    created_at DATETIME(6) NOT NULL
+);
@@ -0,0 +1,10 @@
+-- Stripe webhook events already applied, for dedupe of redeliveries (pruned after the retention period)
+CREATE TABLE IF NOT EXISTS stripe_webhook_events (
+    event_id VARCHAR(255) PRIMARY KEY,
+    event_type VARCHAR(64) NOT NULL,
+    received_at DATETIME(6) NOT NULL,
+    INDEX idx_stripe_webhook_events_received_at (received_at)
+);
+
+-- Webhook events find their payment by the gateway transaction ID
+CREATE INDEX IF NOT EXISTS idx_payments_transaction_id ON payments (transaction_id);
@@ -0,0 +1,18 @@
+-- Bulk term-fee invoice runs. last_student_id is the resume checkpoint (committed with each chunk of
+-- invoices); owner and heartbeat_at are the lease of the instance working on a RUNNING run.
+CREATE TABLE IF NOT EXISTS invoice_runs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    description VARCHAR(255) NOT NULL,
+    amount DECIMAL(38, 2) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    last_student_id BIGINT,
+    created_count INT NOT NULL DEFAULT 0,
+    skipped_count INT NOT NULL DEFAULT 0,
+    owner VARCHAR(64),
+    heartbeat_at DATETIME(6),
+    error VARCHAR(512),
+    started_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    finished_at DATETIME(6),
+    INDEX idx_invoice_runs_status (status)
+);
@@ -0,0 +1,52 @@
+-- Running payment totals by status per parent and per student, maintained by BalanceLedger in the
+-- transaction of every payment change and checked against the payments table by BalanceVerifier
+CREATE TABLE IF NOT EXISTS parent_balances (
+    parent_user_id BIGINT PRIMARY KEY,
+    pending_amount DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    pending_count BIGINT NOT NULL DEFAULT 0,
+    success_amount DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    success_count BIGINT NOT NULL DEFAULT 0,
+    failed_amount DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    failed_count BIGINT NOT NULL DEFAULT 0,
+    refunded_amount DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    refunded_count BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS student_balances (
+    student_id BIGINT PRIMARY KEY,
+    pending_amount DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    pending_count BIGINT NOT NULL DEFAULT 0,
+    success_amount DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    success_count BIGINT NOT NULL DEFAULT 0,
+    failed_amount DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    failed_count BIGINT NOT NULL DEFAULT 0,
+    refunded_amount DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    refunded_count BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME(6) NOT NULL
+);
+
+-- Opening balances from the payments recorded so far
+INSERT INTO parent_balances (parent_user_id, pending_amount, pending_count, success_amount, success_count,
+                             failed_amount, failed_count, refunded_amount, refunded_count, updated_at)
+SELECT parent_user_id,
+       COALESCE(SUM(CASE WHEN status = 'PENDING' THEN amount END), 0), SUM(status = 'PENDING'),
+       COALESCE(SUM(CASE WHEN status = 'SUCCESS' THEN amount END), 0), SUM(status = 'SUCCESS'),
+       COALESCE(SUM(CASE WHEN status = 'FAILED' THEN amount END), 0), SUM(status = 'FAILED'),
+       COALESCE(SUM(CASE WHEN status = 'REFUNDED' THEN amount END), 0), SUM(status = 'REFUNDED'),
+       NOW(6)
+FROM payments
+WHERE parent_user_id IS NOT NULL AND status IS NOT NULL
+GROUP BY parent_user_id;
+
+INSERT INTO student_balances (student_id, pending_amount, pending_count, success_amount, success_count,
+                              failed_amount, failed_count, refunded_amount, refunded_count, updated_at)
+SELECT student_id,
+       COALESCE(SUM(CASE WHEN status = 'PENDING' THEN amount END), 0), SUM(status = 'PENDING'),
+       COALESCE(SUM(CASE WHEN status = 'SUCCESS' THEN amount END), 0), SUM(status = 'SUCCESS'),
+       COALESCE(SUM(CASE WHEN status = 'FAILED' THEN amount END), 0), SUM(status = 'FAILED'),
+       COALESCE(SUM(CASE WHEN status = 'REFUNDED' THEN amount END), 0), SUM(status = 'REFUNDED'),
+       NOW(6)
+FROM payments
+WHERE student_id IS NOT NULL AND status IS NOT NULL
+GROUP BY student_id;
@@ -0,0 +1,12 @@
+-- stripe_webhook_events becomes the inbox of verified webhook events: each is stored as PENDING before
+-- Stripe is acknowledged and marked APPLIED by the worker. Rows written before this were already applied.
+ALTER TABLE stripe_webhook_events
+    ADD COLUMN IF NOT EXISTS transaction_id VARCHAR(255),
+    ADD COLUMN IF NOT EXISTS target_status VARCHAR(32),
+    ADD COLUMN IF NOT EXISTS state VARCHAR(16) NOT NULL DEFAULT 'APPLIED',
+    ADD COLUMN IF NOT EXISTS attempts INT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS next_attempt_at DATETIME(6),
+    ADD COLUMN IF NOT EXISTS last_error VARCHAR(1000);
+
+-- The worker claims the oldest pending events
+CREATE INDEX IF NOT EXISTS idx_stripe_webhook_events_state ON stripe_webhook_events (state, received_at);
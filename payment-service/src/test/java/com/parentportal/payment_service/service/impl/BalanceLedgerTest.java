@@ -0,0 +1,167 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.entity.Payment;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BalanceLedgerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BalanceLedger balanceLedger = new BalanceLedger(jdbcTemplate);
+
+    // Bound parameters of each upserted row, by table and ledger key, in the order the rows were sent
+    private final Map<String, Map<Long, Map<Integer, Object>>> upserts = new HashMap<>();
+    private final List<String> statements = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            statements.add(sql);
+            String table = sql.contains("parent_balances") ? "parent_balances" : "student_balances";
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            for (Object row : invocation.<Collection<Object>>getArgument(1)) {
+                Map<Integer, Object> values = new HashMap<>();
+                setter.setValues(recording(values), row);
+                upserts.computeIfAbsent(table, t -> new LinkedHashMap<>()).put((Long) values.get(1), values);
+            }
+            return new int[0][];
+        });
+    }
+
+    @Test
+    void addedPaymentsAreSummedPerParentAndStudent() {
+        balanceLedger.added(List.of(
+                payment(1L, 7L, 3L, "100.00", PaymentStatus.SUCCESS),
+                payment(2L, 7L, 4L, "50.25", PaymentStatus.SUCCESS),
+                payment(3L, 7L, 4L, "20.00", PaymentStatus.PENDING)));
+
+        assertDelta("parent_balances", 7L, PaymentStatus.SUCCESS, "150.25", 2);
+        assertDelta("parent_balances", 7L, PaymentStatus.PENDING, "20.00", 1);
+        assertDelta("student_balances", 3L, PaymentStatus.SUCCESS, "100.00", 1);
+        assertDelta("student_balances", 4L, PaymentStatus.SUCCESS, "50.25", 1);
+        assertDelta("student_balances", 4L, PaymentStatus.PENDING, "20.00", 1);
+        assertDelta("student_balances", 4L, PaymentStatus.FAILED, "0", 0);
+    }
+
+    @Test
+    void statusChangeMovesTheAmountBetweenStatuses() {
+        Payment payment = payment(1L, 7L, 3L, "80.00", PaymentStatus.SUCCESS);
+
+        balanceLedger.statusChanged(payment, PaymentStatus.PENDING);
+
+        assertDelta("parent_balances", 7L, PaymentStatus.PENDING, "-80.00", -1);
+        assertDelta("parent_balances", 7L, PaymentStatus.SUCCESS, "80.00", 1);
+        assertDelta("student_balances", 3L, PaymentStatus.PENDING, "-80.00", -1);
+        assertDelta("student_balances", 3L, PaymentStatus.SUCCESS, "80.00", 1);
+    }
+
+    @Test
+    void changesOfOneBatchAreFoldedIntoOneDeltaPerRow() {
+        Payment payment = payment(1L, 7L, 3L, "80.00", PaymentStatus.REFUNDED);
+
+        balanceLedger.statusesChanged(List.of(
+                new BalanceLedger.StatusChange(payment, PaymentStatus.PENDING, PaymentStatus.SUCCESS),
+                new BalanceLedger.StatusChange(payment, PaymentStatus.SUCCESS, PaymentStatus.REFUNDED)));
+
+        assertThat(upserts.get("parent_balances")).hasSize(1);
+        assertDelta("parent_balances", 7L, PaymentStatus.PENDING, "-80.00", -1);
+        assertDelta("parent_balances", 7L, PaymentStatus.SUCCESS, "0.00", 0);
+        assertDelta("parent_balances", 7L, PaymentStatus.REFUNDED, "80.00", 1);
+    }
+
+    @Test
+    void unchangedStatusWritesNothing() {
+        Payment payment = payment(1L, 7L, 3L, "80.00", PaymentStatus.SUCCESS);
+
+        balanceLedger.statusChanged(payment, PaymentStatus.SUCCESS);
+
+        assertThat(statements).isEmpty();
+    }
+
+    @Test
+    void removedPaymentIsSubtracted() {
+        balanceLedger.removed(payment(1L, 7L, 3L, "30.00", PaymentStatus.FAILED));
+
+        assertDelta("parent_balances", 7L, PaymentStatus.FAILED, "-30.00", -1);
+        assertDelta("student_balances", 3L, PaymentStatus.FAILED, "-30.00", -1);
+    }
+
+    @Test
+    void paymentWithoutParentOnlyMovesTheStudentLedger() {
+        balanceLedger.added(payment(1L, null, 3L, "30.00", PaymentStatus.PENDING));
+
+        assertThat(upserts).doesNotContainKey("parent_balances");
+        assertDelta("student_balances", 3L, PaymentStatus.PENDING, "30.00", 1);
+    }
+
+    @Test
+    void rowsAreUpsertedInKeyOrder() {
+        balanceLedger.added(List.of(
+                payment(1L, 9L, 30L, "1.00", PaymentStatus.PENDING),
+                payment(2L, 3L, 10L, "1.00", PaymentStatus.PENDING),
+                payment(3L, 5L, 20L, "1.00", PaymentStatus.PENDING)));
+
+        assertThat(upserts.get("parent_balances").keySet()).containsExactly(3L, 5L, 9L);
+        assertThat(upserts.get("student_balances").keySet()).containsExactly(10L, 20L, 30L);
+    }
+
+    @Test
+    void upsertAddsToTheStoredTotals() {
+        balanceLedger.added(payment(1L, 7L, 3L, "1.00", PaymentStatus.PENDING));
+
+        assertThat(statements).allSatisfy(sql -> assertThat(sql)
+                .contains("ON DUPLICATE KEY UPDATE")
+                .contains("success_amount = success_amount + VALUES(success_amount)")
+                .contains("refunded_count = refunded_count + VALUES(refunded_count)"));
+    }
+
+    // Parameters are the ledger key, then amount and count per status in declaration order, then updated_at
+    private void assertDelta(String table, Long key, PaymentStatus status, String amount, long count) {
+        Map<Integer, Object> row = upserts.get(table).get(key);
+        assertThat(row).as("%s row %d", table, key).isNotNull();
+        assertThat((BigDecimal) row.get(2 + 2 * status.ordinal())).isEqualByComparingTo(amount);
+        assertThat(row.get(3 + 2 * status.ordinal())).isEqualTo(count);
+    }
+
+    private static PreparedStatement recording(Map<Integer, Object> values) {
+        return (PreparedStatement) Proxy.newProxyInstance(BalanceLedgerTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length == 2) {
+                        values.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                });
+    }
+
+    private static Payment payment(Long id, Long parentUserId, Long studentId, String amount, PaymentStatus status) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setParentUserId(parentUserId);
+        payment.setStudentId(studentId);
+        payment.setAmount(new BigDecimal(amount));
+        payment.setStatus(status);
+        return payment;
+    }
+}
@@ -0,0 +1,342 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.entity.InvoiceRun;
+import com.parentportal.payment_service.entity.Payment;
+import com.parentportal.payment_service.repository.InvoiceRunRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InvoiceRunnerTest {
+
+    private static final long RUN_ID = 1L;
+
+    private final InvoiceRunRepository invoiceRunRepository = mock(InvoiceRunRepository.class);
+    private final SequenceIds sequenceIds = mock(SequenceIds.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    // The roster the Student Performance Service pages through: parent by student ID, null for none
+    private final Map<Long, Long> roster = new TreeMap<>();
+    // The "after" cursor of each page fetched
+    private final List<Long> cursors = new ArrayList<>();
+    // The invoice_runs row of the run, as the UPDATEs of the runner leave it
+    private final RunRow row = new RunRow();
+    private final List<Payment> inserted = new ArrayList<>();
+    // Students whose chunk fails to insert, e.g. on a lost database connection
+    private final List<Long> failingStudents = new ArrayList<>();
+    // Runs after each committed chunk; lets a test hand the lease to another instance mid-run
+    private Runnable afterChunk = () -> {
+    };
+
+    @BeforeEach
+    void setUp() {
+        AtomicLong nextId = new AtomicLong(100);
+        when(sequenceIds.next(eq(SequenceIds.PAYMENTS), anyInt())).thenAnswer(invocation -> LongStream
+                .range(0, invocation.<Integer>getArgument(1)).map(i -> nextId.getAndIncrement()).toArray());
+        when(invoiceRunRepository.findById(RUN_ID)).thenAnswer(invocation -> Optional.of(row.toEntity()));
+        // Rolls the row back when the chunk fails, as the database would
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            RunRow before = row.copy();
+            int insertedBefore = inserted.size();
+            try {
+                Object result = invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+                afterChunk.run();
+                return result;
+            } catch (RuntimeException e) {
+                row.restore(before);
+                inserted.subList(insertedBefore, inserted.size()).clear();
+                throw e;
+            }
+        });
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation ->
+                row.update(invocation.getArgument(0), (Object[]) invocation.getRawArguments()[1]));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenAnswer(invocation ->
+                row.unowned((Timestamp) ((Object[]) invocation.getRawArguments()[2])[0]) ? List.of(RUN_ID) : List.of());
+        doAnswer(invocation -> {
+            Collection<Payment> payments = invocation.getArgument(1);
+            if (payments.stream().anyMatch(payment -> failingStudents.contains(payment.getStudentId()))) {
+                throw new DataIntegrityViolationException("Connection lost");
+            }
+            inserted.addAll(payments);
+            return new int[][]{};
+        }).when(jdbcTemplate).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void runInvoicesEveryStudentWithAParentChunkByChunkAndCompletes() throws InterruptedException {
+        roster.putAll(Map.of(1L, 11L, 2L, 12L, 4L, 14L, 5L, 15L));
+        roster.put(3L, null);
+
+        runToTheEnd(runner());
+
+        assertThat(cursors).containsExactly(null, 2L, 4L);
+        assertThat(inserted).extracting(Payment::getStudentId).containsExactly(1L, 2L, 4L, 5L);
+        assertThat(inserted).extracting(Payment::getIdempotencyKey)
+                .containsExactly("invoice-1-1", "invoice-1-2", "invoice-1-4", "invoice-1-5");
+        assertThat(inserted).extracting(Payment::getParentUserId).containsExactly(11L, 12L, 14L, 15L);
+        assertThat(row.status).isEqualTo("COMPLETED");
+        assertThat(row.owner).isNull();
+        assertThat(row.lastStudentId).isEqualTo(5L);
+        assertThat(row.createdCount).isEqualTo(4);
+        assertThat(row.skippedCount).isEqualTo(1);
+    }
+
+    @Test
+    void failedChunkLeavesTheCheckpointAndAResumedRunContinuesAfterIt() throws InterruptedException {
+        for (long id = 1; id <= 5; id++) {
+            roster.put(id, 10 + id);
+        }
+        failingStudents.add(4L);
+
+        runToTheEnd(runner());
+
+        assertThat(row.status).isEqualTo("FAILED");
+        assertThat(row.error).isEqualTo("Connection lost");
+        assertThat(row.lastStudentId).isEqualTo(2L);
+        assertThat(row.createdCount).isEqualTo(2);
+
+        // Resumed as InvoiceRunServiceImpl.resumeRun does
+        failingStudents.clear();
+        row.status = "RUNNING";
+        cursors.clear();
+        runToTheEnd(runner());
+
+        assertThat(cursors).containsExactly(2L, 4L);
+        assertThat(inserted).extracting(Payment::getStudentId).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(row.status).isEqualTo("COMPLETED");
+        assertThat(row.createdCount).isEqualTo(5);
+    }
+
+    @Test
+    void runOfACrashedInstanceIsTakenOverOnceItsLeaseIsStale() throws InterruptedException {
+        for (long id = 1; id <= 5; id++) {
+            roster.put(id, 10 + id);
+        }
+        // Another instance wrote the first chunk and then stopped renewing its lease
+        row.lastStudentId = 2L;
+        row.createdCount = 2;
+        row.owner = "crashed";
+        row.heartbeatAt = LocalDateTime.now().minusMinutes(3);
+
+        InvoiceRunner runner = runner();
+        runner.resumeUnowned();
+        runner.shutdown();
+
+        assertThat(cursors).containsExactly(2L, 4L);
+        assertThat(inserted).extracting(Payment::getStudentId).containsExactly(3L, 4L, 5L);
+        assertThat(row.status).isEqualTo("COMPLETED");
+        assertThat(row.createdCount).isEqualTo(5);
+    }
+
+    @Test
+    void runWhoseLeaseIsHeldElsewhereIsLeftAlone() throws InterruptedException {
+        roster.put(1L, 11L);
+        row.owner = "alive";
+        row.heartbeatAt = LocalDateTime.now().minusSeconds(10);
+
+        InvoiceRunner runner = runner();
+        runner.resumeUnowned();
+        runner.submit(RUN_ID);
+        runner.shutdown();
+
+        assertThat(cursors).isEmpty();
+        assertThat(inserted).isEmpty();
+        assertThat(row.owner).isEqualTo("alive");
+    }
+
+    @Test
+    void runThatLosesItsLeaseStopsWithoutWritingTheNextChunk() throws InterruptedException {
+        for (long id = 1; id <= 5; id++) {
+            roster.put(id, 10 + id);
+        }
+        // The lease went stale while the first chunk was being written, and another instance took it
+        afterChunk = () -> row.owner = "other";
+
+        runToTheEnd(runner());
+
+        assertThat(inserted).extracting(Payment::getStudentId).containsExactly(1L, 2L);
+        assertThat(row.lastStudentId).isEqualTo(2L);
+        assertThat(row.status).isEqualTo("RUNNING");
+        assertThat(row.owner).isEqualTo("other");
+    }
+
+    @Test
+    void throughputIsInvoicesPerSecondUntilTheRunFinished() {
+        InvoiceRun run = new InvoiceRun();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 6, 8, 0);
+        run.setStartedAt(start);
+        run.setUpdatedAt(start.plusMinutes(10));
+        run.setFinishedAt(start.plusSeconds(20));
+        run.setCreatedCount(500);
+
+        assertThat(InvoiceRunner.throughput(run)).isEqualTo(25.0);
+
+        run.setFinishedAt(null);
+        assertThat(InvoiceRunner.throughput(run)).isEqualTo(500 / 600.0);
+    }
+
+    private InvoiceRunner runner() {
+        return new InvoiceRunner(invoiceRunRepository, mock(PaymentEventOutbox.class), mock(BalanceLedger.class),
+                sequenceIds, jdbcTemplate, transactionTemplate,
+                WebClient.builder().exchangeFunction(request -> Mono.fromCallable(() -> page(request))),
+                "student-performance-service", 1, 2, Duration.ofSeconds(5), Duration.ofMinutes(2));
+    }
+
+    // Waits for the run: shutdown lets the current run finish
+    private static void runToTheEnd(InvoiceRunner runner) throws InterruptedException {
+        runner.submit(RUN_ID);
+        runner.shutdown();
+    }
+
+    // GET /api/students/summary/page?size=&after= over the roster, ascending by ID
+    private ClientResponse page(ClientRequest request) {
+        Map<String, String> query = UriComponentsBuilder.fromUri(request.url()).build()
+                .getQueryParams().toSingleValueMap();
+        Long after = query.containsKey("after") ? Long.valueOf(query.get("after")) : null;
+        int size = Integer.parseInt(query.get("size"));
+        cursors.add(after);
+        List<Long> ids = roster.keySet().stream().filter(id -> after == null || id > after).toList();
+        List<Long> content = ids.stream().limit(size).toList();
+        boolean hasMore = ids.size() > size;
+        String students = content.stream()
+                .map(id -> "{\"id\": " + id + ", \"studentId\": \"STU-" + id + "\", \"parentUserId\": "
+                        + roster.get(id) + "}")
+                .collect(Collectors.joining(", "));
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"content\": [" + students + "], \"nextCursor\": "
+                        + (hasMore ? content.get(content.size() - 1) : null) + ", \"hasMore\": " + hasMore + "}")
+                .build();
+    }
+
+    // The columns of the run's invoice_runs row that the runner reads and writes
+    private static class RunRow {
+        String status = "RUNNING";
+        Long lastStudentId;
+        int createdCount;
+        int skippedCount;
+        String owner;
+        LocalDateTime heartbeatAt;
+        String error;
+
+        InvoiceRun toEntity() {
+            InvoiceRun run = new InvoiceRun();
+            run.setId(RUN_ID);
+            run.setDescription("Term 1 fees");
+            run.setAmount(new BigDecimal("250.00"));
+            run.setLastStudentId(lastStudentId);
+            run.setCreatedCount(createdCount);
+            run.setSkippedCount(skippedCount);
+            return run;
+        }
+
+        boolean unowned(Timestamp staleBefore) {
+            return status.equals("RUNNING")
+                    && (owner == null || heartbeatAt.isBefore(staleBefore.toLocalDateTime()));
+        }
+
+        // Applies the runner's UPDATE statements, returning the affected row count
+        int update(String sql, Object[] args) {
+            if (sql.startsWith("UPDATE invoice_runs SET owner = ?, heartbeat_at = ?")) {
+                if (!unowned((Timestamp) args[3])) {
+                    return 0;
+                }
+                owner = (String) args[0];
+                heartbeatAt = ((Timestamp) args[1]).toLocalDateTime();
+                return 1;
+            }
+            if (sql.startsWith("UPDATE invoice_runs SET last_student_id = ?")) {
+                if (!owns(args[6]) || !Objects.equals(lastStudentId, args[7])) {
+                    return 0;
+                }
+                lastStudentId = (Long) args[0];
+                createdCount += (Integer) args[1];
+                skippedCount += (Integer) args[2];
+                heartbeatAt = ((Timestamp) args[3]).toLocalDateTime();
+                return 1;
+            }
+            if (sql.startsWith("UPDATE invoice_runs SET status = 'COMPLETED'")) {
+                return end("COMPLETED", args[3], null);
+            }
+            if (sql.startsWith("UPDATE invoice_runs SET status = 'FAILED'")) {
+                return end("FAILED", args[3], (String) args[0]);
+            }
+            if (sql.startsWith("UPDATE invoice_runs SET owner = NULL")) {
+                if (!owns(args[1])) {
+                    return 0;
+                }
+                owner = null;
+                return 1;
+            }
+            throw new IllegalArgumentException("Unexpected statement: " + sql);
+        }
+
+        private int end(String newStatus, Object runner, String newError) {
+            if (!Objects.equals(owner, runner)) {
+                return 0;
+            }
+            status = newStatus;
+            owner = null;
+            error = newError;
+            return 1;
+        }
+
+        private boolean owns(Object runner) {
+            return status.equals("RUNNING") && Objects.equals(owner, runner);
+        }
+
+        RunRow copy() {
+            RunRow copy = new RunRow();
+            copy.restore(this);
+            return copy;
+        }
+
+        void restore(RunRow from) {
+            status = from.status;
+            lastStudentId = from.lastStudentId;
+            createdCount = from.createdCount;
+            skippedCount = from.skippedCount;
+            owner = from.owner;
+            heartbeatAt = from.heartbeatAt;
+            error = from.error;
+        }
+    }
+}
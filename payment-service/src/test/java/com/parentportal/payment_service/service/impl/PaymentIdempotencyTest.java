@@ -0,0 +1,140 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.dto.PaymentCreateDto;
+import com.parentportal.payment_service.dto.PaymentDto;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentIdempotencyTest {
+
+    private final PaymentIdempotency idempotency = new PaymentIdempotency(1000, Duration.ofHours(1), Duration.ofMillis(200));
+    private final AtomicInteger creations = new AtomicInteger();
+
+    @Test
+    void repeatedRequestGetsTheFirstPaymentWithoutCreatingAgain() {
+        PaymentCreateDto request = request(7L, "12.50");
+
+        StepVerifier.create(idempotency.createOnce("key-1", request, () -> create(request, 1L)))
+                .expectNextMatches(payment -> payment.getId() == 1L)
+                .verifyComplete();
+        StepVerifier.create(idempotency.createOnce("key-1", request(7L, "12.50"), () -> create(request, 2L)))
+                .expectNextMatches(payment -> payment.getId() == 1L)
+                .verifyComplete();
+
+        assertThat(creations).hasValue(1);
+    }
+
+    @Test
+    void keyReusedForADifferentPaymentIsRejected() {
+        PaymentCreateDto request = request(7L, "12.50");
+        idempotency.createOnce("key-1", request, () -> create(request, 1L)).block();
+
+        PaymentCreateDto other = request(7L, "99.00");
+        StepVerifier.create(idempotency.createOnce("key-1", other, () -> create(other, 2L)))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void sameAmountWithAnotherScaleIsTheSamePayment() {
+        PaymentCreateDto request = request(7L, "12.5");
+        idempotency.createOnce("key-1", request, () -> create(request, 1L)).block();
+
+        PaymentCreateDto retry = request(7L, "12.50");
+        StepVerifier.create(idempotency.createOnce("key-1", retry, () -> create(retry, 2L)))
+                .expectNextMatches(payment -> payment.getId() == 1L)
+                .verifyComplete();
+        assertThat(creations).hasValue(1);
+    }
+
+    @Test
+    void keyReusedForAnotherStudentOrDescriptionIsRejected() {
+        PaymentCreateDto request = request(7L, "12.50");
+        idempotency.createOnce("key-1", request, () -> create(request, 1L)).block();
+
+        PaymentCreateDto otherStudent = request(7L, "12.50");
+        otherStudent.setStudentId(request.getStudentId() + 1);
+        PaymentCreateDto otherDescription = request(7L, "12.50");
+        otherDescription.setDescription(request.getDescription() + " (2)");
+        StepVerifier.create(idempotency.createOnce("key-1", otherStudent, () -> create(otherStudent, 2L)))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(idempotency.createOnce("key-1", otherDescription, () -> create(otherDescription, 3L)))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void keysAreScopedPerParent() {
+        PaymentCreateDto first = request(7L, "12.50");
+        PaymentCreateDto second = request(8L, "12.50");
+
+        idempotency.createOnce("key-1", first, () -> create(first, 1L)).block();
+        StepVerifier.create(idempotency.createOnce("key-1", second, () -> create(second, 2L)))
+                .expectNextMatches(payment -> payment.getId() == 2L)
+                .verifyComplete();
+    }
+
+    @Test
+    void failedCreationIsForgottenSoTheClientCanRetry() {
+        PaymentCreateDto request = request(7L, "12.50");
+
+        StepVerifier.create(idempotency.createOnce("key-1", request, () -> Mono.error(new IllegalStateException("db down"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(idempotency.createOnce("key-1", request, () -> create(request, 1L)))
+                .expectNextMatches(payment -> payment.getId() == 1L)
+                .verifyComplete();
+    }
+
+    @Test
+    void duplicateWhileTheFirstIsInFlightWaitsForItsResult() {
+        PaymentCreateDto request = request(7L, "12.50");
+        Sinks.One<PaymentDto> firstResult = Sinks.one();
+        Mono<PaymentDto> first = idempotency.createOnce("key-1", request, firstResult::asMono).cache();
+        first.subscribe();
+
+        Mono<PaymentDto> duplicate = idempotency.createOnce("key-1", request, () -> create(request, 2L));
+        StepVerifier.create(duplicate)
+                .then(() -> firstResult.tryEmitValue(payment(request, 1L)))
+                .expectNextMatches(payment -> payment.getId() == 1L)
+                .verifyComplete();
+        assertThat(creations).hasValue(0);
+    }
+
+    @Test
+    void duplicateGivesUpAfterTheWaitTimeout() {
+        PaymentCreateDto request = request(7L, "12.50");
+        idempotency.createOnce("key-1", request, Mono::never).subscribe();
+
+        StepVerifier.create(idempotency.createOnce("key-1", request, () -> create(request, 2L)))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private Mono<PaymentDto> create(PaymentCreateDto request, long id) {
+        return Mono.fromSupplier(() -> {
+            creations.incrementAndGet();
+            return payment(request, id);
+        });
+    }
+
+    private static PaymentDto payment(PaymentCreateDto request, long id) {
+        return new PaymentDto(id, request.getStudentId(), request.getParentUserId(), request.getAmount(),
+                LocalDateTime.now(), PaymentStatus.PENDING, null, request.getDescription());
+    }
+
+    private static PaymentCreateDto request(Long parentUserId, String amount) {
+        return new PaymentCreateDto(3L, parentUserId, new BigDecimal(amount), "Term fees", PaymentStatus.PENDING);
+    }
+}
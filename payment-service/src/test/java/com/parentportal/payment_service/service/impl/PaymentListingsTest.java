@@ -0,0 +1,138 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.dto.PaymentDto;
+import com.parentportal.payment_service.dto.PaymentFilterDto;
+import com.parentportal.payment_service.dto.PaymentPageDto;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PaymentListingsTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123456000);
+    private static final PaymentFilterDto NO_FILTER = new PaymentFilterDto(null, null, null, null, null, null, null);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PaymentListings paymentListings = new PaymentListings(jdbcTemplate);
+
+    // SQL and bound arguments of each page query, in call order
+    private final List<String> statements = new ArrayList<>();
+    private final List<List<Object>> arguments = new ArrayList<>();
+
+    @Test
+    void firstPageReadsOneExtraRowAndPointsTheCursorAtItsLastRow() {
+        firstPageReturns(payment(9L, NOON), payment(8L, NOON), payment(7L, NOON.minusDays(1)));
+
+        PaymentPageDto page = paymentListings.page(NO_FILTER, null, 2);
+
+        assertThat(page.getContent()).extracting(PaymentDto::getId).containsExactly(9L, 8L);
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(page.getNextCursor()).isNotNull();
+        assertThat(statements.get(0)).endsWith(" ORDER BY payment_date DESC, id DESC LIMIT ?")
+                .doesNotContain("id < ?");
+        assertThat(arguments.get(0)).containsExactly(3);
+    }
+
+    @Test
+    void nextCursorContinuesAfterTheLastRowOfThePreviousPage() {
+        firstPageReturns(payment(9L, NOON), payment(8L, NOON), payment(7L, NOON.minusDays(1)));
+        String cursor = paymentListings.page(NO_FILTER, null, 2).getNextCursor();
+        laterPageReturns(payment(7L, NOON.minusDays(1)));
+
+        PaymentPageDto page = paymentListings.page(NO_FILTER, cursor, 2);
+
+        // Ties on payment_date continue by id, so rows sharing the last row's timestamp are neither repeated nor skipped
+        assertThat(statements.get(1)).contains("(payment_date < ? OR (payment_date = ? AND id < ?))");
+        assertThat(arguments.get(1)).containsExactly(Timestamp.valueOf(NOON), Timestamp.valueOf(NOON), 8L, 3);
+        assertThat(page.getContent()).extracting(PaymentDto::getId).containsExactly(7L);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        firstPageReturns(payment(9L, NOON), payment(8L, NOON));
+
+        PaymentPageDto page = paymentListings.page(NO_FILTER, null, 2);
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void filterConditionsAreBoundBeforeTheCursor() {
+        PaymentFilterDto filter = new PaymentFilterDto(7L, null, PaymentStatus.SUCCESS, null, null, null, null);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> record(invocation.getArguments(), List.of()));
+
+        paymentListings.page(filter, cursor(NOON, 8L), 2);
+
+        assertThat(statements.get(0)).contains("parent_user_id = ?").contains("status = ?");
+        assertThat(arguments.get(0)).containsExactly(7L, "SUCCESS", Timestamp.valueOf(NOON), Timestamp.valueOf(NOON), 8L, 3);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        String notBase64 = "not a cursor!";
+        String noSeparator = Base64.getUrlEncoder().withoutPadding().encodeToString("2024-03-01T12:00".getBytes());
+        String badDate = Base64.getUrlEncoder().withoutPadding().encodeToString("yesterday|8".getBytes());
+        String badId = Base64.getUrlEncoder().withoutPadding().encodeToString("2024-03-01T12:00|eight".getBytes());
+
+        for (String cursor : List.of(notBase64, noSeparator, badDate, badId)) {
+            assertThatThrownBy(() -> paymentListings.page(NO_FILTER, cursor, 10))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageStartingWith("Invalid cursor");
+        }
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void pageSizeOutsideTheLimitsIsRejected() {
+        assertThatThrownBy(() -> paymentListings.page(NO_FILTER, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> paymentListings.page(NO_FILTER, null, PaymentListings.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    // Varargs are matched per argument: the first page binds only the LIMIT, a later page the cursor as well
+    private void firstPageReturns(PaymentDto... rows) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any()))
+                .thenAnswer(invocation -> record(invocation.getArguments(), List.of(rows)));
+    }
+
+    private void laterPageReturns(PaymentDto... rows) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any()))
+                .thenAnswer(invocation -> record(invocation.getArguments(), List.of(rows)));
+    }
+
+    private List<PaymentDto> record(Object[] invocationArguments, List<PaymentDto> rows) {
+        statements.add((String) invocationArguments[0]);
+        arguments.add(Arrays.asList(invocationArguments).subList(2, invocationArguments.length));
+        return new ArrayList<>(rows);
+    }
+
+    private static String cursor(LocalDateTime paymentDate, long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((paymentDate + "|" + id).getBytes());
+    }
+
+    private static PaymentDto payment(Long id, LocalDateTime paymentDate) {
+        return new PaymentDto(id, 3L, 7L, new BigDecimal("10.00"), paymentDate, PaymentStatus.SUCCESS, "pi_" + id, null);
+    }
+}
@@ -0,0 +1,188 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentPartyValidatorTest {
+
+    // Cached results expire on reactor's parallel scheduler, which this replaces with a virtual clock
+    private final VirtualTimeScheduler clock = VirtualTimeScheduler.getOrSet();
+
+    // What the remote services answer: users' roles and students' parents by ID; missing IDs are 404s
+    private final Map<Long, String> roles = new HashMap<>();
+    private final Map<Long, Long> parents = new HashMap<>();
+    private HttpStatus userServiceStatus = HttpStatus.OK;
+    private final List<String> calls = new ArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final PaymentPartyValidator validator = new PaymentPartyValidator(
+            WebClient.builder().exchangeFunction(request -> Mono.fromCallable(() -> respond(request))),
+            "user-management-service", "student-performance-service", 1000,
+            Duration.ofMinutes(10), Duration.ofSeconds(30));
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void validPairIsCheckedRemotelyOnceWithinTheTtl() {
+        roles.put(5L, "PARENT");
+        parents.put(7L, 5L);
+
+        StepVerifier.create(validator.verify(5L, 7L)).verifyComplete();
+        clock.advanceTimeBy(Duration.ofMinutes(5));
+        StepVerifier.create(validator.verify(5L, 7L)).verifyComplete();
+
+        assertThat(calls).containsExactlyInAnyOrder("/api/users/5", "/api/students/batch");
+    }
+
+    @Test
+    void studentOfAnotherParentIsRejectedUntilTheNegativeTtlExpires() {
+        roles.put(5L, "PARENT");
+        parents.put(7L, 6L);
+
+        StepVerifier.create(validator.verify(5L, 7L)).verifyError(IllegalArgumentException.class);
+        // The student is reassigned, but the rejection is remembered for a while
+        parents.put(7L, 5L);
+        clock.advanceTimeBy(Duration.ofSeconds(29));
+        StepVerifier.create(validator.verify(5L, 7L)).verifyError(IllegalArgumentException.class);
+        assertThat(calls).hasSize(2);
+
+        clock.advanceTimeBy(Duration.ofSeconds(2));
+
+        StepVerifier.create(validator.verify(5L, 7L)).verifyComplete();
+        assertThat(calls).hasSize(4);
+    }
+
+    @Test
+    void userWhoIsNotAParentIsRejected() {
+        roles.put(5L, "ADMIN");
+        parents.put(7L, 5L);
+
+        StepVerifier.create(validator.verify(5L, 7L)).verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    void unknownParentOrStudentIsNotFound() {
+        roles.put(5L, "PARENT");
+        parents.put(7L, 5L);
+
+        StepVerifier.create(validator.verify(9L, 7L)).verifyError(NoSuchElementException.class);
+        StepVerifier.create(validator.verify(5L, 9L)).verifyError(NoSuchElementException.class);
+    }
+
+    @Test
+    void serviceErrorsAreNotCached() {
+        roles.put(5L, "PARENT");
+        parents.put(7L, 5L);
+        userServiceStatus = HttpStatus.SERVICE_UNAVAILABLE;
+
+        StepVerifier.create(validator.verify(5L, 7L))
+                .expectErrorSatisfies(error -> assertThat(error)
+                        .isNotInstanceOfAny(NoSuchElementException.class, IllegalArgumentException.class))
+                .verify();
+        userServiceStatus = HttpStatus.OK;
+
+        StepVerifier.create(validator.verify(5L, 7L)).verifyComplete();
+        assertThat(calls).filteredOn("/api/users/5"::equals).hasSize(2);
+    }
+
+    @Test
+    void pairsAreCachedSeparately() {
+        roles.put(5L, "PARENT");
+        parents.put(7L, 5L);
+        parents.put(8L, 6L);
+
+        StepVerifier.create(validator.verify(5L, 7L)).verifyComplete();
+        StepVerifier.create(validator.verify(5L, 8L)).verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    void adminCheckIsNotCached() {
+        roles.put(1L, "ADMIN");
+
+        StepVerifier.create(validator.verifyAdmin(1L)).expectNextMatches(user -> user.getId() == 1L).verifyComplete();
+        StepVerifier.create(validator.verifyAdmin(1L)).expectNextCount(1).verifyComplete();
+        roles.put(1L, "PARENT");
+        StepVerifier.create(validator.verifyAdmin(1L)).verifyError(IllegalArgumentException.class);
+
+        assertThat(calls).hasSize(3);
+    }
+
+    private ClientResponse respond(ClientRequest request) throws IOException {
+        String path = request.url().getPath();
+        calls.add(path);
+        if (path.startsWith("/api/users/")) {
+            Long id = Long.valueOf(path.substring("/api/users/".length()));
+            if (userServiceStatus != HttpStatus.OK) {
+                return ClientResponse.create(userServiceStatus).build();
+            }
+            if (!roles.containsKey(id)) {
+                return ClientResponse.create(HttpStatus.NOT_FOUND).build();
+            }
+            return json("{\"id\": " + id + ", \"username\": \"user" + id + "\", \"role\": \"" + roles.get(id) + "\"}");
+        }
+        // POST /api/students/batch, asked for one student
+        long id = objectMapper.readTree(body(request)).get("ids").get(0).asLong();
+        if (!parents.containsKey(id)) {
+            return json("{\"students\": [], \"missingIds\": [" + id + "]}");
+        }
+        return json("{\"students\": [{\"id\": " + id + ", \"studentId\": \"STU-" + id + "\", \"parentUserId\": "
+                + parents.get(id) + "}], \"missingIds\": []}");
+    }
+
+    private static String body(ClientRequest request) {
+        MockClientHttpRequest written = new MockClientHttpRequest(request.method(), request.url());
+        request.body().insert(written, new BodyInserter.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return ExchangeStrategies.withDefaults().messageWriters();
+            }
+
+            @Override
+            public Optional<ServerHttpRequest> serverRequest() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Map<String, Object> hints() {
+                return Map.of();
+            }
+        }).block();
+        return written.getBodyAsString().block();
+    }
+
+    private static ClientResponse json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.parentportal.payment_service.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SequenceIdsTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SequenceIds sequenceIds = new SequenceIds(jdbcTemplate);
+
+    // The values successive NEXTVAL calls return, and the statements that asked for them
+    private final Deque<Long> nextValues = new ArrayDeque<>();
+    private final List<String> queries = new ArrayList<>();
+
+    {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenAnswer(invocation -> {
+            queries.add(invocation.getArgument(0));
+            return nextValues.removeFirst();
+        });
+    }
+
+    @Test
+    void idsWithinOneBlockCostOneSequenceCall() {
+        nextValues.add(101L);
+
+        assertThat(sequenceIds.next(SequenceIds.PAYMENTS, 3)).containsExactly(101L, 102L, 103L);
+        assertThat(queries).containsExactly("SELECT NEXTVAL(payments_seq)");
+    }
+
+    @Test
+    void largerCountsTakeOneBlockPerAllocationSize() {
+        // Another instance took the block at 51 in between
+        nextValues.add(1L);
+        nextValues.add(101L);
+        nextValues.add(151L);
+
+        long[] ids = sequenceIds.next(SequenceIds.PAYMENTS, 2 * SequenceIds.ALLOCATION_SIZE + 1);
+
+        assertThat(queries).hasSize(3);
+        assertThat(ids).hasSize(101).startsWith(1L, 2L).endsWith(149L, 150L, 151L);
+        assertThat(ids[SequenceIds.ALLOCATION_SIZE - 1]).isEqualTo(50L);
+        assertThat(ids[SequenceIds.ALLOCATION_SIZE]).isEqualTo(101L);
+    }
+
+    @Test
+    void exactlyOneBlockDoesNotReserveAnother() {
+        nextValues.add(1L);
+
+        assertThat(sequenceIds.next(SequenceIds.PAYMENTS, SequenceIds.ALLOCATION_SIZE))
+                .hasSize(SequenceIds.ALLOCATION_SIZE).endsWith(50L);
+        assertThat(queries).hasSize(1);
+    }
+
+    @Test
+    void noIdsNeedNoSequenceCall() {
+        assertThat(sequenceIds.next(SequenceIds.PAYMENTS, 0)).isEmpty();
+        assertThat(queries).isEmpty();
+    }
+}
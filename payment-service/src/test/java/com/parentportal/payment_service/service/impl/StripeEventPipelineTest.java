@@ -0,0 +1,185 @@
+package com.parentportal.payment_service.service.impl;
+
+import com.parentportal.payment_service.entity.Payment;
+import com.parentportal.payment_service.entity.PaymentStatus;
+import com.parentportal.payment_service.repository.PaymentRepository;
+import com.parentportal.payment_service.service.impl.StripeEventPipeline.StatusEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StripeEventPipelineTest {
+
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final PaymentEventOutbox paymentEventOutbox = mock(PaymentEventOutbox.class);
+    private final BalanceLedger balanceLedger = mock(BalanceLedger.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final StripeEventPipeline pipeline = new StripeEventPipeline(paymentRepository, paymentEventOutbox,
+            balanceLedger, jdbcTemplate, transactionTemplate, 10, 5, Duration.ofSeconds(30), Duration.ofDays(7));
+
+    // Committed payment statuses by transaction ID; each transaction loads fresh copies, as JPA would
+    private final Map<String, PaymentStatus> committed = new HashMap<>();
+    private final List<BalanceLedger.StatusChange> ledgerChanges = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(paymentRepository.findByTransactionIdIn(anyCollection())).thenAnswer(invocation -> {
+            List<Payment> payments = new ArrayList<>();
+            for (String transactionId : invocation.<Collection<String>>getArgument(0)) {
+                if (committed.containsKey(transactionId)) {
+                    payments.add(payment(transactionId, committed.get(transactionId)));
+                }
+            }
+            return payments;
+        });
+        doAnswer(invocation -> ledgerChanges.addAll(invocation.getArgument(0)))
+                .when(balanceLedger).statusesChanged(anyList());
+    }
+
+    @Test
+    void allowsOnlyTransitionsThatFitThePaymentsStatus() {
+        assertThat(StripeEventPipeline.canMove(PaymentStatus.PENDING, PaymentStatus.SUCCESS)).isTrue();
+        assertThat(StripeEventPipeline.canMove(PaymentStatus.FAILED, PaymentStatus.SUCCESS)).isTrue();
+        assertThat(StripeEventPipeline.canMove(PaymentStatus.PENDING, PaymentStatus.FAILED)).isTrue();
+        assertThat(StripeEventPipeline.canMove(PaymentStatus.SUCCESS, PaymentStatus.REFUNDED)).isTrue();
+
+        assertThat(StripeEventPipeline.canMove(PaymentStatus.REFUNDED, PaymentStatus.SUCCESS)).isFalse();
+        assertThat(StripeEventPipeline.canMove(PaymentStatus.SUCCESS, PaymentStatus.FAILED)).isFalse();
+        assertThat(StripeEventPipeline.canMove(PaymentStatus.PENDING, PaymentStatus.REFUNDED)).isFalse();
+        assertThat(StripeEventPipeline.canMove(PaymentStatus.SUCCESS, PaymentStatus.PENDING)).isFalse();
+    }
+
+    @Test
+    void storesEventsWithInsertIgnoreSoRedeliveriesAreDropped() {
+        pipeline.accept(new StatusEvent("evt_1", "payment_intent.succeeded", "pi_1", PaymentStatus.SUCCESS));
+
+        verify(jdbcTemplate).update(startsWith("INSERT IGNORE INTO stripe_webhook_events"), eq("evt_1"),
+                eq("payment_intent.succeeded"), eq("pi_1"), eq("SUCCESS"), any());
+    }
+
+    @Test
+    void appliesEventsOfOneTransactionInOrder() {
+        committed.put("pi_1", PaymentStatus.PENDING);
+        claim(new StatusEvent("evt_1", "payment_intent.succeeded", "pi_1", PaymentStatus.SUCCESS),
+                new StatusEvent("evt_2", "charge.refunded", "pi_1", PaymentStatus.REFUNDED));
+
+        pipeline.applyBatch();
+
+        assertThat(ledgerChanges).extracting(BalanceLedger.StatusChange::from, BalanceLedger.StatusChange::to)
+                .containsExactly(
+                        tuple(PaymentStatus.PENDING, PaymentStatus.SUCCESS),
+                        tuple(PaymentStatus.SUCCESS, PaymentStatus.REFUNDED));
+        verify(paymentEventOutbox, times(2)).statusUpdated(any());
+        verify(jdbcTemplate).update(startsWith("UPDATE stripe_webhook_events SET state = 'APPLIED'"), eq("evt_1"), eq("evt_2"));
+    }
+
+    @Test
+    void lateEventIsMarkedAppliedWithoutChangingThePayment() {
+        committed.put("pi_1", PaymentStatus.REFUNDED);
+        claim(new StatusEvent("evt_1", "payment_intent.succeeded", "pi_1", PaymentStatus.SUCCESS));
+
+        pipeline.applyBatch();
+
+        assertThat(ledgerChanges).isEmpty();
+        verify(paymentEventOutbox, never()).statusUpdated(any());
+        verify(jdbcTemplate).update(startsWith("UPDATE stripe_webhook_events SET state = 'APPLIED'"), eq("evt_1"));
+    }
+
+    @Test
+    void eventForAnUnknownTransactionIsMarkedApplied() {
+        claim(new StatusEvent("evt_1", "payment_intent.succeeded", "pi_unknown", PaymentStatus.SUCCESS));
+
+        pipeline.applyBatch();
+
+        assertThat(ledgerChanges).isEmpty();
+        verify(jdbcTemplate).update(startsWith("UPDATE stripe_webhook_events SET state = 'APPLIED'"), eq("evt_1"));
+    }
+
+    @Test
+    void failedBatchIsRetriedOneEventAtATimeAndOnlyTheBadEventIsRecordedAsFailed() {
+        committed.put("pi_1", PaymentStatus.PENDING);
+        committed.put("pi_2", PaymentStatus.PENDING);
+        StatusEvent good = new StatusEvent("evt_1", "payment_intent.succeeded", "pi_1", PaymentStatus.SUCCESS);
+        StatusEvent bad = new StatusEvent("evt_2", "payment_intent.succeeded", "pi_2", PaymentStatus.SUCCESS);
+        claim(good, bad);
+        claimOne(good);
+        claimOne(bad);
+        doAnswer(invocation -> {
+            List<BalanceLedger.StatusChange> changes = invocation.getArgument(0);
+            if (changes.stream().anyMatch(change -> "pi_2".equals(change.payment().getTransactionId()))) {
+                throw new IllegalStateException("ledger row locked");
+            }
+            ledgerChanges.addAll(changes);
+            return null;
+        }).when(balanceLedger).statusesChanged(anyList());
+
+        pipeline.applyBatch();
+
+        assertThat(ledgerChanges).extracting(change -> change.payment().getTransactionId()).containsExactly("pi_1");
+        verify(jdbcTemplate).update(startsWith("UPDATE stripe_webhook_events SET state = 'APPLIED'"), eq("evt_1"));
+        verify(jdbcTemplate).update(startsWith("UPDATE stripe_webhook_events SET attempts = attempts + 1"),
+                contains("ledger row locked"), any(), eq(5), eq("evt_2"));
+        verify(jdbcTemplate, never()).update(startsWith("UPDATE stripe_webhook_events SET attempts = attempts + 1"),
+                anyString(), any(), anyInt(), eq("evt_1"));
+    }
+
+    private void claim(StatusEvent... events) {
+        when(jdbcTemplate.query(startsWith("SELECT event_id"), any(RowMapper.class), any(), any()))
+                .thenReturn(List.of(events));
+    }
+
+    private void claimOne(StatusEvent event) {
+        when(jdbcTemplate.query(startsWith("SELECT event_id"), any(RowMapper.class), eq(event.eventId())))
+                .thenReturn(List.of(event));
+    }
+
+    private static Payment payment(String transactionId, PaymentStatus status) {
+        Payment payment = new Payment();
+        payment.setId((long) transactionId.hashCode());
+        payment.setStudentId(3L);
+        payment.setParentUserId(7L);
+        payment.setAmount(new BigDecimal("120.00"));
+        payment.setPaymentDate(LocalDateTime.now());
+        payment.setStatus(status);
+        payment.setTransactionId(transactionId);
+        return payment;
+    }
+}
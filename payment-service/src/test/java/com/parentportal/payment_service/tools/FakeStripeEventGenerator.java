@@ -0,0 +1,137 @@
+package com.parentportal.payment_service.tools;
+
+import com.stripe.net.Webhook;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local load generator for the Stripe webhook endpoint: sends signed fake payment_intent / charge events
+ * at a fixed rate, re-sending a share of them to exercise dedupe, and prints the response status counts.
+ * Not a test; run it against a local payment-service started with the same webhook secret, e.g.
+ * <pre>
+ * java ... FakeStripeEventGenerator secret=whsec_test rate=3000 seconds=30 transactions=pi_1,pi_2
+ * </pre>
+ * Arguments (all optional): url, secret, rate (events per second), seconds, transactions (comma-separated
+ * PaymentIntent IDs stored as payment transaction IDs; random unknown IDs if omitted), duplicates (0..1).
+ */
+public class FakeStripeEventGenerator {
+
+    private static final String[] TYPES = {
+            "payment_intent.succeeded", "payment_intent.payment_failed", "payment_intent.canceled", "charge.refunded"};
+    private static final int TICKS_PER_SECOND = 100;
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        URI url = URI.create(options.getOrDefault("url", "http://localhost:8083/api/payments/webhooks/stripe"));
+        String secret = options.getOrDefault("secret", "whsec_test");
+        int rate = Integer.parseInt(options.getOrDefault("rate", "2000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        double duplicates = Double.parseDouble(options.getOrDefault("duplicates", "0.05"));
+        List<String> transactions = options.containsKey("transactions")
+                ? List.of(options.get("transactions").split(","))
+                : randomTransactions(1000);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder failures = new LongAdder();
+        AtomicLong sent = new AtomicLong();
+        List<String> recent = new ArrayList<>();
+
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        long total = (long) rate * seconds;
+        int perTick = Math.max(1, rate / TICKS_PER_SECOND);
+        long started = System.nanoTime();
+        ticker.scheduleAtFixedRate(() -> {
+            for (int i = 0; i < perTick && sent.get() < total; i++) {
+                String event;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                if (!recent.isEmpty() && random.nextDouble() < duplicates) {
+                    event = recent.get(random.nextInt(recent.size())); // Redelivery of an earlier event
+                } else {
+                    event = newEvent(transactions.get(random.nextInt(transactions.size())), random);
+                    if (recent.size() < 10_000) {
+                        recent.add(event);
+                    }
+                }
+                HttpRequest request = HttpRequest.newBuilder(url)
+                        .header("Content-Type", "application/json")
+                        .header("Stripe-Signature", sign(secret, event))
+                        .POST(HttpRequest.BodyPublishers.ofString(event))
+                        .build();
+                sent.incrementAndGet();
+                client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                    if (error != null) {
+                        failures.increment();
+                    } else {
+                        statuses.computeIfAbsent(response.statusCode(), code -> new LongAdder()).increment();
+                    }
+                });
+            }
+        }, 0, 1000 / TICKS_PER_SECOND, TimeUnit.MILLISECONDS);
+
+        while (sent.get() < total) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        ticker.shutdown();
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        // Let in-flight requests finish before reporting
+        TimeUnit.SECONDS.sleep(2);
+        System.out.printf("Sent %d events in %.1f s (%.0f/s)%n", sent.get(), elapsed, sent.get() / elapsed);
+        statuses.forEach((code, count) -> System.out.printf("  HTTP %d: %d%n", code, count.sum()));
+        System.out.printf("  connection failures: %d%n", failures.sum());
+    }
+
+    private static String newEvent(String paymentIntentId, ThreadLocalRandom random) {
+        String type = TYPES[random.nextInt(TYPES.length)];
+        String eventId = "evt_" + UUID.randomUUID().toString().replace("-", "");
+        String object = type.startsWith("charge.")
+                ? "{\"id\":\"ch_" + UUID.randomUUID().toString().replace("-", "") + "\",\"object\":\"charge\",\"payment_intent\":\"" + paymentIntentId + "\"}"
+                : "{\"id\":\"" + paymentIntentId + "\",\"object\":\"payment_intent\"}";
+        String payload = "{\"id\":\"" + eventId + "\",\"object\":\"event\",\"api_version\":\"2024-06-20\",\"created\":"
+                + System.currentTimeMillis() / 1000 + ",\"livemode\":false,\"pending_webhooks\":1,\"type\":\"" + type
+                + "\",\"data\":{\"object\":" + object + "}}";
+        return payload;
+    }
+
+    // Same scheme as Stripe: HMAC-SHA256 of "timestamp.payload", sent as t=...,v1=...
+    private static String sign(String secret, String payload) {
+        long timestamp = System.currentTimeMillis() / 1000;
+        try {
+            return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(secret, timestamp + "." + payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> randomTransactions(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add("pi_" + UUID.randomUUID().toString().replace("-", ""));
+        }
+        return ids;
+    }
+}
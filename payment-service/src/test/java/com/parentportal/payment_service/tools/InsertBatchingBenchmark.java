@@ -0,0 +1,152 @@
+package com.parentportal.payment_service.tools;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local benchmark for bulk payment creation, comparing the statements Hibernate sends with IDENTITY IDs
+ * (one INSERT per row, each reading back its generated key) with those it sends with the pooled sequence
+ * (one NEXTVAL per 50 rows, inserts in JDBC batches of 50), and prints rows per second for each.
+ * Both modes commit every `commit` rows. The rows it inserts are deleted again at the end.
+ * Not a test; run it against a scratch database migrated by payment-service (V2 or later), e.g.
+ * <pre>
+ * java ... InsertBatchingBenchmark url=jdbc:mariadb://localhost:3306/parent_portal_payment_bench payments=50000
+ * </pre>
+ * Arguments (all optional): url, user, password, payments (rows per run), commit (rows per transaction),
+ * rounds (runs per mode; the first is a warm-up and not reported).
+ */
+public class InsertBatchingBenchmark {
+
+    // Must match allocationSize on Payment, INCREMENT BY on payments_seq and hibernate.jdbc.batch_size
+    private static final int BATCH_SIZE = 50;
+    private static final String INSERT_PAYMENT = "INSERT INTO payments "
+            + "(student_id, parent_user_id, amount, payment_date, status, transaction_id, description) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PAYMENT_WITH_ID = "INSERT INTO payments "
+            + "(student_id, parent_user_id, amount, payment_date, status, transaction_id, description, id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String[] STATUSES = {"PENDING", "SUCCESS", "FAILED"};
+
+    private interface RowBinder {
+        void bind(PreparedStatement ps, int row) throws SQLException;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        String url = options.getOrDefault("url", "jdbc:mariadb://localhost:3306/parent_portal_payment_bench");
+        String user = options.getOrDefault("user", "root");
+        String password = options.getOrDefault("password", "");
+        int payments = Integer.parseInt(options.getOrDefault("payments", "50000"));
+        int commit = Integer.parseInt(options.getOrDefault("commit", "500"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "3"));
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            connection.setAutoCommit(false);
+            for (int round = 0; round < rounds; round++) {
+                for (boolean batched : new boolean[]{false, true}) {
+                    List<Long> paymentIds = new ArrayList<>(payments);
+                    String tag = UUID.randomUUID().toString().substring(0, 8);
+
+                    long started = System.nanoTime();
+                    RowBinder payment = (ps, row) -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        ps.setLong(1, 1L + row % 1000);
+                        ps.setLong(2, 1L + row % 500);
+                        ps.setBigDecimal(3, BigDecimal.valueOf(random.nextInt(1, 100_000), 2));
+                        ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now().minusMinutes(random.nextInt(525_600))));
+                        ps.setString(5, STATUSES[random.nextInt(STATUSES.length)]);
+                        ps.setString(6, "bench_" + tag + "_" + row);
+                        ps.setString(7, "Benchmark payment");
+                    };
+                    insert(connection, batched, batched ? INSERT_PAYMENT_WITH_ID : INSERT_PAYMENT, "payments_seq", 8,
+                            payments, commit, payment, paymentIds);
+                    double seconds = (System.nanoTime() - started) / 1e9;
+
+                    if (round > 0) {
+                        System.out.printf("Round %d, %-7s payments: %8.0f rows/s%n", round,
+                                batched ? "batched" : "single", payments / seconds);
+                    }
+                    delete(connection, "payments", paymentIds);
+                }
+            }
+        }
+    }
+
+    // Single: one executeUpdate per row, reading back the IDENTITY key. Batched: IDs from NEXTVAL, executeBatch per BATCH_SIZE rows.
+    private static void insert(Connection connection, boolean batched, String sql, String sequence, int idIndex,
+                               int rows, int commit, RowBinder binder, List<Long> ids) throws SQLException {
+        try (PreparedStatement ps = batched ? connection.prepareStatement(sql)
+                : connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+             Statement nextval = connection.createStatement()) {
+            long nextId = 0;
+            int reserved = 0;
+            for (int row = 0; row < rows; row++) {
+                binder.bind(ps, row);
+                if (batched) {
+                    if (reserved == 0) {
+                        try (ResultSet rs = nextval.executeQuery("SELECT NEXTVAL(" + sequence + ")")) {
+                            rs.next();
+                            nextId = rs.getLong(1);
+                        }
+                        reserved = BATCH_SIZE;
+                    }
+                    ps.setLong(idIndex, nextId);
+                    ids.add(nextId++);
+                    reserved--;
+                    ps.addBatch();
+                    if ((row + 1) % BATCH_SIZE == 0) {
+                        ps.executeBatch();
+                    }
+                } else {
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        keys.next();
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                if ((row + 1) % commit == 0) {
+                    if (batched) {
+                        ps.executeBatch();
+                    }
+                    connection.commit();
+                }
+            }
+            if (batched) {
+                ps.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    private static void delete(Connection connection, String table, List<Long> ids) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE id = ?")) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setLong(1, ids.get(i));
+                ps.addBatch();
+                if ((i + 1) % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        connection.commit();
+    }
+}
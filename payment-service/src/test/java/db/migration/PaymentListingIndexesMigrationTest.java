@@ -0,0 +1,94 @@
+package db.migration;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PaymentListingIndexesMigrationTest {
+
+    private final V7__add_payment_listing_indexes migration = new V7__add_payment_listing_indexes();
+    // Statements executed, other than the duplicate check
+    private final List<String> executed = new ArrayList<>();
+
+    @Test
+    void buildsTheIndexesWhenEveryTransactionIdIsUnique() throws Exception {
+        migration.migrate(context(List.of()));
+
+        assertThat(executed).containsExactlyElementsOf(V7__add_payment_listing_indexes.STATEMENTS);
+        assertThat(executed).anyMatch(sql -> sql.startsWith("CREATE UNIQUE INDEX IF NOT EXISTS uk_payments_transaction_id"));
+    }
+
+    @Test
+    void sharedTransactionIdsFailTheMigrationWithoutChangingAnything() {
+        assertThatThrownBy(() -> migration.migrate(context(List.of(
+                new String[]{"ch_1", "4,9"}, new String[]{"ch_7", "12,13,20"}))))
+                .isInstanceOf(FlywayException.class)
+                .hasMessageContaining("2 transaction IDs")
+                .hasMessageContaining("ch_1 (payments 4,9)")
+                .hasMessageContaining("ch_7 (payments 12,13,20)");
+
+        assertThat(executed).isEmpty();
+    }
+
+    @Test
+    void reportLimitsTheListedDuplicates() {
+        List<String[]> duplicates = new ArrayList<>();
+        for (int i = 0; i < V7__add_payment_listing_indexes.MAX_REPORTED_DUPLICATES + 5; i++) {
+            duplicates.add(new String[]{"ch_" + i, i + "," + (i + 1000)});
+        }
+
+        assertThatThrownBy(() -> migration.migrate(context(duplicates)))
+                .hasMessageContaining((V7__add_payment_listing_indexes.MAX_REPORTED_DUPLICATES + 5) + " transaction IDs")
+                .hasMessageContaining("First " + V7__add_payment_listing_indexes.MAX_REPORTED_DUPLICATES + ":")
+                .hasMessageNotContaining("ch_" + (V7__add_payment_listing_indexes.MAX_REPORTED_DUPLICATES + 1) + " ");
+        assertThat(executed).isEmpty();
+    }
+
+    // A connection whose duplicate check returns the given (transaction_id, payment_ids) rows
+    private Context context(List<String[]> duplicates) {
+        Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Statement.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "executeQuery" -> {
+                        assertThat(args[0]).isEqualTo(V7__add_payment_listing_indexes.FIND_DUPLICATES_SQL);
+                        yield resultSet(duplicates.iterator());
+                    }
+                    case "execute" -> {
+                        executed.add((String) args[0]);
+                        yield false;
+                    }
+                    default -> null;
+                });
+        Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) ->
+                        method.getName().equals("createStatement") ? statement : null);
+        Context context = mock(Context.class);
+        when(context.getConnection()).thenReturn(connection);
+        return context;
+    }
+
+    private ResultSet resultSet(Iterator<String[]> rows) {
+        String[][] current = new String[1][];
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> {
+                        current[0] = rows.hasNext() ? rows.next() : null;
+                        yield current[0] != null;
+                    }
+                    case "getString" -> "transaction_id".equals(args[0]) ? current[0][0] : current[0][1];
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,22 @@
+package com.parentportal.commons.datasource;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataSourcePoolStatsDto {
+
+    private String pool; // primary or replica
+    private long connectionsAcquired;
+    private long failedAcquisitions;
+    private Double averageAcquireMillis; // Null until a connection has been acquired
+    private double maxAcquireMillis;
+    private Double averageHoldMillis; // Time from acquiring to closing a connection, i.e. per transaction
+    private double maxHoldMillis;
+    private int activeConnections;
+    private int idleConnections;
+    private int threadsAwaitingConnection;
+}
@@ -0,0 +1,22 @@
+package com.parentportal.commons.datasource;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Read/write routing state and per-pool connection latencies since startup
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataSourceStatsDto {
+
+    private boolean replicaConfigured;
+    private boolean replicaInUse; // False while the replica lags too far or cannot be probed
+    private Long replicaLagSeconds; // Null when unknown, e.g. replication stopped
+    private long maxLagSeconds;
+    private long replicaReads; // Read-only transactions served by the replica
+    private long primaryFallbackReads; // Read-only transactions sent to the primary because of lag or read-your-writes
+    private List<DataSourcePoolStatsDto> pools;
+}
@@ -0,0 +1,52 @@
+package com.parentportal.commons.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes for the current thread: read-only transactions started inside {@link #fromPrimary}
+ * (or during a request sent with "X-Read-Consistency: primary") use the primary instead of the replica.
+ * The choice is made when the transaction first touches the database, so it must wrap the whole transaction.
+ */
+public final class ReadConsistency {
+
+    public static final String HEADER = "X-Read-Consistency";
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    // Restores the previous setting on close, so scopes nest
+    public static final class Scope implements AutoCloseable {
+        private final Boolean previous;
+
+        private Scope(Boolean previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                PRIMARY.remove();
+            } else {
+                PRIMARY.set(previous);
+            }
+        }
+    }
+
+    private ReadConsistency() {
+    }
+
+    public static Scope usePrimary() {
+        Scope scope = new Scope(PRIMARY.get());
+        PRIMARY.set(Boolean.TRUE);
+        return scope;
+    }
+
+    public static <T> T fromPrimary(Supplier<T> reads) {
+        try (Scope scope = usePrimary()) {
+            return reads.get();
+        }
+    }
+
+    public static boolean primaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY.get());
+    }
+}
@@ -0,0 +1,28 @@
+package com.parentportal.commons.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Lets a client that has just written ask for its next reads to come from the primary,
+ * by sending "X-Read-Consistency: primary". Each service registers it alongside its {@link ReplicaRouting}.
+ */
+public class ReadConsistencyFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!"primary".equalsIgnoreCase(request.getHeader(ReadConsistency.HEADER))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try (ReadConsistency.Scope scope = ReadConsistency.usePrimary()) {
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.parentportal.commons.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses the pool for read-only transactions: the replica while its replication lag is within the limit,
+ * otherwise (or when the caller asked for read-your-writes) the primary. Lag is probed on a schedule
+ * rather than per transaction, so routing costs nothing on the request path. Each service subclasses this and
+ * schedules {@link #probeLag()} at its own interval.
+ */
+@Slf4j
+public class ReplicaRouting {
+
+    // Probes replication with SHOW SLAVE STATUS; "none" assumes the replica is in sync (stand-ins, local runs)
+    public static final String PROBE_REPLICATION_STATUS = "replication-status";
+
+    private final TimedDataSource primary;
+    private final TimedDataSource replica;
+    private final Duration maxLag;
+    private final boolean probeReplication;
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryFallbackReads = new LongAdder();
+    private final DataSource readOnly = new AbstractDataSource() {
+        @Override
+        public Connection getConnection() throws SQLException {
+            return readOnlyPool().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return readOnlyPool().getConnection(username, password);
+        }
+    };
+
+    private volatile Long lagSeconds;
+    private volatile boolean replicaInUse;
+
+    public ReplicaRouting(TimedDataSource primary, TimedDataSource replica, Duration maxLag, String lagProbe) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLag = maxLag;
+        this.probeReplication = PROBE_REPLICATION_STATUS.equalsIgnoreCase(lagProbe);
+        this.lagSeconds = probeReplication ? null : 0L;
+        this.replicaInUse = !probeReplication;
+    }
+
+    public TimedDataSource primary() {
+        return primary;
+    }
+
+    // Target for connections marked read-only by a readOnly transaction
+    public DataSource readOnly() {
+        return readOnly;
+    }
+
+    private DataSource readOnlyPool() {
+        if (replicaInUse && !ReadConsistency.primaryRequired()) {
+            replicaReads.increment();
+            return replica;
+        }
+        primaryFallbackReads.increment();
+        return primary;
+    }
+
+    public void probeLag() {
+        if (!probeReplication) {
+            return;
+        }
+        Long lag;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet status = statement.executeQuery("SHOW SLAVE STATUS")) {
+            // No row: the server is not replicating; NULL: replication threads are stopped
+            lag = status.next() ? status.getObject("Seconds_Behind_Master", Long.class) : null;
+        } catch (SQLException e) {
+            lag = null;
+            log.debug("Replica lag probe failed: {}", e.getMessage());
+        }
+        boolean usable = lag != null && lag <= maxLag.toSeconds();
+        if (usable != replicaInUse) {
+            log.warn(usable ? "Replica back within lag limit ({}s), routing read-only transactions to it"
+                    : "Replica lag {}s unknown or over the limit, routing read-only transactions to the primary", lag);
+        }
+        lagSeconds = lag;
+        replicaInUse = usable;
+    }
+
+    public DataSourceStatsDto stats() {
+        return new DataSourceStatsDto(true, replicaInUse, lagSeconds, maxLag.toSeconds(), replicaReads.sum(),
+                primaryFallbackReads.sum(), List.of(primary.stats(), replica.stats()));
+    }
+}
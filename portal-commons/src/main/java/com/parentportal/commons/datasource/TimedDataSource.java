@@ -0,0 +1,115 @@
+package com.parentportal.commons.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps one connection pool and records how long connections take to acquire and how long callers hold them,
+ * which for transactional work is the transaction's database time.
+ */
+public class TimedDataSource extends DelegatingDataSource {
+
+    private final String name;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder released = new LongAdder();
+    private final LongAdder holdNanos = new LongAdder();
+    private final LongAccumulator maxHoldNanos = new LongAccumulator(Long::max, 0);
+
+    public TimedDataSource(String name, HikariDataSource pool) {
+        super(pool);
+        this.name = name;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return track(super.getConnection(), start);
+        } catch (SQLException e) {
+            failed.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return track(super.getConnection(username, password), start);
+        } catch (SQLException e) {
+            failed.increment();
+            throw e;
+        }
+    }
+
+    private Connection track(Connection connection, long requestedAt) {
+        long acquiredAt = System.nanoTime();
+        long waited = acquiredAt - requestedAt;
+        acquired.increment();
+        acquireNanos.add(waited);
+        maxAcquireNanos.accumulate(waited);
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (closed.compareAndSet(false, true)) {
+                                long held = System.nanoTime() - acquiredAt;
+                                released.increment();
+                                holdNanos.add(held);
+                                maxHoldNanos.accumulate(held);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    public DataSourcePoolStatsDto stats() {
+        long acquiredCount = acquired.sum();
+        long releasedCount = released.sum();
+        DataSourcePoolStatsDto stats = new DataSourcePoolStatsDto();
+        stats.setPool(name);
+        stats.setConnectionsAcquired(acquiredCount);
+        stats.setFailedAcquisitions(failed.sum());
+        stats.setAverageAcquireMillis(acquiredCount == 0 ? null : millis(acquireNanos.sum()) / acquiredCount);
+        stats.setMaxAcquireMillis(millis(maxAcquireNanos.get()));
+        stats.setAverageHoldMillis(releasedCount == 0 ? null : millis(holdNanos.sum()) / releasedCount);
+        stats.setMaxHoldMillis(millis(maxHoldNanos.get()));
+        // The pool MXBean only exists once the pool has started
+        HikariPoolMXBean pool = ((HikariDataSource) getTargetDataSource()).getHikariPoolMXBean();
+        if (pool != null) {
+            stats.setActiveConnections(pool.getActiveConnections());
+            stats.setIdleConnections(pool.getIdleConnections());
+            stats.setThreadsAwaitingConnection(pool.getThreadsAwaitingConnection());
+        }
+        return stats;
+    }
+
+    private static double millis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
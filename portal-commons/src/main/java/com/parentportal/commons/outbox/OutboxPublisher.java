@@ -0,0 +1,17 @@
+package com.parentportal.commons.outbox;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends relayed outbox events to the message broker.
+ */
+public interface OutboxPublisher {
+
+    /**
+     * Sends one event. Events with the same key must be delivered in the order they are sent.
+     * @param key The message key.
+     * @param payload The serialized event.
+     * @return A future completing once the broker has acknowledged the event, or failing if it could not be sent.
+     */
+    CompletableFuture<?> publish(String key, String payload);
+}
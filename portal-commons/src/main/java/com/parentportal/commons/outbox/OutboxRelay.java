@@ -0,0 +1,203 @@
+package com.parentportal.commons.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the outbox to the broker in id order, one batch at a time, off the request path.
+ * A batch is leased in a short READ COMMITTED transaction: the oldest rows that are not leased (or whose lease
+ * has expired) are locked with FOR UPDATE SKIP LOCKED, stamped with this relay's claimed_by/claimed_at and
+ * committed. READ COMMITTED takes no gap locks, and nothing stays locked while the events are sent, so the
+ * inserts of the writes that append events never wait for the broker. Relays on several instances lease
+ * disjoint batches. A key with an older event leased by another relay is left out of the batch, so one key's
+ * events are never sent by two relays at once and stay in order.
+ * All events of a batch are sent before any acknowledgement is awaited, within one send timeout that also
+ * bounds the send calls themselves (which can block while the broker is unreachable). A second short
+ * transaction then deletes the acknowledged events and releases the others. Once an event of a key fails,
+ * that key's later events in the batch are released as well, so on the next pass they are re-sent behind it
+ * and per-key order is preserved. A relay that dies mid-batch leaves its lease to expire.
+ * Delivery is at-least-once: an event may be re-sent after a partial failure, a crash between send and delete
+ * or an expired lease, and consumers deduplicate on its eventId.
+ * <p>
+ * The table is outbox_events (id BIGINT AUTO_INCREMENT, the key column BIGINT, payload TEXT, claimed_by
+ * VARCHAR(64), claimed_at DATETIME(6)), with an index on (key column, id). Each service subclasses this with
+ * its key column and schedules {@link #drain()}.
+ */
+@Slf4j
+public class OutboxRelay {
+
+    record PendingEvent(long id, long key, String payload) {
+    }
+
+    private static final RowMapper<PendingEvent> EVENT_ROW = (rs, rowNum) ->
+            new PendingEvent(rs.getLong("id"), rs.getLong("event_key"), rs.getString("payload"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    private final String keyColumn;
+    private final String claimSql;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration leaseTimeout;
+    private final String relayId = UUID.randomUUID().toString();
+
+    /**
+     * @param keyColumn The column holding the message key, e.g. student_id.
+     * @param sendTimeout The time a batch may take from its first send to its last acknowledgement.
+     * @param leaseTimeout The age after which another relay takes a lease over; must exceed the send timeout
+     *                     plus the time a single send call can block.
+     */
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       OutboxPublisher publisher,
+                       PlatformTransactionManager transactionManager,
+                       String keyColumn,
+                       int batchSize,
+                       Duration sendTimeout,
+                       Duration leaseTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+        this.keyColumn = keyColumn;
+        this.claimSql = "SELECT id, " + keyColumn + " AS event_key, payload FROM outbox_events "
+                + "WHERE claimed_at IS NULL OR claimed_at < ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    public void drain() {
+        // Keep going while full batches go through cleanly; back off to the poll interval otherwise
+        while (relayBatch()) {
+            // next batch
+        }
+    }
+
+    /**
+     * Relays the oldest batch of events not leased by another relay.
+     * @return true if a full batch was relayed without failures, meaning more events are likely waiting.
+     */
+    public boolean relayBatch() {
+        List<PendingEvent> batch = transactionTemplate.execute(status -> lease());
+        if (batch == null || batch.isEmpty()) {
+            return false;
+        }
+        Set<Long> delivered = send(batch);
+        List<Long> undelivered = batch.stream().map(PendingEvent::id).filter(id -> !delivered.contains(id)).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!delivered.isEmpty()) {
+                jdbcTemplate.update("DELETE FROM outbox_events WHERE id IN (" + placeholders(delivered.size()) + ")",
+                        delivered.toArray());
+            }
+            if (!undelivered.isEmpty()) {
+                List<Object> args = new ArrayList<>(undelivered.size() + 1);
+                args.add(relayId);
+                args.addAll(undelivered);
+                // A lease that expired meanwhile may belong to another relay now; that one releases it
+                jdbcTemplate.update("UPDATE outbox_events SET claimed_by = NULL, claimed_at = NULL "
+                        + "WHERE claimed_by = ? AND id IN (" + placeholders(undelivered.size()) + ")", args.toArray());
+            }
+        });
+        if (!undelivered.isEmpty()) {
+            log.warn("Outbox relay: {} of {} events not acknowledged, will retry", undelivered.size(), batch.size());
+        }
+        return undelivered.isEmpty() && batch.size() == batchSize;
+    }
+
+    private List<PendingEvent> lease() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingEvent> claimed = jdbcTemplate.query(claimSql, EVENT_ROW,
+                Timestamp.valueOf(now.minus(leaseTimeout)), batchSize);
+        if (claimed.isEmpty()) {
+            return claimed;
+        }
+        Map<Long, Long> firstClaimed = new HashMap<>();
+        claimed.forEach(event -> firstClaimed.putIfAbsent(event.key(), event.id()));
+        List<Long> keys = new ArrayList<>(firstClaimed.keySet());
+        Set<Long> heldElsewhere = new HashSet<>();
+        jdbcTemplate.query("SELECT " + keyColumn + ", MIN(id) FROM outbox_events WHERE " + keyColumn + " IN ("
+                + placeholders(keys.size()) + ") GROUP BY " + keyColumn, (RowCallbackHandler) rs -> {
+            if (rs.getLong(2) < firstClaimed.get(rs.getLong(1))) {
+                heldElsewhere.add(rs.getLong(1));
+            }
+        }, keys.toArray());
+        // Left unleased: they go out on a later pass, once the older event has been relayed
+        List<PendingEvent> batch = claimed.stream().filter(event -> !heldElsewhere.contains(event.key())).toList();
+        if (!batch.isEmpty()) {
+            List<Object> args = new ArrayList<>(batch.size() + 2);
+            args.add(relayId);
+            args.add(Timestamp.valueOf(now));
+            batch.forEach(event -> args.add(event.id()));
+            jdbcTemplate.update("UPDATE outbox_events SET claimed_by = ?, claimed_at = ? WHERE id IN ("
+                    + placeholders(batch.size()) + ")", args.toArray());
+        }
+        return batch;
+    }
+
+    // IDs of the events the broker acknowledged and whose key had no earlier failure in the batch
+    private Set<Long> send(List<PendingEvent> batch) {
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (PendingEvent event : batch) {
+            // A send call blocks for up to the producer's max.block.ms while the broker is unreachable;
+            // events not sent by the deadline stay for the next pass
+            sends.add(System.nanoTime() - deadline < 0
+                    ? publisher.publish(Long.toString(event.key()), event.payload()) : null);
+        }
+
+        Set<Long> blockedKeys = new HashSet<>();
+        Set<Long> delivered = new LinkedHashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingEvent event = batch.get(i);
+            if (awaitAcknowledgement(event, sends.get(i), deadline) && !blockedKeys.contains(event.key())) {
+                delivered.add(event.id());
+            } else {
+                blockedKeys.add(event.key());
+            }
+        }
+        return delivered;
+    }
+
+    private boolean awaitAcknowledgement(PendingEvent event, CompletableFuture<?> send, long deadline) {
+        if (send == null) {
+            return false;
+        }
+        try {
+            send.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            log.debug("Outbox event {} not delivered: {}", event.id(), e.toString());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,242 @@
+package com.parentportal.commons.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingTest {
+
+    private final HikariDataSource primaryPool = mock(HikariDataSource.class);
+    private final HikariDataSource replicaPool = mock(HikariDataSource.class);
+    private final TimedDataSource primary = new TimedDataSource("primary", primaryPool);
+    private final TimedDataSource replica = new TimedDataSource("replica", replicaPool);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final Statement statusStatement = mock(Statement.class);
+    // The Seconds_Behind_Master the replica reports; null while replication is stopped
+    private Long secondsBehind;
+    private boolean replicating = true;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primaryPool.getConnection()).thenAnswer(invocation -> connection("primary"));
+        when(replicaPool.getConnection()).thenReturn(replicaConnection);
+        when(replicaConnection.getCatalog()).thenReturn("replica");
+        when(replicaConnection.createStatement()).thenReturn(statusStatement);
+        when(statusStatement.executeQuery("SHOW SLAVE STATUS")).thenAnswer(invocation -> slaveStatus());
+    }
+
+    @Test
+    void readsUseThePrimaryUntilTheFirstProbe() throws SQLException {
+        ReplicaRouting routing = routing(ReplicaRouting.PROBE_REPLICATION_STATUS);
+
+        assertThat(readPool(routing)).isEqualTo("primary");
+        assertThat(routing.stats().isReplicaInUse()).isFalse();
+        assertThat(routing.stats().getReplicaLagSeconds()).isNull();
+    }
+
+    @Test
+    void replicaWithinTheLagLimitServesReads() throws SQLException {
+        ReplicaRouting routing = routing(ReplicaRouting.PROBE_REPLICATION_STATUS);
+        secondsBehind = 5L;
+
+        routing.probeLag();
+
+        assertThat(readPool(routing)).isEqualTo("replica");
+        DataSourceStatsDto stats = routing.stats();
+        assertThat(stats.isReplicaInUse()).isTrue();
+        assertThat(stats.getReplicaLagSeconds()).isEqualTo(5L);
+        assertThat(stats.getMaxLagSeconds()).isEqualTo(5L);
+        assertThat(stats.getReplicaReads()).isEqualTo(1);
+        assertThat(stats.getPrimaryFallbackReads()).isZero();
+    }
+
+    @Test
+    void replicaOverTheLagLimitFallsBackToThePrimaryUntilItCatchesUp() throws SQLException {
+        ReplicaRouting routing = routing(ReplicaRouting.PROBE_REPLICATION_STATUS);
+        secondsBehind = 1L;
+        routing.probeLag();
+        secondsBehind = 6L;
+
+        routing.probeLag();
+
+        assertThat(readPool(routing)).isEqualTo("primary");
+        assertThat(routing.stats().getReplicaLagSeconds()).isEqualTo(6L);
+        assertThat(routing.stats().getPrimaryFallbackReads()).isEqualTo(1);
+
+        secondsBehind = 0L;
+        routing.probeLag();
+
+        assertThat(readPool(routing)).isEqualTo("replica");
+    }
+
+    @Test
+    void stoppedReplicationFallsBackToThePrimary() throws SQLException {
+        ReplicaRouting routing = routing(ReplicaRouting.PROBE_REPLICATION_STATUS);
+        secondsBehind = 0L;
+        routing.probeLag();
+        secondsBehind = null;
+
+        routing.probeLag();
+
+        assertThat(readPool(routing)).isEqualTo("primary");
+        assertThat(routing.stats().getReplicaLagSeconds()).isNull();
+    }
+
+    @Test
+    void serverThatIsNotReplicatingIsNotUsed() throws SQLException {
+        ReplicaRouting routing = routing(ReplicaRouting.PROBE_REPLICATION_STATUS);
+        replicating = false;
+
+        routing.probeLag();
+
+        assertThat(readPool(routing)).isEqualTo("primary");
+    }
+
+    @Test
+    void failedProbeFallsBackToThePrimary() throws SQLException {
+        ReplicaRouting routing = routing(ReplicaRouting.PROBE_REPLICATION_STATUS);
+        secondsBehind = 0L;
+        routing.probeLag();
+        doThrow(new SQLException("Connection refused")).when(replicaPool).getConnection();
+
+        routing.probeLag();
+
+        assertThat(readPool(routing)).isEqualTo("primary");
+        assertThat(routing.stats().getPools()).filteredOn(pool -> pool.getPool().equals("replica"))
+                .extracting(DataSourcePoolStatsDto::getFailedAcquisitions).containsExactly(1L);
+    }
+
+    @Test
+    void readYourWritesUsesThePrimaryOnlyWithinItsScope() throws SQLException {
+        ReplicaRouting routing = routing(ReplicaRouting.PROBE_REPLICATION_STATUS);
+        secondsBehind = 0L;
+        routing.probeLag();
+        List<String> pools = new ArrayList<>();
+
+        ReadConsistency.fromPrimary(() -> {
+            pools.add(readPoolUnchecked(routing));
+            // A nested scope leaves the outer one in force when it closes
+            ReadConsistency.fromPrimary(() -> pools.add(readPoolUnchecked(routing)));
+            return pools.add(readPoolUnchecked(routing));
+        });
+
+        assertThat(pools).containsExactly("primary", "primary", "primary");
+        assertThat(ReadConsistency.primaryRequired()).isFalse();
+        assertThat(readPool(routing)).isEqualTo("replica");
+        assertThat(routing.stats().getPrimaryFallbackReads()).isEqualTo(3);
+    }
+
+    @Test
+    void withoutAProbeTheReplicaIsAssumedInSync() throws SQLException {
+        ReplicaRouting routing = routing("none");
+
+        routing.probeLag();
+
+        assertThat(readPool(routing)).isEqualTo("replica");
+        assertThat(routing.stats().getReplicaLagSeconds()).isZero();
+        // Only the read itself touched the replica
+        assertThat(routing.stats().getPools()).filteredOn(pool -> pool.getPool().equals("replica"))
+                .extracting(DataSourcePoolStatsDto::getConnectionsAcquired).containsExactly(1L);
+    }
+
+    @Test
+    void timedDataSourceCountsAcquiredAndFailedConnections() throws SQLException {
+        Connection connection = primary.getConnection();
+        connection.close();
+        connection.close();
+        doThrow(new SQLException("Pool exhausted")).when(primaryPool).getConnection();
+
+        assertThatThrownBy(primary::getConnection).isInstanceOf(SQLException.class);
+
+        DataSourcePoolStatsDto stats = primary.stats();
+        assertThat(stats.getPool()).isEqualTo("primary");
+        assertThat(stats.getConnectionsAcquired()).isEqualTo(1);
+        assertThat(stats.getFailedAcquisitions()).isEqualTo(1);
+        assertThat(stats.getAverageAcquireMillis()).isNotNull();
+        assertThat(stats.getAverageHoldMillis()).isNotNull();
+    }
+
+    @Test
+    void timedDataSourceHasNoAveragesBeforeAnyConnection() {
+        DataSourcePoolStatsDto stats = replica.stats();
+
+        assertThat(stats.getConnectionsAcquired()).isZero();
+        assertThat(stats.getAverageAcquireMillis()).isNull();
+        assertThat(stats.getAverageHoldMillis()).isNull();
+    }
+
+    @Test
+    void filterAsksForThePrimaryOnlyForTheRequestWithTheHeader() throws Exception {
+        ReadConsistencyFilter filter = new ReadConsistencyFilter();
+        List<Boolean> primaryRequired = new ArrayList<>();
+        MockHttpServletRequest withHeader = new MockHttpServletRequest("GET", "/api/payments/1");
+        withHeader.addHeader(ReadConsistency.HEADER, "PRIMARY");
+
+        filter.doFilter(withHeader, new MockHttpServletResponse(),
+                (request, response) -> primaryRequired.add(ReadConsistency.primaryRequired()));
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/payments/1"), new MockHttpServletResponse(),
+                (request, response) -> primaryRequired.add(ReadConsistency.primaryRequired()));
+
+        assertThat(primaryRequired).containsExactly(true, false);
+        assertThat(ReadConsistency.primaryRequired()).isFalse();
+    }
+
+    private ReplicaRouting routing(String lagProbe) {
+        return new ReplicaRouting(primary, replica, Duration.ofSeconds(5), lagProbe);
+    }
+
+    // The pool a read-only transaction's connection came from
+    private static String readPool(ReplicaRouting routing) throws SQLException {
+        try (Connection connection = routing.readOnly().getConnection()) {
+            return connection.getCatalog();
+        }
+    }
+
+    private static String readPoolUnchecked(ReplicaRouting routing) {
+        try {
+            return readPool(routing);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A connection that names its pool as its catalog
+    private static Connection connection(String pool) throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.getCatalog()).thenReturn(pool);
+        return connection;
+    }
+
+    // SHOW SLAVE STATUS: one row while replicating, none otherwise
+    private ResultSet slaveStatus() {
+        boolean[] read = {!replicating};
+        Long lag = secondsBehind;
+        return (ResultSet) Proxy.newProxyInstance(ReplicaRoutingTest.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> {
+                        boolean hasRow = !read[0];
+                        read[0] = true;
+                        yield hasRow;
+                    }
+                    case "getObject" -> "Seconds_Behind_Master".equals(args[0]) ? lag : null;
+                    default -> null;
+                });
+    }
+}
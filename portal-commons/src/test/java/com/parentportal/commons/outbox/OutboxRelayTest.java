@@ -0,0 +1,328 @@
+package com.parentportal.commons.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+    private final OutboxTable table = new OutboxTable();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final Broker broker = new Broker();
+    private final List<TransactionDefinition> transactions = new ArrayList<>();
+    private boolean inTransaction;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            transactions.add(invocation.getArgument(0));
+            inTransaction = true;
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(invocation -> inTransaction = false).when(transactionManager).commit(any());
+        doAnswer(invocation -> inTransaction = false).when(transactionManager).rollback(any());
+    }
+
+    @Test
+    void publishesTheBatchInIdOrderAndDeletesIt() {
+        table.insert(1, 10);
+        table.insert(2, 20);
+        table.insert(3, 10);
+
+        boolean more = relay(broker, 3).relayBatch();
+
+        assertThat(broker.getPublished()).extracting(Broker.Published::payload)
+                .containsExactly("e1", "e2", "e3");
+        assertThat(broker.getPublished("10")).extracting(Broker.Published::payload)
+                .containsExactly("e1", "e3");
+        assertThat(table.rows).isEmpty();
+        assertThat(more).isTrue();
+    }
+
+    @Test
+    void sendsOnlyAfterTheLeaseIsCommitted() {
+        table.insert(1, 10);
+        table.insert(2, 20);
+        List<String> leaseHolders = new ArrayList<>();
+        OutboxPublisher checking = (key, payload) -> {
+            assertThat(inTransaction).as("transaction open while sending").isFalse();
+            leaseHolders.add(table.rows.get(Long.parseLong(payload.substring(1))).claimedBy);
+            return broker.publish(key, payload);
+        };
+
+        relay(checking, 2).relayBatch();
+
+        assertThat(leaseHolders).hasSize(2).doesNotContainNull();
+        // No gap locks, so writers' inserts into outbox_events do not wait for the claim
+        assertThat(transactions).extracting(TransactionDefinition::getIsolationLevel)
+                .containsOnly(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    @Test
+    void partialBatchMeansNothingMoreIsWaiting() {
+        table.insert(1, 10);
+
+        assertThat(relay(broker, 3).relayBatch()).isFalse();
+        assertThat(table.rows).isEmpty();
+    }
+
+    @Test
+    void failedEventKeepsTheLaterEventsOfItsKeyButNotOfOthers() {
+        table.insert(1, 10);
+        table.insert(2, 20);
+        table.insert(3, 10);
+        table.insert(4, 20);
+        table.insert(5, 30);
+        OutboxPublisher failingSecond = (key, payload) -> payload.equals("e2")
+                ? CompletableFuture.failedFuture(new IllegalStateException("not acknowledged"))
+                : broker.publish(key, payload);
+
+        boolean more = relay(failingSecond, 5).relayBatch();
+
+        // Event 4 was sent but stays in the outbox, so it is re-sent behind event 2 on the next pass
+        assertThat(table.rows.keySet()).containsExactly(2L, 4L);
+        assertThat(table.rows.values()).allSatisfy(row -> assertThat(row.claimedBy).isNull());
+        assertThat(more).isFalse();
+    }
+
+    @Test
+    void unavailableBrokerReleasesTheWholeBatchForTheNextPass() {
+        table.insert(1, 10);
+        table.insert(2, 20);
+        broker.setAvailable(false);
+
+        assertThat(relay(broker, 2).relayBatch()).isFalse();
+        assertThat(table.rows.keySet()).containsExactly(1L, 2L);
+        assertThat(table.rows.values()).allSatisfy(row -> assertThat(row.claimedBy).isNull());
+    }
+
+    @Test
+    void keyWithAnOlderEventLeasedElsewhereIsLeftToThatRelay() {
+        table.insert(2, 10).lease("other-relay", LocalDateTime.now());
+        table.insert(5, 10);
+        table.insert(6, 20);
+        table.insert(7, 10);
+
+        relay(broker, 3).relayBatch();
+
+        assertThat(broker.getPublished()).extracting(Broker.Published::payload)
+                .containsExactly("e6");
+        assertThat(table.rows.keySet()).containsExactly(2L, 5L, 7L);
+        assertThat(table.rows.get(2L).claimedBy).isEqualTo("other-relay");
+        assertThat(table.rows.get(5L).claimedBy).isNull();
+        assertThat(table.rows.get(7L).claimedBy).isNull();
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        table.insert(1, 10).lease("crashed-relay", LocalDateTime.now().minusMinutes(2));
+        table.insert(2, 10);
+
+        relay(broker, 2).relayBatch();
+
+        assertThat(broker.getPublished()).extracting(Broker.Published::payload)
+                .containsExactly("e1", "e2");
+        assertThat(table.rows).isEmpty();
+    }
+
+    @Test
+    void sendsStopOnceTheSendTimeoutHasPassed() {
+        table.insert(1, 10);
+        table.insert(2, 20);
+        table.insert(3, 30);
+        // Stands in for a producer blocking on metadata while the broker is unreachable
+        OutboxPublisher blocking = (key, payload) -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return broker.publish(key, payload);
+        };
+
+        OutboxRelay relay = new OutboxRelay(table, blocking, transactionManager, "student_id", 3,
+                Duration.ofMillis(50), Duration.ofMinutes(1));
+        relay.relayBatch();
+
+        assertThat(broker.getPublished()).extracting(Broker.Published::payload)
+                .containsExactly("e1");
+        assertThat(table.rows.keySet()).containsExactly(2L, 3L);
+        assertThat(table.rows.values()).allSatisfy(row -> assertThat(row.claimedBy).isNull());
+    }
+
+    @Test
+    void emptyOutboxPublishesNothing() {
+        assertThat(relay(broker, 3).relayBatch()).isFalse();
+        assertThat(broker.getPublished()).isEmpty();
+        assertThat(transactions).hasSize(1);
+    }
+
+    private OutboxRelay relay(OutboxPublisher publisher, int batchSize) {
+        return new OutboxRelay(table, publisher, transactionManager, "student_id", batchSize, Duration.ofSeconds(1),
+                Duration.ofMinutes(1));
+    }
+
+    // Stand-in broker keeping every published event in send order; sends fail while it is unavailable
+    private static final class Broker implements OutboxPublisher {
+
+        record Published(String key, String payload) {
+        }
+
+        private final List<Published> published = new ArrayList<>();
+        private boolean available = true;
+
+        @Override
+        public CompletableFuture<?> publish(String key, String payload) {
+            if (!available) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Broker is unavailable"));
+            }
+            published.add(new Published(key, payload));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<Published> getPublished() {
+            return published;
+        }
+
+        List<Published> getPublished(String key) {
+            return published.stream().filter(event -> event.key().equals(key)).toList();
+        }
+
+        void setAvailable(boolean available) {
+            this.available = available;
+        }
+    }
+
+    // outbox_events (keyed by student_id) in memory, answering the statements the relay sends
+    private static final class OutboxTable extends JdbcTemplate {
+
+        private static final class Row {
+            private final long studentId;
+            private String claimedBy;
+            private Timestamp claimedAt;
+
+            private Row(long studentId) {
+                this.studentId = studentId;
+            }
+
+            void lease(String relayId, LocalDateTime at) {
+                claimedBy = relayId;
+                claimedAt = Timestamp.valueOf(at);
+            }
+        }
+
+        private final TreeMap<Long, Row> rows = new TreeMap<>();
+
+        Row insert(long id, long studentId) {
+            Row row = new Row(studentId);
+            rows.put(id, row);
+            return row;
+        }
+
+        // The claim: oldest rows without a live lease
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            assertThat(sql).startsWith("SELECT id, student_id AS event_key, payload FROM outbox_events")
+                    .endsWith("FOR UPDATE SKIP LOCKED");
+            Timestamp expiredBefore = (Timestamp) args[0];
+            List<T> claimed = new ArrayList<>();
+            for (Map.Entry<Long, Row> entry : rows.entrySet()) {
+                Row row = entry.getValue();
+                if (claimed.size() < (Integer) args[1] && (row.claimedAt == null || row.claimedAt.before(expiredBefore))) {
+                    claimed.add(map(rowMapper, Map.of("id", entry.getKey(), "event_key", row.studentId,
+                            "payload", "e" + entry.getKey())));
+                }
+            }
+            return claimed;
+        }
+
+        // Oldest event per student, whoever holds it
+        @Override
+        public void query(String sql, RowCallbackHandler handler, Object... args) {
+            assertThat(sql).startsWith("SELECT student_id, MIN(id) FROM outbox_events");
+            List<Object> studentIds = Arrays.asList(args);
+            Map<Long, Long> oldest = new TreeMap<>();
+            rows.forEach((id, row) -> {
+                if (studentIds.contains(row.studentId)) {
+                    oldest.putIfAbsent(row.studentId, id);
+                }
+            });
+            oldest.forEach((studentId, id) -> {
+                try {
+                    handler.processRow(resultSet(Map.of(1, studentId, 2, id)));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            int updated = 0;
+            if (sql.startsWith("DELETE FROM outbox_events WHERE id IN")) {
+                for (Object id : args) {
+                    updated += rows.remove((Long) id) == null ? 0 : 1;
+                }
+            } else if (sql.startsWith("UPDATE outbox_events SET claimed_by = ?, claimed_at = ?")) {
+                for (Object id : Arrays.asList(args).subList(2, args.length)) {
+                    rows.get((Long) id).lease((String) args[0], ((Timestamp) args[1]).toLocalDateTime());
+                    updated++;
+                }
+            } else if (sql.startsWith("UPDATE outbox_events SET claimed_by = NULL, claimed_at = NULL WHERE claimed_by = ?")) {
+                for (Object id : Arrays.asList(args).subList(1, args.length)) {
+                    Row row = rows.get((Long) id);
+                    if (row != null && args[0].equals(row.claimedBy)) {
+                        row.claimedBy = null;
+                        row.claimedAt = null;
+                        updated++;
+                    }
+                }
+            } else {
+                throw new IllegalArgumentException("Unexpected statement: " + sql);
+            }
+            return updated;
+        }
+
+        private static <T> T map(RowMapper<T> rowMapper, Map<String, ?> columns) {
+            try {
+                return rowMapper.mapRow(resultSet(columns), 0);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // Columns by label or by 1-based index
+        private static ResultSet resultSet(Map<?, ?> columns) {
+            return (ResultSet) Proxy.newProxyInstance(OutboxRelayTest.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getLong" -> ((Number) columns.get(args[0])).longValue();
+                        case "getString" -> (String) columns.get(args[0]);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
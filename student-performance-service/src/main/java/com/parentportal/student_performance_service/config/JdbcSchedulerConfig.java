@@ -0,0 +1,24 @@
+package com.parentportal.student_performance_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Scheduler for the blocking JDBC/JPA part of the reactive write path.
+ * Request threads are handed back to Tomcat while a write waits on the user service, so the number of
+ * writes in flight is no longer bounded by Tomcat's pool; what still blocks is the transaction itself,
+ * which runs here on at most one thread per primary connection. Writes beyond the queue capacity are
+ * rejected (503) instead of piling up behind the pool.
+ */
+@Configuration
+public class JdbcSchedulerConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(@Value("${student-performance.reactive.jdbc-threads:${spring.datasource.hikari.maximum-pool-size:10}}") int threads,
+                                   @Value("${student-performance.reactive.jdbc-queue-capacity:10000}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(threads, queueCapacity, "jdbc");
+    }
+}
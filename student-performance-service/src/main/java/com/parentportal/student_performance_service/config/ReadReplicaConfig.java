@@ -0,0 +1,76 @@
+package com.parentportal.student_performance_service.config;
+
+import com.parentportal.commons.datasource.ReadConsistencyFilter;
+import com.parentportal.commons.datasource.ReplicaRouting;
+import com.parentportal.commons.datasource.TimedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Sends read-only transactions to a replica pool when student-performance.datasource.replica.url is set.
+ * The application DataSource is a lazy proxy over the primary pool: a transaction marked readOnly sets the
+ * connection read-only before its first statement, and the proxy then fetches the real connection from
+ * ReplicaRouting instead. Everything else, including Flyway and JDBC work outside transactions, uses the primary.
+ * Without a replica URL the auto-configured single pool is left in place.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "student-performance.datasource.replica", name = "url")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryPool(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("primary");
+        return pool;
+    }
+
+    @Bean
+    @ConfigurationProperties("student-performance.datasource.replica.hikari")
+    public HikariDataSource replicaPool(DataSourceProperties properties,
+                                       @Value("${student-performance.datasource.replica.url}") String url,
+                                       @Value("${student-performance.datasource.replica.username:${spring.datasource.username}}") String username,
+                                       @Value("${student-performance.datasource.replica.password:${spring.datasource.password}}") String password) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setDriverClassName(properties.determineDriverClassName());
+        pool.setPoolName("replica");
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    @Bean
+    public ReplicaRouting replicaRouting(@Qualifier("primaryPool") HikariDataSource primaryPool,
+                                         @Qualifier("replicaPool") HikariDataSource replicaPool,
+                                         @Value("${student-performance.datasource.replica.max-lag:PT5S}") Duration maxLag,
+                                         @Value("${student-performance.datasource.replica.lag-probe:replication-status}") String lagProbe) {
+        return new StudentReplicaRouting(new TimedDataSource("primary", primaryPool),
+                new TimedDataSource("replica", replicaPool), maxLag, lagProbe);
+    }
+
+    @Bean
+    public ReadConsistencyFilter readConsistencyFilter() {
+        return new ReadConsistencyFilter();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRouting replicaRouting) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(replicaRouting.primary());
+        dataSource.setReadOnlyDataSource(replicaRouting.readOnly());
+        return dataSource;
+    }
+}
@@ -0,0 +1,23 @@
+package com.parentportal.student_performance_service.config;
+
+import com.parentportal.commons.datasource.ReplicaRouting;
+import com.parentportal.commons.datasource.TimedDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+/**
+ * The shared {@link ReplicaRouting}, probing the replica's lag every student-performance.datasource.replica.lag-check-interval-ms.
+ */
+public class StudentReplicaRouting extends ReplicaRouting {
+
+    public StudentReplicaRouting(TimedDataSource primary, TimedDataSource replica, Duration maxLag, String lagProbe) {
+        super(primary, replica, maxLag, lagProbe);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${student-performance.datasource.replica.lag-check-interval-ms:2000}")
+    public void probeLag() {
+        super.probeLag();
+    }
+}
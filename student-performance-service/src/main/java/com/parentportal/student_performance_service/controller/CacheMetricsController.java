@@ -0,0 +1,29 @@
+package com.parentportal.student_performance_service.controller;
+
+import com.parentportal.student_performance_service.dto.CacheStatsDto;
+import com.parentportal.student_performance_service.service.impl.SecondLevelCache;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/students/metrics")
+public class CacheMetricsController {
+
+    private final SecondLevelCache secondLevelCache;
+
+    public CacheMetricsController(SecondLevelCache secondLevelCache) {
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    /**
+     * Reports hit, miss and put counts of the Hibernate second-level and query caches since startup.
+     * @return Overall and per-region cache statistics.
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<CacheStatsDto> getCacheStats() {
+        return new ResponseEntity<>(secondLevelCache.stats(), HttpStatus.OK);
+    }
+}
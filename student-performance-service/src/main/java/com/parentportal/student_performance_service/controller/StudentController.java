@@ -1,23 +1,65 @@
 package com.parentportal.student_performance_service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.parentportal.student_performance_service.dto.*;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import com.parentportal.student_performance_service.service.AccessDeniedException;
+import com.parentportal.student_performance_service.service.ReportCardService;
+import com.parentportal.student_performance_service.service.ResultImportService;
 import com.parentportal.student_performance_service.service.StudentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/students")
 public class StudentController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+    // Clients may keep the body but must revalidate it with If-None-Match before each reuse
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final StudentService studentService;
+    private final ResultImportService resultImportService;
+    private final ReportCardService reportCardService;
+    private final ObjectMapper objectMapper;
+    private final Duration exportTimeout;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService, ResultImportService resultImportService,
+                             ReportCardService reportCardService, ObjectMapper objectMapper,
+                             @Value("${student-performance.report-cards.export-timeout:PT30M}") Duration exportTimeout) {
         this.studentService = studentService;
+        this.resultImportService = resultImportService;
+        this.reportCardService = reportCardService;
+        this.objectMapper = objectMapper;
+        this.exportTimeout = exportTimeout;
     }
 
     // Student Endpoints
@@ -28,32 +70,68 @@ public class StudentController {
      * @return The created student as a DTO with HTTP status 201 (Created).
      */
     @PostMapping("/{adminUserId}")
-    public ResponseEntity<StudentDto> createStudent(@PathVariable Long adminUserId, @Valid @RequestBody StudentCreateDto studentCreateDto) {
+    public Mono<ResponseEntity<StudentDto>> createStudent(@PathVariable Long adminUserId, @Valid @RequestBody StudentCreateDto studentCreateDto) {
+        return writeResponse(studentService.createStudent(adminUserId, studentCreateDto)
+                .map(createdStudent -> new ResponseEntity<>(createdStudent, HttpStatus.CREATED)));
+    }
+
+    /**
+     * Looks up many students at once, e.g. to validate the targets of bulk fees or notifications.
+     * @param request The student IDs to look up (at most 10000).
+     * @return The existing students as slim references and the IDs that do not exist,
+     *         or HTTP status 400 (Bad Request) if too many IDs were sent.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<StudentBatchResponseDto> getStudentRefs(@Valid @RequestBody StudentBatchRequestDto request) {
         try {
-            StudentDto createdStudent = studentService.createStudent(adminUserId, studentCreateDto);
-            return new ResponseEntity<>(createdStudent, HttpStatus.CREATED);
-        } catch (NoSuchElementException e) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            StudentBatchResponseDto response = studentService.getStudentRefs(request.getIds());
+            return new ResponseEntity<>(response, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
-            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
 
     /**
      * Retrieves a student by their ID.
+     * Responses carry an ETag; a matching If-None-Match is answered with 304 without loading the student.
      * @param id The ID of the student.
-     * @return The student as a DTO if found, or HTTP status 404 (Not Found).
+     * @return The student as a DTO if found, HTTP status 304 (Not Modified) if unchanged, or 404 (Not Found).
      */
     @GetMapping("/{id}")
-    public ResponseEntity<StudentDto> getStudentById(@PathVariable Long id) {
+    public ResponseEntity<StudentDto> getStudentById(@PathVariable Long id, HttpServletRequest request) {
         try {
-            StudentDto student = studentService.getStudentById(id);
-            return new ResponseEntity<>(student, HttpStatus.OK);
+            String etag = etag("student", id);
+            if (notModified(request, etag)) {
+                return notModified(etag);
+            }
+            VersionedDto<StudentDto> student = studentService.getStudentById(id);
+            return ResponseEntity.ok().eTag(etag("student", id, student.getVersion())).cacheControl(REVALIDATE)
+                    .body(student.getBody());
         } catch (NoSuchElementException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Typeahead search over student first names, last names and school IDs, tolerating small typos.
+     * @param q The text typed so far; every word must match the start of a name or ID, or be close to one.
+     * @param limit The maximum number of students to return.
+     * @return The best matching students, HTTP status 400 (Bad Request) for an invalid limit,
+     *         or 503 (Service Unavailable) while the search index is being built at startup.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<StudentSearchHitDto>> searchStudents(@RequestParam String q,
+                                                                    @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<StudentSearchHitDto> students = studentService.searchStudents(q, limit);
+            return new ResponseEntity<>(students, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
     /**
      * Retrieves all student records.
      * @return A list of all students as DTOs.
@@ -64,6 +142,137 @@ public class StudentController {
         return new ResponseEntity<>(students, HttpStatus.OK);
     }
 
+    /**
+     * Retrieves one page of students ordered by ID, using the last seen ID as the cursor.
+     * @param after The ID of the last student on the previous page (omit for the first page).
+     * @param size The maximum number of students to return.
+     * @return A page of students and the cursor for the next page, or HTTP status 400 (Bad Request) for an invalid size.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDto<StudentDto>> getStudentsPage(@RequestParam(required = false) Long after,
+                                                                     @RequestParam(defaultValue = "50") int size) {
+        try {
+            CursorPageDto<StudentDto> page = studentService.getStudentsPage(after, size);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Retrieves all students without their results and attendance records, for list views.
+     * @return A list of student summaries.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<List<StudentSummaryDto>> getAllStudentSummaries() {
+        List<StudentSummaryDto> students = studentService.getAllStudentSummaries();
+        return new ResponseEntity<>(students, HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves one page of student summaries ordered by ID, using the last seen ID as the cursor.
+     * @param after The ID of the last student on the previous page (omit for the first page).
+     * @param size The maximum number of students to return.
+     * @return A page of student summaries and the cursor for the next page, or HTTP status 400 (Bad Request) for an invalid size.
+     */
+    @GetMapping("/summary/page")
+    public ResponseEntity<CursorPageDto<StudentSummaryDto>> getStudentSummariesPage(@RequestParam(required = false) Long after,
+                                                                                    @RequestParam(defaultValue = "50") int size) {
+        try {
+            CursorPageDto<StudentSummaryDto> page = studentService.getStudentSummariesPage(after, size);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Ranks a cohort in one subject by average score for an academic year, with percentiles and a score histogram.
+     * @param cohort The class or year group, e.g. "Grade 7A".
+     * @param subject The subject to rank.
+     * @param academicYear The calendar year in which the academic year starts (defaults to the current one).
+     * @param buckets The number of equal-width histogram buckets between the lowest and highest score.
+     * @return The ranking ordered by rank, or HTTP status 400 (Bad Request) for an invalid bucket count.
+     */
+    @GetMapping("/rankings")
+    public ResponseEntity<ClassRankingDto> getClassRanking(@RequestParam String cohort,
+                                                           @RequestParam String subject,
+                                                           @RequestParam(required = false) Integer academicYear,
+                                                           @RequestParam(defaultValue = "10") int buckets) {
+        try {
+            ClassRankingDto ranking = studentService.getClassRanking(cohort, subject, academicYear, buckets);
+            return new ResponseEntity<>(ranking, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Streams every student as newline-delimited JSON, one student per line.
+     * Students are read through a database cursor, so memory use does not depend on the roster size.
+     * @return A streaming NDJSON response body.
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllStudents() {
+        StreamingResponseBody body = outputStream -> {
+            studentService.streamAllStudents(student -> writeNdjsonLine(outputStream, student));
+            outputStream.flush();
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Exports the report cards of a class, streamed as they are rendered. Accessible only by ADMINs.
+     * @param adminUserId The ID of the authenticated admin.
+     * @param cohort The class to export.
+     * @param academicYear The academic year (calendar year it starts in); defaults to the current one.
+     * @param format csv for one CSV with a row per student and subject, or pdf for a ZIP with one PDF per student.
+     * @return The streamed export, HTTP status 400 (Bad Request) for an unknown format,
+     *         403 (Forbidden) if the user is not an ADMIN, or 404 (Not Found) if the user does not exist.
+     */
+    @GetMapping("/{adminUserId}/report-cards")
+    public Mono<WebAsyncTask<Void>> exportReportCards(@PathVariable Long adminUserId,
+                                                      @RequestParam String cohort,
+                                                      @RequestParam(required = false) Integer academicYear,
+                                                      @RequestParam(defaultValue = "csv") String format,
+                                                      HttpServletResponse response) {
+        ReportCardFormat reportCardFormat;
+        try {
+            reportCardFormat = ReportCardFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return withStatus(response, HttpStatus.BAD_REQUEST);
+        }
+        boolean csv = reportCardFormat == ReportCardFormat.CSV;
+        String fileName = "report-cards-" + cohort.replaceAll("[^A-Za-z0-9._-]+", "_")
+                + (academicYear == null ? "" : "-" + academicYear) + (csv ? ".csv" : ".zip");
+        // The export is an async task of its own with the export timeout, so other async requests keep the default
+        return reportCardService.verifyExporter(adminUserId)
+                .then(Mono.fromSupplier(() -> new WebAsyncTask<Void>(exportTimeout.toMillis(), () -> {
+                    response.setContentType((csv ? TEXT_CSV : APPLICATION_ZIP).toString());
+                    response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(fileName).build().toString());
+                    reportCardService.exportReportCards(cohort, academicYear, reportCardFormat, response.getOutputStream());
+                    return null;
+                })))
+                .onErrorResume(NoSuchElementException.class, e -> withStatus(response, HttpStatus.NOT_FOUND))
+                .onErrorResume(AccessDeniedException.class, e -> withStatus(response, HttpStatus.FORBIDDEN));
+    }
+
+    // The response is written directly (HttpServletResponse argument), so an empty result ends the request
+    private static <T> Mono<T> withStatus(HttpServletResponse response, HttpStatus status) {
+        response.setStatus(status.value());
+        return Mono.empty();
+    }
+
+    private void writeNdjsonLine(OutputStream outputStream, Object value) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(value));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Retrieves students associated with a specific parent user ID.
      * @param parentUserId The ID of the parent user.
@@ -75,6 +284,17 @@ public class StudentController {
         return new ResponseEntity<>(students, HttpStatus.OK);
     }
 
+    /**
+     * Retrieves summaries of the students associated with a specific parent user ID.
+     * @param parentUserId The ID of the parent user.
+     * @return A list of student summaries associated with the parent.
+     */
+    @GetMapping("/byParent/{parentUserId}/summary")
+    public ResponseEntity<List<StudentSummaryDto>> getStudentSummariesByParentUserId(@PathVariable Long parentUserId) {
+        List<StudentSummaryDto> students = studentService.getStudentSummariesByParentUserId(parentUserId);
+        return new ResponseEntity<>(students, HttpStatus.OK);
+    }
+
     /**
      * Updates an existing student record. Accessible only by ADMINs.
      * @param adminUserId The ID of the authenticated admin.
@@ -83,15 +303,9 @@ public class StudentController {
      * @return The updated student as a DTO if found, or HTTP status 404 (Not Found).
      */
     @PutMapping("/{adminUserId}/{id}")
-    public ResponseEntity<StudentDto> updateStudent(@PathVariable Long adminUserId, @PathVariable Long id, @Valid @RequestBody StudentUpdateDto studentUpdateDto) {
-        try {
-            StudentDto updatedStudent = studentService.updateStudent(adminUserId, id, studentUpdateDto);
-            return new ResponseEntity<>(updatedStudent, HttpStatus.OK);
-        } catch (NoSuchElementException e) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (IllegalArgumentException e) {
-            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
-        }
+    public Mono<ResponseEntity<StudentDto>> updateStudent(@PathVariable Long adminUserId, @PathVariable Long id, @Valid @RequestBody StudentUpdateDto studentUpdateDto) {
+        return writeResponse(studentService.updateStudent(adminUserId, id, studentUpdateDto)
+                .map(updatedStudent -> new ResponseEntity<>(updatedStudent, HttpStatus.OK)));
     }
 
     /**
@@ -101,15 +315,9 @@ public class StudentController {
      * @return HTTP status 204 (No Content) on successful deletion, or 404 (Not Found) if student does not exist.
      */
     @DeleteMapping("/{adminUserId}/{id}")
-    public ResponseEntity<HttpStatus> deleteStudent(@PathVariable Long adminUserId, @PathVariable Long id) {
-        try {
-            studentService.deleteStudent(adminUserId, id);
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        } catch (NoSuchElementException e) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (IllegalArgumentException e) {
-            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
-        }
+    public Mono<ResponseEntity<HttpStatus>> deleteStudent(@PathVariable Long adminUserId, @PathVariable Long id) {
+        return writeResponse(studentService.deleteStudent(adminUserId, id)
+                .then(Mono.just(new ResponseEntity<HttpStatus>(HttpStatus.NO_CONTENT))));
     }
 
     // Result Endpoints
@@ -118,32 +326,107 @@ public class StudentController {
      * @param adminUserId The ID of the authenticated admin.
      * @param studentId The ID of the student to add the result to.
      * @param resultCreateDto DTO containing result creation details.
-     * @return The created result as a DTO with HTTP status 201 (Created).
+     * @return The created result as a DTO with HTTP status 201 (Created), or 409 (Conflict) if it is dated in a
+     *         closed academic year; closed years are read-only.
      */
     @PostMapping("/{adminUserId}/{studentId}/results")
-    public ResponseEntity<ResultDto> addResultToStudent(@PathVariable Long adminUserId, @PathVariable Long studentId, @Valid @RequestBody ResultCreateDto resultCreateDto) {
+    public Mono<ResponseEntity<ResultDto>> addResultToStudent(@PathVariable Long adminUserId, @PathVariable Long studentId, @Valid @RequestBody ResultCreateDto resultCreateDto) {
+        return writeResponse(studentService.addResultToStudent(adminUserId, studentId, resultCreateDto)
+                .map(createdResult -> new ResponseEntity<>(createdResult, HttpStatus.CREATED))
+                .onErrorResume(IllegalStateException.class, e -> Mono.just(new ResponseEntity<ResultDto>(HttpStatus.CONFLICT))));
+    }
+
+    /**
+     * Imports many results at once from a streamed JSON array of result objects. Accessible only by ADMINs.
+     * Rows are inserted in batches; invalid rows, and rows dated in a closed academic year, are skipped and
+     * reported without failing the rest.
+     * @param adminUserId The ID of the authenticated admin.
+     * @param body The JSON array of results, each with studentId, subject, grade, score and date.
+     * @return A report of received, imported and failed rows with per-row errors.
+     */
+    @PostMapping(value = "/{adminUserId}/results/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BulkImportReportDto>> importResultsJson(@PathVariable Long adminUserId, InputStream body) {
+        return writeResponse(resultImportService.importResultsJson(adminUserId, body).map(ResponseEntity::ok));
+    }
+
+    /**
+     * Imports many results at once from a streamed CSV upload. Accessible only by ADMINs.
+     * The first line must be a header naming the columns studentId, subject, grade, score and date (MM-dd-yyyy).
+     * @param adminUserId The ID of the authenticated admin.
+     * @param body The CSV content.
+     * @return A report of received, imported and failed rows with per-row errors.
+     */
+    @PostMapping(value = "/{adminUserId}/results/bulk", consumes = "text/csv")
+    public Mono<ResponseEntity<BulkImportReportDto>> importResultsCsv(@PathVariable Long adminUserId, InputStream body) {
+        return writeResponse(resultImportService.importResultsCsv(adminUserId, body).map(ResponseEntity::ok));
+    }
+
+    /**
+     * Retrieves the report-card summary of a student for one academic year: per-subject averages,
+     * latest grades, GPA and attendance counts, read from incrementally maintained aggregates.
+     * @param studentId The ID of the student.
+     * @param academicYear The calendar year in which the academic year starts (defaults to the current one).
+     * @return The performance summary, or HTTP status 404 (Not Found) if the student does not exist.
+     */
+    @GetMapping("/{studentId}/summary")
+    public ResponseEntity<PerformanceSummaryDto> getPerformanceSummary(@PathVariable Long studentId,
+                                                                       @RequestParam(required = false) Integer academicYear) {
         try {
-            ResultDto createdResult = studentService.addResultToStudent(adminUserId, studentId, resultCreateDto);
-            return new ResponseEntity<>(createdResult, HttpStatus.CREATED);
+            PerformanceSummaryDto summary = studentService.getPerformanceSummary(studentId, academicYear);
+            return new ResponseEntity<>(summary, HttpStatus.OK);
         } catch (NoSuchElementException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (IllegalArgumentException e) {
-            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         }
     }
 
     /**
      * Retrieves all results for a specific student.
+     * Responses carry an ETag; a matching If-None-Match is answered with 304 without loading the results.
      * @param studentId The ID of the student.
-     * @return A list of result DTOs for the specified student.
+     * @return A list of result DTOs for the specified student, or HTTP status 304 (Not Modified) if unchanged.
      */
     @GetMapping("/{studentId}/results")
-    public ResponseEntity<List<ResultDto>> getResultsByStudentId(@PathVariable Long studentId) {
+    public ResponseEntity<List<ResultDto>> getResultsByStudentId(@PathVariable Long studentId, HttpServletRequest request) {
         try {
-            List<ResultDto> results = studentService.getResultsByStudentId(studentId);
+            String etag = etag("results", studentId);
+            if (notModified(request, etag)) {
+                return notModified(etag);
+            }
+            VersionedDto<List<ResultDto>> results = studentService.getResultsByStudentId(studentId);
+            return ResponseEntity.ok().eTag(etag("results", studentId, results.getVersion())).cacheControl(REVALIDATE)
+                    .body(results.getBody());
+        } catch (NoSuchElementException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Retrieves one page of a student's results, newest first, filtered by subject and date range.
+     * @param studentId The ID of the student.
+     * @param subject Only results in this subject (optional).
+     * @param from The earliest date, inclusive, in MM-dd-yyyy format (optional).
+     * @param to The latest date, inclusive, in MM-dd-yyyy format (optional).
+     * @param academicYear Only results within this academic year (optional); narrowed further by from/to.
+     * @param page The zero-based page number.
+     * @param size The maximum number of results to return.
+     * @return A page of results, HTTP status 404 (Not Found) if the student does not exist,
+     *         or 400 (Bad Request) for an invalid page or an empty date range.
+     */
+    @GetMapping("/{studentId}/results/search")
+    public ResponseEntity<SlicePageDto<ResultDto>> searchResults(@PathVariable Long studentId,
+                                                                 @RequestParam(required = false) String subject,
+                                                                 @RequestParam(required = false) @DateTimeFormat(pattern = "MM-dd-yyyy") LocalDate from,
+                                                                 @RequestParam(required = false) @DateTimeFormat(pattern = "MM-dd-yyyy") LocalDate to,
+                                                                 @RequestParam(required = false) Integer academicYear,
+                                                                 @RequestParam(defaultValue = "0") int page,
+                                                                 @RequestParam(defaultValue = "50") int size) {
+        try {
+            SlicePageDto<ResultDto> results = studentService.searchResults(studentId, subject, from, to, academicYear, page, size);
             return new ResponseEntity<>(results, HttpStatus.OK);
         } catch (NoSuchElementException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
 
@@ -166,18 +449,14 @@ public class StudentController {
      * Deletes a specific result by its ID. Accessible only by ADMINs.
      * @param adminUserId The ID of the authenticated admin.
      * @param resultId The ID of the result to delete.
-     * @return HTTP status 204 (No Content) on successful deletion, or 404 (Not Found).
+     * @return HTTP status 204 (No Content) on successful deletion, 404 (Not Found), or 409 (Conflict) if the
+     *         result is dated in a closed academic year, archived or not; closed years are read-only.
      */
     @DeleteMapping("/{adminUserId}/results/{resultId}")
-    public ResponseEntity<HttpStatus> deleteResult(@PathVariable Long adminUserId, @PathVariable Long resultId) {
-        try {
-            studentService.deleteResult(adminUserId, resultId);
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        } catch (NoSuchElementException e) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (IllegalArgumentException e) {
-            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
-        }
+    public Mono<ResponseEntity<HttpStatus>> deleteResult(@PathVariable Long adminUserId, @PathVariable Long resultId) {
+        return writeResponse(studentService.deleteResult(adminUserId, resultId)
+                .then(Mono.just(new ResponseEntity<HttpStatus>(HttpStatus.NO_CONTENT)))
+                .onErrorResume(IllegalStateException.class, e -> Mono.just(new ResponseEntity<HttpStatus>(HttpStatus.CONFLICT))));
     }
 
     // Attendance Endpoints
@@ -186,35 +465,99 @@ public class StudentController {
      * @param adminUserId The ID of the authenticated admin.
      * @param studentId The ID of the student to add the attendance to.
      * @param attendanceCreateDto DTO containing attendance creation details.
-     * @return The created attendance record as a DTO with HTTP status 201 (Created).
+     * @return The created attendance record as a DTO with HTTP status 201 (Created), or 409 (Conflict) if it is
+     *         dated in a closed academic year; closed years are read-only.
      */
     @PostMapping("/{adminUserId}/{studentId}/attendance")
-    public ResponseEntity<AttendanceDto> addAttendanceToStudent(@PathVariable Long adminUserId, @PathVariable Long studentId, @Valid @RequestBody AttendanceCreateDto attendanceCreateDto) {
+    public Mono<ResponseEntity<AttendanceDto>> addAttendanceToStudent(@PathVariable Long adminUserId, @PathVariable Long studentId, @Valid @RequestBody AttendanceCreateDto attendanceCreateDto) {
+        return writeResponse(studentService.addAttendanceToStudent(adminUserId, studentId, attendanceCreateDto)
+                .map(createdAttendance -> new ResponseEntity<>(createdAttendance, HttpStatus.CREATED))
+                .onErrorResume(IllegalStateException.class, e -> Mono.just(new ResponseEntity<AttendanceDto>(HttpStatus.CONFLICT))));
+    }
+
+    /**
+     * Records a whole class's attendance for one day in a single call. Accessible only by ADMINs.
+     * Marking the same students again for the same date replaces their earlier marks.
+     * @param adminUserId The ID of the authenticated admin.
+     * @param rollCallDto DTO containing the date and one mark per student.
+     * @return A report of recorded marks and unknown student IDs with HTTP status 201 (Created),
+     *         or 409 (Conflict) if the date is in a closed academic year; closed years are read-only.
+     */
+    @PostMapping("/{adminUserId}/attendance/roll-call")
+    public Mono<ResponseEntity<RollCallReportDto>> recordRollCall(@PathVariable Long adminUserId, @Valid @RequestBody RollCallDto rollCallDto) {
+        return writeResponse(studentService.recordRollCall(adminUserId, rollCallDto)
+                .map(report -> new ResponseEntity<>(report, HttpStatus.CREATED))
+                .onErrorResume(IllegalStateException.class, e -> Mono.just(new ResponseEntity<RollCallReportDto>(HttpStatus.CONFLICT))));
+    }
+
+    /**
+     * Retrieves attendance rate and streaks for a student in one academic year.
+     * @param studentId The ID of the student.
+     * @param academicYear The calendar year in which the academic year starts (defaults to the current one).
+     * @return The attendance statistics, or HTTP status 404 (Not Found) if the student does not exist.
+     */
+    @GetMapping("/{studentId}/attendance/stats")
+    public ResponseEntity<AttendanceStatsDto> getAttendanceStats(@PathVariable Long studentId,
+                                                                 @RequestParam(required = false) Integer academicYear) {
         try {
-            AttendanceDto createdAttendance = studentService.addAttendanceToStudent(adminUserId, studentId, attendanceCreateDto);
-            return new ResponseEntity<>(createdAttendance, HttpStatus.CREATED);
+            AttendanceStatsDto stats = studentService.getAttendanceStats(studentId, academicYear);
+            return new ResponseEntity<>(stats, HttpStatus.OK);
         } catch (NoSuchElementException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (IllegalArgumentException e) {
-            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         }
     }
 
     /**
      * Retrieves all attendance records for a specific student.
+     * Responses carry an ETag; a matching If-None-Match is answered with 304 without loading the records.
      * @param studentId The ID of the student.
-     * @return A list of attendance DTOs for the specified student.
+     * @return A list of attendance DTOs for the specified student, or HTTP status 304 (Not Modified) if unchanged.
      */
     @GetMapping("/{studentId}/attendance")
-    public ResponseEntity<List<AttendanceDto>> getAttendanceByStudentId(@PathVariable Long studentId) {
+    public ResponseEntity<List<AttendanceDto>> getAttendanceByStudentId(@PathVariable Long studentId, HttpServletRequest request) {
         try {
-            List<AttendanceDto> attendanceRecords = studentService.getAttendanceByStudentId(studentId);
-            return new ResponseEntity<>(attendanceRecords, HttpStatus.OK);
+            String etag = etag("attendance", studentId);
+            if (notModified(request, etag)) {
+                return notModified(etag);
+            }
+            VersionedDto<List<AttendanceDto>> attendanceRecords = studentService.getAttendanceByStudentId(studentId);
+            return ResponseEntity.ok().eTag(etag("attendance", studentId, attendanceRecords.getVersion()))
+                    .cacheControl(REVALIDATE).body(attendanceRecords.getBody());
         } catch (NoSuchElementException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Retrieves one page of a student's attendance records, newest first, filtered by status and date range.
+     * @param studentId The ID of the student.
+     * @param status Only records with this status (optional).
+     * @param from The earliest date, inclusive, in MM-dd-yyyy format (optional).
+     * @param to The latest date, inclusive, in MM-dd-yyyy format (optional).
+     * @param academicYear Only records within this academic year (optional); narrowed further by from/to.
+     * @param page The zero-based page number.
+     * @param size The maximum number of records to return.
+     * @return A page of attendance records, HTTP status 404 (Not Found) if the student does not exist,
+     *         or 400 (Bad Request) for an invalid page or an empty date range.
+     */
+    @GetMapping("/{studentId}/attendance/search")
+    public ResponseEntity<SlicePageDto<AttendanceDto>> searchAttendance(@PathVariable Long studentId,
+                                                                        @RequestParam(required = false) AttendanceStatus status,
+                                                                        @RequestParam(required = false) @DateTimeFormat(pattern = "MM-dd-yyyy") LocalDate from,
+                                                                        @RequestParam(required = false) @DateTimeFormat(pattern = "MM-dd-yyyy") LocalDate to,
+                                                                        @RequestParam(required = false) Integer academicYear,
+                                                                        @RequestParam(defaultValue = "0") int page,
+                                                                        @RequestParam(defaultValue = "50") int size) {
+        try {
+            SlicePageDto<AttendanceDto> records = studentService.searchAttendance(studentId, status, from, to, academicYear, page, size);
+            return new ResponseEntity<>(records, HttpStatus.OK);
+        } catch (NoSuchElementException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     /**
      * Retrieves a specific attendance record by its ID.
      * @param attendanceId The ID of the attendance record.
@@ -234,17 +577,44 @@ public class StudentController {
      * Deletes a specific attendance record by its ID. Accessible only by ADMINs.
      * @param adminUserId The ID of the authenticated admin.
      * @param attendanceId The ID of the attendance record to delete.
-     * @return HTTP status 204 (No Content) on successful deletion, or 404 (Not Found).
+     * @return HTTP status 204 (No Content) on successful deletion, 404 (Not Found), or 409 (Conflict) if the
+     *         attendance record is dated in a closed academic year, archived or not; closed years are read-only.
      */
     @DeleteMapping("/{adminUserId}/attendance/{attendanceId}")
-    public ResponseEntity<HttpStatus> deleteAttendance(@PathVariable Long adminUserId, @PathVariable Long attendanceId) {
-        try {
-            studentService.deleteAttendance(adminUserId, attendanceId);
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        } catch (NoSuchElementException e) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        } catch (IllegalArgumentException e) {
-            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
-        }
+    public Mono<ResponseEntity<HttpStatus>> deleteAttendance(@PathVariable Long adminUserId, @PathVariable Long attendanceId) {
+        return writeResponse(studentService.deleteAttendance(adminUserId, attendanceId)
+                .then(Mono.just(new ResponseEntity<HttpStatus>(HttpStatus.NO_CONTENT)))
+                .onErrorResume(IllegalStateException.class, e -> Mono.just(new ResponseEntity<HttpStatus>(HttpStatus.CONFLICT))));
+    }
+
+    // Maps a failed reactive write the way the blocking endpoints map exceptions; the servlet thread is
+    // released while it runs, so a full JDBC scheduler queue sheds load with 503 instead of tying up Tomcat
+    private static <T> Mono<ResponseEntity<T>> writeResponse(Mono<ResponseEntity<T>> write) {
+        return write
+                .onErrorResume(NoSuchElementException.class, e -> Mono.just(new ResponseEntity<T>(HttpStatus.NOT_FOUND)))
+                .onErrorResume(AccessDeniedException.class, e -> Mono.just(new ResponseEntity<T>(HttpStatus.FORBIDDEN)))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(new ResponseEntity<T>(HttpStatus.BAD_REQUEST)))
+                .onErrorResume(RejectedExecutionException.class,
+                        e -> Mono.just(new ResponseEntity<T>(HttpStatus.SERVICE_UNAVAILABLE)));
+    }
+
+    // Strong validator from the student's content version, which every write to the student bumps.
+    // If-None-Match is checked against the cached current version; a loaded body is labelled with the version
+    // read alongside it, so a lagging replica or instance never pins an older body under a newer ETag.
+    private String etag(String resource, Long studentId) {
+        return etag(resource, studentId, studentService.getContentVersion(studentId));
+    }
+
+    private static String etag(String resource, Long studentId, long version) {
+        return "\"" + resource + "-" + studentId + "-v" + version + "\"";
+    }
+
+    // Checked without the response, so nothing is written to it yet: a 200 then carries only the ETag of its body
+    private static boolean notModified(HttpServletRequest request, String etag) {
+        return new ServletWebRequest(request).checkNotModified(etag);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
     }
 }
@@ -0,0 +1,22 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceStatsDto {
+
+    private Long studentId;
+    private int academicYear;
+    private int presentCount;
+    private int absentCount;
+    private int lateCount;
+    private int daysRecorded;
+    private double attendanceRate; // (present + late) / days recorded
+    private int currentAttendedStreak; // Consecutive recorded days present or late, ending at the latest mark
+    private int currentAbsentStreak; // Consecutive recorded days absent, ending at the latest mark
+    private int longestAttendedStreak;
+}
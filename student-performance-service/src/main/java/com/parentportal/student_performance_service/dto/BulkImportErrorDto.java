@@ -0,0 +1,14 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportErrorDto {
+
+    private long row; // 1-based data row in the upload (0 when the whole upload is rejected)
+    private String message;
+}
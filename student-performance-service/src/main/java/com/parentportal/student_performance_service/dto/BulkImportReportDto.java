@@ -0,0 +1,19 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportReportDto {
+
+    private long received; // Rows read from the upload
+    private long imported; // Rows inserted
+    private long failed; // Rows rejected
+    private List<BulkImportErrorDto> errors = new ArrayList<>(); // Per-row errors, capped to keep the response bounded
+}
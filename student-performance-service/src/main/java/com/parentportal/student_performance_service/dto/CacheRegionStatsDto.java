@@ -0,0 +1,18 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheRegionStatsDto {
+
+    private String region;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private Double hitRatio; // Null until the region has been read
+    private long elementCountInMemory; // Negative if the cache provider does not report it
+}
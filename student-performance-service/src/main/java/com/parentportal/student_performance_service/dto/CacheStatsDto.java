@@ -0,0 +1,24 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Second-level and query cache counters since startup
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDto {
+
+    private boolean statisticsEnabled;
+    private long secondLevelHitCount;
+    private long secondLevelMissCount;
+    private Double secondLevelHitRatio;
+    private long queryCacheHitCount;
+    private long queryCacheMissCount;
+    private Double queryCacheHitRatio;
+    private long statementsPrepared; // JDBC statements issued through Hibernate, to compare against the hits
+    private List<CacheRegionStatsDto> regions;
+}
@@ -0,0 +1,24 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClassRankingDto {
+
+    private String cohort;
+    private String subject;
+    private int academicYear;
+    private int studentCount;
+    private Double mean;
+    private Double median;
+    private Double min;
+    private Double max;
+    private List<HistogramBucketDto> histogram;
+    private List<RankingEntryDto> rankings; // Ordered by rank
+}
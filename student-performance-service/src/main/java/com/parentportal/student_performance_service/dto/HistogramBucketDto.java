@@ -0,0 +1,15 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistogramBucketDto {
+
+    private double lowerBound; // Inclusive
+    private double upperBound; // Exclusive, except for the last bucket
+    private long count;
+}
@@ -0,0 +1,23 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Report-card dashboard for one student and academic year, read from maintained aggregates
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PerformanceSummaryDto {
+
+    private Long studentId;
+    private int academicYear;
+    private List<SubjectSummaryDto> subjects;
+    private Double gpa; // Grade point average over all graded results of the year (4.0 scale)
+    private int presentCount;
+    private int absentCount;
+    private int lateCount;
+    private Double attendanceRate; // Null when no attendance was recorded
+}
@@ -0,0 +1,16 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RankingEntryDto {
+
+    private Long studentId;
+    private double score; // Average score in the subject for the academic year
+    private int rank; // 1 = highest; tied scores share a rank
+    private double percentile; // Share of the cohort scoring below, counting ties as half
+}
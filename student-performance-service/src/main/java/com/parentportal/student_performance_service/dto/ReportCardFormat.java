@@ -0,0 +1,7 @@
+package com.parentportal.student_performance_service.dto;
+
+// Report-card export formats: one CSV for the class, or a ZIP with one PDF per student
+public enum ReportCardFormat {
+    CSV,
+    PDF
+}
@@ -0,0 +1,24 @@
+package com.parentportal.student_performance_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollCallDto {
+
+    @NotNull(message = "Date is required")
+    @JsonFormat(pattern = "MM-dd-yyyy")
+    private LocalDate date;
+    @NotEmpty(message = "At least one mark is required")
+    private List<@NotNull(message = "Mark must not be null") @Valid RollCallMarkDto> marks;
+}
@@ -0,0 +1,19 @@
+package com.parentportal.student_performance_service.dto;
+
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollCallMarkDto {
+
+    @NotNull(message = "Student ID is required")
+    private Long studentId;
+    @NotNull(message = "Status is required")
+    private AttendanceStatus status;
+    private String reason; // Optional
+}
@@ -0,0 +1,18 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollCallReportDto {
+
+    private LocalDate date;
+    private int recorded;
+    private List<Long> unknownStudentIds; // Marks skipped because the student does not exist
+}
@@ -0,0 +1,19 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One page of a filtered listing; hasNext comes from a one-row lookahead instead of a count query
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlicePageDto<T> {
+
+    private List<T> content;
+    private int page;
+    private int size;
+    private boolean hasNext;
+}
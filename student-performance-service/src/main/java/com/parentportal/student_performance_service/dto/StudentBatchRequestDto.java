@@ -0,0 +1,17 @@
+package com.parentportal.student_performance_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentBatchRequestDto {
+
+    @NotEmpty(message = "At least one student ID is required")
+    private Set<Long> ids;
+}
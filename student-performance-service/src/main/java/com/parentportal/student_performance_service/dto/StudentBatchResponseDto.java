@@ -0,0 +1,16 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentBatchResponseDto {
+
+    private List<StudentRefDto> students; // Ordered by ID
+    private List<Long> missingIds; // Requested IDs with no student, ordered
+}
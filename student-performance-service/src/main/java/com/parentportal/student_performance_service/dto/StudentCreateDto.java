@@ -19,4 +19,5 @@ public class StudentCreateDto {
     private String studentId;
     @NotNull(message = "Parent User ID is required")
     private Long parentUserId;
+    private String cohort; // Optional
 }
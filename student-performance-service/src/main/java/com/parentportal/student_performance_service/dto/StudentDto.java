@@ -16,6 +16,7 @@ public class StudentDto {
     private String lastName;
     private String studentId;
     private Long parentUserId;
+    private String cohort;
     private List<ResultDto> results; // Include DTOs for nested relationships
     private List<AttendanceDto> attendanceRecords;
 }
@@ -0,0 +1,23 @@
+package com.parentportal.student_performance_service.dto;
+
+import com.parentportal.student_performance_service.entity.StudentEventType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Payload of the student-events topic; recipientId, message, type and relatedEntityId follow NotificationCreateDto
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentEventDto {
+
+    private String eventId; // Stable across redeliveries, for consumer-side deduplication
+    private StudentEventType type;
+    private Long studentId;
+    private Long recipientId; // Parent user of the student
+    private String message;
+    private String relatedEntityId; // Optional
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,17 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The few student columns write paths need to notify the parent and invalidate cohort-level data
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentRecipientDto {
+
+    private Long id;
+    private String firstName;
+    private Long parentUserId;
+    private String cohort;
+}
@@ -0,0 +1,16 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Slim projection for cross-service existence and ownership checks
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentRefDto {
+
+    private Long id;
+    private Long parentUserId;
+    private String studentId; // School ID
+}
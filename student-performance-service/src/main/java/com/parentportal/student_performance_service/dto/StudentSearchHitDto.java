@@ -0,0 +1,18 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One typeahead match: enough to label the suggestion and open the student
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentSearchHitDto {
+
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String studentId; // School ID
+    private String cohort;
+}
@@ -0,0 +1,19 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// List-view projection of a student without the nested results and attendance records
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentSummaryDto {
+
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String studentId;
+    private Long parentUserId;
+    private String cohort;
+}
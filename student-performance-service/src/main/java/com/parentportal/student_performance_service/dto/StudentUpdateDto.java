@@ -13,4 +13,5 @@ public class StudentUpdateDto {
     private String lastName;
     private String studentId;
     private Long parentUserId;
+    private String cohort;
 }
@@ -0,0 +1,20 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubjectSummaryDto {
+
+    private String subject;
+    private int resultCount;
+    private Double averageScore;
+    private Double gradePointAverage; // Null when no result in the subject has a recognised letter grade
+    private String latestGrade;
+    private LocalDate latestDate;
+}
@@ -0,0 +1,14 @@
+package com.parentportal.student_performance_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionedDto<T> {
+
+    private T body;
+    private long version; // The student's content version the body was read at; the response ETag is built from it
+}
@@ -0,0 +1,33 @@
+package com.parentportal.student_performance_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Compact per-student, per-academic-year attendance: 2 bits per school day plus running counts
+@Entity
+@Table(name = "attendance_ledgers",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "academic_year"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceLedger {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(name = "academic_year", nullable = false)
+    private int academicYear; // Calendar year in which the academic year starts
+
+    @Column(nullable = false, length = 92)
+    private byte[] marks; // Day N of the academic year is stored in bits 2N..2N+1, see AttendanceBitmap
+
+    private int presentCount;
+    private int absentCount;
+    private int lateCount;
+}
@@ -0,0 +1,7 @@
+package com.parentportal.student_performance_service.entity;
+
+// Mirrors the matching values of NotificationType in the Notification Service
+public enum StudentEventType {
+    GRADE_UPDATE,
+    ATTENDANCE_ALERT
+}
@@ -0,0 +1,38 @@
+package com.parentportal.student_performance_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Running totals of one student's results in one subject for one academic year
+@Entity
+@Table(name = "subject_aggregates",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "academic_year", "subject"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubjectAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(name = "academic_year", nullable = false)
+    private int academicYear;
+
+    @Column(nullable = false)
+    private String subject;
+
+    private double scoreSum;
+    private int resultCount;
+    private double gradePointSum; // Sum of grade points for results with a recognised letter grade
+    private int gradedCount; // Number of results contributing to gradePointSum
+    private String latestGrade;
+    private LocalDate latestDate;
+}
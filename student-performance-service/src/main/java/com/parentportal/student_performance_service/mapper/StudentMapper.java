@@ -2,11 +2,13 @@ package com.parentportal.student_performance_service.mapper;
 
 import com.parentportal.student_performance_service.dto.StudentCreateDto;
 import com.parentportal.student_performance_service.dto.StudentDto;
+import com.parentportal.student_performance_service.dto.StudentSummaryDto;
 import com.parentportal.student_performance_service.dto.StudentUpdateDto;
 import com.parentportal.student_performance_service.entity.Student;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
+import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 
 import java.util.List;
@@ -18,6 +20,14 @@ public interface StudentMapper {
 
     StudentDto studentToStudentDto(Student student);
 
+    // Leaves the nested collections unset so they can be filled from batch queries
+    @Named("studentToStudentDtoWithoutRecords")
+    @Mapping(target = "results", ignore = true)
+    @Mapping(target = "attendanceRecords", ignore = true)
+    StudentDto studentToStudentDtoWithoutRecords(Student student);
+
+    StudentSummaryDto studentToStudentSummaryDto(Student student);
+
     @Mapping(target = "results", ignore = true) // Ignore nested collections for creation
     @Mapping(target = "attendanceRecords", ignore = true)
     Student studentCreateDtoToStudent(StudentCreateDto studentCreateDto);
@@ -28,4 +38,6 @@ public interface StudentMapper {
     void updateStudentFromDto(StudentUpdateDto studentUpdateDto, @MappingTarget Student student);
 
     List<StudentDto> studentListToStudentDtoList(List<Student> students);
+
+    List<StudentSummaryDto> studentListToStudentSummaryDtoList(List<Student> students);
 }
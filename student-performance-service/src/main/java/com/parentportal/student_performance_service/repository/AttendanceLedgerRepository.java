@@ -0,0 +1,35 @@
+package com.parentportal.student_performance_service.repository;
+
+import com.parentportal.student_performance_service.entity.AttendanceLedger;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AttendanceLedgerRepository extends JpaRepository<AttendanceLedger, Long> {
+    Optional<AttendanceLedger> findByStudentIdAndAcademicYear(Long studentId, int academicYear);
+    List<AttendanceLedger> findByStudentIdInAndAcademicYear(Collection<Long> studentIds, int academicYear);
+
+    // IDs only, so the non-locking read leaves no entity behind for the locking read to return stale
+    @Query("select l.studentId from AttendanceLedger l where l.academicYear = :academicYear and l.studentId in :studentIds")
+    List<Long> findStudentIdsWithLedger(@Param("studentIds") Collection<Long> studentIds,
+                                        @Param("academicYear") int academicYear);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from AttendanceLedger l where l.academicYear = :academicYear and l.studentId in :studentIds "
+            + "order by l.studentId")
+    List<AttendanceLedger> lockByStudentIdsAndAcademicYear(@Param("studentIds") Collection<Long> studentIds,
+                                                           @Param("academicYear") int academicYear);
+
+    @Modifying
+    @Query("delete from AttendanceLedger l where l.studentId = :studentId")
+    void deleteByStudentId(@Param("studentId") Long studentId);
+}
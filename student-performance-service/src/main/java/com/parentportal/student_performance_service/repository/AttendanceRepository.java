@@ -1,12 +1,32 @@
 package com.parentportal.student_performance_service.repository;
 
 import com.parentportal.student_performance_service.entity.Attendance;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
     List<Attendance> findByStudentId(Long studentId);
+    List<Attendance> findByStudentIdIn(Collection<Long> studentIds);
+    List<Attendance> findByStudentIdAndDateBetween(Long studentId, LocalDate from, LocalDate to);
+    List<Attendance> findByStudentIdInAndDateBetween(Collection<Long> studentIds, LocalDate from, LocalDate to);
+    Slice<Attendance> findByStudentIdAndDateBetween(Long studentId, LocalDate from, LocalDate to, Pageable pageable);
+    Slice<Attendance> findByStudentIdAndStatusAndDateBetween(Long studentId, AttendanceStatus status, LocalDate from,
+                                                             LocalDate to, Pageable pageable);
+    Optional<Attendance> findFirstByStudentIdAndDateOrderByIdDesc(Long studentId, LocalDate date);
+
+    @Modifying
+    @Query("delete from Attendance a where a.date = :date and a.student.id in :studentIds")
+    int deleteByDateAndStudentIdIn(@Param("date") LocalDate date, @Param("studentIds") Collection<Long> studentIds);
 }
@@ -1,12 +1,24 @@
 package com.parentportal.student_performance_service.repository;
 
 import com.parentportal.student_performance_service.entity.Result;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ResultRepository extends JpaRepository<Result, Long> {
     List<Result> findByStudentId(Long studentId);
+    List<Result> findByStudentIdIn(Collection<Long> studentIds);
+    // Filtered history, served by the (student_id, date) and (student_id, subject, date) indexes
+    Slice<Result> findByStudentIdAndDateBetween(Long studentId, LocalDate from, LocalDate to, Pageable pageable);
+    Slice<Result> findByStudentIdAndSubjectAndDateBetween(Long studentId, String subject, LocalDate from, LocalDate to,
+                                                          Pageable pageable);
+    Optional<Result> findFirstByStudentIdAndSubjectAndDateBetweenOrderByDateDescIdDesc(Long studentId, String subject,
+                                                                                       LocalDate from, LocalDate to);
 }
@@ -1,14 +1,49 @@
 package com.parentportal.student_performance_service.repository;
 
+import com.parentportal.student_performance_service.dto.StudentRecipientDto;
+import com.parentportal.student_performance_service.dto.StudentRefDto;
+import com.parentportal.student_performance_service.dto.StudentSummaryDto;
 import com.parentportal.student_performance_service.entity.Student;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
 @Repository
 public interface StudentRepository extends JpaRepository<Student, Long> {
     Optional<Student> findByStudentId(String studentId);
+
+    // Served from the query cache; any write to students invalidates it
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Student> findByParentUserId(Long parentUserId);
+
+    // Keyset page: only rows after the cursor, so the cost does not grow with the page number
+    @Query("select s from Student s where s.id > :afterId order by s.id asc")
+    List<Student> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset page of the list-view projection; no entities are loaded or kept in the persistence context
+    @Query("select new com.parentportal.student_performance_service.dto.StudentSummaryDto(s.id, s.firstName, s.lastName, "
+            + "s.studentId, s.parentUserId, s.cohort) from Student s where s.id > :afterId order by s.id asc")
+    List<StudentSummaryDto> findSummaryPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset page within one cohort, for exports that walk a whole class
+    @Query("select s from Student s where s.cohort = :cohort and s.id > :afterId order by s.id asc")
+    List<Student> findCohortPageAfter(@Param("cohort") String cohort, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.parentportal.student_performance_service.dto.StudentRefDto(s.id, s.parentUserId, s.studentId) "
+            + "from Student s where s.id in :ids")
+    List<StudentRefDto> findRefs(@Param("ids") Collection<Long> ids);
+
+    // Resolves which IDs exist and who to notify about them, without loading the entities
+    @Query("select new com.parentportal.student_performance_service.dto.StudentRecipientDto(s.id, s.firstName, s.parentUserId, s.cohort) "
+            + "from Student s where s.id in :ids")
+    List<StudentRecipientDto> findRecipients(@Param("ids") Collection<Long> ids);
 }
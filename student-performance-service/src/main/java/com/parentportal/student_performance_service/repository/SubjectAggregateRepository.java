@@ -0,0 +1,30 @@
+package com.parentportal.student_performance_service.repository;
+
+import com.parentportal.student_performance_service.entity.SubjectAggregate;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SubjectAggregateRepository extends JpaRepository<SubjectAggregate, Long> {
+    List<SubjectAggregate> findByStudentIdAndAcademicYearOrderBySubjectAsc(Long studentId, int academicYear);
+    List<SubjectAggregate> findByStudentIdInAndAcademicYearOrderBySubjectAsc(Collection<Long> studentIds, int academicYear);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from SubjectAggregate a where a.studentId = :studentId and a.academicYear = :academicYear and a.subject = :subject")
+    Optional<SubjectAggregate> lockOne(@Param("studentId") Long studentId,
+                                       @Param("academicYear") int academicYear,
+                                       @Param("subject") String subject);
+
+    @Modifying
+    @Query("delete from SubjectAggregate a where a.studentId = :studentId")
+    void deleteByStudentId(@Param("studentId") Long studentId);
+}
@@ -0,0 +1,11 @@
+package com.parentportal.student_performance_service.service;
+
+/**
+ * Thrown when an existing user does not have the role an operation requires.
+ */
+public class AccessDeniedException extends RuntimeException {
+
+    public AccessDeniedException(String message) {
+        super(message);
+    }
+}
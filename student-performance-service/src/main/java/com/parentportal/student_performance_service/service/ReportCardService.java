@@ -0,0 +1,13 @@
+package com.parentportal.student_performance_service.service;
+
+import com.parentportal.student_performance_service.dto.ReportCardFormat;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ReportCardService {
+    // Checked before the response starts, so a refused export still gets a proper status code
+    Mono<Void> verifyExporter(Long adminUserId);
+    void exportReportCards(String cohort, Integer academicYear, ReportCardFormat format, OutputStream output) throws IOException;
+}
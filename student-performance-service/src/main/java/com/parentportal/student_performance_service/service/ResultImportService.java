@@ -0,0 +1,11 @@
+package com.parentportal.student_performance_service.service;
+
+import com.parentportal.student_performance_service.dto.BulkImportReportDto;
+import reactor.core.publisher.Mono;
+
+import java.io.InputStream;
+
+public interface ResultImportService {
+    Mono<BulkImportReportDto> importResultsJson(Long adminUserId, InputStream input);
+    Mono<BulkImportReportDto> importResultsCsv(Long adminUserId, InputStream input);
+}
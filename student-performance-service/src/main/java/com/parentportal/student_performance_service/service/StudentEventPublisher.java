@@ -0,0 +1,9 @@
+package com.parentportal.student_performance_service.service;
+
+import com.parentportal.commons.outbox.OutboxPublisher;
+
+/**
+ * Sends relayed outbox events to the message broker, keyed by student ID.
+ */
+public interface StudentEventPublisher extends OutboxPublisher {
+}
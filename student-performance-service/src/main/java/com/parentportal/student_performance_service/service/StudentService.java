@@ -1,25 +1,47 @@
 package com.parentportal.student_performance_service.service;
 
 import com.parentportal.student_performance_service.dto.*;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StudentService {
+    // Writes verify the admin remotely and then write in a transaction; the returned Mono does both once subscribed
     // Student operations
-    StudentDto createStudent(Long adminUserId, StudentCreateDto studentCreateDto);
-    StudentDto getStudentById(Long id);
+    Mono<StudentDto> createStudent(Long adminUserId, StudentCreateDto studentCreateDto);
+    VersionedDto<StudentDto> getStudentById(Long id);
+    long getContentVersion(Long studentId);
     List<StudentDto> getAllStudents();
-    StudentDto updateStudent(Long adminUserId, Long id, StudentUpdateDto studentUpdateDto);
-    void deleteStudent(Long adminUserId, Long id);
+    CursorPageDto<StudentDto> getStudentsPage(Long afterId, int size);
+    void streamAllStudents(Consumer<StudentDto> consumer);
+    List<StudentSummaryDto> getAllStudentSummaries();
+    CursorPageDto<StudentSummaryDto> getStudentSummariesPage(Long afterId, int size);
+    Mono<StudentDto> updateStudent(Long adminUserId, Long id, StudentUpdateDto studentUpdateDto);
+    Mono<Void> deleteStudent(Long adminUserId, Long id);
     List<StudentDto> getStudentsByParentUserId(Long parentUserId);
+    List<StudentSummaryDto> getStudentSummariesByParentUserId(Long parentUserId);
+    StudentBatchResponseDto getStudentRefs(Collection<Long> ids);
+    List<StudentSearchHitDto> searchStudents(String query, int limit);
 
-    ResultDto addResultToStudent(Long adminUserId, Long studentId, ResultCreateDto resultCreateDto);
-    List<ResultDto> getResultsByStudentId(Long studentId);
+    Mono<ResultDto> addResultToStudent(Long adminUserId, Long studentId, ResultCreateDto resultCreateDto);
+    VersionedDto<List<ResultDto>> getResultsByStudentId(Long studentId);
+    SlicePageDto<ResultDto> searchResults(Long studentId, String subject, LocalDate from, LocalDate to,
+                                          Integer academicYear, int page, int size);
     ResultDto getResultById(Long resultId);
-    void deleteResult(Long adminUserId, Long resultId);
+    Mono<Void> deleteResult(Long adminUserId, Long resultId);
 
-    AttendanceDto addAttendanceToStudent(Long adminUserId, Long studentId, AttendanceCreateDto attendanceCreateDto);
-    List<AttendanceDto> getAttendanceByStudentId(Long studentId);
+    Mono<AttendanceDto> addAttendanceToStudent(Long adminUserId, Long studentId, AttendanceCreateDto attendanceCreateDto);
+    VersionedDto<List<AttendanceDto>> getAttendanceByStudentId(Long studentId);
+    SlicePageDto<AttendanceDto> searchAttendance(Long studentId, AttendanceStatus status, LocalDate from, LocalDate to,
+                                                 Integer academicYear, int page, int size);
     AttendanceDto getAttendanceById(Long attendanceId);
-    void deleteAttendance(Long adminUserId, Long attendanceId);
+    Mono<Void> deleteAttendance(Long adminUserId, Long attendanceId);
+    Mono<RollCallReportDto> recordRollCall(Long adminUserId, RollCallDto rollCallDto);
+    AttendanceStatsDto getAttendanceStats(Long studentId, Integer academicYear);
+    PerformanceSummaryDto getPerformanceSummary(Long studentId, Integer academicYear);
+    ClassRankingDto getClassRanking(String cohort, String subject, Integer academicYear, int buckets);
 }
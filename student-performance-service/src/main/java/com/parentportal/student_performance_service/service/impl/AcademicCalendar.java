@@ -0,0 +1,44 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Maps dates onto academic years. An academic year is identified by the calendar year in which it starts,
+ * e.g. with the default September 1 start, 2024 covers 09-01-2024 to 08-31-2025.
+ */
+@Component
+public class AcademicCalendar {
+
+    private final MonthDay yearStart;
+
+    public AcademicCalendar(@Value("${student-performance.academic-year.start-month:9}") int startMonth,
+                            @Value("${student-performance.academic-year.start-day:1}") int startDay) {
+        this.yearStart = MonthDay.of(startMonth, startDay);
+    }
+
+    public int academicYearOf(LocalDate date) {
+        return MonthDay.from(date).isBefore(yearStart) ? date.getYear() - 1 : date.getYear();
+    }
+
+    public int currentAcademicYear() {
+        return academicYearOf(LocalDate.now());
+    }
+
+    public LocalDate startOf(int academicYear) {
+        return yearStart.atYear(academicYear);
+    }
+
+    public LocalDate endOf(int academicYear) {
+        return startOf(academicYear + 1).minusDays(1);
+    }
+
+    // Zero-based day offset of the date within its academic year (0..365)
+    public int dayOfAcademicYear(LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(startOf(academicYearOf(date)), date);
+    }
+}
@@ -0,0 +1,246 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.AttendanceDto;
+import com.parentportal.student_performance_service.dto.ResultDto;
+import com.parentportal.student_performance_service.entity.Attendance;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import com.parentportal.student_performance_service.entity.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Moves results and attendance of closed academic years out of the hot tables into results_archive and
+ * attendance_archive, so the hot tables and their indexes stay sized to the years still being worked on.
+ * The current academic year and the configured number of years before it stay hot; older rows are moved
+ * by a nightly job in ID-ordered chunks, each chunk copied and deleted in one transaction.
+ * Archived rows keep their IDs and are read back here, by the same (student_id, date) index shape, for
+ * history queries that reach before the archive horizon, and merged into every full student history.
+ * Aggregates and ledgers are per year and unaffected by the move. Closed years are read-only, archived or not:
+ * their aggregates and ledgers are final, so writes dated in them are refused (see {@link #requireOpenYear}).
+ */
+@Slf4j
+@Component
+public class AcademicYearArchive {
+
+    private static final String RESULT_COLUMNS = "id, subject, grade, score, date, student_id";
+    private static final String ATTENDANCE_COLUMNS = "id, date, status, reason, student_id";
+    private static final RowMapper<ResultDto> RESULT_ROW = (rs, rowNum) -> new ResultDto(rs.getLong("id"),
+            rs.getString("subject"), rs.getString("grade"), rs.getObject("score", Double.class),
+            rs.getObject("date", LocalDate.class), rs.getLong("student_id"));
+    private static final RowMapper<AttendanceDto> ATTENDANCE_ROW = (rs, rowNum) -> new AttendanceDto(rs.getLong("id"),
+            rs.getObject("date", LocalDate.class),
+            rs.getString("status") == null ? null : AttendanceStatus.valueOf(rs.getString("status")),
+            rs.getString("reason"), rs.getLong("student_id"));
+
+    private record MovedChunk(long lastId, int rows) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AcademicCalendar academicCalendar;
+    private final SecondLevelCache secondLevelCache;
+    private final StudentVersions studentVersions;
+    private final int closedYearsKeptHot;
+    private final int chunkSize;
+
+    public AcademicYearArchive(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               AcademicCalendar academicCalendar,
+                               SecondLevelCache secondLevelCache,
+                               StudentVersions studentVersions,
+                               @Value("${student-performance.archive.closed-years-kept-hot:1}") int closedYearsKeptHot,
+                               @Value("${student-performance.archive.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.academicCalendar = academicCalendar;
+        this.secondLevelCache = secondLevelCache;
+        this.studentVersions = studentVersions;
+        this.closedYearsKeptHot = closedYearsKeptHot;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * First day still kept hot. Archived rows are all dated before it, so reads starting on or after it
+     * never need the archive. Rows before it may still be hot until the next run moves them.
+     */
+    public LocalDate horizon() {
+        return academicCalendar.startOf(academicCalendar.currentAcademicYear() - closedYearsKeptHot);
+    }
+
+    public boolean reachesArchive(LocalDate from) {
+        return from.isBefore(horizon());
+    }
+
+    public boolean inClosedYear(LocalDate date) {
+        return academicCalendar.academicYearOf(date) < academicCalendar.currentAcademicYear();
+    }
+
+    /**
+     * @throws IllegalStateException if the date falls in a closed academic year, which is read-only.
+     */
+    public void requireOpenYear(LocalDate date) {
+        if (inClosedYear(date)) {
+            throw new IllegalStateException("Academic year " + academicCalendar.academicYearOf(date)
+                    + " is closed and read-only");
+        }
+    }
+
+    @Scheduled(cron = "${student-performance.archive.cron:0 30 2 * * *}")
+    public void archiveClosedYears() {
+        LocalDate horizon = horizon();
+        try {
+            long results = archive("results", "results_archive", RESULT_COLUMNS, horizon, true);
+            long attendance = archive("attendance", "attendance_archive", ATTENDANCE_COLUMNS, horizon, false);
+            if (results + attendance > 0) {
+                log.info("Archived {} results and {} attendance records dated before {}", results, attendance, horizon);
+            }
+        } catch (DataAccessException e) {
+            // Chunks already moved stay moved; the next run continues from the remaining rows
+            log.warn("Archiving closed academic years failed, will retry on the next run: {}",
+                    e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private long archive(String table, String archiveTable, String columns, LocalDate horizon, boolean results) {
+        long afterId = 0;
+        long moved = 0;
+        while (true) {
+            long from = afterId;
+            MovedChunk chunk = transactionTemplate.execute(status ->
+                    moveChunk(table, archiveTable, columns, horizon, from, results));
+            if (chunk == null || chunk.rows() == 0) {
+                return moved;
+            }
+            moved += chunk.rows();
+            afterId = chunk.lastId();
+        }
+    }
+
+    // Locks the next chunk of rows dated before the horizon, copies it and deletes it, all by ID range
+    private MovedChunk moveChunk(String table, String archiveTable, String columns, LocalDate horizon, long afterId,
+                                 boolean results) {
+        Set<Long> studentIds = new HashSet<>();
+        List<Long> ids = new ArrayList<>(chunkSize);
+        jdbcTemplate.query("SELECT id, student_id FROM " + table + " WHERE id > ? AND date < ? ORDER BY id LIMIT ? FOR UPDATE",
+                rs -> {
+                    ids.add(rs.getLong("id"));
+                    studentIds.add(rs.getLong("student_id"));
+                }, afterId, Date.valueOf(horizon), chunkSize);
+        if (ids.isEmpty()) {
+            return new MovedChunk(afterId, 0);
+        }
+        long lastId = ids.get(ids.size() - 1);
+        jdbcTemplate.update("INSERT INTO " + archiveTable + " (" + columns + ") SELECT " + columns + " FROM " + table
+                + " WHERE id > ? AND id <= ? AND date < ?", afterId, lastId, Date.valueOf(horizon));
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE id > ? AND id <= ? AND date < ?",
+                afterId, lastId, Date.valueOf(horizon));
+
+        // The rows left through JDBC: drop them from the second-level cache and revalidate the students' ETags
+        if (results) {
+            secondLevelCache.evictResultsAfterCommit(studentIds);
+            secondLevelCache.evictEntitiesAfterCommit(Result.class, ids);
+        } else {
+            secondLevelCache.evictAttendanceAfterCommit(studentIds);
+            secondLevelCache.evictEntitiesAfterCommit(Attendance.class, ids);
+        }
+        studentVersions.bump(studentIds);
+        return new MovedChunk(lastId, ids.size());
+    }
+
+    public List<ResultDto> results(Long studentId) {
+        return jdbcTemplate.query("SELECT " + RESULT_COLUMNS + " FROM results_archive WHERE student_id = ? ORDER BY date, id",
+                RESULT_ROW, studentId);
+    }
+
+    /**
+     * Archived results of several students in one query, oldest first per student; students without any are absent.
+     */
+    public Map<Long, List<ResultDto>> resultsByStudent(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return Map.of();
+        }
+        return jdbcTemplate.query("SELECT " + RESULT_COLUMNS + " FROM results_archive WHERE student_id IN ("
+                        + placeholders(studentIds.size()) + ") ORDER BY student_id, date, id",
+                RESULT_ROW, studentIds.toArray()).stream()
+                .collect(Collectors.groupingBy(ResultDto::getStudentId));
+    }
+
+    /**
+     * Archived results of a student in the date range, newest first, at most limit rows.
+     */
+    public List<ResultDto> results(Long studentId, String subject, LocalDate from, LocalDate to, int limit) {
+        if (subject == null) {
+            return jdbcTemplate.query("SELECT " + RESULT_COLUMNS + " FROM results_archive "
+                            + "WHERE student_id = ? AND date BETWEEN ? AND ? ORDER BY date DESC, id DESC LIMIT ?",
+                    RESULT_ROW, studentId, Date.valueOf(from), Date.valueOf(to), limit);
+        }
+        return jdbcTemplate.query("SELECT " + RESULT_COLUMNS + " FROM results_archive "
+                        + "WHERE student_id = ? AND subject = ? AND date BETWEEN ? AND ? ORDER BY date DESC, id DESC LIMIT ?",
+                RESULT_ROW, studentId, subject, Date.valueOf(from), Date.valueOf(to), limit);
+    }
+
+    public Optional<ResultDto> result(Long resultId) {
+        return jdbcTemplate.query("SELECT " + RESULT_COLUMNS + " FROM results_archive WHERE id = ?", RESULT_ROW, resultId)
+                .stream().findFirst();
+    }
+
+    public List<AttendanceDto> attendance(Long studentId) {
+        return jdbcTemplate.query("SELECT " + ATTENDANCE_COLUMNS + " FROM attendance_archive WHERE student_id = ? ORDER BY date, id",
+                ATTENDANCE_ROW, studentId);
+    }
+
+    /**
+     * Archived attendance of several students in one query, oldest first per student; students without any are absent.
+     */
+    public Map<Long, List<AttendanceDto>> attendanceByStudent(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return Map.of();
+        }
+        return jdbcTemplate.query("SELECT " + ATTENDANCE_COLUMNS + " FROM attendance_archive WHERE student_id IN ("
+                        + placeholders(studentIds.size()) + ") ORDER BY student_id, date, id",
+                ATTENDANCE_ROW, studentIds.toArray()).stream()
+                .collect(Collectors.groupingBy(AttendanceDto::getStudentId));
+    }
+
+    /**
+     * Archived attendance records of a student in the date range, newest first, at most limit rows.
+     */
+    public List<AttendanceDto> attendance(Long studentId, AttendanceStatus status, LocalDate from, LocalDate to,
+                                          int limit) {
+        if (status == null) {
+            return jdbcTemplate.query("SELECT " + ATTENDANCE_COLUMNS + " FROM attendance_archive "
+                            + "WHERE student_id = ? AND date BETWEEN ? AND ? ORDER BY date DESC, id DESC LIMIT ?",
+                    ATTENDANCE_ROW, studentId, Date.valueOf(from), Date.valueOf(to), limit);
+        }
+        return jdbcTemplate.query("SELECT " + ATTENDANCE_COLUMNS + " FROM attendance_archive "
+                        + "WHERE student_id = ? AND status = ? AND date BETWEEN ? AND ? ORDER BY date DESC, id DESC LIMIT ?",
+                ATTENDANCE_ROW, studentId, status.name(), Date.valueOf(from), Date.valueOf(to), limit);
+    }
+
+    public Optional<AttendanceDto> attendanceRecord(Long attendanceId) {
+        return jdbcTemplate.query("SELECT " + ATTENDANCE_COLUMNS + " FROM attendance_archive WHERE id = ?",
+                ATTENDANCE_ROW, attendanceId).stream().findFirst();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
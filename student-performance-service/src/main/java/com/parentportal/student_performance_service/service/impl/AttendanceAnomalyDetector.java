@@ -0,0 +1,208 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.StudentEventDto;
+import com.parentportal.student_performance_service.dto.StudentRecipientDto;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import com.parentportal.student_performance_service.entity.StudentEventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raises ATTENDANCE_ALERT events when a student is absent several school days in a row, or late more
+ * than a limit within a rolling window of recorded school days.
+ * Each student's window is one row of attendance_detector_windows, advanced one mark at a time, so attendance
+ * writes and roll calls never rescan attendance history. An alert fires when an episode starts and not
+ * again until the episode has ended: a present or late day ends an absence run, and a late episode ends
+ * once the window's late count falls back to the limit.
+ * Windows are read and written in the transaction that stores the marks, while it holds the students'
+ * attendance ledger locks, so every instance sees the same windows and a rollback leaves them untouched.
+ * Marks dated before a student's latest marked day are outside the window and do not move it;
+ * a day marked again (e.g. a repeated roll call) replaces that day's earlier mark. A deleted record
+ * rebuilds the student's window from the records that remain.
+ */
+@Component
+public class AttendanceAnomalyDetector {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final int MAX_LATE_WINDOW = 62;
+    private static final String SELECT_WINDOWS_SQL = "SELECT student_id, last_date, last_status, absent_streak_before, "
+            + "absent_streak, late_history, absence_alerted, late_alerted FROM attendance_detector_windows WHERE student_id IN (";
+    private static final String UPSERT_WINDOW_SQL = "INSERT INTO attendance_detector_windows "
+            + "(student_id, last_date, last_status, absent_streak_before, absent_streak, late_history, absence_alerted, late_alerted) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE last_date = VALUES(last_date), "
+            + "last_status = VALUES(last_status), absent_streak_before = VALUES(absent_streak_before), "
+            + "absent_streak = VALUES(absent_streak), late_history = VALUES(late_history), "
+            + "absence_alerted = VALUES(absence_alerted), late_alerted = VALUES(late_alerted)";
+    private static final String DELETE_WINDOW_SQL = "DELETE FROM attendance_detector_windows WHERE student_id = ?";
+    private static final String STUDENT_MARKS_SQL = "SELECT date, status FROM attendance "
+            + "WHERE student_id = ? AND status IS NOT NULL ORDER BY date, id";
+
+    record WindowState(LocalDate lastDate, AttendanceStatus lastStatus, int absentStreakBefore, int absentStreak,
+                       long lateHistory, boolean absenceAlerted, boolean lateAlerted) {
+    }
+
+    private static final RowMapper<WindowState> WINDOW_ROW = (rs, rowNum) -> new WindowState(
+            rs.getDate("last_date").toLocalDate(), AttendanceStatus.valueOf(rs.getString("last_status")),
+            rs.getInt("absent_streak_before"), rs.getInt("absent_streak"), rs.getLong("late_history"),
+            rs.getBoolean("absence_alerted"), rs.getBoolean("late_alerted"));
+
+    private final StudentEventOutbox studentEventOutbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final int absenceStreak;
+    private final int lateLimit;
+    private final int lateWindow;
+    private final long lateWindowMask;
+
+    public AttendanceAnomalyDetector(StudentEventOutbox studentEventOutbox,
+                                     JdbcTemplate jdbcTemplate,
+                                     @Value("${student-performance.attendance-alerts.absence-streak:3}") int absenceStreak,
+                                     @Value("${student-performance.attendance-alerts.late-limit:2}") int lateLimit,
+                                     @Value("${student-performance.attendance-alerts.late-window:10}") int lateWindow) {
+        if (lateWindow < 1 || lateWindow > MAX_LATE_WINDOW) {
+            throw new IllegalArgumentException("Late window must be between 1 and " + MAX_LATE_WINDOW + " days");
+        }
+        this.studentEventOutbox = studentEventOutbox;
+        this.jdbcTemplate = jdbcTemplate;
+        this.absenceStreak = absenceStreak;
+        this.lateLimit = lateLimit;
+        this.lateWindow = lateWindow;
+        this.lateWindowMask = (1L << lateWindow) - 1;
+    }
+
+    public void onMark(StudentRecipientDto student, LocalDate date, AttendanceStatus status) {
+        onMarks(date, Map.of(student.getId(), status), Map.of(student.getId(), student));
+    }
+
+    /**
+     * Folds one day's marks into the students' windows and appends an alert for every episode that starts.
+     * Must run inside the transaction that stores the marks, after their attendance ledgers were locked,
+     * so writes for the same student are serialized.
+     * @param marks The status recorded per student ID.
+     * @param recipients The students of the marks, by ID.
+     */
+    public void onMarks(LocalDate date, Map<Long, AttendanceStatus> marks, Map<Long, StudentRecipientDto> recipients) {
+        if (marks.isEmpty()) {
+            return;
+        }
+        Map<Long, WindowState> current = load(marks.keySet());
+        Map<Long, WindowState> changed = new HashMap<>();
+        List<StudentEventDto> alerts = new ArrayList<>();
+        marks.forEach((studentId, status) -> {
+            WindowState before = current.get(studentId);
+            WindowState next = advance(before, date, status);
+            if (next == null) {
+                return;
+            }
+            changed.put(studentId, next);
+
+            StudentRecipientDto student = recipients.get(studentId);
+            boolean absenceStarted = next.absenceAlerted() && (before == null || !before.absenceAlerted());
+            boolean lateStarted = next.lateAlerted() && (before == null || !before.lateAlerted());
+            if (absenceStarted) {
+                alerts.add(studentEventOutbox.newEvent(StudentEventType.ATTENDANCE_ALERT, student,
+                        String.format("%s has been absent %d school days in a row (as of %s).",
+                                student.getFirstName(), next.absentStreak(), date.format(DATE_FORMAT)), null));
+            }
+            if (lateStarted) {
+                alerts.add(studentEventOutbox.newEvent(StudentEventType.ATTENDANCE_ALERT, student,
+                        String.format("%s has been late %d times in the last %d school days (as of %s).",
+                                student.getFirstName(), lateCount(next), lateWindow, date.format(DATE_FORMAT)), null));
+            }
+        });
+        store(changed);
+        studentEventOutbox.append(alerts);
+    }
+
+    /**
+     * Rebuilds a student's window from the attendance records still stored, e.g. after one was deleted.
+     * Raises no alerts; an episode the deletion ended can alert again when it recurs.
+     * Must run inside the deleting transaction, after the student's attendance ledger was locked.
+     */
+    public void rebuild(Long studentId) {
+        WindowState[] window = {null};
+        jdbcTemplate.query(STUDENT_MARKS_SQL, rs -> {
+            WindowState next = advance(window[0], rs.getDate("date").toLocalDate(),
+                    AttendanceStatus.valueOf(rs.getString("status")));
+            if (next != null) {
+                window[0] = next;
+            }
+        }, studentId);
+        if (window[0] == null) {
+            jdbcTemplate.update(DELETE_WINDOW_SQL, studentId);
+        } else {
+            store(Map.of(studentId, window[0]));
+        }
+    }
+
+    /**
+     * Drops a deleted student's window. Must run inside the transaction deleting the student.
+     */
+    public void forget(Long studentId) {
+        jdbcTemplate.update(DELETE_WINDOW_SQL, studentId);
+    }
+
+    // Returns null if the mark is older than the window and leaves it unchanged
+    WindowState advance(WindowState current, LocalDate date, AttendanceStatus status) {
+        int streakBefore = 0;
+        long history = 0L;
+        if (current != null) {
+            if (date.isBefore(current.lastDate())) {
+                return null;
+            }
+            boolean sameDay = date.equals(current.lastDate());
+            // A re-marked day starts again from the window as it was before that day
+            streakBefore = sameDay ? current.absentStreakBefore() : current.absentStreak();
+            history = sameDay ? current.lateHistory() >>> 1 : current.lateHistory();
+        }
+        int streak = status == AttendanceStatus.ABSENT ? streakBefore + 1 : 0;
+        history = (history << 1) | (status == AttendanceStatus.LATE ? 1L : 0L);
+        int lates = Long.bitCount(history & lateWindowMask);
+        // A flag stays set for the whole episode; onMarks alerts only when it flips on
+        return new WindowState(date, status, streakBefore, streak, history,
+                streak >= absenceStreak, lates > lateLimit);
+    }
+
+    private int lateCount(WindowState state) {
+        return Long.bitCount(state.lateHistory() & lateWindowMask);
+    }
+
+    private Map<Long, WindowState> load(Collection<Long> studentIds) {
+        List<Long> ids = List.copyOf(studentIds);
+        Map<Long, WindowState> windows = new HashMap<>();
+        jdbcTemplate.query(SELECT_WINDOWS_SQL + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")",
+                rs -> {
+                    windows.put(rs.getLong("student_id"), WINDOW_ROW.mapRow(rs, 0));
+                }, ids.toArray());
+        return windows;
+    }
+
+    private void store(Map<Long, WindowState> windows) {
+        if (windows.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, WindowState>> rows = new ArrayList<>(windows.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_WINDOW_SQL, rows, rows.size(), (ps, entry) -> {
+            WindowState state = entry.getValue();
+            ps.setLong(1, entry.getKey());
+            ps.setDate(2, Date.valueOf(state.lastDate()));
+            ps.setString(3, state.lastStatus().name());
+            ps.setInt(4, state.absentStreakBefore());
+            ps.setInt(5, state.absentStreak());
+            ps.setLong(6, state.lateHistory());
+            ps.setBoolean(7, state.absenceAlerted());
+            ps.setBoolean(8, state.lateAlerted());
+        });
+    }
+}
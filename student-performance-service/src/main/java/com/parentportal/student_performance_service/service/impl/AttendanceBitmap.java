@@ -0,0 +1,54 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+
+/**
+ * Two-bit-per-day encoding of one academic year of attendance marks.
+ * 00 = no mark, 01 = PRESENT, 10 = ABSENT, 11 = LATE. Pairs never straddle a byte boundary.
+ */
+public final class AttendanceBitmap {
+
+    public static final int DAYS_PER_YEAR = 366;
+    public static final int BYTES_PER_YEAR = (DAYS_PER_YEAR * 2 + 7) / 8;
+
+    private AttendanceBitmap() {
+    }
+
+    public static byte[] empty() {
+        return new byte[BYTES_PER_YEAR];
+    }
+
+    public static AttendanceStatus get(byte[] marks, int day) {
+        int bit = day * 2;
+        int code = (marks[bit >>> 3] >>> (bit & 7)) & 0b11;
+        return decode(code);
+    }
+
+    public static void set(byte[] marks, int day, AttendanceStatus status) {
+        int bit = day * 2;
+        int index = bit >>> 3;
+        int shift = bit & 7;
+        int cleared = marks[index] & ~(0b11 << shift);
+        marks[index] = (byte) (cleared | (encode(status) << shift));
+    }
+
+    private static int encode(AttendanceStatus status) {
+        if (status == null) {
+            return 0;
+        }
+        return switch (status) {
+            case PRESENT -> 1;
+            case ABSENT -> 2;
+            case LATE -> 3;
+        };
+    }
+
+    private static AttendanceStatus decode(int code) {
+        return switch (code) {
+            case 1 -> AttendanceStatus.PRESENT;
+            case 2 -> AttendanceStatus.ABSENT;
+            case 3 -> AttendanceStatus.LATE;
+            default -> null;
+        };
+    }
+}
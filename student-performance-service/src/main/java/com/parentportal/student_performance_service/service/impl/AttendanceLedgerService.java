@@ -0,0 +1,183 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.AttendanceStatsDto;
+import com.parentportal.student_performance_service.entity.Attendance;
+import com.parentportal.student_performance_service.entity.AttendanceLedger;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import com.parentportal.student_performance_service.repository.AttendanceLedgerRepository;
+import com.parentportal.student_performance_service.repository.AttendanceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the per-student, per-academic-year attendance ledgers in step with the attendance records.
+ * Write methods must be called inside the caller's transaction; ledgers are row-locked while updated.
+ * A student's first ledger of a year is seeded from the attendance already stored for that year, so marks
+ * recorded before the ledger existed are counted too.
+ */
+@Component
+@RequiredArgsConstructor
+public class AttendanceLedgerService {
+
+    // A concurrent first mark for the same student and year may have inserted the row already; that one is kept
+    private static final String SEED_LEDGER_SQL = "INSERT IGNORE INTO attendance_ledgers "
+            + "(student_id, academic_year, marks, present_count, absent_count, late_count) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final AttendanceLedgerRepository attendanceLedgerRepository;
+    private final AttendanceRepository attendanceRepository;
+    private final AcademicCalendar academicCalendar;
+    private final JdbcTemplate jdbcTemplate;
+
+    public void record(Long studentId, LocalDate date, AttendanceStatus status) {
+        recordAll(Map.of(studentId, status), date);
+    }
+
+    /**
+     * Sets one day's mark for many students with a single locking read of their ledgers.
+     * @param marks The status to record per student ID.
+     * @param date The school day being marked.
+     */
+    public void recordAll(Map<Long, AttendanceStatus> marks, LocalDate date) {
+        if (marks.isEmpty()) {
+            return;
+        }
+        int academicYear = academicCalendar.academicYearOf(date);
+        int day = academicCalendar.dayOfAcademicYear(date);
+        Map<Long, AttendanceLedger> ledgers = lockLedgers(marks, academicYear);
+        marks.forEach((studentId, status) -> apply(ledgers.get(studentId), day, status));
+        attendanceLedgerRepository.saveAll(ledgers.values());
+    }
+
+    /**
+     * Re-derives one day's mark from the attendance records still stored for it, e.g. after a record was deleted.
+     */
+    public void recalculateDay(Long studentId, LocalDate date) {
+        AttendanceStatus status = attendanceRepository.findFirstByStudentIdAndDateOrderByIdDesc(studentId, date)
+                .map(Attendance::getStatus)
+                .orElse(null);
+        Map<Long, AttendanceStatus> marks = new HashMap<>();
+        marks.put(studentId, status);
+        recordAll(marks, date);
+    }
+
+    public void deleteLedgers(Long studentId) {
+        attendanceLedgerRepository.deleteByStudentId(studentId);
+    }
+
+    /**
+     * Computes attendance rate and streaks for one academic year from a single ledger row.
+     * Students whose attendance predates the ledgers are summarised from their records instead.
+     */
+    public AttendanceStatsDto stats(Long studentId, int academicYear) {
+        AttendanceLedger ledger = attendanceLedgerRepository.findByStudentIdAndAcademicYear(studentId, academicYear)
+                .orElseGet(() -> ledgerFromRecords(studentId, academicYear));
+
+        int recorded = ledger.getPresentCount() + ledger.getAbsentCount() + ledger.getLateCount();
+        int longestAttended = 0;
+        int attendedRun = 0;
+        int absentRun = 0;
+        for (int day = 0; day < AttendanceBitmap.DAYS_PER_YEAR; day++) {
+            AttendanceStatus status = AttendanceBitmap.get(ledger.getMarks(), day);
+            if (status == null) {
+                continue; // Weekends and holidays carry no mark and do not break a streak
+            }
+            if (status == AttendanceStatus.ABSENT) {
+                absentRun++;
+                attendedRun = 0;
+            } else {
+                attendedRun++;
+                absentRun = 0;
+                longestAttended = Math.max(longestAttended, attendedRun);
+            }
+        }
+        double rate = recorded == 0 ? 0.0 : (double) (ledger.getPresentCount() + ledger.getLateCount()) / recorded;
+        return new AttendanceStatsDto(studentId, academicYear, ledger.getPresentCount(), ledger.getAbsentCount(),
+                ledger.getLateCount(), recorded, rate, attendedRun, absentRun, longestAttended);
+    }
+
+    private Map<Long, AttendanceLedger> lockLedgers(Map<Long, AttendanceStatus> marks, int academicYear) {
+        // Missing ledgers are seeded before any lock is taken: a locking read that finds no row takes a gap lock,
+        // and two first marks whose gap locks each block the other's seed insert deadlock. Seeds go in student
+        // ID order, and a concurrent writer's seed is kept; re-applying a mark the seed already holds is a no-op.
+        Set<Long> seeded = new HashSet<>(attendanceLedgerRepository.findStudentIdsWithLedger(marks.keySet(), academicYear));
+        List<Long> missing = marks.keySet().stream().filter(studentId -> !seeded.contains(studentId)).sorted().toList();
+        if (!missing.isEmpty()) {
+            List<AttendanceLedger> seeds = ledgersFromRecords(missing, academicYear);
+            jdbcTemplate.batchUpdate(SEED_LEDGER_SQL, seeds, seeds.size(), (ps, seed) -> {
+                ps.setLong(1, seed.getStudentId());
+                ps.setInt(2, seed.getAcademicYear());
+                ps.setBytes(3, seed.getMarks());
+                ps.setInt(4, seed.getPresentCount());
+                ps.setInt(5, seed.getAbsentCount());
+                ps.setInt(6, seed.getLateCount());
+            });
+        }
+        // Every row exists now, so the locking read takes record locks only, in student ID order
+        return lock(marks.keySet(), academicYear);
+    }
+
+    private Map<Long, AttendanceLedger> lock(Collection<Long> studentIds, int academicYear) {
+        Map<Long, AttendanceLedger> ledgers = new HashMap<>();
+        for (AttendanceLedger ledger : attendanceLedgerRepository.lockByStudentIdsAndAcademicYear(studentIds, academicYear)) {
+            ledgers.put(ledger.getStudentId(), ledger);
+        }
+        return ledgers;
+    }
+
+    private AttendanceLedger ledgerFromRecords(Long studentId, int academicYear) {
+        return ledgersFromRecords(List.of(studentId), academicYear).get(0);
+    }
+
+    // One ledger per student, in the given order, built from the stored records of the academic year
+    private List<AttendanceLedger> ledgersFromRecords(List<Long> studentIds, int academicYear) {
+        Map<Long, AttendanceLedger> ledgers = new HashMap<>();
+        studentIds.forEach(studentId -> ledgers.put(studentId, newLedger(studentId, academicYear)));
+        List<Attendance> records = attendanceRepository.findByStudentIdInAndDateBetween(studentIds,
+                academicCalendar.startOf(academicYear), academicCalendar.endOf(academicYear)).stream()
+                .sorted(Comparator.comparing(Attendance::getId))
+                .toList();
+        for (Attendance attendance : records) {
+            apply(ledgers.get(attendance.getStudent().getId()), academicCalendar.dayOfAcademicYear(attendance.getDate()),
+                    attendance.getStatus());
+        }
+        List<AttendanceLedger> ordered = new ArrayList<>();
+        studentIds.forEach(studentId -> ordered.add(ledgers.get(studentId)));
+        return ordered;
+    }
+
+    private AttendanceLedger newLedger(Long studentId, int academicYear) {
+        return new AttendanceLedger(null, studentId, academicYear, AttendanceBitmap.empty(), 0, 0, 0);
+    }
+
+    private void apply(AttendanceLedger ledger, int day, AttendanceStatus status) {
+        AttendanceStatus previous = AttendanceBitmap.get(ledger.getMarks(), day);
+        if (previous == status) {
+            return;
+        }
+        adjustCount(ledger, previous, -1);
+        adjustCount(ledger, status, 1);
+        AttendanceBitmap.set(ledger.getMarks(), day, status);
+    }
+
+    private void adjustCount(AttendanceLedger ledger, AttendanceStatus status, int delta) {
+        if (status == null) {
+            return;
+        }
+        switch (status) {
+            case PRESENT -> ledger.setPresentCount(ledger.getPresentCount() + delta);
+            case ABSENT -> ledger.setAbsentCount(ledger.getAbsentCount() + delta);
+            case LATE -> ledger.setLateCount(ledger.getLateCount() + delta);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.parentportal.student_performance_service.dto.ClassRankingDto;
+import com.parentportal.student_performance_service.dto.HistogramBucketDto;
+import com.parentportal.student_performance_service.dto.RankingEntryDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Ranks a cohort in one subject and academic year by each student's average score.
+ * Scores are streamed from the subject aggregates with a single query into primitive arrays; ranks,
+ * percentiles and the histogram are then computed with fork-join tasks over index ranges.
+ * Results are cached per cohort, subject, year and bucket count until a result write touches the cohort,
+ * and for at most the TTL, which bounds how long a write on another instance goes unseen.
+ */
+@Component
+public class ClassRankingEngine {
+
+    public static final int MAX_BUCKETS = 100;
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int FETCH_SIZE = 1000;
+    private static final String COHORT_SCORES_SQL = "SELECT a.student_id, a.score_sum / a.result_count AS score "
+            + "FROM subject_aggregates a JOIN students s ON s.id = a.student_id "
+            + "WHERE s.cohort = ? AND a.subject = ? AND a.academic_year = ? AND a.result_count > 0";
+
+    // Cohort and subject are lower-cased, matching the case-insensitive collation used by the query
+    private record RankingKey(String cohort, String subject, int academicYear, int buckets) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<RankingKey, ClassRankingDto> rankings;
+    // Per lower-cased cohort, bumped by every invalidation; one small counter per cohort ever ranked or written
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public ClassRankingEngine(JdbcTemplate jdbcTemplate,
+                              @Value("${student-performance.rankings.cache-max-size:500}") long cacheMaxSize,
+                              @Value("${student-performance.rankings.cache-ttl:PT10M}") Duration cacheTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rankings = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    public ClassRankingDto ranking(String cohort, String subject, int academicYear, int buckets) {
+        if (buckets < 1 || buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Bucket count must be between 1 and " + MAX_BUCKETS);
+        }
+        RankingKey key = new RankingKey(cohort.toLowerCase(Locale.ROOT), subject.toLowerCase(Locale.ROOT),
+                academicYear, buckets);
+        ClassRankingDto cached = rankings.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        AtomicLong generation = generation(key.cohort());
+        long computedAt = generation.get();
+        ClassRankingDto ranking = compute(cohort, subject, academicYear, buckets);
+        // Stored only if no write to the cohort was committed since the computation started: such a write may
+        // not be in the scores read above. The check runs under the entry's lock, so an eviction that bumps the
+        // generation either removes the stored entry afterwards or makes the check fail.
+        rankings.asMap().compute(key, (k, current) -> generation.get() == computedAt ? ranking : current);
+        return ranking;
+    }
+
+    /**
+     * Drops cached rankings of the given cohorts once the current transaction commits
+     * (immediately when called outside a transaction). Null cohorts are ignored.
+     */
+    public void invalidateCohorts(Collection<String> cohorts) {
+        Set<String> keys = cohorts.stream()
+                .filter(Objects::nonNull)
+                .map(cohort -> cohort.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(keys);
+            }
+        });
+    }
+
+    private void evict(Set<String> cohorts) {
+        // Rankings still being computed from the old scores see the new generation and are not stored;
+        // those stored before the bump are removed here
+        cohorts.forEach(cohort -> generation(cohort).incrementAndGet());
+        rankings.asMap().keySet().removeIf(key -> cohorts.contains(key.cohort()));
+    }
+
+    private AtomicLong generation(String cohort) {
+        return generations.computeIfAbsent(cohort, c -> new AtomicLong());
+    }
+
+    private ClassRankingDto compute(String cohort, String subject, int academicYear, int buckets) {
+        ScoreColumns columns = load(cohort, subject, academicYear);
+        int n = columns.size;
+        ClassRankingDto ranking = new ClassRankingDto();
+        ranking.setCohort(cohort);
+        ranking.setSubject(subject);
+        ranking.setAcademicYear(academicYear);
+        ranking.setStudentCount(n);
+        if (n == 0) {
+            ranking.setHistogram(List.of());
+            ranking.setRankings(List.of());
+            return ranking;
+        }
+        double[] scores = columns.scores;
+        double[] sorted = Arrays.copyOf(scores, n);
+        Arrays.parallelSort(sorted);
+
+        int[] ranks = new int[n];
+        double[] percentiles = new double[n];
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        pool.invoke(new RankTask(scores, sorted, ranks, percentiles, 0, n));
+
+        double min = sorted[0];
+        double max = sorted[n - 1];
+        double width = (max - min) / buckets;
+        long[] counts = pool.invoke(new HistogramTask(scores, 0, n, min, width, buckets));
+        List<HistogramBucketDto> histogram = new ArrayList<>(buckets);
+        for (int b = 0; b < buckets; b++) {
+            double lower = min + b * width;
+            double upper = b == buckets - 1 ? max : min + (b + 1) * width;
+            histogram.add(new HistogramBucketDto(lower, upper, counts[b]));
+        }
+
+        List<RankingEntryDto> entries = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            entries.add(new RankingEntryDto(columns.studentIds[i], scores[i], ranks[i], percentiles[i]));
+        }
+        entries.sort(Comparator.comparingInt(RankingEntryDto::getRank).thenComparing(RankingEntryDto::getStudentId));
+
+        ranking.setMean(Arrays.stream(scores, 0, n).parallel().sum() / n);
+        ranking.setMedian(n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2);
+        ranking.setMin(min);
+        ranking.setMax(max);
+        ranking.setHistogram(histogram);
+        ranking.setRankings(entries);
+        return ranking;
+    }
+
+    private ScoreColumns load(String cohort, String subject, int academicYear) {
+        ScoreColumns columns = new ScoreColumns();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(COHORT_SCORES_SQL);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setString(1, cohort);
+            ps.setString(2, subject);
+            ps.setInt(3, academicYear);
+            return ps;
+        }, rs -> {
+            columns.add(rs.getLong(1), rs.getDouble(2));
+        });
+        return columns;
+    }
+
+    // Growable parallel primitive arrays: one slot per student, no boxing
+    private static final class ScoreColumns {
+        private long[] studentIds = new long[256];
+        private double[] scores = new double[256];
+        private int size;
+
+        void add(long studentId, double score) {
+            if (size == scores.length) {
+                int capacity = size + (size >> 1);
+                studentIds = Arrays.copyOf(studentIds, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            studentIds[size] = studentId;
+            scores[size] = score;
+            size++;
+        }
+    }
+
+    // Competition ranking (1, 2, 2, 4) and mid-rank percentile from binary searches on the sorted scores
+    private static final class RankTask extends RecursiveAction {
+        private final double[] scores;
+        private final double[] sorted;
+        private final int[] ranks;
+        private final double[] percentiles;
+        private final int from;
+        private final int to;
+
+        RankTask(double[] scores, double[] sorted, int[] ranks, double[] percentiles, int from, int to) {
+            this.scores = scores;
+            this.sorted = sorted;
+            this.ranks = ranks;
+            this.percentiles = percentiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RankTask(scores, sorted, ranks, percentiles, from, mid),
+                        new RankTask(scores, sorted, ranks, percentiles, mid, to));
+                return;
+            }
+            int n = sorted.length;
+            for (int i = from; i < to; i++) {
+                int below = firstIndexNotBelow(sorted, scores[i]);
+                int notAbove = firstIndexAbove(sorted, scores[i]);
+                ranks[i] = n - notAbove + 1;
+                percentiles[i] = 100.0 * (below + (notAbove - below) / 2.0) / n;
+            }
+        }
+    }
+
+    private static final class HistogramTask extends RecursiveTask<long[]> {
+        private final double[] scores;
+        private final int from;
+        private final int to;
+        private final double min;
+        private final double width;
+        private final int buckets;
+
+        HistogramTask(double[] scores, int from, int to, double min, double width, int buckets) {
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+            this.min = min;
+            this.width = width;
+            this.buckets = buckets;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                HistogramTask left = new HistogramTask(scores, from, mid, min, width, buckets);
+                left.fork();
+                long[] counts = new HistogramTask(scores, mid, to, min, width, buckets).compute();
+                long[] leftCounts = left.join();
+                for (int b = 0; b < buckets; b++) {
+                    counts[b] += leftCounts[b];
+                }
+                return counts;
+            }
+            long[] counts = new long[buckets];
+            for (int i = from; i < to; i++) {
+                // The maximum lands in the last bucket; with all scores equal everything is in the first
+                int bucket = width == 0 ? 0 : Math.min((int) ((scores[i] - min) / width), buckets - 1);
+                counts[bucket]++;
+            }
+            return counts;
+        }
+    }
+
+    private static int firstIndexNotBelow(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int firstIndexAbove(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,50 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.service.StudentEventPublisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Stand-in broker for local runs and tests without a Kafka cluster
+ * (student-performance.outbox.broker=in-memory). Keeps every published event in send order.
+ * Setting {@link #setAvailable(boolean)} to false makes sends fail, to exercise the relay's retry path.
+ */
+@Component
+@ConditionalOnProperty(name = "student-performance.outbox.broker", havingValue = "in-memory")
+public class InMemoryStudentEventPublisher implements StudentEventPublisher {
+
+    public record PublishedEvent(String key, String payload) {
+    }
+
+    private final List<PublishedEvent> published = new CopyOnWriteArrayList<>();
+    private volatile boolean available = true;
+
+    @Override
+    public CompletableFuture<?> publish(String key, String payload) {
+        if (!available) {
+            return CompletableFuture.failedFuture(new IllegalStateException("In-memory broker is unavailable"));
+        }
+        published.add(new PublishedEvent(key, payload));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public List<PublishedEvent> getPublished() {
+        return List.copyOf(published);
+    }
+
+    public List<PublishedEvent> getPublished(String key) {
+        return published.stream().filter(event -> event.key().equals(key)).toList();
+    }
+
+    public void clear() {
+        published.clear();
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+}
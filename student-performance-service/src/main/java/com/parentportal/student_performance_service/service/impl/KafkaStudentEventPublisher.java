@@ -0,0 +1,33 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.service.StudentEventPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@ConditionalOnProperty(name = "student-performance.outbox.broker", havingValue = "kafka", matchIfMissing = true)
+public class KafkaStudentEventPublisher implements StudentEventPublisher {
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String topic;
+
+    public KafkaStudentEventPublisher(KafkaTemplate<String, String> kafkaTemplate,
+                                      @Value("${student-performance.outbox.topic:student-events}") String topic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+    }
+
+    @Override
+    public CompletableFuture<?> publish(String key, String payload) {
+        try {
+            return kafkaTemplate.send(topic, key, payload);
+        } catch (RuntimeException e) {
+            // send() throws instead of returning a failed future when metadata cannot be fetched in time
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.PerformanceSummaryDto;
+import com.parentportal.student_performance_service.dto.ResultCreateDto;
+import com.parentportal.student_performance_service.dto.SubjectSummaryDto;
+import com.parentportal.student_performance_service.entity.AttendanceLedger;
+import com.parentportal.student_performance_service.entity.Result;
+import com.parentportal.student_performance_service.entity.SubjectAggregate;
+import com.parentportal.student_performance_service.repository.AttendanceLedgerRepository;
+import com.parentportal.student_performance_service.repository.ResultRepository;
+import com.parentportal.student_performance_service.repository.SubjectAggregateRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains per-student, per-subject, per-academic-year result aggregates so report-card reads
+ * cost a handful of rows regardless of how much history a student has.
+ * Write methods must run inside the transaction that stores or removes the results.
+ */
+@Component
+@RequiredArgsConstructor
+public class PerformanceAggregateService {
+
+    private static final Map<String, Double> GRADE_POINTS = Map.ofEntries(
+            Map.entry("A+", 4.0), Map.entry("A", 4.0), Map.entry("A-", 3.7),
+            Map.entry("B+", 3.3), Map.entry("B", 3.0), Map.entry("B-", 2.7),
+            Map.entry("C+", 2.3), Map.entry("C", 2.0), Map.entry("C-", 1.7),
+            Map.entry("D+", 1.3), Map.entry("D", 1.0), Map.entry("D-", 0.7),
+            Map.entry("E", 0.0), Map.entry("F", 0.0));
+
+    // The latest grade moves only to a result dated on or after the stored latest date; latest_grade is assigned
+    // first and compares against the old latest_date either way
+    private static final String UPSERT_SQL = "INSERT INTO subject_aggregates (student_id, academic_year, subject, "
+            + "score_sum, result_count, grade_point_sum, graded_count, latest_grade, latest_date) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "score_sum = score_sum + VALUES(score_sum), result_count = result_count + VALUES(result_count), "
+            + "grade_point_sum = grade_point_sum + VALUES(grade_point_sum), "
+            + "graded_count = graded_count + VALUES(graded_count), "
+            + "latest_grade = IF(latest_date IS NULL OR VALUES(latest_date) >= latest_date, VALUES(latest_grade), latest_grade), "
+            + "latest_date = IF(latest_date IS NULL OR VALUES(latest_date) >= latest_date, VALUES(latest_date), latest_date)";
+
+    // The totals a batch adds to one aggregate row
+    private static final class Delta {
+        private final Long studentId;
+        private final int academicYear;
+        private final String subject;
+        private double scoreSum;
+        private int resultCount;
+        private double gradePointSum;
+        private int gradedCount;
+        private String latestGrade;
+        private LocalDate latestDate;
+
+        private Delta(Long studentId, int academicYear, String subject) {
+            this.studentId = studentId;
+            this.academicYear = academicYear;
+            this.subject = subject;
+        }
+
+        private void add(ResultCreateDto result) {
+            scoreSum += result.getScore();
+            resultCount++;
+            Double points = gradePoints(result.getGrade());
+            if (points != null) {
+                gradePointSum += points;
+                gradedCount++;
+            }
+            if (latestDate == null || !result.getDate().isBefore(latestDate)) {
+                latestDate = result.getDate();
+                latestGrade = result.getGrade();
+            }
+        }
+    }
+
+    private final SubjectAggregateRepository subjectAggregateRepository;
+    private final ResultRepository resultRepository;
+    private final AttendanceLedgerRepository attendanceLedgerRepository;
+    private final AcademicCalendar academicCalendar;
+    private final JdbcTemplate jdbcTemplate;
+
+    public void resultAdded(Result result) {
+        resultsAdded(List.of(new ResultCreateDto(result.getSubject(), result.getGrade(), result.getScore(),
+                result.getDate(), result.getStudent().getId())));
+    }
+
+    /**
+     * Folds newly stored results into the aggregates with one upsert per student, year and subject: a new
+     * aggregate is inserted with the results' totals, an existing one has them added under its row lock.
+     * Concurrent first results of the same subject thus meet on the unique key instead of both inserting.
+     * @param results The stored results; each must carry its student ID.
+     */
+    public void resultsAdded(List<ResultCreateDto> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        // Sorted by the unique key, so concurrent batches take their row locks in the same order
+        Map<String, Delta> deltas = new TreeMap<>();
+        for (ResultCreateDto result : results) {
+            int academicYear = academicCalendar.academicYearOf(result.getDate());
+            deltas.computeIfAbsent(key(result.getStudentId(), academicYear, result.getSubject()),
+                    k -> new Delta(result.getStudentId(), academicYear, result.getSubject())).add(result);
+        }
+        List<Delta> rows = new ArrayList<>(deltas.values());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, delta) -> {
+            ps.setLong(1, delta.studentId);
+            ps.setInt(2, delta.academicYear);
+            ps.setString(3, delta.subject);
+            ps.setDouble(4, delta.scoreSum);
+            ps.setInt(5, delta.resultCount);
+            ps.setDouble(6, delta.gradePointSum);
+            ps.setInt(7, delta.gradedCount);
+            ps.setString(8, delta.latestGrade);
+            ps.setDate(9, Date.valueOf(delta.latestDate));
+        });
+    }
+
+    /**
+     * Removes a deleted result from its aggregate. Call after the result row has been deleted and flushed,
+     * so the latest grade can be re-read from the remaining results when needed.
+     */
+    public void resultDeleted(Result result) {
+        Long studentId = result.getStudent().getId();
+        int academicYear = academicCalendar.academicYearOf(result.getDate());
+        SubjectAggregate aggregate = subjectAggregateRepository.lockOne(studentId, academicYear, result.getSubject())
+                .orElse(null);
+        if (aggregate == null) {
+            return; // Result predates the aggregates
+        }
+        if (aggregate.getResultCount() <= 1) {
+            subjectAggregateRepository.delete(aggregate);
+            return;
+        }
+        aggregate.setScoreSum(aggregate.getScoreSum() - result.getScore());
+        aggregate.setResultCount(aggregate.getResultCount() - 1);
+        Double points = gradePoints(result.getGrade());
+        if (points != null && aggregate.getGradedCount() > 0) {
+            aggregate.setGradePointSum(aggregate.getGradePointSum() - points);
+            aggregate.setGradedCount(aggregate.getGradedCount() - 1);
+        }
+        if (aggregate.getLatestDate() != null && !result.getDate().isBefore(aggregate.getLatestDate())) {
+            resultRepository.findFirstByStudentIdAndSubjectAndDateBetweenOrderByDateDescIdDesc(studentId,
+                            aggregate.getSubject(), academicCalendar.startOf(academicYear), academicCalendar.endOf(academicYear))
+                    .ifPresent(latest -> {
+                        aggregate.setLatestDate(latest.getDate());
+                        aggregate.setLatestGrade(latest.getGrade());
+                    });
+        }
+        subjectAggregateRepository.save(aggregate);
+    }
+
+    public void deleteAggregates(Long studentId) {
+        subjectAggregateRepository.deleteByStudentId(studentId);
+    }
+
+    /**
+     * Builds the dashboard summary from the subject aggregates and the attendance ledger of one academic year.
+     */
+    public PerformanceSummaryDto summary(Long studentId, int academicYear) {
+        List<SubjectAggregate> aggregates =
+                subjectAggregateRepository.findByStudentIdAndAcademicYearOrderBySubjectAsc(studentId, academicYear);
+        return toSummary(studentId, academicYear, aggregates,
+                attendanceLedgerRepository.findByStudentIdAndAcademicYear(studentId, academicYear).orElse(null));
+    }
+
+    /**
+     * Builds the summaries of several students with one aggregate query and one ledger query.
+     * @return Summaries keyed by student ID; students without data get an empty summary.
+     */
+    public Map<Long, PerformanceSummaryDto> summaries(Collection<Long> studentIds, int academicYear) {
+        if (studentIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<SubjectAggregate>> aggregates = new HashMap<>();
+        for (SubjectAggregate aggregate :
+                subjectAggregateRepository.findByStudentIdInAndAcademicYearOrderBySubjectAsc(studentIds, academicYear)) {
+            aggregates.computeIfAbsent(aggregate.getStudentId(), id -> new ArrayList<>()).add(aggregate);
+        }
+        Map<Long, AttendanceLedger> ledgers = new HashMap<>();
+        for (AttendanceLedger ledger : attendanceLedgerRepository.findByStudentIdInAndAcademicYear(studentIds, academicYear)) {
+            ledgers.put(ledger.getStudentId(), ledger);
+        }
+        Map<Long, PerformanceSummaryDto> summaries = new HashMap<>();
+        for (Long studentId : studentIds) {
+            summaries.put(studentId, toSummary(studentId, academicYear,
+                    aggregates.getOrDefault(studentId, List.of()), ledgers.get(studentId)));
+        }
+        return summaries;
+    }
+
+    private PerformanceSummaryDto toSummary(Long studentId, int academicYear, List<SubjectAggregate> aggregates,
+                                            AttendanceLedger ledger) {
+        List<SubjectSummaryDto> subjects = new ArrayList<>(aggregates.size());
+        double gradePointSum = 0.0;
+        int gradedCount = 0;
+        for (SubjectAggregate aggregate : aggregates) {
+            subjects.add(new SubjectSummaryDto(aggregate.getSubject(), aggregate.getResultCount(),
+                    aggregate.getScoreSum() / aggregate.getResultCount(),
+                    aggregate.getGradedCount() == 0 ? null : aggregate.getGradePointSum() / aggregate.getGradedCount(),
+                    aggregate.getLatestGrade(), aggregate.getLatestDate()));
+            gradePointSum += aggregate.getGradePointSum();
+            gradedCount += aggregate.getGradedCount();
+        }
+
+        PerformanceSummaryDto summary = new PerformanceSummaryDto();
+        summary.setStudentId(studentId);
+        summary.setAcademicYear(academicYear);
+        summary.setSubjects(subjects);
+        summary.setGpa(gradedCount == 0 ? null : gradePointSum / gradedCount);
+        if (ledger != null) {
+            summary.setPresentCount(ledger.getPresentCount());
+            summary.setAbsentCount(ledger.getAbsentCount());
+            summary.setLateCount(ledger.getLateCount());
+            summary.setAttendanceRate(attendanceRate(ledger));
+        }
+        return summary;
+    }
+
+    private Double attendanceRate(AttendanceLedger ledger) {
+        int recorded = ledger.getPresentCount() + ledger.getAbsentCount() + ledger.getLateCount();
+        return recorded == 0 ? null : (double) (ledger.getPresentCount() + ledger.getLateCount()) / recorded;
+    }
+
+    static Double gradePoints(String grade) {
+        return grade == null ? null : GRADE_POINTS.get(grade.trim().toUpperCase(Locale.ROOT));
+    }
+
+    // Subjects compare case-insensitively, matching the default collation of the unique key
+    private String key(Long studentId, int academicYear, String subject) {
+        return studentId + ":" + academicYear + ":" + subject.toLowerCase(Locale.ROOT);
+    }
+}
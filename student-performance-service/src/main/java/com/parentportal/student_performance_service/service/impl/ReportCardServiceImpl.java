@@ -0,0 +1,287 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import com.parentportal.student_performance_service.dto.PerformanceSummaryDto;
+import com.parentportal.student_performance_service.dto.ReportCardFormat;
+import com.parentportal.student_performance_service.dto.SubjectSummaryDto;
+import com.parentportal.student_performance_service.entity.Student;
+import com.parentportal.student_performance_service.repository.StudentRepository;
+import com.parentportal.student_performance_service.service.ReportCardService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports the report cards of a whole class as one CSV, or as a ZIP holding one PDF per student.
+ * Students are walked with a keyset cursor in small chunks; each chunk's summaries come from the subject
+ * aggregates and attendance ledgers in two queries, and its cards are rendered in parallel on a bounded pool
+ * while the previous chunk is written out in cursor order. At most two chunks are held in memory at a time.
+ */
+@Service
+public class ReportCardServiceImpl implements ReportCardService {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final String CSV_HEADER = "id,studentId,firstName,lastName,cohort,academicYear,gpa,presentCount,"
+            + "absentCount,lateCount,attendanceRate,subject,resultCount,averageScore,subjectGpa,latestGrade,latestDate\n";
+    private static final Font TITLE_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
+    private static final Font HEADER_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
+    private static final Font BODY_FONT = FontFactory.getFont(FontFactory.HELVETICA, 10);
+
+    private record RenderedChunk(List<Student> students, List<CompletableFuture<byte[]>> cards) {
+    }
+
+    @FunctionalInterface
+    private interface CardWriter {
+        void write(Student student, byte[] card) throws IOException;
+    }
+
+    private final StudentRepository studentRepository;
+    private final PerformanceAggregateService performanceAggregateService;
+    private final AcademicCalendar academicCalendar;
+    private final UserRoleVerifier userRoleVerifier;
+    private final int chunkSize;
+    private final ExecutorService renderPool;
+
+    public ReportCardServiceImpl(StudentRepository studentRepository,
+                                 PerformanceAggregateService performanceAggregateService,
+                                 AcademicCalendar academicCalendar,
+                                 UserRoleVerifier userRoleVerifier,
+                                 @Value("${student-performance.report-cards.chunk-size:16}") int chunkSize,
+                                 @Value("${student-performance.report-cards.render-threads:0}") int renderThreads) {
+        this.studentRepository = studentRepository;
+        this.performanceAggregateService = performanceAggregateService;
+        this.academicCalendar = academicCalendar;
+        this.userRoleVerifier = userRoleVerifier;
+        this.chunkSize = chunkSize;
+        // 0 means one render thread per core
+        int threads = renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.renderPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "report-card-render-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+
+    @Override
+    public Mono<Void> verifyExporter(Long adminUserId) {
+        return userRoleVerifier.verifyAdmin(adminUserId).then();
+    }
+
+    @Override
+    public void exportReportCards(String cohort, Integer academicYear, ReportCardFormat format, OutputStream output)
+            throws IOException {
+        int year = academicYear == null ? academicCalendar.currentAcademicYear() : academicYear;
+        if (format == ReportCardFormat.CSV) {
+            output.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+            exportCohort(cohort, year, (student, summary) -> csvRows(student, summary, year),
+                    (student, card) -> output.write(card), output);
+            output.flush();
+            return;
+        }
+        ZipOutputStream zip = new ZipOutputStream(output);
+        exportCohort(cohort, year, (student, summary) -> pdf(student, summary, year), (student, card) -> {
+            zip.putNextEntry(new ZipEntry(pdfName(student, year)));
+            zip.write(card);
+            zip.closeEntry();
+        }, zip);
+        // Finish rather than close: the servlet container owns the response stream
+        zip.finish();
+        zip.flush();
+    }
+
+    // Renders chunk N + 1 while chunk N is being written
+    private void exportCohort(String cohort, int academicYear, BiFunction<Student, PerformanceSummaryDto, byte[]> renderer,
+                              CardWriter writer, OutputStream output) throws IOException {
+        long cursor = 0L;
+        RenderedChunk pending = null;
+        RenderedChunk next = null;
+        try {
+            while (true) {
+                List<Student> students = studentRepository.findCohortPageAfter(cohort, cursor, PageRequest.of(0, chunkSize));
+                next = students.isEmpty() ? null : render(students, academicYear, renderer);
+                if (pending != null) {
+                    write(pending, writer);
+                    output.flush();
+                }
+                pending = next;
+                next = null;
+                if (students.size() < chunkSize) {
+                    break;
+                }
+                cursor = students.get(students.size() - 1).getId();
+            }
+            if (pending != null) {
+                write(pending, writer);
+                pending = null;
+            }
+        } finally {
+            // A failed write (e.g. the client went away) drops the cards still rendering
+            cancel(pending);
+            cancel(next);
+        }
+    }
+
+    private void cancel(RenderedChunk chunk) {
+        if (chunk != null) {
+            chunk.cards().forEach(card -> card.cancel(true));
+        }
+    }
+
+    private RenderedChunk render(List<Student> students, int academicYear,
+                                 BiFunction<Student, PerformanceSummaryDto, byte[]> renderer) {
+        Map<Long, PerformanceSummaryDto> summaries = performanceAggregateService.summaries(
+                students.stream().map(Student::getId).toList(), academicYear);
+        List<CompletableFuture<byte[]>> cards = students.stream()
+                .map(student -> CompletableFuture.supplyAsync(
+                        () -> renderer.apply(student, summaries.get(student.getId())), renderPool))
+                .toList();
+        return new RenderedChunk(students, cards);
+    }
+
+    private void write(RenderedChunk chunk, CardWriter writer) throws IOException {
+        for (int i = 0; i < chunk.students().size(); i++) {
+            writer.write(chunk.students().get(i), chunk.cards().get(i).join());
+        }
+    }
+
+    // One row per subject; a student without results still gets one row with the subject columns empty
+    private byte[] csvRows(Student student, PerformanceSummaryDto summary, int academicYear) {
+        StringBuilder prefix = new StringBuilder();
+        prefix.append(student.getId()).append(',')
+                .append(csv(student.getStudentId())).append(',')
+                .append(csv(student.getFirstName())).append(',')
+                .append(csv(student.getLastName())).append(',')
+                .append(csv(student.getCohort())).append(',')
+                .append(academicYear).append(',')
+                .append(decimal(summary.getGpa())).append(',')
+                .append(summary.getPresentCount()).append(',')
+                .append(summary.getAbsentCount()).append(',')
+                .append(summary.getLateCount()).append(',')
+                .append(rate(summary.getAttendanceRate())).append(',');
+        StringBuilder rows = new StringBuilder();
+        if (summary.getSubjects().isEmpty()) {
+            rows.append(prefix).append(",,,,,\n");
+        }
+        for (SubjectSummaryDto subject : summary.getSubjects()) {
+            rows.append(prefix)
+                    .append(csv(subject.getSubject())).append(',')
+                    .append(subject.getResultCount()).append(',')
+                    .append(decimal(subject.getAverageScore())).append(',')
+                    .append(decimal(subject.getGradePointAverage())).append(',')
+                    .append(csv(subject.getLatestGrade())).append(',')
+                    .append(date(subject.getLatestDate())).append('\n');
+        }
+        return rows.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] pdf(Student student, PerformanceSummaryDto summary, int academicYear) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        Document document = new Document(PageSize.A4);
+        try {
+            PdfWriter.getInstance(document, bytes);
+            document.open();
+            document.add(new Paragraph("Report card", TITLE_FONT));
+            document.add(new Paragraph(text(student.getFirstName()) + " " + text(student.getLastName())
+                    + " (" + text(student.getStudentId()) + ")", BODY_FONT));
+            document.add(new Paragraph("Class: " + text(student.getCohort()) + "    Academic year: "
+                    + academicYear + "/" + (academicYear + 1), BODY_FONT));
+            document.add(new Paragraph(" ", BODY_FONT));
+
+            PdfPTable table = new PdfPTable(new float[]{3f, 1f, 1.2f, 1.2f, 1.2f, 1.6f});
+            table.setWidthPercentage(100);
+            table.setHeaderRows(1);
+            for (String header : List.of("Subject", "Results", "Average", "GPA", "Latest grade", "Latest date")) {
+                table.addCell(new Phrase(header, HEADER_FONT));
+            }
+            for (SubjectSummaryDto subject : summary.getSubjects()) {
+                table.addCell(new Phrase(text(subject.getSubject()), BODY_FONT));
+                table.addCell(new Phrase(String.valueOf(subject.getResultCount()), BODY_FONT));
+                table.addCell(new Phrase(decimal(subject.getAverageScore()), BODY_FONT));
+                table.addCell(new Phrase(decimal(subject.getGradePointAverage()), BODY_FONT));
+                table.addCell(new Phrase(text(subject.getLatestGrade()), BODY_FONT));
+                table.addCell(new Phrase(date(subject.getLatestDate()), BODY_FONT));
+            }
+            document.add(table);
+
+            document.add(new Paragraph(" ", BODY_FONT));
+            document.add(new Paragraph("Overall GPA: " + (summary.getGpa() == null ? "-" : decimal(summary.getGpa())),
+                    BODY_FONT));
+            document.add(new Paragraph("Attendance: " + summary.getPresentCount() + " present, "
+                    + summary.getAbsentCount() + " absent, " + summary.getLateCount() + " late"
+                    + (summary.getAttendanceRate() == null ? ""
+                    : String.format(Locale.ROOT, " (%.1f%% attended)", summary.getAttendanceRate() * 100)), BODY_FONT));
+        } catch (DocumentException e) {
+            throw new IllegalStateException("Could not render the report card of student " + student.getId(), e);
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    // Prefixed with the database ID, so names stay unique even without a school ID
+    private String pdfName(Student student, int academicYear) {
+        String label = (text(student.getLastName()) + "-" + text(student.getFirstName())).replaceAll("[^A-Za-z0-9._-]+", "_");
+        return student.getId() + "-" + label + "-" + academicYear + ".pdf";
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private String text(String value) {
+        return value == null ? "" : value;
+    }
+
+    private String decimal(Double value) {
+        return value == null ? "" : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private String rate(Double value) {
+        return value == null ? "" : String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    private String date(LocalDate value) {
+        return value == null ? "" : value.format(DATE_FORMAT);
+    }
+}
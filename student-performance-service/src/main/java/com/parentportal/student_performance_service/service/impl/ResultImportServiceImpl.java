@@ -0,0 +1,326 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parentportal.student_performance_service.dto.BulkImportErrorDto;
+import com.parentportal.student_performance_service.dto.BulkImportReportDto;
+import com.parentportal.student_performance_service.dto.ResultCreateDto;
+import com.parentportal.student_performance_service.dto.StudentRecipientDto;
+import com.parentportal.student_performance_service.repository.StudentRepository;
+import com.parentportal.student_performance_service.service.ResultImportService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports results in bulk from a streamed JSON array or CSV upload.
+ * The admin is verified once per upload without blocking a request thread; the upload is then read on the
+ * JDBC scheduler in chunks of the configured batch size, each chunk resolving its student IDs with one query
+ * and inserting with one JDBC batch in its own transaction.
+ * Result IDs are drawn in blocks from results_seq, as Hibernate does for the entity.
+ * Rows dated in a closed academic year are rejected like invalid ones; those years are read-only.
+ */
+@Service
+@RequiredArgsConstructor
+public class ResultImportServiceImpl implements ResultImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final String INSERT_RESULT_SQL =
+            "INSERT INTO results (id, student_id, subject, grade, score, date) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final List<String> CSV_COLUMNS = List.of("studentid", "subject", "grade", "score", "date");
+
+    private final StudentRepository studentRepository;
+    private final UserRoleVerifier userRoleVerifier;
+    private final PerformanceAggregateService performanceAggregateService;
+    private final StudentEventOutbox studentEventOutbox;
+    private final ClassRankingEngine classRankingEngine;
+    private final AcademicYearArchive academicYearArchive;
+    private final SecondLevelCache secondLevelCache;
+    private final StudentVersions studentVersions;
+    private final SequenceIds sequenceIds;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final Scheduler jdbcScheduler;
+
+    @Value("${student-performance.bulk-import.batch-size:500}")
+    private int batchSize;
+
+    private record ParsedRow(long rowNumber, ResultCreateDto result, String error) {
+    }
+
+    @Override
+    public Mono<BulkImportReportDto> importResultsJson(Long adminUserId, InputStream input) {
+        return userRoleVerifier.verifyAdmin(adminUserId)
+                .then(Mono.fromCallable(() -> readJson(input)).subscribeOn(jdbcScheduler));
+    }
+
+    @Override
+    public Mono<BulkImportReportDto> importResultsCsv(Long adminUserId, InputStream input) {
+        return userRoleVerifier.verifyAdmin(adminUserId)
+                .then(Mono.fromCallable(() -> readCsv(input)).subscribeOn(jdbcScheduler));
+    }
+
+    private BulkImportReportDto readJson(InputStream input) {
+        BulkImportReportDto report = new BulkImportReportDto();
+        List<ParsedRow> chunk = new ArrayList<>(batchSize);
+        long rowNumber = 0;
+        try (JsonParser parser = objectMapper.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                addError(report, 0, "Expected a JSON array of results");
+                return report;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                rowNumber++;
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    chunk.add(new ParsedRow(rowNumber, null, "Expected a JSON object"));
+                } else {
+                    // Read each element as a tree so a bad field only rejects its own row
+                    JsonNode node = objectMapper.readTree(parser);
+                    chunk.add(toRow(rowNumber, node));
+                }
+                if (chunk.size() >= batchSize) {
+                    flush(chunk, report);
+                }
+            }
+        } catch (IOException e) {
+            addError(report, rowNumber, "Malformed JSON, import stopped: " + e.getMessage());
+        }
+        flush(chunk, report);
+        return report;
+    }
+
+    private BulkImportReportDto readCsv(InputStream input) {
+        BulkImportReportDto report = new BulkImportReportDto();
+        List<ParsedRow> chunk = new ArrayList<>(batchSize);
+        long rowNumber = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            Map<String, Integer> columns = header == null ? Map.of() : csvColumns(header);
+            if (!columns.keySet().containsAll(CSV_COLUMNS)) {
+                addError(report, 0, "CSV header must contain the columns studentId, subject, grade, score, date");
+                return report;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                rowNumber++;
+                chunk.add(toRow(rowNumber, splitCsvLine(line), columns));
+                if (chunk.size() >= batchSize) {
+                    flush(chunk, report);
+                }
+            }
+        } catch (IOException e) {
+            addError(report, rowNumber, "Could not read upload, import stopped: " + e.getMessage());
+        }
+        flush(chunk, report);
+        return report;
+    }
+
+    private ParsedRow toRow(long rowNumber, JsonNode node) {
+        try {
+            return validated(rowNumber, objectMapper.treeToValue(node, ResultCreateDto.class));
+        } catch (JsonProcessingException e) {
+            return new ParsedRow(rowNumber, null, "Invalid result: " + e.getOriginalMessage());
+        }
+    }
+
+    private ParsedRow toRow(long rowNumber, List<String> fields, Map<String, Integer> columns) {
+        try {
+            ResultCreateDto result = new ResultCreateDto();
+            result.setStudentId(Long.valueOf(field(fields, columns, "studentid")));
+            result.setSubject(field(fields, columns, "subject"));
+            result.setGrade(field(fields, columns, "grade"));
+            result.setScore(Double.valueOf(field(fields, columns, "score")));
+            result.setDate(LocalDate.parse(field(fields, columns, "date"), DATE_FORMAT));
+            return validated(rowNumber, result);
+        } catch (NumberFormatException e) {
+            return new ParsedRow(rowNumber, null, "Invalid number: " + e.getMessage());
+        } catch (DateTimeParseException e) {
+            return new ParsedRow(rowNumber, null, "Invalid date (expected MM-dd-yyyy): " + e.getParsedString());
+        }
+    }
+
+    private ParsedRow validated(long rowNumber, ResultCreateDto result) {
+        Set<ConstraintViolation<ResultCreateDto>> violations = validator.validate(result);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return new ParsedRow(rowNumber, null, message);
+        }
+        if (academicYearArchive.inClosedYear(result.getDate())) {
+            return new ParsedRow(rowNumber, null,
+                    "Date " + DATE_FORMAT.format(result.getDate()) + " is in a closed academic year, which is read-only");
+        }
+        return new ParsedRow(rowNumber, result, null);
+    }
+
+    private void flush(List<ParsedRow> chunk, BulkImportReportDto report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        report.setReceived(report.getReceived() + chunk.size());
+        List<ParsedRow> parsed = new ArrayList<>(chunk.size());
+        for (ParsedRow row : chunk) {
+            if (row.error() != null) {
+                addError(report, row.rowNumber(), row.error());
+            } else {
+                parsed.add(row);
+            }
+        }
+        chunk.clear();
+        if (parsed.isEmpty()) {
+            return;
+        }
+
+        Set<Long> studentIds = parsed.stream().map(row -> row.result().getStudentId()).collect(Collectors.toSet());
+        List<ParsedRow> missingStudent = new ArrayList<>();
+        try {
+            Integer inserted = transactionTemplate.execute(status -> {
+                Map<Long, StudentRecipientDto> existing = new HashMap<>();
+                for (StudentRecipientDto recipient : studentRepository.findRecipients(studentIds)) {
+                    existing.put(recipient.getId(), recipient);
+                }
+                List<ResultCreateDto> rows = new ArrayList<>(parsed.size());
+                for (ParsedRow row : parsed) {
+                    if (existing.containsKey(row.result().getStudentId())) {
+                        rows.add(row.result());
+                    } else {
+                        missingStudent.add(row);
+                    }
+                }
+                insertResults(rows);
+                List<Long> touchedStudentIds = rows.stream().map(ResultCreateDto::getStudentId).toList();
+                secondLevelCache.evictResultsAfterCommit(touchedStudentIds);
+                studentVersions.bump(touchedStudentIds);
+                performanceAggregateService.resultsAdded(rows);
+                studentEventOutbox.gradesUpdated(rows, existing);
+                classRankingEngine.invalidateCohorts(rows.stream()
+                        .map(row -> existing.get(row.getStudentId()).getCohort())
+                        .collect(Collectors.toSet()));
+                return rows.size();
+            });
+            report.setImported(report.getImported() + (inserted == null ? 0 : inserted));
+            for (ParsedRow row : missingStudent) {
+                addError(report, row.rowNumber(), "Student not found with ID: " + row.result().getStudentId());
+            }
+        } catch (DataAccessException e) {
+            // The chunk's transaction rolled back, so none of its rows were stored
+            for (ParsedRow row : parsed) {
+                addError(report, row.rowNumber(), "Batch insert failed: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    private void insertResults(List<ResultCreateDto> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        long[] ids = sequenceIds.next(SequenceIds.RESULTS, rows.size());
+        jdbcTemplate.batchUpdate(INSERT_RESULT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ResultCreateDto result = rows.get(i);
+                ps.setLong(1, ids[i]);
+                ps.setLong(2, result.getStudentId());
+                ps.setString(3, result.getSubject());
+                ps.setString(4, result.getGrade());
+                ps.setDouble(5, result.getScore());
+                ps.setDate(6, Date.valueOf(result.getDate()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    private void addError(BulkImportReportDto report, long rowNumber, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new BulkImportErrorDto(rowNumber, message));
+        }
+    }
+
+    private Map<String, Integer> csvColumns(String header) {
+        List<String> names = splitCsvLine(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        return columns;
+    }
+
+    private String field(List<String> fields, Map<String, Integer> columns, String column) {
+        int index = columns.get(column);
+        return index < fields.size() ? fields.get(index).trim() : "";
+    }
+
+    // Splits one CSV line, honouring double-quoted fields and "" escapes
+    private List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
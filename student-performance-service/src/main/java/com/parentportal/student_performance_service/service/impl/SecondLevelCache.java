@@ -0,0 +1,119 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.CacheRegionStatsDto;
+import com.parentportal.student_performance_service.dto.CacheStatsDto;
+import com.parentportal.student_performance_service.entity.Student;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the Hibernate second-level cache honest for writes that bypass the session, and reports its statistics.
+ * Entity writes through JPA maintain the cache themselves; JDBC batch inserts and archive moves do not, so those
+ * paths evict the affected student collections (and moved entities) here once their transaction commits.
+ * The regions are local to each instance, so a student's entries are also evicted whenever a read finds a content
+ * version other than the one they were cached under (see StudentVersions); the TTL bounds everything else.
+ */
+@Component
+public class SecondLevelCache {
+
+    private static final String RESULTS_ROLE = Student.class.getName() + ".results";
+    private static final String ATTENDANCE_ROLE = Student.class.getName() + ".attendanceRecords";
+
+    private final SessionFactory sessionFactory;
+
+    public SecondLevelCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /**
+     * Evicts the student and its result and attendance collections now. The results and attendance entities
+     * stay: each carries its own state and is reached only through a freshly loaded collection.
+     */
+    public void evictStudent(Long studentId) {
+        Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Student.class, studentId);
+        cache.evictCollectionData(RESULTS_ROLE, studentId);
+        cache.evictCollectionData(ATTENDANCE_ROLE, studentId);
+    }
+
+    public void evictResultsAfterCommit(Collection<Long> studentIds) {
+        evictAfterCommit(RESULTS_ROLE, Set.copyOf(studentIds));
+    }
+
+    public void evictAttendanceAfterCommit(Collection<Long> studentIds) {
+        evictAfterCommit(ATTENDANCE_ROLE, Set.copyOf(studentIds));
+    }
+
+    // For rows removed through JDBC, whose cached entities would otherwise outlive them until the TTL
+    public void evictEntitiesAfterCommit(Class<?> entityClass, Collection<Long> ids) {
+        Set<Long> entityIds = Set.copyOf(ids);
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        Cache cache = sessionFactory.getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            entityIds.forEach(id -> cache.evictEntityData(entityClass, id));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                entityIds.forEach(id -> cache.evictEntityData(entityClass, id));
+            }
+        });
+    }
+
+    private void evictAfterCommit(String role, Set<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        Cache cache = sessionFactory.getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            studentIds.forEach(studentId -> cache.evictCollectionData(role, studentId));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                studentIds.forEach(studentId -> cache.evictCollectionData(role, studentId));
+            }
+        });
+    }
+
+    public CacheStatsDto stats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        List<CacheRegionStatsDto> regions = new ArrayList<>(regionNames.length);
+        for (String regionName : regionNames) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                regions.add(new CacheRegionStatsDto(regionName, region.getHitCount(), region.getMissCount(),
+                        region.getPutCount(), hitRatio(region.getHitCount(), region.getMissCount()),
+                        region.getElementCountInMemory()));
+            }
+        }
+        return new CacheStatsDto(statistics.isStatisticsEnabled(),
+                statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+                hitRatio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()),
+                statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                hitRatio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount()),
+                statistics.getPrepareStatementCount(), regions);
+    }
+
+    private Double hitRatio(long hits, long misses) {
+        return hits + misses == 0 ? null : (double) hits / (hits + misses);
+    }
+}
@@ -0,0 +1,86 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parentportal.student_performance_service.dto.ResultCreateDto;
+import com.parentportal.student_performance_service.dto.StudentEventDto;
+import com.parentportal.student_performance_service.dto.StudentRecipientDto;
+import com.parentportal.student_performance_service.entity.StudentEventType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes GRADE_UPDATE and ATTENDANCE_ALERT events to the outbox table.
+ * Must be called inside the transaction that stores the result or attendance, so an event exists
+ * exactly when its change was committed; {@link StudentEventRelay} forwards them to the broker afterwards.
+ * Attendance alerts are decided by {@link AttendanceAnomalyDetector}, which builds them with {@link #newEvent}.
+ */
+@Component
+@RequiredArgsConstructor
+public class StudentEventOutbox {
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO outbox_events (event_type, student_id, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public void gradeUpdated(StudentRecipientDto student, Long resultId, ResultCreateDto result) {
+        append(List.of(gradeEvent(student, resultId, result)));
+    }
+
+    /**
+     * Appends one GRADE_UPDATE event per result with a single JDBC batch.
+     * @param recipients The students of the results, by ID.
+     */
+    public void gradesUpdated(List<ResultCreateDto> results, Map<Long, StudentRecipientDto> recipients) {
+        List<StudentEventDto> events = new ArrayList<>(results.size());
+        for (ResultCreateDto result : results) {
+            events.add(gradeEvent(recipients.get(result.getStudentId()), null, result));
+        }
+        append(events);
+    }
+
+    /**
+     * Appends events in a single JDBC batch.
+     */
+    public void append(List<StudentEventDto> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getType().name());
+            ps.setLong(2, event.getStudentId());
+            ps.setString(3, serialize(event));
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    private StudentEventDto gradeEvent(StudentRecipientDto student, Long resultId, ResultCreateDto result) {
+        String message = String.format("New %s result for %s: grade %s (score %s).",
+                result.getSubject(), student.getFirstName(), result.getGrade(), result.getScore());
+        return newEvent(StudentEventType.GRADE_UPDATE, student, message, resultId);
+    }
+
+    public StudentEventDto newEvent(StudentEventType type, StudentRecipientDto student, String message, Long relatedId) {
+        return new StudentEventDto(UUID.randomUUID().toString(), type, student.getId(), student.getParentUserId(),
+                message, relatedId == null ? null : relatedId.toString(), LocalDateTime.now());
+    }
+
+    private String serialize(StudentEventDto event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize event " + event.getEventId(), e);
+        }
+    }
+}
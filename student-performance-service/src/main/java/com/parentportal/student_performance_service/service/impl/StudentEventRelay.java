@@ -0,0 +1,34 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.commons.outbox.OutboxRelay;
+import com.parentportal.student_performance_service.service.StudentEventPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+/**
+ * Relays the GRADE_UPDATE and ATTENDANCE_ALERT events of {@link StudentEventOutbox} to the broker,
+ * keyed by student so each student's events stay in order.
+ */
+@Component
+public class StudentEventRelay extends OutboxRelay {
+
+    public StudentEventRelay(JdbcTemplate jdbcTemplate,
+                             StudentEventPublisher publisher,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${student-performance.outbox.batch-size:200}") int batchSize,
+                             @Value("${student-performance.outbox.send-timeout:PT10S}") Duration sendTimeout,
+                             @Value("${student-performance.outbox.lease-timeout:PT1M}") Duration leaseTimeout) {
+        super(jdbcTemplate, publisher, transactionManager, "student_id", batchSize, sendTimeout, leaseTimeout);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${student-performance.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        super.drain();
+    }
+}
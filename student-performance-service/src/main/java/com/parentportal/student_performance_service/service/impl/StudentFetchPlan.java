@@ -0,0 +1,107 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.AttendanceDto;
+import com.parentportal.student_performance_service.dto.ResultDto;
+import com.parentportal.student_performance_service.dto.StudentDto;
+import com.parentportal.student_performance_service.dto.StudentSummaryDto;
+import com.parentportal.student_performance_service.entity.Student;
+import com.parentportal.student_performance_service.mapper.AttendanceMapper;
+import com.parentportal.student_performance_service.mapper.ResultMapper;
+import com.parentportal.student_performance_service.mapper.StudentMapper;
+import com.parentportal.student_performance_service.repository.AttendanceRepository;
+import com.parentportal.student_performance_service.repository.ResultRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Decides how much of a student graph is loaded for a list of students.
+ * Results and attendance are fetched for the whole list with one query each, so the
+ * number of SELECTs per request stays constant instead of growing with the list size.
+ * Full students carry their whole history: rows of closed years moved to the archive come first,
+ * read for the whole list with one more query per table.
+ */
+@Component
+@RequiredArgsConstructor
+public class StudentFetchPlan {
+
+    private final ResultRepository resultRepository;
+    private final AttendanceRepository attendanceRepository;
+    private final StudentMapper studentMapper;
+    private final ResultMapper resultMapper;
+    private final AttendanceMapper attendanceMapper;
+    private final AcademicYearArchive academicYearArchive;
+
+    /**
+     * Maps a handful of students through their own collections, which are served from the second-level
+     * cache when warm; on a miss, collections of up to 50 students are loaded per query.
+     * Prefer {@link #withRecords} for large lists, where the two batch queries are cheaper.
+     */
+    public List<StudentDto> withCachedRecords(List<Student> students) {
+        return withArchivedRecords(studentMapper.studentListToStudentDtoList(students));
+    }
+
+    /**
+     * Maps students together with their results and attendance records (two queries in total).
+     * @param students The students to map, already loaded.
+     * @return The student DTOs in the same order, with nested collections populated.
+     */
+    public List<StudentDto> withRecords(List<Student> students) {
+        if (students.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> studentIds = students.stream().map(Student::getId).toList();
+
+        Map<Long, List<ResultDto>> resultsByStudent = resultRepository.findByStudentIdIn(studentIds).stream()
+                .map(resultMapper::resultToResultDto)
+                .collect(Collectors.groupingBy(ResultDto::getStudentId));
+        Map<Long, List<AttendanceDto>> attendanceByStudent = attendanceRepository.findByStudentIdIn(studentIds).stream()
+                .map(attendanceMapper::attendanceToAttendanceDto)
+                .collect(Collectors.groupingBy(AttendanceDto::getStudentId));
+
+        List<StudentDto> studentDtos = new ArrayList<>(students.size());
+        for (Student student : students) {
+            StudentDto studentDto = studentMapper.studentToStudentDtoWithoutRecords(student);
+            studentDto.setResults(resultsByStudent.getOrDefault(student.getId(), new ArrayList<>()));
+            studentDto.setAttendanceRecords(attendanceByStudent.getOrDefault(student.getId(), new ArrayList<>()));
+            studentDtos.add(studentDto);
+        }
+        return withArchivedRecords(studentDtos);
+    }
+
+    private List<StudentDto> withArchivedRecords(List<StudentDto> students) {
+        if (students.isEmpty()) {
+            return students;
+        }
+        List<Long> studentIds = students.stream().map(StudentDto::getId).toList();
+        Map<Long, List<ResultDto>> archivedResults = academicYearArchive.resultsByStudent(studentIds);
+        Map<Long, List<AttendanceDto>> archivedAttendance = academicYearArchive.attendanceByStudent(studentIds);
+        for (StudentDto student : students) {
+            student.setResults(archivedFirst(archivedResults.get(student.getId()), student.getResults()));
+            student.setAttendanceRecords(archivedFirst(archivedAttendance.get(student.getId()),
+                    student.getAttendanceRecords()));
+        }
+        return students;
+    }
+
+    private static <T> List<T> archivedFirst(List<T> archived, List<T> hot) {
+        List<T> records = new ArrayList<>(archived == null ? List.of() : archived);
+        if (hot != null) {
+            records.addAll(hot);
+        }
+        return records;
+    }
+
+    /**
+     * Maps students to the summary projection without touching the nested collections (no extra queries).
+     * @param students The students to map.
+     * @return The summary DTOs in the same order.
+     */
+    public List<StudentSummaryDto> summaries(List<Student> students) {
+        return studentMapper.studentListToStudentSummaryDtoList(students);
+    }
+}
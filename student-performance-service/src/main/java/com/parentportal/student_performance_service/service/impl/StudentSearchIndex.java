@@ -0,0 +1,499 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.StudentSearchHitDto;
+import com.parentportal.student_performance_service.entity.Student;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Typeahead search over student first names, last names and school IDs, held in memory.
+ * Names and IDs are split into normalized tokens (lower case, accents stripped). A sorted token map answers
+ * prefix lookups, and a trigram map from trigram to tokens finds near misses for typos. Each query token
+ * must match a token of the student exactly, by prefix or, from three characters on, by trigram similarity.
+ * Near misses are for names: tokens with digits (school IDs) match exactly or by prefix only.
+ * The index is built from the database once the application is ready and kept in sync after commit by
+ * local creates, updates and deletes. A periodic rebuild picks up writes made by other instances.
+ */
+@Slf4j
+@Component
+public class StudentSearchIndex {
+
+    public static final int MAX_LIMIT = 50;
+    private static final int MAX_QUERY_TOKENS = 4;
+    private static final int MIN_FUZZY_LENGTH = 3;
+    // Candidates scored per query; bounds the work for short prefixes that match much of the roster. Scoring is
+    // bound by memory reads (about a microsecond per candidate at 100k students), so this keeps a query under 1 ms
+    static final int MAX_CANDIDATES = 500;
+    private static final int FETCH_SIZE = 1000;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final String LOAD_SQL = "SELECT id, first_name, last_name, student_id, cohort FROM students";
+
+    private record Entry(Long id, String firstName, String lastName, String studentId, String cohort, Set<String> tokens,
+                         String lastNameKey, String firstNameKey) {
+    }
+
+    private record Hit(Entry entry, double score) {
+    }
+
+    // Best first: by score, then last name, first name and ID. Written out, as it runs once per candidate
+    private static final Comparator<Hit> RANKING = (a, b) -> {
+        int order = Double.compare(b.score(), a.score());
+        if (order == 0) {
+            order = a.entry().lastNameKey().compareTo(b.entry().lastNameKey());
+        }
+        if (order == 0) {
+            order = a.entry().firstNameKey().compareTo(b.entry().firstNameKey());
+        }
+        return order != 0 ? order : Long.compare(a.entry().id(), b.entry().id());
+    };
+
+    private static final class Index {
+        final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        // Token to the entries holding it, so candidates need no second lookup by ID
+        final ConcurrentSkipListMap<String, Map<Long, Entry>> tokens = new ConcurrentSkipListMap<>();
+        final Map<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+
+        void put(Entry entry) {
+            remove(entry.id());
+            entries.put(entry.id(), entry);
+            for (String token : entry.tokens()) {
+                Map<Long, Entry> holders = tokens.get(token);
+                if (holders == null) {
+                    holders = new ConcurrentHashMap<>();
+                    tokens.put(token, holders);
+                    if (isName(token)) {
+                        for (String trigram : trigramsOf(token)) {
+                            trigrams.computeIfAbsent(trigram, g -> ConcurrentHashMap.newKeySet()).add(token);
+                        }
+                    }
+                }
+                holders.put(entry.id(), entry);
+            }
+        }
+
+        void remove(Long id) {
+            Entry previous = entries.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String token : previous.tokens()) {
+                Map<Long, Entry> holders = tokens.get(token);
+                if (holders == null) {
+                    continue;
+                }
+                holders.remove(id);
+                if (holders.isEmpty()) {
+                    tokens.remove(token);
+                    if (!isName(token)) {
+                        continue;
+                    }
+                    for (String trigram : trigramsOf(token)) {
+                        Set<String> shared = trigrams.get(trigram);
+                        if (shared != null) {
+                            shared.remove(token);
+                            if (shared.isEmpty()) {
+                                trigrams.remove(trigram);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double minSimilarity;
+
+    // Searches read the current index without locking; changes and swaps are serialized on this object
+    private volatile Index index = new Index();
+    private volatile boolean ready;
+    // Changes made while a rebuild is loading, replayed onto the new index before it is swapped in
+    private List<Consumer<Index>> pendingDuringRebuild;
+
+    public StudentSearchIndex(JdbcTemplate jdbcTemplate,
+                              @Value("${student-performance.search.min-similarity:0.5}") double minSimilarity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.minSimilarity = minSimilarity;
+    }
+
+    /**
+     * Finds students matching every token of the query, best matches first:
+     * exact tokens before prefixes before near misses, then by last name, first name and ID.
+     * @throws IllegalArgumentException for a limit outside 1..{@value #MAX_LIMIT}.
+     * @throws IllegalStateException while the index is still being built at startup.
+     */
+    public List<StudentSearchHitDto> search(String query, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (!ready) {
+            throw new IllegalStateException("Student search index is not built yet");
+        }
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+        if (queryTokens.size() > MAX_QUERY_TOKENS) {
+            queryTokens = queryTokens.subList(0, MAX_QUERY_TOKENS);
+        }
+        Index current = index;
+        // The longest token is the most selective one, so it drives candidate generation
+        String driver = queryTokens.stream().max(Comparator.comparingInt(String::length)).orElseThrow();
+        // A lone token's exact and prefix matches outrank all its near misses, so enough of them make fuzzy lookup moot
+        int enoughWithoutNearMisses = queryTokens.size() == 1 ? limit : Integer.MAX_VALUE;
+        List<long[]> queryTrigrams = queryTokens.stream().map(StudentSearchIndex::trigramKeys).toList();
+        // Keeps the best `limit` hits, worst first, so ranking costs log(limit) per candidate instead of a full sort
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit, RANKING.reversed());
+        for (Entry entry : candidates(current, driver, enoughWithoutNearMisses)) {
+            double score = score(queryTokens, queryTrigrams, entry);
+            if (score == 0) {
+                continue;
+            }
+            Hit hit = new Hit(entry, score);
+            if (best.size() < limit) {
+                best.add(hit);
+            } else if (RANKING.compare(hit, best.peek()) < 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(RANKING);
+        List<StudentSearchHitDto> results = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            Entry entry = hit.entry();
+            results.add(new StudentSearchHitDto(entry.id(), entry.firstName(), entry.lastName(), entry.studentId(),
+                    entry.cohort()));
+        }
+        return results;
+    }
+
+    /**
+     * Indexes the student's current fields once the current transaction commits
+     * (immediately when called outside a transaction).
+     */
+    public void indexAfterCommit(Student student) {
+        Entry entry = entryOf(student.getId(), student.getFirstName(), student.getLastName(), student.getStudentId(),
+                student.getCohort());
+        afterCommit(() -> apply(current -> current.put(entry)));
+    }
+
+    public void removeAfterCommit(Long studentId) {
+        afterCommit(() -> apply(current -> current.remove(studentId)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${student-performance.search.refresh-interval-ms:600000}",
+            fixedDelayString = "${student-performance.search.refresh-interval-ms:600000}")
+    public void refresh() {
+        rebuild();
+    }
+
+    /**
+     * Loads a fresh index from the students table and swaps it in. Searches keep using the previous index
+     * while the new one loads; local changes committed meanwhile are applied to both.
+     */
+    public void rebuild() {
+        synchronized (this) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        Index fresh = new Index();
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(LOAD_SQL);
+                ps.setFetchSize(FETCH_SIZE);
+                return ps;
+            }, rs -> {
+                fresh.put(entryOf(rs.getLong("id"), rs.getString("first_name"), rs.getString("last_name"),
+                        rs.getString("student_id"), rs.getString("cohort")));
+            });
+        } catch (DataAccessException e) {
+            synchronized (this) {
+                pendingDuringRebuild = null;
+            }
+            log.warn("Student search index rebuild failed, keeping the previous index: {}",
+                    e.getMostSpecificCause().getMessage());
+            return;
+        }
+        synchronized (this) {
+            pendingDuringRebuild.forEach(change -> change.accept(fresh));
+            pendingDuringRebuild = null;
+            index = fresh;
+            ready = true;
+        }
+        log.info("Student search index built with {} students and {} distinct tokens",
+                fresh.entries.size(), fresh.tokens.size());
+    }
+
+    // Distinct tokens and trigrams held; an index kept up to date holds the same as one rebuilt from the same rows
+    int indexedTokens() {
+        return index.tokens.size();
+    }
+
+    int indexedTrigrams() {
+        return index.trigrams.size();
+    }
+
+    private synchronized void apply(Consumer<Index> change) {
+        change.accept(index);
+        if (pendingDuringRebuild != null) {
+            pendingDuringRebuild.add(change);
+        }
+    }
+
+    // Prefix matches in token order (so an exact token comes first), then tokens sharing enough trigrams
+    private Collection<Entry> candidates(Index current, String driver, int enoughWithoutNearMisses) {
+        Map<Long, Entry> candidates = new HashMap<>();
+        for (Map<Long, Entry> holders : current.tokens.subMap(driver, true, driver + Character.MAX_VALUE, false).values()) {
+            if (addUpToCap(candidates, holders)) {
+                return candidates.values();
+            }
+        }
+        if (!isFuzzy(driver) || candidates.size() >= enoughWithoutNearMisses) {
+            return candidates.values();
+        }
+        for (String token : similarTokens(current, driver)) {
+            Map<Long, Entry> holders = current.tokens.get(token);
+            if (holders != null && addUpToCap(candidates, holders)) {
+                break;
+            }
+        }
+        return candidates.values();
+    }
+
+    // Adds the holders of a token until MAX_CANDIDATES is reached; true once it is
+    private static boolean addUpToCap(Map<Long, Entry> candidates, Map<Long, Entry> holders) {
+        for (Map.Entry<Long, Entry> holder : holders.entrySet()) {
+            candidates.putIfAbsent(holder.getKey(), holder.getValue());
+            if (candidates.size() >= MAX_CANDIDATES) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Tokens whose trigram similarity to the query token reaches the threshold, most similar first
+    private List<String> similarTokens(Index current, String queryToken) {
+        Set<String> queryTrigrams = trigramsOf(queryToken);
+        List<Set<String>> postings = new ArrayList<>(queryTrigrams.size());
+        int postingSizes = 0;
+        for (String trigram : queryTrigrams) {
+            Set<String> tokens = current.trigrams.get(trigram);
+            if (tokens != null) {
+                postings.add(tokens);
+                postingSizes += tokens.size();
+            }
+        }
+        // Sized for every posting up front; rehashing while counting cost more than the counting itself
+        Map<String, Integer> shared = new HashMap<>(Math.max(16, postingSizes * 4 / 3 + 1));
+        for (Set<String> tokens : postings) {
+            for (String token : tokens) {
+                shared.merge(token, 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<String, Double>> similar = new ArrayList<>();
+        for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            // A token has at least as many trigrams as it shares; most share too few to reach the threshold at all
+            if (dice(candidate.getValue(), queryTrigrams.size(), candidate.getValue()) < minSimilarity) {
+                continue;
+            }
+            double similarity = dice(candidate.getValue(), queryTrigrams.size(), distinctTrigrams(candidate.getKey()));
+            if (similarity >= minSimilarity && !candidate.getKey().startsWith(queryToken)) {
+                similar.add(Map.entry(candidate.getKey(), similarity));
+            }
+        }
+        similar.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+        return similar.stream().map(Map.Entry::getKey).toList();
+    }
+
+    // Sum over query tokens of the best match in the entry: 3 exact, 2 prefix, up to 1 similar; 0 if any token misses
+    private double score(List<String> queryTokens, List<long[]> queryTrigrams, Entry entry) {
+        double total = 0;
+        for (int i = 0; i < queryTokens.size(); i++) {
+            String queryToken = queryTokens.get(i);
+            double best = 0;
+            for (String token : entry.tokens()) {
+                if (token.equals(queryToken)) {
+                    best = 3;
+                    break;
+                }
+                if (token.startsWith(queryToken)) {
+                    best = 2;
+                }
+            }
+            // Near misses only count when no token matches exactly or by prefix
+            if (best == 0 && isFuzzy(queryToken)) {
+                for (String token : entry.tokens()) {
+                    if (isName(token)) {
+                        double similarity = similarity(queryTrigrams.get(i), token);
+                        if (similarity >= minSimilarity) {
+                            best = Math.max(best, similarity);
+                        }
+                    }
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static Entry entryOf(Long id, String firstName, String lastName, String studentId, String cohort) {
+        Set<String> tokens = new HashSet<>();
+        tokens.addAll(tokenize(firstName));
+        tokens.addAll(tokenize(lastName));
+        List<String> idTokens = tokenize(studentId);
+        tokens.addAll(idTokens);
+        if (idTokens.size() > 1) {
+            tokens.add(String.join("", idTokens)); // "STU-0042" is also found as "stu0042"
+        }
+        return new Entry(id, firstName, lastName, studentId, cohort, Set.copyOf(tokens), sortKey(lastName),
+                sortKey(firstName));
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Trigrams of the token padded with boundary markers, so short tokens and word edges count too
+    private static Set<String> trigramsOf(String token) {
+        String padded = "^" + token + "$";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    // Near misses only make sense for names; a digit typo in an ID is another student
+    private static boolean isName(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isLetter(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isFuzzy(String queryToken) {
+        return queryToken.length() >= MIN_FUZZY_LENGTH && isName(queryToken);
+    }
+
+    // The same trigrams as trigramsOf, packed into longs and sorted; scoring compares them without allocating
+    private static long[] trigramKeys(String token) {
+        return IntStream.range(0, token.length())
+                .filter(at -> !repeatsEarlier(token, at))
+                .mapToLong(at -> trigramKey(token, at))
+                .sorted()
+                .toArray();
+    }
+
+    private static double similarity(long[] queryTrigrams, String token) {
+        int distinct = 0;
+        int shared = 0;
+        for (int at = 0; at < token.length(); at++) {
+            if (repeatsEarlier(token, at)) {
+                continue;
+            }
+            distinct++;
+            if (Arrays.binarySearch(queryTrigrams, trigramKey(token, at)) >= 0) {
+                shared++;
+            }
+        }
+        return dice(shared, queryTrigrams.length, distinct);
+    }
+
+    private static int distinctTrigrams(String token) {
+        int distinct = 0;
+        for (int at = 0; at < token.length(); at++) {
+            if (!repeatsEarlier(token, at)) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    private static boolean repeatsEarlier(String token, int at) {
+        long trigram = trigramKey(token, at);
+        for (int earlier = 0; earlier < at; earlier++) {
+            if (trigramKey(token, earlier) == trigram) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Trigram at the index of "^" + token + "$", packed into a long without building the padded string
+    private static long trigramKey(String token, int at) {
+        return (long) paddedCharAt(token, at) << 32 | (long) paddedCharAt(token, at + 1) << 16 | paddedCharAt(token, at + 2);
+    }
+
+    private static char paddedCharAt(String token, int at) {
+        return at == 0 ? '^' : at > token.length() ? '$' : token.charAt(at - 1);
+    }
+
+    private static double dice(int shared, int sizeA, int sizeB) {
+        return 2.0 * shared / (sizeA + sizeB);
+    }
+
+    private static String sortKey(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,9 +1,8 @@
 package com.parentportal.student_performance_service.service.impl;
 
 import com.parentportal.student_performance_service.dto.*;
-import com.parentportal.student_performance_service.dto.user.Roles;
-import com.parentportal.student_performance_service.dto.user.UserDto;
 import com.parentportal.student_performance_service.entity.Attendance;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
 import com.parentportal.student_performance_service.entity.Result;
 import com.parentportal.student_performance_service.entity.Student;
 import com.parentportal.student_performance_service.mapper.AttendanceMapper;
@@ -13,190 +12,582 @@ import com.parentportal.student_performance_service.repository.AttendanceReposit
 import com.parentportal.student_performance_service.repository.ResultRepository;
 import com.parentportal.student_performance_service.repository.StudentRepository;
 import com.parentportal.student_performance_service.service.StudentService;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatusCode;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class StudentServiceImpl implements StudentService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 100;
+    private static final int MAX_BATCH_LOOKUP = 10000;
+    private static final int BATCH_LOOKUP_CHUNK_SIZE = 1000; // IDs per IN list
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1000, 1, 1); // MariaDB DATE range
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+    private static final Comparator<ResultDto> RESULTS_NEWEST_FIRST =
+            Comparator.comparing(ResultDto::getDate).thenComparing(ResultDto::getId).reversed();
+    private static final Comparator<AttendanceDto> ATTENDANCE_NEWEST_FIRST =
+            Comparator.comparing(AttendanceDto::getDate).thenComparing(AttendanceDto::getId).reversed();
+    private static final int MAX_ARCHIVE_WINDOW = 10000; // Rows merged per table for a page reaching the archive
+    private static final String INSERT_ATTENDANCE_SQL =
+            "INSERT INTO attendance (id, student_id, date, status, reason) VALUES (?, ?, ?, ?, ?)";
+
     private final StudentRepository studentRepository;
     private final ResultRepository resultRepository;
     private final AttendanceRepository attendanceRepository;
     private final StudentMapper studentMapper;
     private final ResultMapper resultMapper;
     private final AttendanceMapper attendanceMapper;
-    private final WebClient.Builder webClient; // NEWLY ADDED
+    private final StudentFetchPlan studentFetchPlan;
+    private final AttendanceLedgerService attendanceLedgerService;
+    private final PerformanceAggregateService performanceAggregateService;
+    private final StudentEventOutbox studentEventOutbox;
+    private final AttendanceAnomalyDetector attendanceAnomalyDetector;
+    private final ClassRankingEngine classRankingEngine;
+    private final SecondLevelCache secondLevelCache;
+    private final StudentVersions studentVersions;
+    private final SequenceIds sequenceIds;
+    private final StudentSearchIndex studentSearchIndex;
+    private final AcademicYearArchive academicYearArchive;
+    private final AcademicCalendar academicCalendar;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRoleVerifier userRoleVerifier;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler jdbcScheduler;
+    private final EntityManager entityManager;
 
-    @Value("${user-management-service.url}")
-    private String userManagementServiceUrl;
+    // Write operations verify roles before opening a transaction, so no DB connection is held during the remote check.
+    // They return without parking the caller's thread: the checks run on the WebClient's event loop and the
+    // transaction then runs on the bounded JDBC scheduler.
+    @Override
+    public Mono<StudentDto> createStudent(Long adminUserId, StudentCreateDto studentCreateDto) {
+        // Both checks are in flight at once; the first failure cancels the other
+        return Mono.when(userRoleVerifier.verifyAdmin(adminUserId),
+                userRoleVerifier.verifyParent(studentCreateDto.getParentUserId())).then(inTransaction(status -> {
+            Student student = studentMapper.studentCreateDtoToStudent(studentCreateDto);
+            Student savedStudent = studentRepository.save(student);
+            studentSearchIndex.indexAfterCommit(savedStudent);
+            return studentMapper.studentToStudentDto(savedStudent);
+        }));
+    }
 
-    private Mono<UserDto> getAdminUser(Long adminUserId) {
-        return webClient.build().get()
-                .uri("lb://" + userManagementServiceUrl
-                        + "/api/users/{id}", adminUserId)
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
-                        Mono.error(new NoSuchElementException("Admin user not found with ID: " + adminUserId)))
-                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
-                        Mono.error(new RuntimeException("User service error: " + clientResponse.statusCode())))
-                .bodyToMono(UserDto.class)
-                .filter(user -> Roles.ADMIN == user.getRole())
-                .switchIfEmpty(Mono.error(new IllegalArgumentException("User with ID " + adminUserId + " is not an ADMIN.")));
+    @Override
+    @Transactional(readOnly = true)
+    public VersionedDto<StudentDto> getStudentById(Long id) {
+        long version = versionForRead(id);
+        Student student = studentRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Student not found with ID: " + id));
+        return new VersionedDto<>(studentFetchPlan.withCachedRecords(List.of(student)).get(0), version);
     }
 
-    private Mono<UserDto> getParentUser(Long parentUserId) {
-        return webClient.build().get()
-                .uri("lb://" + userManagementServiceUrl
-                        + "/api/users/{id}", parentUserId)
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
-                        Mono.error(new NoSuchElementException("Parent user not found with ID: " + parentUserId)))
-                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
-                        Mono.error(new RuntimeException("User service error: " + clientResponse.statusCode())))
-                .bodyToMono(UserDto.class)
-                .filter(user -> Roles.PARENT == user.getRole())
-                .switchIfEmpty(Mono.error(new IllegalArgumentException("User with ID " + parentUserId + " is not a PARENT.")));
+    // Read in the reading transaction, so from the same database as the body loaded after it; StudentVersions
+    // first evicts whatever the second-level cache holds for the student under another version
+    private long versionForRead(Long studentId) {
+        Long version = studentVersions.forRead(studentId);
+        if (version == null) {
+            throw new NoSuchElementException("Student not found with ID: " + studentId);
+        }
+        return version;
     }
 
     @Override
-    @Transactional
-    public StudentDto createStudent(Long adminUserId, StudentCreateDto studentCreateDto) {
-        getAdminUser(adminUserId).block();
-        getParentUser(studentCreateDto.getParentUserId()).block();
-        Student student = studentMapper.studentCreateDtoToStudent(studentCreateDto);
-        Student savedStudent = studentRepository.save(student);
-        return studentMapper.studentToStudentDto(savedStudent);
+    public long getContentVersion(Long studentId) {
+        Long version = studentVersions.current(studentId);
+        if (version == null) {
+            throw new NoSuchElementException("Student not found with ID: " + studentId);
+        }
+        return version;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public StudentDto getStudentById(Long id) {
-        Student student = studentRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException("Student not found with ID: " + id));
-        return studentMapper.studentToStudentDto(student);
+    public List<StudentDto> getAllStudents() {
+        // Same keyset walk as the stream, so no query carries an IN list of the whole roster
+        List<StudentDto> students = new ArrayList<>();
+        walkRoster(BATCH_LOOKUP_CHUNK_SIZE, students::add);
+        return students;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<StudentDto> getAllStudents() {
-        List<Student> students = studentRepository.findAll();
-        return studentMapper.studentListToStudentDtoList(students);
+    public List<StudentSummaryDto> getAllStudentSummaries() {
+        // Projected keyset chunks: neither one unbounded query nor a persistence context holding the roster
+        List<StudentSummaryDto> students = new ArrayList<>();
+        long cursor = 0L;
+        while (true) {
+            List<StudentSummaryDto> chunk = studentRepository.findSummaryPageAfter(cursor,
+                    PageRequest.of(0, BATCH_LOOKUP_CHUNK_SIZE));
+            students.addAll(chunk);
+            if (chunk.size() < BATCH_LOOKUP_CHUNK_SIZE) {
+                return students;
+            }
+            cursor = chunk.get(chunk.size() - 1).getId();
+        }
     }
 
     @Override
-    @Transactional
-    public StudentDto updateStudent(Long adminUserId, Long id, StudentUpdateDto studentUpdateDto) {
-        getAdminUser(adminUserId).block();
-        Student existingStudent = studentRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException("Student not found with ID: " + id));
-        studentMapper.updateStudentFromDto(studentUpdateDto, existingStudent);
-        Student updatedStudent = studentRepository.save(existingStudent);
-        return studentMapper.studentToStudentDto(updatedStudent);
+    @Transactional(readOnly = true)
+    public CursorPageDto<StudentDto> getStudentsPage(Long afterId, int size) {
+        List<Student> students = findPageWithLookahead(afterId, size);
+        boolean hasMore = students.size() > size;
+        List<Student> page = hasMore ? students.subList(0, size) : students;
+        return new CursorPageDto<>(studentFetchPlan.withRecords(page), nextCursor(page, hasMore), hasMore);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<StudentSummaryDto> getStudentSummariesPage(Long afterId, int size) {
+        List<Student> students = findPageWithLookahead(afterId, size);
+        boolean hasMore = students.size() > size;
+        List<Student> page = hasMore ? students.subList(0, size) : students;
+        return new CursorPageDto<>(studentFetchPlan.summaries(page), nextCursor(page, hasMore), hasMore);
+    }
+
+    // Asks for one extra row to know whether another page exists without a count query
+    private List<Student> findPageWithLookahead(Long afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        long cursor = afterId == null ? 0L : afterId;
+        return studentRepository.findPageAfter(cursor, PageRequest.of(0, size + 1));
+    }
+
+    private Long nextCursor(List<Student> page, boolean hasMore) {
+        return hasMore ? page.get(page.size() - 1).getId() : null;
     }
 
     @Override
-    @Transactional
-    public void deleteStudent(Long adminUserId, Long id) {
-        getAdminUser(adminUserId).block();
-        if (!studentRepository.existsById(id)) {
-            throw new NoSuchElementException("Student not found with ID: " + id);
+    @Transactional(readOnly = true)
+    public void streamAllStudents(Consumer<StudentDto> consumer) {
+        walkRoster(STREAM_CHUNK_SIZE, consumer);
+    }
+
+    private void walkRoster(int chunkSize, Consumer<StudentDto> consumer) {
+        // Walks the roster in keyset chunks rather than holding a JDBC cursor open: the batch
+        // queries for results and attendance would otherwise force the driver to buffer the cursor.
+        long cursor = 0L;
+        while (true) {
+            List<Student> chunk = studentRepository.findPageAfter(cursor, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                return;
+            }
+            studentFetchPlan.withRecords(chunk).forEach(consumer);
+            cursor = chunk.get(chunk.size() - 1).getId();
+            // Clear so the persistence context does not grow with the roster
+            entityManager.clear();
+            if (chunk.size() < chunkSize) {
+                return;
+            }
         }
-        studentRepository.deleteById(id);
+    }
+
+    @Override
+    public Mono<StudentDto> updateStudent(Long adminUserId, Long id, StudentUpdateDto studentUpdateDto) {
+        return userRoleVerifier.verifyAdmin(adminUserId).then(inTransaction(status -> {
+            Student existingStudent = studentRepository.findById(id)
+                    .orElseThrow(() -> new NoSuchElementException("Student not found with ID: " + id));
+            String previousCohort = existingStudent.getCohort();
+            studentMapper.updateStudentFromDto(studentUpdateDto, existingStudent);
+            Student updatedStudent = studentRepository.save(existingStudent);
+            studentVersions.bump(id);
+            studentSearchIndex.indexAfterCommit(updatedStudent);
+            if (!Objects.equals(previousCohort, updatedStudent.getCohort())) {
+                classRankingEngine.invalidateCohorts(Arrays.asList(previousCohort, updatedStudent.getCohort()));
+            }
+            return studentFetchPlan.withCachedRecords(List.of(updatedStudent)).get(0);
+        }));
+    }
+
+    @Override
+    public Mono<Void> deleteStudent(Long adminUserId, Long id) {
+        return userRoleVerifier.verifyAdmin(adminUserId).then(inTransactionWithoutResult(status -> {
+            Student student = studentRepository.findById(id)
+                    .orElseThrow(() -> new NoSuchElementException("Student not found with ID: " + id));
+            studentRepository.delete(student);
+            attendanceLedgerService.deleteLedgers(id);
+            performanceAggregateService.deleteAggregates(id);
+            attendanceAnomalyDetector.forget(id);
+            classRankingEngine.invalidateCohorts(Collections.singletonList(student.getCohort()));
+            studentVersions.forget(id);
+            studentSearchIndex.removeAfterCommit(id);
+        }));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<StudentDto> getStudentsByParentUserId(Long parentUserId) {
         List<Student> students = studentRepository.findByParentUserId(parentUserId);
-        return studentMapper.studentListToStudentDtoList(students);
+        return studentFetchPlan.withCachedRecords(students);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StudentSummaryDto> getStudentSummariesByParentUserId(Long parentUserId) {
+        List<Student> students = studentRepository.findByParentUserId(parentUserId);
+        return studentFetchPlan.summaries(students);
     }
 
     @Override
-    @Transactional
-    public ResultDto addResultToStudent(Long adminUserId, Long studentId, ResultCreateDto resultCreateDto) {
-        getAdminUser(adminUserId).block();
+    @Transactional(readOnly = true)
+    public StudentBatchResponseDto getStudentRefs(Collection<Long> ids) {
+        if (ids.size() > MAX_BATCH_LOOKUP) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_LOOKUP + " student IDs can be looked up at once");
+        }
+        List<Long> sortedIds = ids.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        List<StudentRefDto> students = new ArrayList<>(sortedIds.size());
+        for (int from = 0; from < sortedIds.size(); from += BATCH_LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = sortedIds.subList(from, Math.min(from + BATCH_LOOKUP_CHUNK_SIZE, sortedIds.size()));
+            students.addAll(studentRepository.findRefs(chunk));
+        }
+        students.sort(Comparator.comparing(StudentRefDto::getId));
+        Set<Long> found = new HashSet<>();
+        students.forEach(student -> found.add(student.getId()));
+        List<Long> missingIds = sortedIds.stream().filter(id -> !found.contains(id)).toList();
+        return new StudentBatchResponseDto(students, missingIds);
+    }
+
+    @Override
+    public List<StudentSearchHitDto> searchStudents(String query, int limit) {
+        return studentSearchIndex.search(query, limit);
+    }
+
+    @Override
+    public Mono<ResultDto> addResultToStudent(Long adminUserId, Long studentId, ResultCreateDto resultCreateDto) {
+        return userRoleVerifier.verifyAdmin(adminUserId).then(inTransaction(status -> {
+            academicYearArchive.requireOpenYear(resultCreateDto.getDate());
+            Student student = studentRepository.findById(studentId)
+                    .orElseThrow(() -> new NoSuchElementException("Student not found with ID: " + studentId));
+            Result result = resultMapper.resultCreateDtoToResult(resultCreateDto);
+            result.setStudent(student);
+            Result savedResult = resultRepository.save(result);
+            performanceAggregateService.resultAdded(savedResult);
+            studentEventOutbox.gradeUpdated(recipientOf(student), savedResult.getId(), resultCreateDto);
+            studentVersions.bump(studentId);
+            classRankingEngine.invalidateCohorts(Collections.singletonList(student.getCohort()));
+            return resultMapper.resultToResultDto(savedResult);
+        }));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public VersionedDto<List<ResultDto>> getResultsByStudentId(Long studentId) {
+        long version = versionForRead(studentId);
         Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new NoSuchElementException("Student not found with ID: " + studentId));
-        Result result = resultMapper.resultCreateDtoToResult(resultCreateDto);
-        result.setStudent(student);
-        Result savedResult = resultRepository.save(result);
-        return resultMapper.resultToResultDto(savedResult);
+        // Closed years moved to the archive come first, followed by the hot rows from the cached collection
+        List<ResultDto> results = new ArrayList<>(academicYearArchive.results(studentId));
+        results.addAll(resultMapper.resultListToResultDtoList(student.getResults()));
+        return new VersionedDto<>(results, version);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<ResultDto> getResultsByStudentId(Long studentId) {
+    public SlicePageDto<ResultDto> searchResults(Long studentId, String subject, LocalDate from, LocalDate to,
+                                                 Integer academicYear, int page, int size) {
         if (!studentRepository.existsById(studentId)) {
             throw new NoSuchElementException("Student not found with ID: " + studentId);
         }
-        List<Result> results = resultRepository.findByStudentId(studentId);
-        return resultMapper.resultListToResultDtoList(results);
+        DateRange range = dateRange(from, to, academicYear);
+        PageRequest pageable = filterPage(page, size);
+        String subjectFilter = subject == null || subject.isBlank() ? null : subject.trim();
+        if (!academicYearArchive.reachesArchive(range.from())) {
+            Slice<Result> results = hotResults(studentId, subjectFilter, range, pageable);
+            return new SlicePageDto<>(resultMapper.resultListToResultDtoList(results.getContent()), page, size,
+                    results.hasNext());
+        }
+        // Slower path: merge the newest rows of both tables up to the end of the requested page
+        int window = archiveWindow(page, size);
+        List<ResultDto> hot = resultMapper.resultListToResultDtoList(
+                hotResults(studentId, subjectFilter, range, PageRequest.of(0, window, NEWEST_FIRST)).getContent());
+        List<ResultDto> archived = academicYearArchive.results(studentId, subjectFilter, range.from(), range.to(), window);
+        return mergedPage(hot, archived, RESULTS_NEWEST_FIRST, page, size);
+    }
+
+    private Slice<Result> hotResults(Long studentId, String subject, DateRange range, PageRequest pageable) {
+        return subject == null
+                ? resultRepository.findByStudentIdAndDateBetween(studentId, range.from(), range.to(), pageable)
+                : resultRepository.findByStudentIdAndSubjectAndDateBetween(studentId, subject, range.from(),
+                range.to(), pageable);
     }
 
     @Override
     @Transactional(readOnly = true)
     public ResultDto getResultById(Long resultId) {
-        Result result = resultRepository.findById(resultId)
+        return resultRepository.findById(resultId)
+                .map(resultMapper::resultToResultDto)
+                .or(() -> academicYearArchive.result(resultId))
                 .orElseThrow(() -> new NoSuchElementException("Result not found with ID: " + resultId));
-        return resultMapper.resultToResultDto(result);
     }
 
     @Override
-    @Transactional
-    public void deleteResult(Long adminUserId, Long resultId) {
-        getAdminUser(adminUserId).block();
-        if (!resultRepository.existsById(resultId)) {
-            throw new NoSuchElementException("Result not found with ID: " + resultId);
-        }
-        resultRepository.deleteById(resultId);
+    public Mono<Void> deleteResult(Long adminUserId, Long resultId) {
+        return userRoleVerifier.verifyAdmin(adminUserId).then(inTransactionWithoutResult(status -> {
+            Result result = resultRepository.findById(resultId).orElseThrow(() -> academicYearArchive.result(resultId).isPresent()
+                    ? new IllegalStateException("Result " + resultId + " is archived with its closed academic year and is read-only")
+                    : new NoSuchElementException("Result not found with ID: " + resultId));
+            academicYearArchive.requireOpenYear(result.getDate());
+            resultRepository.delete(result);
+            resultRepository.flush();
+            performanceAggregateService.resultDeleted(result);
+            classRankingEngine.invalidateCohorts(Collections.singletonList(result.getStudent().getCohort()));
+            studentVersions.bump(result.getStudent().getId());
+        }));
+    }
+
+    @Override
+    public Mono<AttendanceDto> addAttendanceToStudent(Long adminUserId, Long studentId, AttendanceCreateDto attendanceCreateDto) {
+        return userRoleVerifier.verifyAdmin(adminUserId).then(inTransaction(status -> {
+            academicYearArchive.requireOpenYear(attendanceCreateDto.getDate());
+            Student student = studentRepository.findById(studentId)
+                    .orElseThrow(() -> new NoSuchElementException("Student not found with ID: " + studentId));
+            Attendance attendance = attendanceMapper.attendanceCreateDtoToAttendance(attendanceCreateDto);
+            attendance.setStudent(student);
+            Attendance savedAttendance = attendanceRepository.save(attendance);
+            attendanceLedgerService.record(studentId, savedAttendance.getDate(), savedAttendance.getStatus());
+            attendanceAnomalyDetector.onMark(recipientOf(student), savedAttendance.getDate(), savedAttendance.getStatus());
+            studentVersions.bump(studentId);
+            return attendanceMapper.attendanceToAttendanceDto(savedAttendance);
+        }));
     }
 
     @Override
-    @Transactional
-    public AttendanceDto addAttendanceToStudent(Long adminUserId, Long studentId, AttendanceCreateDto attendanceCreateDto) {
-        getAdminUser(adminUserId).block();
+    @Transactional(readOnly = true)
+    public VersionedDto<List<AttendanceDto>> getAttendanceByStudentId(Long studentId) {
+        long version = versionForRead(studentId);
         Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new NoSuchElementException("Student not found with ID: " + studentId));
-        Attendance attendance = attendanceMapper.attendanceCreateDtoToAttendance(attendanceCreateDto);
-        attendance.setStudent(student);
-        Attendance savedAttendance = attendanceRepository.save(attendance);
-        return attendanceMapper.attendanceToAttendanceDto(savedAttendance);
+        List<AttendanceDto> attendanceRecords = new ArrayList<>(academicYearArchive.attendance(studentId));
+        attendanceRecords.addAll(attendanceMapper.attendanceListToAttendanceDtoList(student.getAttendanceRecords()));
+        return new VersionedDto<>(attendanceRecords, version);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<AttendanceDto> getAttendanceByStudentId(Long studentId) {
+    public SlicePageDto<AttendanceDto> searchAttendance(Long studentId, AttendanceStatus status, LocalDate from,
+                                                        LocalDate to, Integer academicYear, int page, int size) {
         if (!studentRepository.existsById(studentId)) {
             throw new NoSuchElementException("Student not found with ID: " + studentId);
         }
-        List<Attendance> attendanceRecords = attendanceRepository.findByStudentId(studentId);
-        return attendanceMapper.attendanceListToAttendanceDtoList(attendanceRecords);
+        DateRange range = dateRange(from, to, academicYear);
+        PageRequest pageable = filterPage(page, size);
+        if (!academicYearArchive.reachesArchive(range.from())) {
+            Slice<Attendance> records = hotAttendance(studentId, status, range, pageable);
+            return new SlicePageDto<>(attendanceMapper.attendanceListToAttendanceDtoList(records.getContent()), page,
+                    size, records.hasNext());
+        }
+        int window = archiveWindow(page, size);
+        List<AttendanceDto> hot = attendanceMapper.attendanceListToAttendanceDtoList(
+                hotAttendance(studentId, status, range, PageRequest.of(0, window, NEWEST_FIRST)).getContent());
+        List<AttendanceDto> archived = academicYearArchive.attendance(studentId, status, range.from(), range.to(), window);
+        return mergedPage(hot, archived, ATTENDANCE_NEWEST_FIRST, page, size);
+    }
+
+    private Slice<Attendance> hotAttendance(Long studentId, AttendanceStatus status, DateRange range,
+                                            PageRequest pageable) {
+        return status == null
+                ? attendanceRepository.findByStudentIdAndDateBetween(studentId, range.from(), range.to(), pageable)
+                : attendanceRepository.findByStudentIdAndStatusAndDateBetween(studentId, status, range.from(),
+                range.to(), pageable);
+    }
+
+    // Rows needed from each table to fill the page and tell whether another follows
+    private int archiveWindow(int page, int size) {
+        long window = (long) (page + 1) * size + 1;
+        if (window > MAX_ARCHIVE_WINDOW) {
+            throw new IllegalArgumentException("Page is too deep into archived history; narrow the date range");
+        }
+        return (int) window;
+    }
+
+    private <T> SlicePageDto<T> mergedPage(List<T> hot, List<T> archived, Comparator<T> order, int page, int size) {
+        List<T> merged = new ArrayList<>(hot.size() + archived.size());
+        merged.addAll(hot);
+        merged.addAll(archived);
+        merged.sort(order);
+        int from = Math.min(page * size, merged.size());
+        int to = Math.min(from + size, merged.size());
+        return new SlicePageDto<>(new ArrayList<>(merged.subList(from, to)), page, size, merged.size() > to);
+    }
+
+    private record DateRange(LocalDate from, LocalDate to) {
+    }
+
+    // Explicit bounds narrow the academic year when both are given; with neither, the range is open
+    private DateRange dateRange(LocalDate from, LocalDate to, Integer academicYear) {
+        LocalDate start = academicYear == null ? EARLIEST_DATE : academicCalendar.startOf(academicYear);
+        LocalDate end = academicYear == null ? LATEST_DATE : academicCalendar.endOf(academicYear);
+        if (from != null && from.isAfter(start)) {
+            start = from;
+        }
+        if (to != null && to.isBefore(end)) {
+            end = to;
+        }
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("The date range is empty");
+        }
+        return new DateRange(start, end);
+    }
+
+    private PageRequest filterPage(int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return PageRequest.of(page, size, NEWEST_FIRST);
     }
 
     @Override
     @Transactional(readOnly = true)
     public AttendanceDto getAttendanceById(Long attendanceId) {
-        Attendance attendance = attendanceRepository.findById(attendanceId)
+        return attendanceRepository.findById(attendanceId)
+                .map(attendanceMapper::attendanceToAttendanceDto)
+                .or(() -> academicYearArchive.attendanceRecord(attendanceId))
                 .orElseThrow(() -> new NoSuchElementException("Attendance record not found with ID: " + attendanceId));
-        return attendanceMapper.attendanceToAttendanceDto(attendance);
     }
 
     @Override
-    @Transactional
-    public void deleteAttendance(Long adminUserId, Long attendanceId) {
-        getAdminUser(adminUserId).block();
-        if (!attendanceRepository.existsById(attendanceId)) {
-            throw new NoSuchElementException("Attendance record not found with ID: " + attendanceId);
+    public Mono<Void> deleteAttendance(Long adminUserId, Long attendanceId) {
+        return userRoleVerifier.verifyAdmin(adminUserId).then(inTransactionWithoutResult(status -> {
+            Attendance attendance = attendanceRepository.findById(attendanceId).orElseThrow(() ->
+                    academicYearArchive.attendanceRecord(attendanceId).isPresent()
+                            ? new IllegalStateException("Attendance record " + attendanceId
+                                    + " is archived with its closed academic year and is read-only")
+                            : new NoSuchElementException("Attendance record not found with ID: " + attendanceId));
+            academicYearArchive.requireOpenYear(attendance.getDate());
+            Long studentId = attendance.getStudent().getId();
+            attendanceRepository.delete(attendance);
+            attendanceRepository.flush();
+            attendanceLedgerService.recalculateDay(studentId, attendance.getDate());
+            attendanceAnomalyDetector.rebuild(studentId);
+            studentVersions.bump(studentId);
+        }));
+    }
+
+    @Override
+    public Mono<RollCallReportDto> recordRollCall(Long adminUserId, RollCallDto rollCallDto) {
+        // Last mark wins if a student appears twice in the same roll call
+        Map<Long, RollCallMarkDto> marks = new LinkedHashMap<>();
+        for (RollCallMarkDto mark : rollCallDto.getMarks()) {
+            marks.put(mark.getStudentId(), mark);
+        }
+        return userRoleVerifier.verifyAdmin(adminUserId).then(inTransaction(status -> {
+            academicYearArchive.requireOpenYear(rollCallDto.getDate());
+            Map<Long, StudentRecipientDto> existing = new HashMap<>();
+            for (StudentRecipientDto recipient : studentRepository.findRecipients(marks.keySet())) {
+                existing.put(recipient.getId(), recipient);
+            }
+            List<Long> unknownStudentIds = new ArrayList<>();
+            List<RollCallMarkDto> recorded = new ArrayList<>(marks.size());
+            Map<Long, AttendanceStatus> statuses = new LinkedHashMap<>();
+            for (RollCallMarkDto mark : marks.values()) {
+                if (existing.containsKey(mark.getStudentId())) {
+                    recorded.add(mark);
+                    statuses.put(mark.getStudentId(), mark.getStatus());
+                } else {
+                    unknownStudentIds.add(mark.getStudentId());
+                }
+            }
+            if (!recorded.isEmpty()) {
+                // A repeated roll call for the same day replaces the earlier marks
+                attendanceRepository.deleteByDateAndStudentIdIn(rollCallDto.getDate(), statuses.keySet());
+                long[] ids = sequenceIds.next(SequenceIds.ATTENDANCE, recorded.size());
+                jdbcTemplate.batchUpdate(INSERT_ATTENDANCE_SQL, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        RollCallMarkDto mark = recorded.get(i);
+                        ps.setLong(1, ids[i]);
+                        ps.setLong(2, mark.getStudentId());
+                        ps.setDate(3, Date.valueOf(rollCallDto.getDate()));
+                        ps.setString(4, mark.getStatus().name());
+                        ps.setString(5, mark.getReason());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return recorded.size();
+                    }
+                });
+                secondLevelCache.evictAttendanceAfterCommit(statuses.keySet());
+                studentVersions.bump(statuses.keySet());
+                attendanceLedgerService.recordAll(statuses, rollCallDto.getDate());
+                attendanceAnomalyDetector.onMarks(rollCallDto.getDate(), statuses, existing);
+            }
+            return new RollCallReportDto(rollCallDto.getDate(), recorded.size(), unknownStudentIds);
+        }));
+    }
+
+    private StudentRecipientDto recipientOf(Student student) {
+        return new StudentRecipientDto(student.getId(), student.getFirstName(), student.getParentUserId(),
+                student.getCohort());
+    }
+
+    // Runs the transaction on the JDBC scheduler once subscribed; a null result completes empty
+    private <T> Mono<T> inTransaction(TransactionCallback<T> work) {
+        return Mono.fromCallable(() -> transactionTemplate.execute(work)).subscribeOn(jdbcScheduler);
+    }
+
+    private Mono<Void> inTransactionWithoutResult(Consumer<TransactionStatus> work) {
+        return Mono.<Void>fromRunnable(() -> transactionTemplate.executeWithoutResult(work)).subscribeOn(jdbcScheduler);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AttendanceStatsDto getAttendanceStats(Long studentId, Integer academicYear) {
+        if (!studentRepository.existsById(studentId)) {
+            throw new NoSuchElementException("Student not found with ID: " + studentId);
+        }
+        int year = academicYear == null ? academicCalendar.currentAcademicYear() : academicYear;
+        return attendanceLedgerService.stats(studentId, year);
+    }
+
+    @Override
+    public ClassRankingDto getClassRanking(String cohort, String subject, Integer academicYear, int buckets) {
+        int year = academicYear == null ? academicCalendar.currentAcademicYear() : academicYear;
+        return classRankingEngine.ranking(cohort, subject, year, buckets);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PerformanceSummaryDto getPerformanceSummary(Long studentId, Integer academicYear) {
+        if (!studentRepository.existsById(studentId)) {
+            throw new NoSuchElementException("Student not found with ID: " + studentId);
         }
-        attendanceRepository.deleteById(attendanceId);
+        int year = academicYear == null ? academicCalendar.currentAcademicYear() : academicYear;
+        return performanceAggregateService.summary(studentId, year);
     }
 }
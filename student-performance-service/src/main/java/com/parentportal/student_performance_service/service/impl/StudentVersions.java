@@ -0,0 +1,122 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tracks a per-student content version, bumped by every write to the student, its results or its attendance,
+ * so reads can be answered with an ETag and revalidated without loading the data.
+ * The version lives in students.content_version and is deliberately not mapped on the entity, so batch
+ * bumps neither go stale in nor get overwritten from the second-level cache. Versions are cached here;
+ * local writes invalidate them on commit, and the TTL bounds how long another instance's write goes unseen.
+ * The version is also the validator of the student's second-level cache entries, which are local to each
+ * instance: a read that finds a version other than the one they were cached under evicts them first.
+ */
+@Component
+public class StudentVersions {
+
+    private static final String SELECT_VERSION_SQL = "SELECT content_version FROM students WHERE id = ?";
+    private static final String BUMP_VERSION_SQL = "UPDATE students SET content_version = content_version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecondLevelCache secondLevelCache;
+    private final Cache<Long, Long> versions;
+    // Version each student's second-level cache entries were loaded under; no entry means unknown
+    private final Cache<Long, Long> cachedUnder;
+
+    public StudentVersions(JdbcTemplate jdbcTemplate,
+                           SecondLevelCache secondLevelCache,
+                           @Value("${student-performance.etag.version-cache-max-size:100000}") long maxSize,
+                           @Value("${student-performance.etag.version-ttl:PT30S}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.secondLevelCache = secondLevelCache;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.cachedUnder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * @return The student's current content version, or null if the student does not exist.
+     */
+    public Long current(Long studentId) {
+        return versions.get(studentId, id -> {
+            List<Long> rows = jdbcTemplate.queryForList(SELECT_VERSION_SQL, Long.class, id);
+            return rows.isEmpty() ? null : rows.get(0);
+        });
+    }
+
+    /**
+     * Reads the student's version uncached, in the current transaction, so from the same database as the body
+     * the transaction loads next. If the student's second-level cache entries were loaded under another version
+     * (another instance wrote since, or a lagging replica served them), they are evicted first, so the body
+     * loaded through the cache always matches the version returned.
+     * @return The student's content version, or null if the student does not exist.
+     */
+    public Long forRead(Long studentId) {
+        List<Long> rows = jdbcTemplate.queryForList(SELECT_VERSION_SQL, Long.class, studentId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Long version = rows.get(0);
+        if (!version.equals(cachedUnder.getIfPresent(studentId))) {
+            secondLevelCache.evictStudent(studentId);
+            cachedUnder.put(studentId, version);
+        }
+        return version;
+    }
+
+    /**
+     * Increments the versions of the given students. Must run inside the writing transaction;
+     * the cached versions are dropped once it commits, so the next read also revalidates the students'
+     * second-level cache entries.
+     */
+    public void bump(Collection<Long> studentIds) {
+        Set<Long> ids = Set.copyOf(studentIds);
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(BUMP_VERSION_SQL, ids, ids.size(), (ps, id) -> ps.setLong(1, id));
+        invalidateAfterCommit(ids);
+    }
+
+    public void bump(Long studentId) {
+        bump(List.of(studentId));
+    }
+
+    // For a deleted student: there is no row left to bump
+    public void forget(Long studentId) {
+        invalidateAfterCommit(Set.of(studentId));
+    }
+
+    private void invalidateAfterCommit(Set<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(ids);
+            }
+        });
+    }
+
+    private void invalidate(Set<Long> ids) {
+        versions.invalidateAll(ids);
+        cachedUnder.invalidateAll(ids);
+    }
+}
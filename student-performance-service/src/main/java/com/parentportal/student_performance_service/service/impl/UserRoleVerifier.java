@@ -0,0 +1,84 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.parentportal.student_performance_service.dto.user.Roles;
+import com.parentportal.student_performance_service.dto.user.UserDto;
+import com.parentportal.student_performance_service.service.AccessDeniedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+
+/**
+ * Verifies ADMIN and PARENT roles against the User Management Service with a local cache in front of it.
+ * Each user is looked up through a cached Mono, so concurrent checks for the same user share one
+ * remote call. Found users are kept for the TTL, unknown users for the shorter negative TTL, and
+ * transient failures (5xx, timeouts) are never cached.
+ * The User Management Service publishes no role changes, so the TTL is the revocation bound: a demoted or
+ * deleted admin keeps passing the check on this instance for at most that long.
+ */
+@Component
+public class UserRoleVerifier {
+
+    private final WebClient webClient;
+    private final String userManagementServiceUrl;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final Cache<Long, Mono<UserDto>> users;
+
+    public UserRoleVerifier(WebClient.Builder webClientBuilder,
+                            @Value("${user-management-service.url}") String userManagementServiceUrl,
+                            @Value("${student-performance.role-cache.max-size:10000}") long maxSize,
+                            @Value("${student-performance.role-cache.ttl:PT5M}") Duration ttl,
+                            @Value("${student-performance.role-cache.negative-ttl:PT30S}") Duration negativeTtl) {
+        this.webClient = webClientBuilder.build();
+        this.userManagementServiceUrl = userManagementServiceUrl;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Completes with the user if it exists and is an ADMIN.
+     * Errors with NoSuchElementException for an unknown user and AccessDeniedException for another role.
+     */
+    public Mono<UserDto> verifyAdmin(Long adminUserId) {
+        return verifyRole(adminUserId, Roles.ADMIN, "User with ID " + adminUserId + " is not an ADMIN.");
+    }
+
+    /**
+     * Completes with the user if it exists and is a PARENT.
+     * Errors with NoSuchElementException for an unknown user and AccessDeniedException for another role.
+     */
+    public Mono<UserDto> verifyParent(Long parentUserId) {
+        return verifyRole(parentUserId, Roles.PARENT, "User with ID " + parentUserId + " is not a PARENT.");
+    }
+
+    private Mono<UserDto> verifyRole(Long userId, Roles role, String wrongRoleMessage) {
+        return users.get(userId, this::fetchUser)
+                .filter(user -> role == user.getRole())
+                .switchIfEmpty(Mono.error(new AccessDeniedException(wrongRoleMessage)));
+    }
+
+    private Mono<UserDto> fetchUser(Long userId) {
+        return webClient.get()
+                .uri("lb://" + userManagementServiceUrl + "/api/users/{id}", userId)
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
+                        Mono.error(new NoSuchElementException("User not found with ID: " + userId)))
+                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
+                        Mono.error(new RuntimeException("User service error: " + clientResponse.statusCode())))
+                .bodyToMono(UserDto.class)
+                .cache(user -> ttl,
+                        error -> error instanceof NoSuchElementException ? negativeTtl : Duration.ZERO,
+                        () -> negativeTtl);
+    }
+}
@@ -0,0 +1,75 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update).
+-- IF NOT EXISTS lets existing databases adopt this baseline unchanged.
+CREATE TABLE IF NOT EXISTS students (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    student_id VARCHAR(255) UNIQUE,
+    parent_user_id BIGINT,
+    cohort VARCHAR(255)
+);
+
+ALTER TABLE students ADD COLUMN IF NOT EXISTS cohort VARCHAR(255);
+
+CREATE TABLE IF NOT EXISTS results (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    subject VARCHAR(255),
+    grade VARCHAR(255),
+    score DOUBLE,
+    date DATE,
+    student_id BIGINT NOT NULL,
+    CONSTRAINT fk_results_student FOREIGN KEY (student_id) REFERENCES students (id)
+);
+
+CREATE TABLE IF NOT EXISTS attendance (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    date DATE,
+    status VARCHAR(16),
+    reason VARCHAR(255),
+    student_id BIGINT NOT NULL,
+    CONSTRAINT fk_attendance_student FOREIGN KEY (student_id) REFERENCES students (id)
+);
+
+CREATE TABLE IF NOT EXISTS attendance_ledgers (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    student_id BIGINT NOT NULL,
+    academic_year INT NOT NULL,
+    marks VARBINARY(92) NOT NULL,
+    present_count INT NOT NULL,
+    absent_count INT NOT NULL,
+    late_count INT NOT NULL,
+    CONSTRAINT uk_attendance_ledgers_student_year UNIQUE (student_id, academic_year)
+);
+
+CREATE TABLE IF NOT EXISTS subject_aggregates (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    student_id BIGINT NOT NULL,
+    academic_year INT NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    score_sum DOUBLE NOT NULL,
+    result_count INT NOT NULL,
+    grade_point_sum DOUBLE NOT NULL,
+    graded_count INT NOT NULL,
+    latest_grade VARCHAR(255),
+    latest_date DATE,
+    CONSTRAINT uk_subject_aggregates_student_year_subject UNIQUE (student_id, academic_year, subject)
+);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    student_id BIGINT NOT NULL,
+    payload TEXT NOT NULL,
+    created_at DATETIME(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS attendance_detector_snapshots (
+    student_id BIGINT PRIMARY KEY,
+    last_date DATE NOT NULL,
+    last_status VARCHAR(16) NOT NULL,
+    absent_streak_before INT NOT NULL,
+    absent_streak INT NOT NULL,
+    late_history BIGINT NOT NULL,
+    absence_alerted BIT NOT NULL,
+    late_alerted BIT NOT NULL
+);
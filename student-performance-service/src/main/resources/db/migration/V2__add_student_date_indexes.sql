@@ -0,0 +1,6 @@
+-- Filtered result and attendance reads (student + date range, optionally subject) and cohort rankings.
+-- The primary key is appended to each secondary index, so "ORDER BY date DESC, id DESC" needs no sort.
+CREATE INDEX IF NOT EXISTS idx_results_student_date ON results (student_id, date);
+CREATE INDEX IF NOT EXISTS idx_results_student_subject_date ON results (student_id, subject, date);
+CREATE INDEX IF NOT EXISTS idx_attendance_student_date ON attendance (student_id, date);
+CREATE INDEX IF NOT EXISTS idx_students_cohort ON students (cohort);
@@ -0,0 +1,35 @@
+-- Rebuilds the report-card aggregates from all stored results, so results written before the
+-- aggregates were introduced are included. Mirrors PerformanceAggregateService and AcademicCalendar.
+DELETE FROM subject_aggregates;
+
+INSERT INTO subject_aggregates (student_id, academic_year, subject, score_sum, result_count,
+                                grade_point_sum, graded_count, latest_grade, latest_date)
+SELECT ranked.student_id,
+       ranked.academic_year,
+       MIN(ranked.subject),
+       SUM(COALESCE(ranked.score, 0)),
+       COUNT(*),
+       COALESCE(SUM(ranked.points), 0),
+       COUNT(ranked.points),
+       MAX(CASE WHEN ranked.recency = 1 THEN ranked.grade END),
+       MAX(ranked.date)
+FROM (
+    SELECT yearly.*,
+           ROW_NUMBER() OVER (PARTITION BY yearly.student_id, yearly.academic_year, yearly.subject
+                              ORDER BY yearly.date DESC, yearly.id DESC) AS recency
+    FROM (
+        SELECT r.id, r.student_id, r.subject, r.grade, r.score, r.date,
+               YEAR(r.date) - IF(MONTH(r.date) * 100 + DAYOFMONTH(r.date)
+                                     < ${academic-year-start-month} * 100 + ${academic-year-start-day}, 1, 0) AS academic_year,
+               CASE UPPER(TRIM(r.grade))
+                   WHEN 'A+' THEN 4.0 WHEN 'A' THEN 4.0 WHEN 'A-' THEN 3.7
+                   WHEN 'B+' THEN 3.3 WHEN 'B' THEN 3.0 WHEN 'B-' THEN 2.7
+                   WHEN 'C+' THEN 2.3 WHEN 'C' THEN 2.0 WHEN 'C-' THEN 1.7
+                   WHEN 'D+' THEN 1.3 WHEN 'D' THEN 1.0 WHEN 'D-' THEN 0.7
+                   WHEN 'E' THEN 0.0 WHEN 'F' THEN 0.0
+               END AS points
+        FROM results r
+        WHERE r.date IS NOT NULL AND r.subject IS NOT NULL
+    ) yearly
+) ranked
+GROUP BY ranked.student_id, ranked.academic_year, ranked.subject;
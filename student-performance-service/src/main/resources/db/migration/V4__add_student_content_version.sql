@@ -0,0 +1,2 @@
+-- Per-student version behind the ETags of student, result and attendance reads
+ALTER TABLE students ADD COLUMN IF NOT EXISTS content_version BIGINT NOT NULL DEFAULT 0;
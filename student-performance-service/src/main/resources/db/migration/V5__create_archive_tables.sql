@@ -0,0 +1,27 @@
+-- Closed academic years are moved out of results and attendance into these tables by AcademicYearArchive,
+-- keeping the hot tables (and their indexes) sized to the recent years.
+-- Rows keep their original IDs; deleting a student removes its archived rows through the cascade.
+CREATE TABLE IF NOT EXISTS results_archive (
+    id BIGINT PRIMARY KEY,
+    subject VARCHAR(255),
+    grade VARCHAR(255),
+    score DOUBLE,
+    date DATE,
+    student_id BIGINT NOT NULL,
+    archived_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    CONSTRAINT fk_results_archive_student FOREIGN KEY (student_id) REFERENCES students (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS attendance_archive (
+    id BIGINT PRIMARY KEY,
+    date DATE,
+    status VARCHAR(16),
+    reason VARCHAR(255),
+    student_id BIGINT NOT NULL,
+    archived_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    CONSTRAINT fk_attendance_archive_student FOREIGN KEY (student_id) REFERENCES students (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_results_archive_student_date ON results_archive (student_id, date);
+CREATE INDEX IF NOT EXISTS idx_results_archive_student_subject_date ON results_archive (student_id, subject, date);
+CREATE INDEX IF NOT EXISTS idx_attendance_archive_student_date ON attendance_archive (student_id, date);
@@ -0,0 +1,25 @@
+-- Pooled sequence IDs for students, results and attendance (allocationSize = 50 on the entities),
+-- so Hibernate can batch inserts instead of flushing each row to learn its AUTO_INCREMENT key.
+-- Each NEXTVAL reserves that value and the 49 after it (pooled-lo), so the sequences step by 50
+-- and start above every ID already handed out, archived rows included.
+-- The AUTO_INCREMENT attributes stay for now, but every insert must take its ID from the sequence.
+
+SET @next_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM students);
+SET @ddl = CONCAT('CREATE SEQUENCE IF NOT EXISTS students_seq START WITH ', @next_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @next_id = GREATEST((SELECT COALESCE(MAX(id), 0) FROM results),
+                        (SELECT COALESCE(MAX(id), 0) FROM results_archive)) + 1;
+SET @ddl = CONCAT('CREATE SEQUENCE IF NOT EXISTS results_seq START WITH ', @next_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
+
+SET @next_id = GREATEST((SELECT COALESCE(MAX(id), 0) FROM attendance),
+                        (SELECT COALESCE(MAX(id), 0) FROM attendance_archive)) + 1;
+SET @ddl = CONCAT('CREATE SEQUENCE IF NOT EXISTS attendance_seq START WITH ', @next_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;
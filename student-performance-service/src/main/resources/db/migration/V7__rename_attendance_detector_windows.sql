@@ -0,0 +1,3 @@
+-- The anomaly detector's windows are now kept in this table and updated with every mark, rather than
+-- snapshotted from memory; the rows written so far are current up to the last snapshot.
+RENAME TABLE attendance_detector_snapshots TO attendance_detector_windows;
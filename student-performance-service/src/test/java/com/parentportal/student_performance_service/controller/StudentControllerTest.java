@@ -0,0 +1,128 @@
+package com.parentportal.student_performance_service.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parentportal.student_performance_service.dto.StudentBatchResponseDto;
+import com.parentportal.student_performance_service.dto.StudentDto;
+import com.parentportal.student_performance_service.dto.StudentRefDto;
+import com.parentportal.student_performance_service.dto.VersionedDto;
+import com.parentportal.student_performance_service.service.ReportCardService;
+import com.parentportal.student_performance_service.service.ResultImportService;
+import com.parentportal.student_performance_service.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class StudentControllerTest {
+
+    private final StudentService studentService = mock(StudentService.class);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StudentController(studentService,
+            mock(ResultImportService.class), mock(ReportCardService.class), new ObjectMapper(), Duration.ofMinutes(30)))
+            .build();
+
+    @Test
+    void batchLookupReturnsTheStudentsAndMissingIds() throws Exception {
+        when(studentService.getStudentRefs(anyCollection())).thenReturn(new StudentBatchResponseDto(
+                List.of(new StudentRefDto(3L, 30L, "STU-3")), List.of(9L)));
+
+        mockMvc.perform(post("/api/students/batch").contentType(MediaType.APPLICATION_JSON).content("{\"ids\": [9, 3, 3]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students[0].id").value(3))
+                .andExpect(jsonPath("$.students[0].parentUserId").value(30))
+                .andExpect(jsonPath("$.students[0].studentId").value("STU-3"))
+                .andExpect(jsonPath("$.missingIds[0]").value(9));
+        verify(studentService).getStudentRefs(Set.of(3L, 9L));
+    }
+
+    @Test
+    void batchLookupWithoutIdsIsRejected() throws Exception {
+        mockMvc.perform(post("/api/students/batch").contentType(MediaType.APPLICATION_JSON).content("{\"ids\": []}"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(studentService);
+    }
+
+    @Test
+    void batchLookupOfTooManyIdsIsRejected() throws Exception {
+        when(studentService.getStudentRefs(anyCollection())).thenThrow(new IllegalArgumentException("Too many IDs"));
+
+        mockMvc.perform(post("/api/students/batch").contentType(MediaType.APPLICATION_JSON).content("{\"ids\": [1, 2]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void studentReadCarriesTheVersionEtagAndMustBeRevalidated() throws Exception {
+        when(studentService.getContentVersion(7L)).thenReturn(3L);
+        when(studentService.getStudentById(7L)).thenReturn(new VersionedDto<>(new StudentDto(), 3L));
+
+        mockMvc.perform(get("/api/students/7"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"student-7-v3\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+    }
+
+    @Test
+    void matchingIfNoneMatchIsAnswered304WithoutLoadingTheStudent() throws Exception {
+        when(studentService.getContentVersion(7L)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/students/7").header(HttpHeaders.IF_NONE_MATCH, "\"student-7-v3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"student-7-v3\""));
+        verify(studentService, never()).getStudentById(7L);
+    }
+
+    @Test
+    void etagFromBeforeAWriteLoadsTheNewBody() throws Exception {
+        when(studentService.getContentVersion(7L)).thenReturn(4L);
+        when(studentService.getResultsByStudentId(7L)).thenReturn(new VersionedDto<>(List.of(), 4L));
+
+        mockMvc.perform(get("/api/students/7/results").header(HttpHeaders.IF_NONE_MATCH, "\"results-7-v3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"results-7-v4\""));
+    }
+
+    @Test
+    void bodyIsLabelledWithTheVersionItWasReadAt() throws Exception {
+        // The cached current version is ahead of the database the body was read from
+        when(studentService.getContentVersion(7L)).thenReturn(5L);
+        when(studentService.getAttendanceByStudentId(7L)).thenReturn(new VersionedDto<>(List.of(), 4L));
+
+        mockMvc.perform(get("/api/students/7/attendance"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"attendance-7-v4\""));
+    }
+
+    @Test
+    void etagsOfOneResourceDoNotMatchAnother() throws Exception {
+        when(studentService.getContentVersion(7L)).thenReturn(3L);
+        when(studentService.getAttendanceByStudentId(7L)).thenReturn(new VersionedDto<>(List.of(), 3L));
+
+        mockMvc.perform(get("/api/students/7/attendance").header(HttpHeaders.IF_NONE_MATCH, "\"results-7-v3\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void unknownStudentIsNotFoundBeforeAnyEtagCheck() throws Exception {
+        when(studentService.getContentVersion(7L)).thenThrow(new NoSuchElementException("Student not found"));
+
+        mockMvc.perform(get("/api/students/7").header(HttpHeaders.IF_NONE_MATCH, "\"student-7-v3\""))
+                .andExpect(status().isNotFound());
+    }
+}
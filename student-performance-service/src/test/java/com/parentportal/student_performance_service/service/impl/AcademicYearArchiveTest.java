@@ -0,0 +1,42 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class AcademicYearArchiveTest {
+
+    private final AcademicCalendar calendar = new AcademicCalendar(9, 1);
+    private final AcademicYearArchive archive = new AcademicYearArchive(mock(JdbcTemplate.class),
+            mock(TransactionTemplate.class), calendar, mock(SecondLevelCache.class), mock(StudentVersions.class), 1, 100);
+
+    private final int currentYear = calendar.currentAcademicYear();
+
+    @Test
+    void currentAcademicYearIsOpen() {
+        assertThat(archive.inClosedYear(calendar.startOf(currentYear))).isFalse();
+        assertThat(archive.inClosedYear(LocalDate.now())).isFalse();
+        assertThatCode(() -> archive.requireOpenYear(calendar.startOf(currentYear))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void yearsBeforeTheCurrentOneAreClosedWhetherOrNotArchived() {
+        // The previous year is still kept hot, the one before it is past the archive horizon
+        LocalDate lastDayOfPreviousYear = calendar.endOf(currentYear - 1);
+        LocalDate archivedDay = calendar.startOf(currentYear - 2);
+
+        assertThat(archive.reachesArchive(lastDayOfPreviousYear)).isFalse();
+        assertThat(archive.inClosedYear(lastDayOfPreviousYear)).isTrue();
+        assertThat(archive.inClosedYear(archivedDay)).isTrue();
+        assertThatThrownBy(() -> archive.requireOpenYear(lastDayOfPreviousYear))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(String.valueOf(currentYear - 1));
+    }
+}
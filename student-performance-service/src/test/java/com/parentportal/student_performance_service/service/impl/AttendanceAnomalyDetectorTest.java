@@ -0,0 +1,270 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.StudentEventDto;
+import com.parentportal.student_performance_service.dto.StudentRecipientDto;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import com.parentportal.student_performance_service.entity.StudentEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static com.parentportal.student_performance_service.entity.AttendanceStatus.ABSENT;
+import static com.parentportal.student_performance_service.entity.AttendanceStatus.LATE;
+import static com.parentportal.student_performance_service.entity.AttendanceStatus.PRESENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AttendanceAnomalyDetectorTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 9, 1);
+    private static final StudentRecipientDto ANNA = new StudentRecipientDto(1L, "Anna", 100L, "Grade 7A");
+    private static final StudentRecipientDto BEN = new StudentRecipientDto(2L, "Ben", 200L, "Grade 7A");
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StudentEventOutbox outbox = mock(StudentEventOutbox.class);
+    // Defaults: alert on 3 absences in a row, or more than 2 lates in the last 10 school days
+    private final AttendanceAnomalyDetector detector = new AttendanceAnomalyDetector(outbox, jdbcTemplate, 3, 2, 10);
+
+    // attendance_detector_windows and the attendance table, as the detector's statements leave them
+    private final Map<Long, AttendanceAnomalyDetector.WindowState> windows = new HashMap<>();
+    private final Map<Long, NavigableMap<LocalDate, AttendanceStatus>> attendance = new HashMap<>();
+    private final List<StudentEventDto> alerts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Object[] args = invocation.getArguments();
+            if (sql.contains("FROM attendance_detector_windows")) {
+                for (int i = 2; i < args.length; i++) {
+                    AttendanceAnomalyDetector.WindowState window = windows.get((Long) args[i]);
+                    if (window != null) {
+                        handler.processRow(windowRow((Long) args[i], window));
+                    }
+                }
+            } else {
+                for (Map.Entry<LocalDate, AttendanceStatus> mark
+                        : attendance.getOrDefault((Long) args[2], new TreeMap<>()).entrySet()) {
+                    handler.processRow(markRow(mark.getKey(), mark.getValue()));
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any())).thenAnswer(invocation -> {
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            for (Object row : invocation.<Collection<Object>>getArgument(1)) {
+                Map<Integer, Object> values = new HashMap<>();
+                setter.setValues(recording(values), row);
+                windows.put((Long) values.get(1), new AttendanceAnomalyDetector.WindowState(
+                        ((Date) values.get(2)).toLocalDate(), AttendanceStatus.valueOf((String) values.get(3)),
+                        (Integer) values.get(4), (Integer) values.get(5), (Long) values.get(6),
+                        (Boolean) values.get(7), (Boolean) values.get(8)));
+            }
+            return new int[0][];
+        });
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            windows.remove(invocation.<Long>getArgument(1));
+            return 1;
+        });
+        when(outbox.newEvent(any(), any(), anyString(), any())).thenAnswer(invocation -> {
+            StudentRecipientDto student = invocation.getArgument(1);
+            return new StudentEventDto(null, invocation.getArgument(0), student.getId(), student.getParentUserId(),
+                    invocation.getArgument(2), null, null);
+        });
+        doAnswer(invocation -> alerts.addAll(invocation.getArgument(0))).when(outbox).append(any());
+    }
+
+    @Test
+    void absenceRunAlertsOnceWhenItReachesTheStreak() {
+        mark(ANNA, 1, ABSENT);
+        mark(ANNA, 2, ABSENT);
+        assertThat(alerts).isEmpty();
+
+        mark(ANNA, 3, ABSENT);
+        mark(ANNA, 4, ABSENT);
+        mark(ANNA, 5, ABSENT);
+
+        assertThat(alerts).singleElement().satisfies(alert -> {
+            assertThat(alert.getType()).isEqualTo(StudentEventType.ATTENDANCE_ALERT);
+            assertThat(alert.getStudentId()).isEqualTo(ANNA.getId());
+            assertThat(alert.getRecipientId()).isEqualTo(ANNA.getParentUserId());
+            assertThat(alert.getMessage()).contains("absent 3 school days in a row");
+        });
+    }
+
+    @Test
+    void presentOrLateDayEndsTheRunSoTheNextRunAlertsAgain() {
+        for (int day = 1; day <= 3; day++) {
+            mark(ANNA, day, ABSENT);
+        }
+        mark(ANNA, 4, PRESENT);
+        mark(ANNA, 5, ABSENT);
+        mark(ANNA, 6, ABSENT);
+        mark(ANNA, 7, LATE);
+        mark(ANNA, 8, ABSENT);
+        mark(ANNA, 9, ABSENT);
+        assertThat(alerts).hasSize(1);
+
+        mark(ANNA, 10, ABSENT);
+
+        assertThat(alerts).hasSize(2);
+    }
+
+    @Test
+    void dayMarkedAgainReplacesItsMarkWithoutAlertingTwice() {
+        mark(ANNA, 1, ABSENT);
+        mark(ANNA, 2, ABSENT);
+        mark(ANNA, 3, ABSENT);
+
+        // A repeated roll call for the same day
+        mark(ANNA, 3, ABSENT);
+        assertThat(alerts).hasSize(1);
+        assertThat(windows.get(ANNA.getId()).absentStreak()).isEqualTo(3);
+
+        // Corrected to present: the run ends, so it did not reach the streak after all
+        mark(ANNA, 3, PRESENT);
+        assertThat(windows.get(ANNA.getId()).absentStreak()).isZero();
+        assertThat(windows.get(ANNA.getId()).absenceAlerted()).isFalse();
+        mark(ANNA, 4, ABSENT);
+        assertThat(alerts).hasSize(1);
+    }
+
+    @Test
+    void lateEpisodeAlertsOnceAndAgainOnlyAfterTheWindowFallsBackToTheLimit() {
+        mark(ANNA, 1, LATE);
+        mark(ANNA, 2, LATE);
+        assertThat(alerts).isEmpty();
+        mark(ANNA, 3, LATE);
+        mark(ANNA, 4, LATE);
+        assertThat(alerts).singleElement()
+                .satisfies(alert -> assertThat(alert.getMessage()).contains("late 3 times in the last 10 school days"));
+
+        // Days 1 and 2 leave the window on day 12, leaving 2 lates in it
+        for (int day = 5; day <= 12; day++) {
+            mark(ANNA, day, PRESENT);
+        }
+        assertThat(windows.get(ANNA.getId()).lateAlerted()).isFalse();
+        mark(ANNA, 13, LATE);
+        mark(ANNA, 14, LATE);
+        assertThat(alerts).hasSize(1);
+
+        // Days 13, 14 and 15 are 3 lates in the window again: a new episode
+        mark(ANNA, 15, LATE);
+        assertThat(alerts).hasSize(2);
+    }
+
+    @Test
+    void marksBeforeTheLatestMarkedDayDoNotMoveTheWindow() {
+        mark(ANNA, 5, PRESENT);
+        AttendanceAnomalyDetector.WindowState window = windows.get(ANNA.getId());
+
+        mark(ANNA, 2, ABSENT);
+        mark(ANNA, 3, ABSENT);
+        mark(ANNA, 4, ABSENT);
+
+        assertThat(windows.get(ANNA.getId())).isEqualTo(window);
+        assertThat(alerts).isEmpty();
+    }
+
+    @Test
+    void deletedRecordRebuildsTheWindowWithoutAlertingAndTheEpisodeCanAlertAgain() {
+        mark(ANNA, 1, ABSENT);
+        mark(ANNA, 2, ABSENT);
+        mark(ANNA, 3, ABSENT);
+
+        attendance.get(ANNA.getId()).remove(day(3));
+        detector.rebuild(ANNA.getId());
+
+        assertThat(windows.get(ANNA.getId()).absentStreak()).isEqualTo(2);
+        assertThat(windows.get(ANNA.getId()).absenceAlerted()).isFalse();
+        assertThat(alerts).hasSize(1);
+
+        mark(ANNA, 4, ABSENT);
+        assertThat(alerts).hasSize(2);
+    }
+
+    @Test
+    void rebuildWithNoRecordsLeftDropsTheWindow() {
+        mark(ANNA, 1, ABSENT);
+
+        attendance.get(ANNA.getId()).clear();
+        detector.rebuild(ANNA.getId());
+
+        assertThat(windows).doesNotContainKey(ANNA.getId());
+    }
+
+    @Test
+    void rollCallAlertsOnlyForStudentsWhoseEpisodeStarts() {
+        for (int day = 1; day <= 2; day++) {
+            rollCall(day, Map.of(ANNA.getId(), ABSENT, BEN.getId(), ABSENT));
+        }
+        rollCall(3, Map.of(ANNA.getId(), ABSENT, BEN.getId(), PRESENT));
+        rollCall(4, Map.of(ANNA.getId(), ABSENT, BEN.getId(), ABSENT));
+
+        assertThat(alerts).extracting(StudentEventDto::getStudentId).containsExactly(ANNA.getId());
+        assertThat(windows.get(BEN.getId()).absentStreak()).isEqualTo(1);
+    }
+
+    private static LocalDate day(int day) {
+        return FIRST_DAY.plusDays(day - 1);
+    }
+
+    private void mark(StudentRecipientDto student, int day, AttendanceStatus status) {
+        attendance.computeIfAbsent(student.getId(), id -> new TreeMap<>()).put(day(day), status);
+        detector.onMark(student, day(day), status);
+    }
+
+    private void rollCall(int day, Map<Long, AttendanceStatus> marks) {
+        marks.forEach((studentId, status) ->
+                attendance.computeIfAbsent(studentId, id -> new TreeMap<>()).put(day(day), status));
+        detector.onMarks(day(day), marks, Map.of(ANNA.getId(), ANNA, BEN.getId(), BEN));
+    }
+
+    private static ResultSet windowRow(Long studentId, AttendanceAnomalyDetector.WindowState window) {
+        return row(Map.of("student_id", studentId, "last_date", Date.valueOf(window.lastDate()),
+                "last_status", window.lastStatus().name(), "absent_streak_before", window.absentStreakBefore(),
+                "absent_streak", window.absentStreak(), "late_history", window.lateHistory(),
+                "absence_alerted", window.absenceAlerted(), "late_alerted", window.lateAlerted()));
+    }
+
+    private static ResultSet markRow(LocalDate date, AttendanceStatus status) {
+        return row(Map.of("date", Date.valueOf(date), "status", status.name()));
+    }
+
+    private static ResultSet row(Map<String, Object> columns) {
+        return (ResultSet) Proxy.newProxyInstance(AttendanceAnomalyDetectorTest.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> columns.get((String) args[0]));
+    }
+
+    private static PreparedStatement recording(Map<Integer, Object> values) {
+        return (PreparedStatement) Proxy.newProxyInstance(AttendanceAnomalyDetectorTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length == 2) {
+                        values.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,51 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttendanceBitmapTest {
+
+    @Test
+    void emptyYearHasNoMarks() {
+        byte[] marks = AttendanceBitmap.empty();
+
+        assertThat(marks).hasSize(92);
+        for (int day = 0; day < AttendanceBitmap.DAYS_PER_YEAR; day++) {
+            assertThat(AttendanceBitmap.get(marks, day)).isNull();
+        }
+    }
+
+    @Test
+    void marksRoundTripWithoutTouchingNeighbouringDays() {
+        byte[] marks = AttendanceBitmap.empty();
+
+        // Days 3 and 4 share a byte boundary; the last day uses the top bits of the last byte
+        AttendanceBitmap.set(marks, 3, AttendanceStatus.LATE);
+        AttendanceBitmap.set(marks, 4, AttendanceStatus.ABSENT);
+        AttendanceBitmap.set(marks, 5, AttendanceStatus.PRESENT);
+        AttendanceBitmap.set(marks, AttendanceBitmap.DAYS_PER_YEAR - 1, AttendanceStatus.LATE);
+
+        assertThat(AttendanceBitmap.get(marks, 2)).isNull();
+        assertThat(AttendanceBitmap.get(marks, 3)).isEqualTo(AttendanceStatus.LATE);
+        assertThat(AttendanceBitmap.get(marks, 4)).isEqualTo(AttendanceStatus.ABSENT);
+        assertThat(AttendanceBitmap.get(marks, 5)).isEqualTo(AttendanceStatus.PRESENT);
+        assertThat(AttendanceBitmap.get(marks, 6)).isNull();
+        assertThat(AttendanceBitmap.get(marks, AttendanceBitmap.DAYS_PER_YEAR - 1)).isEqualTo(AttendanceStatus.LATE);
+    }
+
+    @Test
+    void overwritingOrClearingADayReplacesBothBits() {
+        byte[] marks = AttendanceBitmap.empty();
+        AttendanceBitmap.set(marks, 7, AttendanceStatus.LATE);
+        AttendanceBitmap.set(marks, 6, AttendanceStatus.LATE);
+
+        AttendanceBitmap.set(marks, 7, AttendanceStatus.PRESENT);
+        assertThat(AttendanceBitmap.get(marks, 7)).isEqualTo(AttendanceStatus.PRESENT);
+
+        AttendanceBitmap.set(marks, 7, null);
+        assertThat(AttendanceBitmap.get(marks, 7)).isNull();
+        assertThat(AttendanceBitmap.get(marks, 6)).isEqualTo(AttendanceStatus.LATE);
+    }
+}
@@ -0,0 +1,231 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.AttendanceStatsDto;
+import com.parentportal.student_performance_service.entity.Attendance;
+import com.parentportal.student_performance_service.entity.AttendanceLedger;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import com.parentportal.student_performance_service.entity.Student;
+import com.parentportal.student_performance_service.repository.AttendanceLedgerRepository;
+import com.parentportal.student_performance_service.repository.AttendanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AttendanceLedgerServiceTest {
+
+    private static final int YEAR = 2025;
+    private static final LocalDate FIRST_DAY = LocalDate.of(YEAR, 9, 1);
+
+    private final AttendanceLedgerRepository ledgerRepository = mock(AttendanceLedgerRepository.class);
+    private final AttendanceRepository attendanceRepository = mock(AttendanceRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AttendanceLedgerService service = new AttendanceLedgerService(ledgerRepository, attendanceRepository,
+            new AcademicCalendar(9, 1), jdbcTemplate);
+
+    // The attendance_ledgers table for YEAR, by student ID
+    private final Map<Long, AttendanceLedger> table = new ConcurrentHashMap<>();
+    private final List<Attendance> storedRecords = new ArrayList<>();
+    // Stands in for the ledger row locks, held by a caller until its record call (its transaction) returns
+    private final ReentrantLock rowLocks = new ReentrantLock();
+    // Locking reads that found no row for a requested student, i.e. would have taken a gap lock
+    private final AtomicInteger gapLocks = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        when(ledgerRepository.findStudentIdsWithLedger(anyCollection(), eq(YEAR))).thenAnswer(invocation ->
+                invocation.<Collection<Long>>getArgument(0).stream().filter(table::containsKey).toList());
+        when(ledgerRepository.lockByStudentIdsAndAcademicYear(anyCollection(), eq(YEAR))).thenAnswer(invocation -> {
+            rowLocks.lock();
+            List<AttendanceLedger> locked = new ArrayList<>();
+            for (Long studentId : invocation.<Collection<Long>>getArgument(0)) {
+                if (table.containsKey(studentId)) {
+                    locked.add(table.get(studentId));
+                } else {
+                    gapLocks.incrementAndGet();
+                }
+            }
+            return locked;
+        });
+        // INSERT IGNORE of the seeds: a row already present is kept
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any())).thenAnswer(invocation -> {
+            for (AttendanceLedger seed : invocation.<Collection<AttendanceLedger>>getArgument(1)) {
+                table.putIfAbsent(seed.getStudentId(), seed);
+            }
+            return new int[0][];
+        });
+        when(attendanceRepository.findByStudentIdInAndDateBetween(anyCollection(), any(), any()))
+                .thenAnswer(invocation -> storedRecords.stream()
+                        .filter(record -> invocation.<Collection<Long>>getArgument(0).contains(record.getStudent().getId()))
+                        .toList());
+    }
+
+    @Test
+    void firstMarkSeedsTheLedgerFromStoredRecords() {
+        stored(1L, 1L, FIRST_DAY, AttendanceStatus.ABSENT);
+        stored(2L, 1L, FIRST_DAY.plusDays(1), AttendanceStatus.LATE);
+
+        service.record(1L, FIRST_DAY.plusDays(2), AttendanceStatus.PRESENT);
+
+        AttendanceLedger ledger = table.get(1L);
+        assertCounts(ledger, 1, 1, 1);
+        assertThat(AttendanceBitmap.get(ledger.getMarks(), 0)).isEqualTo(AttendanceStatus.ABSENT);
+        assertThat(AttendanceBitmap.get(ledger.getMarks(), 1)).isEqualTo(AttendanceStatus.LATE);
+        assertThat(AttendanceBitmap.get(ledger.getMarks(), 2)).isEqualTo(AttendanceStatus.PRESENT);
+    }
+
+    @Test
+    void markAlreadyInTheSeedIsNotCountedTwice() {
+        // The record being marked is already stored when the ledger is seeded within the same transaction
+        stored(1L, 1L, FIRST_DAY, AttendanceStatus.ABSENT);
+
+        service.record(1L, FIRST_DAY, AttendanceStatus.ABSENT);
+
+        assertCounts(table.get(1L), 0, 1, 0);
+    }
+
+    @Test
+    void remarkingADayMovesTheCountToTheNewStatus() {
+        service.record(1L, FIRST_DAY, AttendanceStatus.ABSENT);
+        service.record(1L, FIRST_DAY, AttendanceStatus.LATE);
+        service.record(1L, FIRST_DAY, AttendanceStatus.LATE);
+
+        AttendanceLedger ledger = table.get(1L);
+        assertCounts(ledger, 0, 0, 1);
+        assertThat(AttendanceBitmap.get(ledger.getMarks(), 0)).isEqualTo(AttendanceStatus.LATE);
+    }
+
+    @Test
+    void rollCallUpdatesEveryStudentsLedger() {
+        table.put(1L, ledger(1L));
+        service.recordAll(Map.of(1L, AttendanceStatus.PRESENT, 2L, AttendanceStatus.ABSENT), FIRST_DAY.plusDays(3));
+
+        assertCounts(table.get(1L), 1, 0, 0);
+        assertCounts(table.get(2L), 0, 1, 0);
+    }
+
+    @Test
+    void concurrentFirstMarksSeedOneLedgerBeforeLockingAndKeepBothMarks() throws Exception {
+        // Both transactions find the ledger missing before either has seeded it
+        CyclicBarrier bothChecked = new CyclicBarrier(2);
+        when(ledgerRepository.findStudentIdsWithLedger(anyCollection(), eq(YEAR))).thenAnswer(invocation -> {
+            List<Long> found = invocation.<Collection<Long>>getArgument(0).stream().filter(table::containsKey).toList();
+            bothChecked.await(5, TimeUnit.SECONDS);
+            return found;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> inTransaction(() ->
+                    service.record(1L, FIRST_DAY, AttendanceStatus.PRESENT)));
+            Future<?> second = executor.submit(() -> inTransaction(() ->
+                    service.record(1L, FIRST_DAY.plusDays(1), AttendanceStatus.ABSENT)));
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(table).hasSize(1);
+        assertCounts(table.get(1L), 1, 1, 0);
+        assertThat(gapLocks).hasValue(0);
+    }
+
+    @Test
+    void rollCallWithNewAndExistingLedgersLocksOnlyExistingRows() {
+        table.put(2L, ledger(2L));
+
+        service.recordAll(Map.of(1L, AttendanceStatus.PRESENT, 2L, AttendanceStatus.LATE, 3L, AttendanceStatus.ABSENT),
+                FIRST_DAY);
+
+        assertThat(table).containsOnlyKeys(1L, 2L, 3L);
+        assertThat(gapLocks).hasValue(0);
+    }
+
+    // Releases the row locks the call took, as its transaction's commit would
+    private void inTransaction(Runnable work) {
+        try {
+            work.run();
+        } finally {
+            while (rowLocks.isHeldByCurrentThread()) {
+                rowLocks.unlock();
+            }
+        }
+    }
+
+    @Test
+    void recalculatedDayTakesTheLatestRemainingRecordOrClearsTheMark() {
+        service.record(1L, FIRST_DAY, AttendanceStatus.ABSENT);
+        when(attendanceRepository.findFirstByStudentIdAndDateOrderByIdDesc(1L, FIRST_DAY)).thenReturn(Optional.empty());
+
+        service.recalculateDay(1L, FIRST_DAY);
+
+        AttendanceLedger ledger = table.get(1L);
+        assertCounts(ledger, 0, 0, 0);
+        assertThat(AttendanceBitmap.get(ledger.getMarks(), 0)).isNull();
+    }
+
+    @Test
+    void statsComputeRateAndStreaksSkippingUnmarkedDays() {
+        AttendanceLedger ledger = ledger(1L);
+        table.put(1L, ledger);
+        service.record(1L, FIRST_DAY, AttendanceStatus.PRESENT);
+        service.record(1L, FIRST_DAY.plusDays(1), AttendanceStatus.LATE);
+        // Days 2 and 3 carry no mark and neither end nor extend a streak
+        service.record(1L, FIRST_DAY.plusDays(4), AttendanceStatus.PRESENT);
+        service.record(1L, FIRST_DAY.plusDays(5), AttendanceStatus.ABSENT);
+        service.record(1L, FIRST_DAY.plusDays(6), AttendanceStatus.ABSENT);
+        when(ledgerRepository.findByStudentIdAndAcademicYear(1L, YEAR)).thenReturn(Optional.of(ledger));
+
+        AttendanceStatsDto stats = service.stats(1L, YEAR);
+
+        assertThat(stats.getDaysRecorded()).isEqualTo(5);
+        assertThat(stats.getAttendanceRate()).isEqualTo(0.6);
+        assertThat(stats.getLongestAttendedStreak()).isEqualTo(3);
+        assertThat(stats.getCurrentAttendedStreak()).isZero();
+        assertThat(stats.getCurrentAbsentStreak()).isEqualTo(2);
+    }
+
+    private void stored(Long id, Long studentId, LocalDate date, AttendanceStatus status) {
+        Student student = new Student();
+        student.setId(studentId);
+        Attendance attendance = new Attendance();
+        attendance.setId(id);
+        attendance.setDate(date);
+        attendance.setStatus(status);
+        attendance.setStudent(student);
+        storedRecords.add(attendance);
+    }
+
+    private static AttendanceLedger ledger(Long studentId) {
+        return new AttendanceLedger(null, studentId, YEAR, AttendanceBitmap.empty(), 0, 0, 0);
+    }
+
+    private static void assertCounts(AttendanceLedger ledger, int present, int absent, int late) {
+        assertThat(ledger.getPresentCount()).isEqualTo(present);
+        assertThat(ledger.getAbsentCount()).isEqualTo(absent);
+        assertThat(ledger.getLateCount()).isEqualTo(late);
+    }
+}
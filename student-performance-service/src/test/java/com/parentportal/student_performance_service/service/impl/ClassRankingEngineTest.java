@@ -0,0 +1,211 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.ClassRankingDto;
+import com.parentportal.student_performance_service.dto.HistogramBucketDto;
+import com.parentportal.student_performance_service.dto.RankingEntryDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ClassRankingEngineTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ClassRankingEngine engine = new ClassRankingEngine(jdbcTemplate, 100, Duration.ofMinutes(10));
+
+    // The cohort's average scores the query returns, by student ID
+    private final Map<Long, Double> scores = new TreeMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    // Runs after the scores are read and before the ranking is cached; lets a test commit a write mid-computation
+    private Runnable afterLoad = () -> {
+    };
+
+    {
+        doAnswer(invocation -> {
+            loads.incrementAndGet();
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Map.Entry<Long, Double> score : scores.entrySet()) {
+                handler.processRow(row(score.getKey(), score.getValue()));
+            }
+            afterLoad.run();
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void tiedScoresShareARankAndCountAsHalfInThePercentile() {
+        scores.putAll(Map.of(1L, 90.0, 2L, 80.0, 3L, 80.0, 4L, 70.0));
+
+        ClassRankingDto ranking = engine.ranking("Grade 7A", "Math", 2024, 2);
+
+        assertThat(ranking.getStudentCount()).isEqualTo(4);
+        assertThat(ranking.getRankings()).extracting(RankingEntryDto::getStudentId).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(ranking.getRankings()).extracting(RankingEntryDto::getRank).containsExactly(1, 2, 2, 4);
+        assertThat(ranking.getRankings()).extracting(RankingEntryDto::getPercentile)
+                .containsExactly(87.5, 50.0, 50.0, 12.5);
+        assertThat(ranking.getMean()).isEqualTo(80.0);
+        assertThat(ranking.getMedian()).isEqualTo(80.0);
+        assertThat(ranking.getMin()).isEqualTo(70.0);
+        assertThat(ranking.getMax()).isEqualTo(90.0);
+        // The maximum lands in the last bucket
+        assertThat(ranking.getHistogram()).containsExactly(
+                new HistogramBucketDto(70.0, 80.0, 1), new HistogramBucketDto(80.0, 90.0, 3));
+    }
+
+    @Test
+    void cohortLargerThanTheParallelThresholdIsRankedAcrossTasks() {
+        int n = 10_000;
+        for (long id = 1; id <= n; id++) {
+            scores.put(id, (double) id);
+        }
+
+        ClassRankingDto ranking = engine.ranking("Grade 7A", "Math", 2024, 10);
+
+        assertThat(ranking.getRankings()).hasSize(n);
+        assertThat(ranking.getRankings().get(0).getStudentId()).isEqualTo((long) n);
+        assertThat(ranking.getRankings().get(n - 1).getRank()).isEqualTo(n);
+        assertThat(ranking.getHistogram()).extracting(HistogramBucketDto::getCount).containsOnly(1000L);
+        assertThat(ranking.getMedian()).isEqualTo(5000.5);
+    }
+
+    @Test
+    void equalScoresFallInTheFirstBucket() {
+        scores.putAll(Map.of(1L, 75.0, 2L, 75.0));
+
+        ClassRankingDto ranking = engine.ranking("Grade 7A", "Math", 2024, 3);
+
+        assertThat(ranking.getHistogram()).extracting(HistogramBucketDto::getCount).containsExactly(2L, 0L, 0L);
+        assertThat(ranking.getRankings()).extracting(RankingEntryDto::getRank).containsExactly(1, 1);
+    }
+
+    @Test
+    void emptyCohortHasNoRankings() {
+        ClassRankingDto ranking = engine.ranking("Grade 7A", "Math", 2024, 10);
+
+        assertThat(ranking.getStudentCount()).isZero();
+        assertThat(ranking.getRankings()).isEmpty();
+        assertThat(ranking.getHistogram()).isEmpty();
+        assertThat(ranking.getMean()).isNull();
+    }
+
+    @Test
+    void bucketCountOutsideTheAllowedRangeIsRejected() {
+        assertThatThrownBy(() -> engine.ranking("Grade 7A", "Math", 2024, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> engine.ranking("Grade 7A", "Math", 2024, ClassRankingEngine.MAX_BUCKETS + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void rankingIsCachedRegardlessOfCaseUntilItsCohortIsInvalidated() {
+        scores.put(1L, 90.0);
+        engine.ranking("Grade 7A", "Math", 2024, 10);
+        scores.put(2L, 95.0);
+
+        assertThat(engine.ranking("GRADE 7a", "math", 2024, 10).getStudentCount()).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+
+        engine.invalidateCohorts(Arrays.asList("grade 7A", null));
+
+        assertThat(topStudent(engine.ranking("Grade 7A", "Math", 2024, 10))).isEqualTo(2L);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidationLeavesOtherCohortsCached() {
+        scores.put(1L, 90.0);
+        engine.ranking("Grade 7A", "Math", 2024, 10);
+        engine.ranking("Grade 7B", "Math", 2024, 10);
+
+        engine.invalidateCohorts(List.of("Grade 7B"));
+        engine.ranking("Grade 7A", "Math", 2024, 10);
+        engine.ranking("Grade 7B", "Math", 2024, 10);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void invalidationInATransactionAppliesOnlyAfterCommit() {
+        scores.put(1L, 90.0);
+        engine.ranking("Grade 7A", "Math", 2024, 10);
+        scores.put(2L, 95.0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            engine.invalidateCohorts(List.of("Grade 7A"));
+            // Not committed yet: other readers still get the ranking of the committed scores
+            assertThat(engine.ranking("Grade 7A", "Math", 2024, 10).getStudentCount()).isEqualTo(1);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(engine.ranking("Grade 7A", "Math", 2024, 10).getStudentCount()).isEqualTo(2);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void rankingComputedBeforeAnInvalidationIsNotCached() {
+        scores.put(1L, 90.0);
+        afterLoad = () -> {
+            // A write commits after this computation read the scores
+            scores.put(2L, 95.0);
+            engine.invalidateCohorts(List.of("Grade 7A"));
+        };
+
+        ClassRankingDto stale = engine.ranking("Grade 7A", "Math", 2024, 10);
+        afterLoad = () -> {
+        };
+
+        assertThat(stale.getStudentCount()).isEqualTo(1);
+        ClassRankingDto fresh = engine.ranking("Grade 7A", "Math", 2024, 10);
+        assertThat(fresh.getStudentCount()).isEqualTo(2);
+        assertThat(topStudent(fresh)).isEqualTo(2L);
+        assertThat(engine.ranking("Grade 7A", "Math", 2024, 10)).isSameAs(fresh);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidationOfAnotherCohortDoesNotStopCaching() {
+        scores.put(1L, 90.0);
+        afterLoad = () -> engine.invalidateCohorts(List.of("Grade 7B"));
+
+        ClassRankingDto ranking = engine.ranking("Grade 7A", "Math", 2024, 10);
+
+        assertThat(engine.ranking("Grade 7A", "Math", 2024, 10)).isSameAs(ranking);
+        assertThat(loads).hasValue(1);
+    }
+
+    private static Long topStudent(ClassRankingDto ranking) {
+        return ranking.getRankings().get(0).getStudentId();
+    }
+
+    // The row COHORT_SCORES_SQL returns: student ID, then the average score
+    private static ResultSet row(long studentId, double score) {
+        return (ResultSet) Proxy.newProxyInstance(ClassRankingEngineTest.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getLong" -> studentId;
+                    case "getDouble" -> score;
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,174 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.ResultCreateDto;
+import com.parentportal.student_performance_service.entity.Result;
+import com.parentportal.student_performance_service.entity.Student;
+import com.parentportal.student_performance_service.repository.AttendanceLedgerRepository;
+import com.parentportal.student_performance_service.repository.ResultRepository;
+import com.parentportal.student_performance_service.repository.SubjectAggregateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PerformanceAggregateServiceTest {
+
+    private static final int YEAR = 2025;
+    private static final LocalDate FIRST_DAY = LocalDate.of(YEAR, 9, 1);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SubjectAggregateRepository aggregateRepository = mock(SubjectAggregateRepository.class);
+    private final PerformanceAggregateService service = new PerformanceAggregateService(aggregateRepository,
+            mock(ResultRepository.class), mock(AttendanceLedgerRepository.class), new AcademicCalendar(9, 1), jdbcTemplate);
+
+    // subject_aggregates as the upserts leave it, keyed like the case-insensitive unique key
+    private final Map<String, Map<Integer, Object>> table = new LinkedHashMap<>();
+    // Keys of the rows of each batch, in the order they were sent
+    private final List<List<String>> batches = new ArrayList<>();
+    private final List<String> statements = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any())).thenAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            List<String> keys = new ArrayList<>();
+            for (Object row : invocation.<Collection<Object>>getArgument(1)) {
+                Map<Integer, Object> values = new HashMap<>();
+                setter.setValues(recording(values), row);
+                String key = values.get(1) + ":" + values.get(2) + ":" + ((String) values.get(3)).toLowerCase(Locale.ROOT);
+                keys.add(key);
+                table.merge(key, values, PerformanceAggregateServiceTest::onDuplicateKey);
+            }
+            batches.add(keys);
+            return new int[0][];
+        });
+    }
+
+    @Test
+    void resultsOfOneBatchAreSummedPerStudentYearAndSubject() {
+        service.resultsAdded(List.of(
+                result(1L, "Math", "A", 90.0, FIRST_DAY),
+                result(1L, "math", "B", 80.0, FIRST_DAY.plusDays(3)),
+                result(1L, "Math", "Pass", 70.0, FIRST_DAY.plusDays(1)),
+                result(1L, "Art", "C", 60.0, FIRST_DAY)));
+
+        assertThat(batches).hasSize(1);
+        Map<Integer, Object> math = table.get("1:" + YEAR + ":math");
+        assertThat(math.get(4)).isEqualTo(240.0);
+        assertThat(math.get(5)).isEqualTo(3);
+        assertThat(math.get(6)).isEqualTo(7.0); // "Pass" has no grade points
+        assertThat(math.get(7)).isEqualTo(2);
+        assertThat(math.get(8)).isEqualTo("B");
+        assertThat(math.get(9)).isEqualTo(Date.valueOf(FIRST_DAY.plusDays(3)));
+        assertThat(table.get("1:" + YEAR + ":art").get(5)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentFirstResultsOfASubjectMeetOnTheUniqueKey() {
+        // Two transactions each find no aggregate yet; both upsert instead of both inserting
+        service.resultAdded(entity(3L, "Math", "B", 80.0, FIRST_DAY.plusDays(5)));
+        service.resultAdded(entity(3L, "Math", "A", 95.0, FIRST_DAY.plusDays(2)));
+
+        assertThat(table).hasSize(1);
+        Map<Integer, Object> math = table.get("3:" + YEAR + ":math");
+        assertThat(math.get(4)).isEqualTo(175.0);
+        assertThat(math.get(5)).isEqualTo(2);
+        assertThat(math.get(6)).isEqualTo(7.0);
+        assertThat(math.get(7)).isEqualTo(2);
+        // The earlier-dated result arrived last and does not replace the latest grade
+        assertThat(math.get(8)).isEqualTo("B");
+        assertThat(math.get(9)).isEqualTo(Date.valueOf(FIRST_DAY.plusDays(5)));
+    }
+
+    @Test
+    void rowsAreUpsertedInKeyOrder() {
+        service.resultsAdded(List.of(
+                result(9L, "Math", "A", 90.0, FIRST_DAY),
+                result(2L, "Science", "A", 90.0, FIRST_DAY),
+                result(2L, "Art", "A", 90.0, FIRST_DAY)));
+
+        assertThat(batches.get(0)).containsExactly("2:" + YEAR + ":art", "2:" + YEAR + ":science", "9:" + YEAR + ":math");
+    }
+
+    @Test
+    void upsertAddsToTheStoredTotals() {
+        service.resultsAdded(List.of(result(1L, "Math", "A", 90.0, FIRST_DAY)));
+
+        assertThat(statements).singleElement().satisfies(sql -> assertThat(sql)
+                .contains("ON DUPLICATE KEY UPDATE")
+                .contains("score_sum = score_sum + VALUES(score_sum)")
+                .contains("result_count = result_count + VALUES(result_count)")
+                .contains("graded_count = graded_count + VALUES(graded_count)"));
+        verifyNoInteractions(aggregateRepository);
+    }
+
+    @Test
+    void noResultsWriteNothing() {
+        service.resultsAdded(List.of());
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    // The ON DUPLICATE KEY UPDATE clause applied to a stored row and the row that hit its key
+    private static Map<Integer, Object> onDuplicateKey(Map<Integer, Object> stored, Map<Integer, Object> added) {
+        Map<Integer, Object> row = new HashMap<>(stored);
+        row.put(4, (Double) stored.get(4) + (Double) added.get(4));
+        row.put(5, (Integer) stored.get(5) + (Integer) added.get(5));
+        row.put(6, (Double) stored.get(6) + (Double) added.get(6));
+        row.put(7, (Integer) stored.get(7) + (Integer) added.get(7));
+        Date latest = (Date) stored.get(9);
+        if (latest == null || !((Date) added.get(9)).before(latest)) {
+            row.put(8, added.get(8));
+            row.put(9, added.get(9));
+        }
+        return row;
+    }
+
+    private static ResultCreateDto result(Long studentId, String subject, String grade, double score, LocalDate date) {
+        return new ResultCreateDto(subject, grade, score, date, studentId);
+    }
+
+    private static Result entity(Long studentId, String subject, String grade, double score, LocalDate date) {
+        Student student = new Student();
+        student.setId(studentId);
+        Result result = new Result();
+        result.setStudent(student);
+        result.setSubject(subject);
+        result.setGrade(grade);
+        result.setScore(score);
+        result.setDate(date);
+        return result;
+    }
+
+    private static PreparedStatement recording(Map<Integer, Object> values) {
+        return (PreparedStatement) Proxy.newProxyInstance(PerformanceAggregateServiceTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length == 2) {
+                        values.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                });
+    }
+}
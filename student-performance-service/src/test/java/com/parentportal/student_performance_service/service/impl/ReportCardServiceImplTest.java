@@ -0,0 +1,201 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.PerformanceSummaryDto;
+import com.parentportal.student_performance_service.dto.ReportCardFormat;
+import com.parentportal.student_performance_service.dto.SubjectSummaryDto;
+import com.parentportal.student_performance_service.entity.Student;
+import com.parentportal.student_performance_service.repository.StudentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportCardServiceImplTest {
+
+    private static final String COHORT = "Grade 7A";
+    private static final int YEAR = 2024;
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final PerformanceAggregateService performanceAggregateService = mock(PerformanceAggregateService.class);
+    private final AcademicCalendar academicCalendar = new AcademicCalendar(9, 1);
+    private final ReportCardServiceImpl reportCards = new ReportCardServiceImpl(studentRepository,
+            performanceAggregateService, academicCalendar, mock(UserRoleVerifier.class), 2, 2);
+
+    // The cohort's students, ascending by ID; findCohortPageAfter answers from it as the keyset query would
+    private final List<Student> roster = new ArrayList<>();
+    // Cursors the export paged from, in order
+    private final List<Long> cursors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(studentRepository.findCohortPageAfter(eq(COHORT), anyLong(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(1);
+            PageRequest pageable = invocation.getArgument(2);
+            cursors.add(afterId);
+            return roster.stream().filter(student -> student.getId() > afterId).limit(pageable.getPageSize()).toList();
+        });
+        when(performanceAggregateService.summaries(anyCollection(), anyInt())).thenAnswer(invocation -> {
+            Map<Long, PerformanceSummaryDto> summaries = new HashMap<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                summaries.put(id, summary(id, invocation.getArgument(1)));
+            }
+            return summaries;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        reportCards.shutdown();
+    }
+
+    @Test
+    void csvHasOneRowPerSubjectInCursorOrderAcrossChunks() throws IOException {
+        for (long id = 10; id <= 50; id += 10) {
+            roster.add(student(id, "Ann" + id, "Lee"));
+        }
+
+        String csv = exportCsv();
+
+        List<String> lines = csv.lines().toList();
+        assertThat(lines.get(0)).startsWith("id,studentId,firstName,lastName,cohort,academicYear,gpa,");
+        assertThat(lines).hasSize(1 + 5 * 2);
+        assertThat(lines.subList(1, 3)).containsExactly(
+                "10,STU-10,Ann10,Lee,Grade 7A,2024,3.50,10,1,2,0.9000,Art,1,75.50,3.00,B,09-15-2024",
+                "10,STU-10,Ann10,Lee,Grade 7A,2024,3.50,10,1,2,0.9000,Math,3,88.00,3.70,A,10-01-2024");
+        assertThat(lines.subList(1, lines.size())).extracting(line -> line.substring(0, line.indexOf(',')))
+                .containsExactly("10", "10", "20", "20", "30", "30", "40", "40", "50", "50");
+        // Chunks of two, the last one short, so no extra query for an empty page
+        assertThat(cursors).containsExactly(0L, 20L, 40L);
+    }
+
+    @Test
+    void cohortFillingTheLastChunkEndsWithAnEmptyPage() throws IOException {
+        roster.add(student(10, "Ann", "Lee"));
+        roster.add(student(20, "Bob", "Berg"));
+
+        assertThat(exportCsv().lines()).hasSize(1 + 2 * 2);
+        assertThat(cursors).containsExactly(0L, 20L);
+    }
+
+    @Test
+    void csvQuotesSpecialValuesAndLeavesMissingOnesEmpty() throws IOException {
+        Student student = student(10, "Ann", "Smith, \"Jr\"");
+        student.setStudentId(null);
+        roster.add(student);
+        when(performanceAggregateService.summaries(anyCollection(), anyInt())).thenReturn(Map.of(10L,
+                new PerformanceSummaryDto(10L, YEAR, List.of(), null, 0, 0, 0, null)));
+
+        assertThat(exportCsv().lines().skip(1)).containsExactly("10,,Ann,\"Smith, \"\"Jr\"\"\",Grade 7A,2024,,0,0,0,,,,,,,");
+    }
+
+    @Test
+    void emptyCohortHasOnlyTheHeader() throws IOException {
+        assertThat(exportCsv().lines()).hasSize(1);
+    }
+
+    @Test
+    void pdfExportIsAZipWithOnePdfPerStudentInCursorOrder() throws IOException {
+        roster.add(student(10, "Ann", "Lee"));
+        roster.add(student(20, "Seán", "O'Brien"));
+        roster.add(student(30, "Bob", "Berg"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        reportCards.exportReportCards(COHORT, YEAR, ReportCardFormat.PDF, output);
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertThat(new String(zip.readNBytes(5), StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+            }
+        }
+        assertThat(names).containsExactly("10-Lee-Ann-2024.pdf", "20-O_Brien-Se_n-2024.pdf", "30-Berg-Bob-2024.pdf");
+    }
+
+    @Test
+    void yearDefaultsToTheCurrentAcademicYear() throws IOException {
+        roster.add(student(10, "Ann", "Lee"));
+        int currentYear = academicCalendar.currentAcademicYear();
+
+        reportCards.exportReportCards(COHORT, null, ReportCardFormat.CSV, new ByteArrayOutputStream());
+
+        verify(performanceAggregateService).summaries(List.of(10L), currentYear);
+    }
+
+    @Test
+    void failedWriteStopsTheExport() {
+        for (long id = 10; id <= 50; id += 10) {
+            roster.add(student(id, "Ann", "Lee"));
+        }
+        // The client goes away after the header
+        OutputStream output = new OutputStream() {
+            private int writes;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (++writes > 1) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        };
+
+        assertThatThrownBy(() -> reportCards.exportReportCards(COHORT, YEAR, ReportCardFormat.CSV, output))
+                .isInstanceOf(IOException.class).hasMessage("Broken pipe");
+        // Only the first two chunks were read: one written, one rendering ahead of it
+        assertThat(cursors).containsExactly(0L, 20L);
+    }
+
+    private String exportCsv() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        reportCards.exportReportCards(COHORT, YEAR, ReportCardFormat.CSV, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Student student(long id, String firstName, String lastName) {
+        Student student = new Student();
+        student.setId(id);
+        student.setStudentId("STU-" + id);
+        student.setFirstName(firstName);
+        student.setLastName(lastName);
+        student.setCohort(COHORT);
+        return student;
+    }
+
+    private static PerformanceSummaryDto summary(Long studentId, int academicYear) {
+        return new PerformanceSummaryDto(studentId, academicYear, List.of(
+                new SubjectSummaryDto("Art", 1, 75.5, 3.0, "B", LocalDate.of(2024, 9, 15)),
+                new SubjectSummaryDto("Math", 3, 88.0, 3.7, "A", LocalDate.of(2024, 10, 1))),
+                3.5, 10, 1, 2, 0.9);
+    }
+}
@@ -0,0 +1,275 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.parentportal.student_performance_service.dto.BulkImportErrorDto;
+import com.parentportal.student_performance_service.dto.BulkImportReportDto;
+import com.parentportal.student_performance_service.dto.StudentRecipientDto;
+import com.parentportal.student_performance_service.dto.user.UserDto;
+import com.parentportal.student_performance_service.repository.StudentRepository;
+import com.parentportal.student_performance_service.service.AccessDeniedException;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ResultImportServiceImplTest {
+
+    private static final long ADMIN = 1L;
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final UserRoleVerifier userRoleVerifier = mock(UserRoleVerifier.class);
+    private final ClassRankingEngine classRankingEngine = mock(ClassRankingEngine.class);
+    private final AcademicYearArchive academicYearArchive = mock(AcademicYearArchive.class);
+    private final StudentVersions studentVersions = mock(StudentVersions.class);
+    private final SequenceIds sequenceIds = mock(SequenceIds.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ResultImportServiceImpl importService = new ResultImportServiceImpl(studentRepository,
+            userRoleVerifier, mock(PerformanceAggregateService.class), mock(StudentEventOutbox.class),
+            classRankingEngine, academicYearArchive, mock(SecondLevelCache.class), studentVersions, sequenceIds,
+            transactionTemplate, jdbcTemplate, new ObjectMapper().registerModule(new JavaTimeModule()),
+            Validation.buildDefaultValidatorFactory().getValidator(), Schedulers.immediate());
+
+    // Student IDs in the students table; every student is in cohort "Grade 7A"
+    private final Set<Long> students = new HashSet<>();
+    // Inserting a row for one of these students fails its whole batch, as a constraint violation would
+    private final Set<Long> failingStudents = new HashSet<>();
+    // Rows stored by committed batches, as the insert's parameters by index
+    private final List<Map<Integer, Object>> inserted = new ArrayList<>();
+    private int batches;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        LongStream.rangeClosed(1, 10).forEach(students::add);
+        when(userRoleVerifier.verifyAdmin(ADMIN)).thenReturn(Mono.just(new UserDto()));
+        when(studentRepository.findRecipients(anyCollection())).thenAnswer(invocation -> invocation
+                .<Collection<Long>>getArgument(0).stream()
+                .filter(students::contains)
+                .map(id -> new StudentRecipientDto(id, "Student " + id, 100 + id, "Grade 7A"))
+                .toList());
+        AtomicLong nextId = new AtomicLong(1000);
+        when(sequenceIds.next(eq(SequenceIds.RESULTS), anyInt())).thenAnswer(invocation -> LongStream
+                .range(0, invocation.<Integer>getArgument(1)).map(i -> nextId.getAndIncrement()).toArray());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            batches++;
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            List<Map<Integer, Object>> rows = new ArrayList<>();
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                Map<Integer, Object> values = new HashMap<>();
+                setter.setValues(recording(values), i);
+                if (failingStudents.contains((Long) values.get(2))) {
+                    throw new DataIntegrityViolationException("Batch failed",
+                            new SQLException("Duplicate entry for student " + values.get(2)));
+                }
+                rows.add(values);
+            }
+            // Stored only once the whole batch succeeded: a failed one rolls back with its transaction
+            inserted.addAll(rows);
+            return new int[rows.size()];
+        });
+    }
+
+    @Test
+    void jsonRowsAreInsertedInChunksOfTheBatchSize() {
+        BulkImportReportDto report = importJson("[" + jsonRow(1, "Math", 90) + "," + jsonRow(2, "Art", 80) + ","
+                + jsonRow(3, "Math", 70) + "," + jsonRow(4, "Math", 60) + "," + jsonRow(5, "Science", 50) + "]");
+
+        assertThat(report.getReceived()).isEqualTo(5);
+        assertThat(report.getImported()).isEqualTo(5);
+        assertThat(report.getFailed()).isZero();
+        assertThat(report.getErrors()).isEmpty();
+        // One student lookup and one insert batch per chunk of two rows
+        assertThat(batches).isEqualTo(3);
+        verify(studentRepository, times(3)).findRecipients(anyCollection());
+        assertThat(inserted).extracting(row -> row.get(1)).containsExactly(1000L, 1001L, 1002L, 1003L, 1004L);
+        assertThat(inserted.get(1)).containsEntry(2, 2L).containsEntry(3, "Art").containsEntry(4, "A")
+                .containsEntry(5, 80.0).containsEntry(6, Date.valueOf(LocalDate.of(2024, 9, 2)));
+        verify(studentVersions).bump(List.of(1L, 2L));
+        verify(classRankingEngine, times(3)).invalidateCohorts(Set.of("Grade 7A"));
+    }
+
+    @Test
+    void invalidRowsAreReportedByRowNumberAndTheOthersImported() {
+        BulkImportReportDto report = importJson("["
+                + jsonRow(1, "Math", 90) + ","
+                + "{\"studentId\": 2, \"grade\": \"A\", \"score\": 90, \"date\": \"09-02-2024\"},"
+                + jsonRow(3, "Math", -5) + ","
+                + "42,"
+                + "{\"studentId\": 4, \"subject\": \"Math\", \"grade\": \"A\", \"score\": 90, \"date\": \"2024-09-02\"},"
+                + jsonRow(99, "Math", 90) + ","
+                + jsonRow(5, "Math", 90) + "]");
+
+        assertThat(report.getReceived()).isEqualTo(7);
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(5);
+        assertThat(report.getErrors()).extracting(BulkImportErrorDto::getRow).containsExactly(2L, 3L, 4L, 5L, 6L);
+        assertThat(report.getErrors()).extracting(BulkImportErrorDto::getMessage).satisfiesExactly(
+                message -> assertThat(message).isEqualTo("Subject is required"),
+                message -> assertThat(message).isEqualTo("Score cannot be negative"),
+                message -> assertThat(message).isEqualTo("Expected a JSON object"),
+                message -> assertThat(message).startsWith("Invalid result: "),
+                message -> assertThat(message).isEqualTo("Student not found with ID: 99"));
+        assertThat(inserted).extracting(row -> row.get(2)).containsExactly(1L, 5L);
+    }
+
+    @Test
+    void rowsDatedInAClosedYearAreRejected() {
+        when(academicYearArchive.inClosedYear(LocalDate.of(2024, 9, 2))).thenReturn(true);
+
+        BulkImportReportDto report = importJson("[" + jsonRow(1, "Math", 90) + "]");
+
+        assertThat(report.getImported()).isZero();
+        assertThat(report.getErrors()).singleElement().extracting(BulkImportErrorDto::getMessage)
+                .isEqualTo("Date 09-02-2024 is in a closed academic year, which is read-only");
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void failedBatchRollsBackOnlyItsOwnChunk() {
+        failingStudents.add(3L);
+
+        BulkImportReportDto report = importJson("[" + jsonRow(1, "Math", 90) + "," + jsonRow(2, "Math", 80) + ","
+                + jsonRow(3, "Math", 70) + "," + jsonRow(4, "Math", 60) + "," + jsonRow(5, "Math", 50) + "]");
+
+        assertThat(report.getReceived()).isEqualTo(5);
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getFailed()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(BulkImportErrorDto::getRow).containsExactly(3L, 4L);
+        assertThat(report.getErrors()).extracting(BulkImportErrorDto::getMessage)
+                .containsOnly("Batch insert failed: Duplicate entry for student 3");
+        assertThat(inserted).extracting(row -> row.get(2)).containsExactly(1L, 2L, 5L);
+        // Versions are bumped for the committed chunks only
+        verify(studentVersions).bump(List.of(1L, 2L));
+        verify(studentVersions).bump(List.of(5L));
+        verify(studentVersions, never()).bump(List.of(3L, 4L));
+    }
+
+    @Test
+    void malformedJsonStopsTheImportAfterTheRowsReadSoFar() {
+        BulkImportReportDto report = importJson("[" + jsonRow(1, "Math", 90) + ", {\"studentId\": ");
+
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getRow()).isEqualTo(2);
+            assertThat(error.getMessage()).startsWith("Malformed JSON, import stopped: ");
+        });
+    }
+
+    @Test
+    void jsonThatIsNotAnArrayIsRejectedWhole() {
+        BulkImportReportDto report = importJson(jsonRow(1, "Math", 90));
+
+        assertThat(report.getReceived()).isZero();
+        assertThat(report.getErrors()).containsExactly(new BulkImportErrorDto(0, "Expected a JSON array of results"));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void csvColumnsAreMatchedByHeaderAndQuotedFieldsKeepTheirCommas() {
+        BulkImportReportDto report = importCsv("""
+                Subject,Date,studentId,grade,SCORE
+                "Art, ""Design""\",09-02-2024,1,A,90
+                Math,09-02-2024,x,B,80
+
+                Math,2024-09-02,2,B,80
+                Math,09-03-2024,2,B,85
+                """);
+
+        assertThat(report.getReceived()).isEqualTo(4);
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(BulkImportErrorDto::getRow).containsExactly(2L, 3L);
+        assertThat(report.getErrors()).extracting(BulkImportErrorDto::getMessage).containsExactly(
+                "Invalid number: For input string: \"x\"", "Invalid date (expected MM-dd-yyyy): 2024-09-02");
+        assertThat(inserted.get(0)).containsEntry(2, 1L).containsEntry(3, "Art, \"Design\"").containsEntry(5, 90.0);
+        assertThat(inserted.get(1)).containsEntry(6, Date.valueOf(LocalDate.of(2024, 9, 3)));
+    }
+
+    @Test
+    void csvWithoutTheRequiredColumnsIsRejectedWhole() {
+        BulkImportReportDto report = importCsv("studentId,subject\n1,Math\n");
+
+        assertThat(report.getReceived()).isZero();
+        assertThat(report.getFailed()).isEqualTo(1);
+        assertThat(report.getErrors()).singleElement().extracting(BulkImportErrorDto::getRow).isEqualTo(0L);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void uploadByANonAdminIsNotRead() {
+        when(userRoleVerifier.verifyAdmin(2L)).thenReturn(Mono.error(new AccessDeniedException("Not an admin")));
+
+        assertThatThrownBy(() -> importService.importResultsCsv(2L, stream("studentId\n")).block())
+                .isInstanceOf(AccessDeniedException.class);
+        verifyNoInteractions(studentRepository, jdbcTemplate);
+    }
+
+    private BulkImportReportDto importJson(String json) {
+        return importService.importResultsJson(ADMIN, stream(json)).block();
+    }
+
+    private BulkImportReportDto importCsv(String csv) {
+        return importService.importResultsCsv(ADMIN, stream(csv)).block();
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Graded A and dated 09-02-2024
+    private static String jsonRow(long studentId, String subject, double score) {
+        return "{\"studentId\": " + studentId + ", \"subject\": \"" + subject + "\", \"grade\": \"A\", \"score\": "
+                + score + ", \"date\": \"09-02-2024\"}";
+    }
+
+    private static PreparedStatement recording(Map<Integer, Object> values) {
+        return (PreparedStatement) Proxy.newProxyInstance(ResultImportServiceImplTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length == 2) {
+                        values.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,107 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.AttendanceDto;
+import com.parentportal.student_performance_service.dto.ResultDto;
+import com.parentportal.student_performance_service.dto.StudentDto;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import com.parentportal.student_performance_service.entity.Result;
+import com.parentportal.student_performance_service.entity.Student;
+import com.parentportal.student_performance_service.mapper.AttendanceMapper;
+import com.parentportal.student_performance_service.mapper.ResultMapper;
+import com.parentportal.student_performance_service.mapper.StudentMapper;
+import com.parentportal.student_performance_service.repository.AttendanceRepository;
+import com.parentportal.student_performance_service.repository.ResultRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StudentFetchPlanTest {
+
+    private final ResultRepository resultRepository = mock(ResultRepository.class);
+    private final AttendanceRepository attendanceRepository = mock(AttendanceRepository.class);
+    private final StudentMapper studentMapper = mock(StudentMapper.class);
+    private final ResultMapper resultMapper = mock(ResultMapper.class);
+    private final AcademicYearArchive archive = mock(AcademicYearArchive.class);
+    private final StudentFetchPlan fetchPlan = new StudentFetchPlan(resultRepository, attendanceRepository,
+            studentMapper, resultMapper, mock(AttendanceMapper.class), archive);
+
+    private static Student student(long id) {
+        Student student = new Student();
+        student.setId(id);
+        return student;
+    }
+
+    private static ResultDto result(long id, long studentId, LocalDate date) {
+        return new ResultDto(id, "Math", "A", 90.0, date, studentId);
+    }
+
+    private static AttendanceDto attendance(long id, long studentId, LocalDate date) {
+        return new AttendanceDto(id, date, AttendanceStatus.PRESENT, null, studentId);
+    }
+
+    private static StudentDto dto(long id, List<ResultDto> results, List<AttendanceDto> attendance) {
+        return new StudentDto(id, null, null, null, null, null, new ArrayList<>(results), new ArrayList<>(attendance));
+    }
+
+    @Test
+    void cachedRecordsCarryTheArchivedHistoryFirst() {
+        LocalDate archivedDay = LocalDate.of(2021, 10, 4);
+        LocalDate hotDay = LocalDate.of(2025, 10, 6);
+        when(studentMapper.studentListToStudentDtoList(anyList())).thenReturn(new ArrayList<>(List.of(
+                dto(1, List.of(result(30, 1, hotDay)), List.of(attendance(40, 1, hotDay))),
+                dto(2, List.of(result(31, 2, hotDay)), List.of()))));
+        when(archive.resultsByStudent(anyCollection())).thenReturn(Map.of(1L, List.of(result(3, 1, archivedDay))));
+        when(archive.attendanceByStudent(anyCollection()))
+                .thenReturn(Map.of(1L, List.of(attendance(4, 1, archivedDay)), 2L, List.of(attendance(5, 2, archivedDay))));
+
+        List<StudentDto> students = fetchPlan.withCachedRecords(List.of(student(1), student(2)));
+
+        assertThat(students.get(0).getResults()).extracting(ResultDto::getId).containsExactly(3L, 30L);
+        assertThat(students.get(0).getAttendanceRecords()).extracting(AttendanceDto::getId).containsExactly(4L, 40L);
+        assertThat(students.get(1).getResults()).extracting(ResultDto::getId).containsExactly(31L);
+        assertThat(students.get(1).getAttendanceRecords()).extracting(AttendanceDto::getId).containsExactly(5L);
+    }
+
+    @Test
+    void batchLoadedRecordsCarryTheArchivedHistoryWithOneQueryPerTable() {
+        LocalDate hotDay = LocalDate.of(2025, 10, 6);
+        Result hot = new Result();
+        hot.setId(30L);
+        when(resultRepository.findByStudentIdIn(anyCollection())).thenReturn(List.of(hot));
+        when(resultMapper.resultToResultDto(any())).thenReturn(result(30, 1, hotDay));
+        when(attendanceRepository.findByStudentIdIn(anyCollection())).thenReturn(List.of());
+        when(studentMapper.studentToStudentDtoWithoutRecords(any())).thenAnswer(invocation ->
+                dto(invocation.<Student>getArgument(0).getId(), List.of(), List.of()));
+        when(archive.resultsByStudent(anyCollection()))
+                .thenReturn(Map.of(1L, List.of(result(3, 1, LocalDate.of(2021, 10, 4)))));
+        when(archive.attendanceByStudent(anyCollection())).thenReturn(Map.of());
+
+        List<StudentDto> students = fetchPlan.withRecords(List.of(student(1), student(2), student(3)));
+
+        assertThat(students.get(0).getResults()).extracting(ResultDto::getId).containsExactly(3L, 30L);
+        assertThat(students.get(1).getResults()).isEmpty();
+        assertThat(students.get(2).getAttendanceRecords()).isEmpty();
+        verify(archive, times(1)).resultsByStudent(List.of(1L, 2L, 3L));
+        verify(archive, times(1)).attendanceByStudent(List.of(1L, 2L, 3L));
+    }
+
+    @Test
+    void noStudentsReadNoArchive() {
+        assertThat(fetchPlan.withRecords(List.of())).isEmpty();
+
+        verifyNoInteractions(archive);
+    }
+}
@@ -0,0 +1,274 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.StudentSearchHitDto;
+import com.parentportal.student_performance_service.entity.Student;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class StudentSearchIndexTest {
+
+    private static final List<String> QUERIES = List.of("a", "an", "ann", "anna", "anna sm", "smith", "smyth",
+            "johnsen", "lee", "stu", "stu0042", "zoe", "grade");
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StudentSearchIndex index = new StudentSearchIndex(jdbcTemplate, 0.5);
+
+    // The students table the rebuild loads, by ID
+    private final Map<Long, Student> table = new TreeMap<>();
+    // Runs once per loaded row, before the row is indexed; lets a test commit changes mid-load
+    private Consumer<Long> duringLoad = id -> {
+    };
+
+    {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Student student : List.copyOf(table.values())) {
+                duringLoad.accept(student.getId());
+                handler.processRow(row(student));
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void searchIsUnavailableUntilTheFirstBuild() {
+        assertThatThrownBy(() -> index.search("ann", 10)).isInstanceOf(IllegalStateException.class);
+
+        index.rebuild();
+
+        assertThat(index.search("ann", 10)).isEmpty();
+    }
+
+    @Test
+    void limitOutsideTheAllowedRangeIsRejected() {
+        index.rebuild();
+
+        assertThatThrownBy(() -> index.search("ann", 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search("ann", StudentSearchIndex.MAX_LIMIT + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void exactTokensRankBeforePrefixesThenByLastName() {
+        stored(1, "Ann", "Lee", "STU-0001");
+        stored(2, "Anna", "Smith", "STU-0002");
+        stored(3, "Annabel", "Jones", "STU-0003");
+        stored(4, "Bob", "Annan", "STU-0004");
+        stored(5, "Carl", "Berg", "STU-0005");
+        index.rebuild();
+
+        assertThat(ids("ann")).containsExactly(1L, 4L, 3L, 2L);
+        assertThat(ids("ann", 2)).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void everyQueryTokenMustMatch() {
+        stored(1, "Ann", "Lee", "STU-0001");
+        stored(2, "Anna", "Smith", "STU-0002");
+        stored(3, "Annabel", "Jones", "STU-0003");
+        index.rebuild();
+
+        assertThat(ids("anna sm")).containsExactly(2L);
+        assertThat(ids("jon ann")).containsExactly(3L);
+        assertThat(ids("ann zed")).isEmpty();
+    }
+
+    @Test
+    void nearMissesAreFoundByTrigramsAfterExactAndPrefixMatches() {
+        stored(1, "Jonathan", "Johnson", "STU-0001");
+        stored(2, "Johnsen", "Berg", "STU-0002");
+        stored(3, "Mia", "Wong", "STU-0003");
+        index.rebuild();
+
+        // "johnsen" is exact for the second student and one letter off "johnson" for the first
+        assertThat(ids("johnsen")).containsExactly(2L, 1L);
+        assertThat(ids("wang")).isEmpty(); // Below the similarity threshold
+        assertThat(ids("jx")).isEmpty(); // Too short for near misses
+    }
+
+    @Test
+    void caseAndAccentsAreFolded() {
+        stored(1, "Zoë", "Álvarez", "STU-0001");
+        index.rebuild();
+
+        assertThat(ids("zoe alv")).containsExactly(1L);
+        assertThat(ids("ZOË")).containsExactly(1L);
+        assertThat(index.search("alvarez", 1).get(0).getFirstName()).isEqualTo("Zoë");
+    }
+
+    @Test
+    void schoolIdsAreFoundWithOrWithoutSeparators() {
+        stored(1, "Ann", "Lee", "STU-0042");
+        stored(2, "Bob", "Berg", "STU-0420");
+        index.rebuild();
+
+        // One transposition off would be another student, so IDs have no near misses
+        assertThat(ids("stu0042")).containsExactly(1L);
+        assertThat(ids("stu0024")).isEmpty();
+        assertThat(ids("STU-0042")).containsExactly(1L);
+        assertThat(ids("0042")).containsExactly(1L);
+        assertThat(ids("stu-04")).containsExactly(2L);
+    }
+
+    @Test
+    void incrementalChangesMatchARebuildOfTheSameRows() {
+        stored(1, "Ann", "Lee", "STU-0001");
+        stored(2, "Anna", "Smith", "STU-0002");
+        stored(3, "Jonathan", "Johnson", "STU-0003");
+        index.rebuild();
+
+        // Outside a transaction each change applies at once, as it would after commit
+        index.indexAfterCommit(stored(4, "Zoë", "Smyth", "STU-0042"));
+        index.indexAfterCommit(stored(2, "Anna", "Lee-Smith", "STU-0002"));
+        index.indexAfterCommit(stored(5, "Annabel", "Grade", "STU-0005"));
+        table.remove(3L);
+        index.removeAfterCommit(3L);
+
+        StudentSearchIndex rebuilt = new StudentSearchIndex(jdbcTemplate, 0.5);
+        rebuilt.rebuild();
+        for (String query : QUERIES) {
+            assertThat(index.search(query, StudentSearchIndex.MAX_LIMIT))
+                    .as(query).isEqualTo(rebuilt.search(query, StudentSearchIndex.MAX_LIMIT));
+        }
+        assertThat(index.indexedTokens()).isEqualTo(rebuilt.indexedTokens());
+        assertThat(index.indexedTrigrams()).isEqualTo(rebuilt.indexedTrigrams());
+        assertThat(ids("johnsen")).isEmpty();
+    }
+
+    @Test
+    void renamedAndDeletedStudentsLeaveNoTokensBehind() {
+        index.rebuild();
+        for (int round = 0; round < 100; round++) {
+            for (long id = 1; id <= 20; id++) {
+                index.indexAfterCommit(stored(id, "Ann" + letters(round * 20 + id), "Lee" + letters(round),
+                        "STU-" + round + "-" + id));
+            }
+        }
+
+        StudentSearchIndex rebuilt = new StudentSearchIndex(jdbcTemplate, 0.5);
+        rebuilt.rebuild();
+        assertThat(index.indexedTokens()).isEqualTo(rebuilt.indexedTokens());
+        assertThat(index.indexedTrigrams()).isEqualTo(rebuilt.indexedTrigrams());
+        assertThat(ids("leea")).isEmpty();
+
+        for (long id = 1; id <= 20; id++) {
+            index.removeAfterCommit(id);
+        }
+        assertThat(index.indexedTokens()).isZero();
+        assertThat(index.indexedTrigrams()).isZero();
+    }
+
+    @Test
+    void changesCommittedWhileARebuildLoadsAreKeptInTheNewIndex() {
+        stored(1, "Ann", "Lee", "STU-0001");
+        stored(2, "Bob", "Berg", "STU-0002");
+        index.rebuild();
+        duringLoad = id -> {
+            if (id == 1L) {
+                // Committed after the rebuild's snapshot, which still has student 2 and not student 3
+                index.removeAfterCommit(2L);
+                index.indexAfterCommit(student(3, "Carl", "Lund", "STU-0003"));
+            }
+        };
+
+        index.rebuild();
+
+        assertThat(ids("bob")).isEmpty();
+        assertThat(ids("carl")).containsExactly(3L);
+        assertThat(ids("ann")).containsExactly(1L);
+    }
+
+    @Test
+    void failedRebuildKeepsServingThePreviousIndex() {
+        stored(1, "Ann", "Lee", "STU-0001");
+        index.rebuild();
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        index.rebuild();
+
+        assertThat(ids("ann")).containsExactly(1L);
+    }
+
+    @Test
+    void shortPrefixMatchingMoreThanTheCandidateCapKeepsTheExactTokenFirst() {
+        for (long id = 1; id <= StudentSearchIndex.MAX_CANDIDATES + 500; id++) {
+            stored(id, "Student" + id, "Smith", "STU-" + id);
+        }
+        long exact = StudentSearchIndex.MAX_CANDIDATES + 501;
+        stored(exact, "Sam", "Smi", "STU-X");
+        index.rebuild();
+
+        List<StudentSearchHitDto> hits = index.search("smi", 10);
+
+        assertThat(hits).hasSize(10);
+        assertThat(hits.get(0).getId()).isEqualTo(exact);
+    }
+
+    private List<Long> ids(String query) {
+        return ids(query, StudentSearchIndex.MAX_LIMIT);
+    }
+
+    private List<Long> ids(String query, int limit) {
+        return index.search(query, limit).stream().map(StudentSearchHitDto::getId).toList();
+    }
+
+    // 0 -> "a", 25 -> "z", 26 -> "ba": letters only, so the renamed tokens are indexed by trigram too
+    private static String letters(long n) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.insert(0, (char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return letters.toString();
+    }
+
+    private Student stored(long id, String firstName, String lastName, String studentId) {
+        Student student = student(id, firstName, lastName, studentId);
+        table.put(id, student);
+        return student;
+    }
+
+    private static Student student(long id, String firstName, String lastName, String studentId) {
+        Student student = new Student();
+        student.setId(id);
+        student.setFirstName(firstName);
+        student.setLastName(lastName);
+        student.setStudentId(studentId);
+        student.setCohort("Grade 7A");
+        return student;
+    }
+
+    // The students row as LOAD_SQL selects it
+    private static ResultSet row(Student student) {
+        return (ResultSet) Proxy.newProxyInstance(StudentSearchIndexTest.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getLong" -> student.getId();
+                    case "getString" -> switch ((String) args[0]) {
+                        case "first_name" -> student.getFirstName();
+                        case "last_name" -> student.getLastName();
+                        case "student_id" -> student.getStudentId();
+                        case "cohort" -> student.getCohort();
+                        default -> throw new IllegalArgumentException((String) args[0]);
+                    };
+                    default -> null;
+                });
+    }
+}
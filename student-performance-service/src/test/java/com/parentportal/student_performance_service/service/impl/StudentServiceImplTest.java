@@ -0,0 +1,361 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.CursorPageDto;
+import com.parentportal.student_performance_service.dto.ResultCreateDto;
+import com.parentportal.student_performance_service.dto.ResultDto;
+import com.parentportal.student_performance_service.dto.SlicePageDto;
+import com.parentportal.student_performance_service.dto.StudentBatchResponseDto;
+import com.parentportal.student_performance_service.dto.StudentDto;
+import com.parentportal.student_performance_service.dto.StudentRefDto;
+import com.parentportal.student_performance_service.dto.StudentSummaryDto;
+import com.parentportal.student_performance_service.dto.user.UserDto;
+import com.parentportal.student_performance_service.entity.AttendanceStatus;
+import com.parentportal.student_performance_service.entity.Result;
+import com.parentportal.student_performance_service.entity.Student;
+import com.parentportal.student_performance_service.mapper.AttendanceMapper;
+import com.parentportal.student_performance_service.mapper.ResultMapper;
+import com.parentportal.student_performance_service.mapper.StudentMapper;
+import com.parentportal.student_performance_service.repository.AttendanceRepository;
+import com.parentportal.student_performance_service.repository.ResultRepository;
+import com.parentportal.student_performance_service.repository.StudentRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StudentServiceImplTest {
+
+    private static final long ADMIN = 1L;
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final ResultRepository resultRepository = mock(ResultRepository.class);
+    private final AttendanceRepository attendanceRepository = mock(AttendanceRepository.class);
+    private final ResultMapper resultMapper = mock(ResultMapper.class);
+    private final AttendanceMapper attendanceMapper = mock(AttendanceMapper.class);
+    private final StudentFetchPlan studentFetchPlan = mock(StudentFetchPlan.class);
+    private final StudentVersions studentVersions = mock(StudentVersions.class);
+    private final UserRoleVerifier userRoleVerifier = mock(UserRoleVerifier.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final StudentServiceImpl studentService = new StudentServiceImpl(studentRepository,
+            resultRepository, attendanceRepository, mock(StudentMapper.class),
+            resultMapper, attendanceMapper, studentFetchPlan,
+            mock(AttendanceLedgerService.class), mock(PerformanceAggregateService.class),
+            mock(StudentEventOutbox.class), mock(AttendanceAnomalyDetector.class), mock(ClassRankingEngine.class),
+            mock(SecondLevelCache.class), studentVersions, mock(SequenceIds.class),
+            mock(StudentSearchIndex.class), mock(AcademicYearArchive.class), new AcademicCalendar(9, 1),
+            mock(JdbcTemplate.class), userRoleVerifier, transactionTemplate,
+            Schedulers.immediate(), mock(EntityManager.class));
+
+    // Student IDs in the table, ascending; findPageAfter answers from it as the keyset query would
+    private final List<Long> roster = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(studentRepository.findPageAfter(anyLong(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            PageRequest pageable = invocation.getArgument(1);
+            return roster.stream().filter(id -> id > afterId).limit(pageable.getPageSize()).map(this::student).toList();
+        });
+        when(studentRepository.findSummaryPageAfter(anyLong(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            PageRequest pageable = invocation.getArgument(1);
+            return roster.stream().filter(id -> id > afterId).limit(pageable.getPageSize())
+                    .map(id -> new StudentSummaryDto(id, null, null, null, null, null)).toList();
+        });
+        when(studentFetchPlan.withRecords(anyList())).thenAnswer(invocation -> invocation.<List<Student>>getArgument(0)
+                .stream().map(student -> {
+                    StudentDto dto = new StudentDto();
+                    dto.setId(student.getId());
+                    return dto;
+                }).toList());
+        when(studentFetchPlan.summaries(anyList())).thenAnswer(invocation -> invocation.<List<Student>>getArgument(0)
+                .stream().map(student -> new StudentSummaryDto(student.getId(), null, null, null, null, null)).toList());
+    }
+
+    @Test
+    void firstPageStartsAtTheBeginningAndReadsOneExtraRow() {
+        roster.addAll(List.of(3L, 5L, 8L, 13L));
+
+        CursorPageDto<StudentDto> page = studentService.getStudentsPage(null, 2);
+
+        verify(studentRepository).findPageAfter(eq(0L), eq(PageRequest.of(0, 3)));
+        assertThat(page.getContent()).extracting(StudentDto::getId).containsExactly(3L, 5L);
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(page.getNextCursor()).isEqualTo(5L);
+    }
+
+    @Test
+    void followingTheCursorVisitsEveryStudentOnceInIdOrder() {
+        LongStream.rangeClosed(1, 7).map(i -> i * 10).forEach(roster::add);
+        List<Long> visited = new ArrayList<>();
+
+        Long cursor = null;
+        int pages = 0;
+        do {
+            CursorPageDto<StudentDto> page = studentService.getStudentsPage(cursor, 3);
+            page.getContent().forEach(student -> visited.add(student.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(visited).isEqualTo(roster);
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void pageThatExactlyFillsTheRemainderHasNoCursor() {
+        roster.addAll(List.of(3L, 5L, 8L, 13L));
+
+        CursorPageDto<StudentDto> page = studentService.getStudentsPage(5L, 2);
+
+        assertThat(page.getContent()).extracting(StudentDto::getId).containsExactly(8L, 13L);
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void summaryPagesUseTheSameCursor() {
+        roster.addAll(List.of(3L, 5L, 8L));
+
+        CursorPageDto<StudentSummaryDto> page = studentService.getStudentSummariesPage(3L, 1);
+
+        assertThat(page.getContent()).extracting(StudentSummaryDto::getId).containsExactly(5L);
+        assertThat(page.getNextCursor()).isEqualTo(5L);
+    }
+
+    @Test
+    void allSummariesAreReadAsProjectedKeysetChunks() {
+        LongStream.rangeClosed(1, 2500).forEach(roster::add);
+
+        List<StudentSummaryDto> summaries = studentService.getAllStudentSummaries();
+
+        assertThat(summaries).extracting(StudentSummaryDto::getId).isEqualTo(roster);
+        verify(studentRepository).findSummaryPageAfter(eq(0L), eq(PageRequest.of(0, 1000)));
+        verify(studentRepository).findSummaryPageAfter(eq(1000L), eq(PageRequest.of(0, 1000)));
+        verify(studentRepository).findSummaryPageAfter(eq(2000L), eq(PageRequest.of(0, 1000)));
+        verify(studentRepository, never()).findAll();
+        verifyNoInteractions(studentFetchPlan);
+    }
+
+    @Test
+    void pageSizeOutsideTheLimitsIsRejected() {
+        assertThatThrownBy(() -> studentService.getStudentsPage(null, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> studentService.getStudentSummariesPage(null, 501))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    void batchLookupReturnsExistingStudentsAndMissingIdsInIdOrder() {
+        when(studentRepository.findRefs(anyCollection())).thenReturn(List.of(
+                new StudentRefDto(5L, 50L, "STU-5"), new StudentRefDto(3L, 30L, "STU-3")));
+
+        StudentBatchResponseDto response = studentService.getStudentRefs(Arrays.asList(9L, 5L, null, 3L, 5L));
+
+        verify(studentRepository).findRefs(List.of(3L, 5L, 9L));
+        assertThat(response.getStudents()).extracting(StudentRefDto::getId).containsExactly(3L, 5L);
+        assertThat(response.getMissingIds()).containsExactly(9L);
+    }
+
+    @Test
+    void batchLookupQueriesInBoundedInLists() {
+        List<Long> ids = LongStream.rangeClosed(1, 2500).boxed().toList();
+        List<Integer> chunkSizes = new ArrayList<>();
+        when(studentRepository.findRefs(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> chunk = invocation.getArgument(0);
+            chunkSizes.add(chunk.size());
+            return chunk.stream().filter(id -> id % 2 == 0).map(id -> new StudentRefDto(id, null, null)).toList();
+        });
+
+        StudentBatchResponseDto response = studentService.getStudentRefs(ids);
+
+        assertThat(chunkSizes).containsExactly(1000, 1000, 500);
+        assertThat(response.getStudents()).hasSize(1250);
+        assertThat(response.getMissingIds()).hasSize(1250).allMatch(id -> id % 2 == 1);
+    }
+
+    @Test
+    void batchLookupOfTooManyIdsIsRejected() {
+        List<Long> ids = LongStream.rangeClosed(1, 10_001).boxed().toList();
+
+        assertThatThrownBy(() -> studentService.getStudentRefs(ids)).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    void resultSearchReadsOneNewestFirstSliceOfTheAcademicYearNarrowedByTheDates() {
+        when(studentRepository.existsById(7L)).thenReturn(true);
+        when(resultRepository.findByStudentIdAndSubjectAndDateBetween(anyLong(), anyString(), any(), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of(result(11L), result(12L)), PageRequest.of(1, 2), true));
+        when(resultMapper.resultListToResultDtoList(anyList())).thenAnswer(invocation -> invocation
+                .<List<Result>>getArgument(0).stream().map(result -> {
+                    ResultDto dto = new ResultDto();
+                    dto.setId(result.getId());
+                    return dto;
+                }).toList());
+
+        SlicePageDto<ResultDto> page = studentService.searchResults(7L, " Math ", LocalDate.of(2024, 10, 1), null,
+                2024, 1, 2);
+
+        verify(resultRepository).findByStudentIdAndSubjectAndDateBetween(7L, "Math", LocalDate.of(2024, 10, 1),
+                LocalDate.of(2025, 8, 31), PageRequest.of(1, 2, NEWEST_FIRST));
+        verify(resultRepository, never()).findByStudentIdAndDateBetween(anyLong(), any(), any(), any());
+        assertThat(page.getContent()).extracting(ResultDto::getId).containsExactly(11L, 12L);
+        assertThat(page.getPage()).isEqualTo(1);
+        assertThat(page.getSize()).isEqualTo(2);
+        assertThat(page.isHasNext()).isTrue();
+    }
+
+    @Test
+    void resultSearchWithoutSubjectOrYearUsesTheDateOnlyQueryOverTheWholeHistory() {
+        when(studentRepository.existsById(7L)).thenReturn(true);
+        when(resultRepository.findByStudentIdAndDateBetween(anyLong(), any(), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        SlicePageDto<ResultDto> page = studentService.searchResults(7L, " ", null, null, null, 0, 50);
+
+        verify(resultRepository).findByStudentIdAndDateBetween(7L, LocalDate.of(1000, 1, 1),
+                LocalDate.of(9999, 12, 31), PageRequest.of(0, 50, NEWEST_FIRST));
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.isHasNext()).isFalse();
+    }
+
+    @Test
+    void attendanceSearchFiltersByStatusWhenGiven() {
+        when(studentRepository.existsById(7L)).thenReturn(true);
+        when(attendanceRepository.findByStudentIdAndStatusAndDateBetween(anyLong(), any(), any(), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of()));
+        when(attendanceRepository.findByStudentIdAndDateBetween(anyLong(), any(), any(), any(PageRequest.class)))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        studentService.searchAttendance(7L, AttendanceStatus.ABSENT, null, LocalDate.of(2025, 1, 31), 2024, 0, 10);
+        studentService.searchAttendance(7L, null, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), null, 0, 10);
+
+        verify(attendanceRepository).findByStudentIdAndStatusAndDateBetween(7L, AttendanceStatus.ABSENT,
+                LocalDate.of(2024, 9, 1), LocalDate.of(2025, 1, 31), PageRequest.of(0, 10, NEWEST_FIRST));
+        verify(attendanceRepository).findByStudentIdAndDateBetween(7L, LocalDate.of(2025, 1, 1),
+                LocalDate.of(2025, 1, 31), PageRequest.of(0, 10, NEWEST_FIRST));
+    }
+
+    @Test
+    void searchRejectsAnEmptyRangeOrAnInvalidPageBeforeQuerying() {
+        when(studentRepository.existsById(7L)).thenReturn(true);
+
+        assertThatThrownBy(() -> studentService.searchResults(7L, null, LocalDate.of(2024, 10, 1),
+                LocalDate.of(2024, 9, 30), null, 0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> studentService.searchAttendance(7L, null, LocalDate.of(2026, 1, 1), null, 2024, 0, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> studentService.searchResults(7L, null, null, null, null, -1, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> studentService.searchAttendance(7L, null, null, null, null, 0, 501))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(resultRepository, attendanceRepository);
+    }
+
+    @Test
+    void searchForAnUnknownStudentIsNotFound() {
+        assertThatThrownBy(() -> studentService.searchResults(7L, null, null, null, null, 0, 10))
+                .isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> studentService.searchAttendance(7L, null, null, null, null, 0, 10))
+                .isInstanceOf(NoSuchElementException.class);
+        verifyNoInteractions(resultRepository, attendanceRepository);
+    }
+
+    @Test
+    void readsAreLabelledWithTheVersionReadInTheirTransaction() {
+        when(studentVersions.forRead(7L)).thenReturn(4L);
+        when(studentRepository.findById(7L)).thenReturn(Optional.of(student(7L)));
+
+        assertThat(studentService.getResultsByStudentId(7L).getVersion()).isEqualTo(4L);
+        assertThat(studentService.getAttendanceByStudentId(7L).getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void unknownStudentHasNoContentVersion() {
+        assertThatThrownBy(() -> studentService.getContentVersion(7L)).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> studentService.getResultsByStudentId(7L)).isInstanceOf(NoSuchElementException.class);
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    void addingAResultBumpsTheStudentsVersion() {
+        inAdminTransaction();
+        when(studentRepository.findById(7L)).thenReturn(Optional.of(student(7L)));
+        when(resultMapper.resultCreateDtoToResult(any())).thenReturn(new Result());
+        when(resultRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        studentService.addResultToStudent(ADMIN, 7L, new ResultCreateDto()).block();
+
+        verify(studentVersions).bump(7L);
+    }
+
+    @Test
+    void deletingAResultBumpsTheStudentsVersion() {
+        inAdminTransaction();
+        Result result = result(11L);
+        result.setStudent(student(7L));
+        when(resultRepository.findById(11L)).thenReturn(Optional.of(result));
+
+        studentService.deleteResult(ADMIN, 11L).block();
+
+        verify(resultRepository).delete(result);
+        verify(studentVersions).bump(7L);
+    }
+
+    private Student student(Long id) {
+        Student student = new Student();
+        student.setId(id);
+        return student;
+    }
+
+    // The admin is verified and transactions run their callback on the calling thread
+    private void inAdminTransaction() {
+        when(userRoleVerifier.verifyAdmin(ADMIN)).thenReturn(Mono.just(new UserDto()));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private Result result(Long id) {
+        Result result = new Result();
+        result.setId(id);
+        return result;
+    }
+}
@@ -0,0 +1,151 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StudentVersionsTest {
+
+    private static final long STUDENT_ID = 7L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SecondLevelCache secondLevelCache = mock(SecondLevelCache.class);
+    private final StudentVersions versions = new StudentVersions(jdbcTemplate, secondLevelCache, 100, Duration.ofMinutes(1));
+
+    private void storedVersion(Long version) {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(STUDENT_ID)))
+                .thenReturn(version == null ? List.of() : List.of(version));
+    }
+
+    @Test
+    void firstReadEvictsWhatTheCacheHeldForTheStudent() {
+        storedVersion(3L);
+
+        assertThat(versions.forRead(STUDENT_ID)).isEqualTo(3L);
+
+        verify(secondLevelCache).evictStudent(STUDENT_ID);
+    }
+
+    @Test
+    void readsAtTheSameVersionKeepTheCache() {
+        storedVersion(3L);
+        versions.forRead(STUDENT_ID);
+
+        versions.forRead(STUDENT_ID);
+        versions.forRead(STUDENT_ID);
+
+        verify(secondLevelCache, times(1)).evictStudent(STUDENT_ID);
+    }
+
+    @Test
+    void versionMovedOnByAnotherInstanceEvictsBeforeTheBodyIsLoaded() {
+        storedVersion(3L);
+        versions.forRead(STUDENT_ID);
+
+        storedVersion(4L);
+        assertThat(versions.forRead(STUDENT_ID)).isEqualTo(4L);
+
+        verify(secondLevelCache, times(2)).evictStudent(STUDENT_ID);
+    }
+
+    @Test
+    void olderVersionFromALaggingReplicaEvictsToo() {
+        storedVersion(4L);
+        versions.forRead(STUDENT_ID);
+
+        storedVersion(3L);
+        assertThat(versions.forRead(STUDENT_ID)).isEqualTo(3L);
+        storedVersion(4L);
+        assertThat(versions.forRead(STUDENT_ID)).isEqualTo(4L);
+
+        verify(secondLevelCache, times(3)).evictStudent(STUDENT_ID);
+    }
+
+    @Test
+    void localBumpRevalidatesTheCacheOnTheNextRead() {
+        storedVersion(3L);
+        versions.forRead(STUDENT_ID);
+
+        // Outside a transaction the bump takes effect at once, as it would on commit
+        versions.bump(STUDENT_ID);
+        versions.forRead(STUDENT_ID);
+
+        verify(secondLevelCache, times(2)).evictStudent(STUDENT_ID);
+    }
+
+    @Test
+    void missingStudentHasNoVersionAndEvictsNothing() {
+        storedVersion(null);
+
+        assertThat(versions.forRead(STUDENT_ID)).isNull();
+
+        verify(secondLevelCache, never()).evictStudent(STUDENT_ID);
+    }
+
+    @Test
+    void currentVersionIsCachedUntilALocalBump() {
+        storedVersion(3L);
+        assertThat(versions.current(STUDENT_ID)).isEqualTo(3L);
+        storedVersion(4L);
+        assertThat(versions.current(STUDENT_ID)).isEqualTo(3L);
+
+        versions.bump(STUDENT_ID);
+
+        assertThat(versions.current(STUDENT_ID)).isEqualTo(4L);
+    }
+
+    @Test
+    void bumpSendsOneBatchOfDistinctStudents() {
+        versions.bump(List.of(7L, 8L, 7L));
+
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE students SET content_version = content_version + 1 WHERE id = ?"),
+                eq(Set.of(7L, 8L)), eq(2), any());
+    }
+
+    @Test
+    void bumpInATransactionKeepsTheCachedVersionUntilCommit() {
+        storedVersion(3L);
+        versions.current(STUDENT_ID);
+        storedVersion(4L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            versions.bump(STUDENT_ID);
+            // Other readers must not see the version of an uncommitted write
+            assertThat(versions.current(STUDENT_ID)).isEqualTo(3L);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(versions.current(STUDENT_ID)).isEqualTo(4L);
+    }
+
+    @Test
+    void missingStudentHasNoCurrentVersion() {
+        storedVersion(null);
+
+        assertThat(versions.current(STUDENT_ID)).isNull();
+        versions.bump(List.of());
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+    }
+}
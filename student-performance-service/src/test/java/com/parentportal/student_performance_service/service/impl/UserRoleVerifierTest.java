@@ -0,0 +1,57 @@
+package com.parentportal.student_performance_service.service.impl;
+
+import com.parentportal.student_performance_service.dto.user.UserDto;
+import com.parentportal.student_performance_service.service.AccessDeniedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserRoleVerifierTest {
+
+    // User Management Service answering 1 as an ADMIN, 2 as a PARENT and 404 for anyone else
+    private final UserRoleVerifier verifier = new UserRoleVerifier(WebClient.builder().exchangeFunction(request -> {
+        String path = request.url().getPath();
+        String role = path.endsWith("/1") ? "ADMIN" : path.endsWith("/2") ? "PARENT" : null;
+        return Mono.just(role == null
+                ? ClientResponse.create(HttpStatus.NOT_FOUND).build()
+                : ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"id\":" + path.substring(path.lastIndexOf('/') + 1) + ",\"role\":\"" + role + "\"}")
+                        .build());
+    }), "user-management-service", 100, Duration.ofMinutes(5), Duration.ofSeconds(30));
+
+    @Test
+    void userWithTheRequiredRolePasses() {
+        UserDto admin = verifier.verifyAdmin(1L).block();
+
+        assertThat(admin.getId()).isEqualTo(1L);
+        assertThat(verifier.verifyParent(2L).block().getId()).isEqualTo(2L);
+    }
+
+    @Test
+    void userWithAnotherRoleIsDeniedRatherThanRejectedAsABadArgument() {
+        assertThatThrownBy(() -> verifier.verifyAdmin(2L).block())
+                .isInstanceOf(AccessDeniedException.class)
+                .isNotInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("is not an ADMIN");
+        assertThatThrownBy(() -> verifier.verifyParent(1L).block())
+                .isInstanceOf(AccessDeniedException.class)
+                .hasMessageContaining("is not a PARENT");
+    }
+
+    @Test
+    void unknownUserIsNotFound() {
+        assertThatThrownBy(() -> verifier.verifyAdmin(3L).block())
+                .isInstanceOf(NoSuchElementException.class);
+    }
+}
@@ -0,0 +1,145 @@
+package com.parentportal.student_performance_service.tools;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local load test for the admin write paths, whose role checks call user-service: keeps a fixed number of
+ * result writes (single results and small CSV bulk imports) in flight and prints throughput, latency
+ * percentiles and the response status counts.
+ * Not a test; run it against a local student-performance-service whose user-service answers slowly (e.g. a
+ * stub adding 200 ms), once with the default Tomcat pool and once with server.tomcat.threads.max=20. While the
+ * role checks do not park request threads, throughput stays near concurrency / user-service latency in both
+ * runs instead of dropping to threads / latency in the second, e.g.
+ * <pre>
+ * java ... ConcurrentWriteLoadTest admin=1 students=1,2,3 concurrency=400 seconds=30
+ * </pre>
+ * Arguments (all optional): url (service base URL), admin (ID of an ADMIN user), students (comma-separated
+ * existing student IDs), concurrency (requests in flight), seconds, bulk (0..1, share of CSV imports),
+ * rows (rows per CSV import).
+ */
+public class ConcurrentWriteLoadTest {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final String[] SUBJECTS = {"Mathematics", "English", "Science", "History", "Geography"};
+    private static final String[] GRADES = {"A", "B", "C", "D", "E"};
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        String url = options.getOrDefault("url", "http://localhost:8082/api/students");
+        long admin = Long.parseLong(options.getOrDefault("admin", "1"));
+        List<Long> students = new ArrayList<>();
+        for (String id : options.getOrDefault("students", "1").split(",")) {
+            students.add(Long.parseLong(id.trim()));
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "400"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        double bulk = Double.parseDouble(options.getOrDefault("bulk", "0.1"));
+        int rows = Integer.parseInt(options.getOrDefault("rows", "50"));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder failures = new LongAdder();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        Semaphore slots = new Semaphore(concurrency);
+
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            slots.acquire();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            HttpRequest request = random.nextDouble() < bulk
+                    ? csvImport(url, admin, students, rows, random)
+                    : singleResult(url, admin, students.get(random.nextInt(students.size())), random);
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                latencies.add(System.nanoTime() - sent);
+                if (error != null) {
+                    failures.increment();
+                } else {
+                    statuses.computeIfAbsent(response.statusCode(), code -> new LongAdder()).increment();
+                }
+                inFlight.decrementAndGet();
+                slots.release();
+            });
+        }
+        // Wait for the requests still in flight before reporting
+        slots.acquire(concurrency);
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        List<Long> sorted;
+        synchronized (latencies) {
+            sorted = new ArrayList<>(latencies);
+        }
+        Collections.sort(sorted);
+        System.out.printf("Completed %d requests in %.1f s (%.0f/s), peak %d in flight%n",
+                sorted.size(), elapsed, sorted.size() / elapsed, peakInFlight.get());
+        System.out.printf("  latency p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), percentile(sorted, 1.0));
+        statuses.forEach((code, count) -> System.out.printf("  HTTP %d: %d%n", code, count.sum()));
+        System.out.printf("  connection failures: %d%n", failures.sum());
+    }
+
+    private static HttpRequest singleResult(String url, long admin, long studentId, ThreadLocalRandom random) {
+        String body = "{\"studentId\":" + studentId + ",\"subject\":\"" + SUBJECTS[random.nextInt(SUBJECTS.length)]
+                + "\",\"grade\":\"" + GRADES[random.nextInt(GRADES.length)] + "\",\"score\":" + random.nextInt(101)
+                + ",\"date\":\"" + randomDate(random) + "\"}";
+        return HttpRequest.newBuilder(URI.create(url + "/" + admin + "/" + studentId + "/results"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static HttpRequest csvImport(String url, long admin, List<Long> students, int rows, ThreadLocalRandom random) {
+        StringBuilder csv = new StringBuilder("studentId,subject,grade,score,date\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(students.get(random.nextInt(students.size()))).append(',')
+                    .append(SUBJECTS[random.nextInt(SUBJECTS.length)]).append(',')
+                    .append(GRADES[random.nextInt(GRADES.length)]).append(',')
+                    .append(random.nextInt(101)).append(',')
+                    .append(randomDate(random)).append('\n');
+        }
+        return HttpRequest.newBuilder(URI.create(url + "/" + admin + "/results/bulk"))
+                .header("Content-Type", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofString(csv.toString()))
+                .build();
+    }
+
+    private static String randomDate(ThreadLocalRandom random) {
+        return LocalDate.now().minusDays(random.nextInt(365)).format(DATE_FORMAT);
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+}
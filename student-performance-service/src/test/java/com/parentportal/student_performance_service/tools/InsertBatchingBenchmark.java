@@ -0,0 +1,168 @@
+package com.parentportal.student_performance_service.tools;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local benchmark for bulk student and result creation, comparing the statements Hibernate sends with IDENTITY
+ * IDs (one INSERT per row, each reading back its generated key) with those it sends with the pooled sequences
+ * (one NEXTVAL per 50 rows, inserts in JDBC batches of 50), and prints rows per second for each.
+ * Both modes commit every `commit` rows. The rows it inserts are deleted again at the end.
+ * Not a test; run it against a scratch database migrated by student-performance-service (V6 or later), e.g.
+ * <pre>
+ * java ... InsertBatchingBenchmark url=jdbc:mariadb://localhost:3306/parent_portal_student_bench students=5000 results=20
+ * </pre>
+ * Arguments (all optional): url, user, password, students (rows per run), results (results per student),
+ * commit (rows per transaction), rounds (runs per mode; the first is a warm-up and not reported).
+ */
+public class InsertBatchingBenchmark {
+
+    // Must match allocationSize on the entities, INCREMENT BY on the sequences and hibernate.jdbc.batch_size
+    private static final int BATCH_SIZE = 50;
+    private static final String INSERT_STUDENT = "INSERT INTO students (first_name, last_name, student_id, parent_user_id, cohort) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_STUDENT_WITH_ID = "INSERT INTO students (first_name, last_name, student_id, parent_user_id, cohort, id) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_RESULT = "INSERT INTO results (subject, grade, score, date, student_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_RESULT_WITH_ID = "INSERT INTO results (subject, grade, score, date, student_id, id) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String[] SUBJECTS = {"Mathematics", "English", "Science", "History", "Geography"};
+    private static final String[] GRADES = {"A", "B", "C", "D", "E"};
+
+    private interface RowBinder {
+        void bind(PreparedStatement ps, int row) throws SQLException;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        String url = options.getOrDefault("url", "jdbc:mariadb://localhost:3306/parent_portal_student_bench");
+        String user = options.getOrDefault("user", "root");
+        String password = options.getOrDefault("password", "");
+        int students = Integer.parseInt(options.getOrDefault("students", "5000"));
+        int resultsPerStudent = Integer.parseInt(options.getOrDefault("results", "20"));
+        int commit = Integer.parseInt(options.getOrDefault("commit", "500"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "3"));
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            connection.setAutoCommit(false);
+            for (int round = 0; round < rounds; round++) {
+                for (boolean batched : new boolean[]{false, true}) {
+                    List<Long> studentIds = new ArrayList<>(students);
+                    List<Long> resultIds = new ArrayList<>(students * resultsPerStudent);
+                    String tag = UUID.randomUUID().toString().substring(0, 8);
+
+                    long started = System.nanoTime();
+                    RowBinder student = (ps, row) -> {
+                        ps.setString(1, "Bench");
+                        ps.setString(2, "Student " + row);
+                        ps.setString(3, "BENCH-" + tag + "-" + row);
+                        ps.setLong(4, 1L + row % 100);
+                        ps.setString(5, "BENCH");
+                    };
+                    insert(connection, batched, batched ? INSERT_STUDENT_WITH_ID : INSERT_STUDENT, "students_seq", 6,
+                            students, commit, student, studentIds);
+                    double studentSeconds = (System.nanoTime() - started) / 1e9;
+
+                    started = System.nanoTime();
+                    RowBinder result = (ps, row) -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        ps.setString(1, SUBJECTS[row % SUBJECTS.length]);
+                        ps.setString(2, GRADES[random.nextInt(GRADES.length)]);
+                        ps.setDouble(3, random.nextInt(101));
+                        ps.setDate(4, Date.valueOf(LocalDate.now().minusDays(random.nextInt(365))));
+                        ps.setLong(5, studentIds.get(row / resultsPerStudent));
+                    };
+                    insert(connection, batched, batched ? INSERT_RESULT_WITH_ID : INSERT_RESULT, "results_seq", 6,
+                            students * resultsPerStudent, commit, result, resultIds);
+                    double resultSeconds = (System.nanoTime() - started) / 1e9;
+
+                    if (round > 0) {
+                        System.out.printf("Round %d, %-7s students: %8.0f rows/s   results: %8.0f rows/s%n", round,
+                                batched ? "batched" : "single", students / studentSeconds,
+                                students * resultsPerStudent / resultSeconds);
+                    }
+                    delete(connection, "results", resultIds);
+                    delete(connection, "students", studentIds);
+                }
+            }
+        }
+    }
+
+    // Single: one executeUpdate per row, reading back the IDENTITY key. Batched: IDs from NEXTVAL, executeBatch per BATCH_SIZE rows.
+    private static void insert(Connection connection, boolean batched, String sql, String sequence, int idIndex,
+                               int rows, int commit, RowBinder binder, List<Long> ids) throws SQLException {
+        try (PreparedStatement ps = batched ? connection.prepareStatement(sql)
+                : connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+             Statement nextval = connection.createStatement()) {
+            long nextId = 0;
+            int reserved = 0;
+            for (int row = 0; row < rows; row++) {
+                binder.bind(ps, row);
+                if (batched) {
+                    if (reserved == 0) {
+                        try (ResultSet rs = nextval.executeQuery("SELECT NEXTVAL(" + sequence + ")")) {
+                            rs.next();
+                            nextId = rs.getLong(1);
+                        }
+                        reserved = BATCH_SIZE;
+                    }
+                    ps.setLong(idIndex, nextId);
+                    ids.add(nextId++);
+                    reserved--;
+                    ps.addBatch();
+                    if ((row + 1) % BATCH_SIZE == 0) {
+                        ps.executeBatch();
+                    }
+                } else {
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        keys.next();
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                if ((row + 1) % commit == 0) {
+                    if (batched) {
+                        ps.executeBatch();
+                    }
+                    connection.commit();
+                }
+            }
+            if (batched) {
+                ps.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    private static void delete(Connection connection, String table, List<Long> ids) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE id = ?")) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setLong(1, ids.get(i));
+                ps.addBatch();
+                if ((i + 1) % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        connection.commit();
+    }
+}
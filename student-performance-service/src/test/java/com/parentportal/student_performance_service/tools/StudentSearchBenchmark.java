@@ -0,0 +1,174 @@
+package com.parentportal.student_performance_service.tools;
+
+import com.parentportal.student_performance_service.entity.Student;
+import com.parentportal.student_performance_service.service.impl.StudentSearchIndex;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Local benchmark for StudentSearchIndex: builds the index over a generated roster, then times typeahead
+ * queries of each kind and prints their latency percentiles in microseconds, the build time and the heap the
+ * index holds. The target is well under a millisecond per query at 100k students.
+ * Not a test, and needs no database: the rebuild reads the generated rows instead of the students table, e.g.
+ * <pre>
+ * java ... StudentSearchBenchmark students=100000 queries=20000
+ * </pre>
+ * Arguments (all optional): students (roster size), queries (timed queries per kind, after as many warm-up
+ * queries), limit (results per query), updates (students renamed after the build, timed as after-commit
+ * updates), seed (for the generated names).
+ */
+public class StudentSearchBenchmark {
+
+    private static final String[] FIRST_NAMES = {"Ava", "Liam", "Olivia", "Noah", "Emma", "Oliver", "Sophia", "Elijah",
+            "Amelia", "James", "Isabella", "William", "Mia", "Benjamin", "Charlotte", "Lucas", "Harper", "Henry",
+            "Evelyn", "Theodore", "Aisha", "Mateo", "Zoë", "Chloé", "José", "Sebastián", "Priya", "Arjun", "Mei",
+            "Hiro", "Fatima", "Omar", "Ingrid", "Lars", "Siobhan", "Niamh", "Kwame", "Amara", "Dmitri", "Anastasia"};
+    private static final String[] SYLLABLES = {"an", "ber", "cor", "dal", "en", "fer", "gan", "hol", "ith", "jen",
+            "kal", "lor", "man", "nor", "ol", "per", "quin", "ros", "sen", "tor", "ul", "ver", "wick", "yar", "zel"};
+
+    private record Row(long id, String firstName, String lastName, String studentId, String cohort) {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        int students = Integer.parseInt(options.getOrDefault("students", "100000"));
+        int queries = Integer.parseInt(options.getOrDefault("queries", "20000"));
+        int limit = Integer.parseInt(options.getOrDefault("limit", "10"));
+        int updates = Integer.parseInt(options.getOrDefault("updates", "10000"));
+        Random random = new Random(Long.parseLong(options.getOrDefault("seed", "42")));
+
+        List<Row> roster = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            roster.add(new Row(i + 1, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)], lastName(random),
+                    String.format("STU-%06d", i + 1), "Grade " + (1 + random.nextInt(12)) + (char) ('A' + random.nextInt(4))));
+        }
+
+        long heapBefore = usedHeap();
+        StudentSearchIndex index = new StudentSearchIndex(rosterTemplate(roster), 0.5);
+        long started = System.nanoTime();
+        index.rebuild();
+        double buildMillis = (System.nanoTime() - started) / 1e6;
+        long heapAfter = usedHeap();
+        System.out.printf("Built %d students in %.0f ms, index heap ~%d MB%n", students, buildMillis,
+                (heapAfter - heapBefore) / (1024 * 1024));
+
+        // Each kind draws its query from a random student, so hits and near misses follow the roster
+        Map<String, IntFunction<String>> kinds = new LinkedHashMap<>();
+        kinds.put("1-letter prefix", i -> roster.get(i).lastName().substring(0, 1));
+        kinds.put("3-letter prefix", i -> roster.get(i).lastName().substring(0, 3));
+        kinds.put("full last name", i -> roster.get(i).lastName());
+        kinds.put("first + last prefix", i -> roster.get(i).firstName() + " " + roster.get(i).lastName().substring(0, 2));
+        kinds.put("typo in last name", i -> typo(roster.get(i).lastName(), i));
+        kinds.put("school ID", i -> roster.get(i).studentId().replace("-", "").toLowerCase(Locale.ROOT));
+        kinds.put("no match", i -> "xq" + i);
+
+        for (Map.Entry<String, IntFunction<String>> kind : kinds.entrySet()) {
+            long[] nanos = new long[queries];
+            int hits = 0;
+            for (int round = 0; round < 2; round++) {
+                for (int q = 0; q < queries; q++) {
+                    String query = kind.getValue().apply(random.nextInt(students));
+                    long queryStarted = System.nanoTime();
+                    int found = index.search(query, limit).size();
+                    nanos[q] = System.nanoTime() - queryStarted;
+                    hits += round == 1 ? found : 0;
+                }
+            }
+            // Only the second round is reported; the first one warms up the JIT
+            Arrays.sort(nanos);
+            System.out.printf("%-20s p50 %6.1f us   p95 %6.1f us   p99 %6.1f us   max %8.1f us   avg hits %5.1f%n",
+                    kind.getKey(), nanos[queries / 2] / 1e3, nanos[(int) (queries * 0.95)] / 1e3,
+                    nanos[(int) (queries * 0.99)] / 1e3, nanos[queries - 1] / 1e3, (double) hits / queries);
+        }
+
+        started = System.nanoTime();
+        for (int u = 0; u < updates; u++) {
+            Row row = roster.get(random.nextInt(students));
+            Student student = new Student();
+            student.setId(row.id());
+            student.setFirstName(row.firstName());
+            student.setLastName(lastName(random));
+            student.setStudentId(row.studentId());
+            student.setCohort(row.cohort());
+            index.indexAfterCommit(student);
+        }
+        System.out.printf("%d updates at %.1f us each%n", updates, (System.nanoTime() - started) / 1e3 / Math.max(1, updates));
+    }
+
+    private static String lastName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int syllables = 2 + random.nextInt(2);
+        for (int s = 0; s < syllables; s++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    // Swaps two neighbouring letters past the first, the usual typeahead slip
+    private static String typo(String name, int seed) {
+        char[] letters = name.toCharArray();
+        int at = 1 + seed % (letters.length - 2);
+        char swapped = letters[at];
+        letters[at] = letters[at + 1];
+        letters[at + 1] = swapped;
+        return new String(letters);
+    }
+
+    // Answers the index's load query with the generated rows
+    private static JdbcTemplate rosterTemplate(List<Row> roster) {
+        return new JdbcTemplate() {
+            @Override
+            public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+                Row[] current = new Row[1];
+                ResultSet rs = (ResultSet) Proxy.newProxyInstance(StudentSearchBenchmark.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class}, (proxy, method, methodArgs) -> switch (method.getName()) {
+                            case "getLong" -> current[0].id();
+                            case "getString" -> switch ((String) methodArgs[0]) {
+                                case "first_name" -> current[0].firstName();
+                                case "last_name" -> current[0].lastName();
+                                case "student_id" -> current[0].studentId();
+                                default -> current[0].cohort();
+                            };
+                            default -> null;
+                        });
+                try {
+                    for (Row row : roster) {
+                        current[0] = row;
+                        rch.processRow(rs);
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
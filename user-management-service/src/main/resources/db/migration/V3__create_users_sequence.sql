@@ -0,0 +1,8 @@
+-- Pooled sequence IDs for users (allocationSize = 50 on the entity), so inserts can be batched.
+-- Each NEXTVAL reserves that value and the 49 after it (pooled-lo), so the sequence steps by 50
+-- and starts above the existing IDs.
+SET @next_id = (SELECT COALESCE(MAX(id), 0) + 1 FROM users);
+SET @ddl = CONCAT('CREATE SEQUENCE IF NOT EXISTS users_seq START WITH ', @next_id, ' INCREMENT BY 50');
+PREPARE create_sequence FROM @ddl;
+EXECUTE create_sequence;
+DEALLOCATE PREPARE create_sequence;